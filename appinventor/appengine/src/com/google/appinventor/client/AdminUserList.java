@@ -21,6 +21,7 @@ import com.google.gwt.user.client.ui.HTML;
 import com.google.gwt.user.client.ui.HorizontalPanel;
 import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.PasswordTextBox;
+import com.google.gwt.user.client.ui.TextArea;
 import com.google.gwt.user.client.ui.TextBox;
 import com.google.gwt.user.client.ui.VerticalPanel;
 import com.google.gwt.user.client.ui.Widget;
@@ -113,6 +114,20 @@ public class AdminUserList extends Composite {
         }
       });
     searchPanel.add(addUserButton);
+    Button storageStatsButton = new Button("Storage Stats");
+    storageStatsButton.addClickListener(new ClickListener() {
+        @Override
+        public void onClick(Widget sender) {
+          Ode.getInstance().getAdminInfoService().getStorageStats(
+            new OdeAsyncCallback<String>("Unable to get storage stats") {
+              @Override
+              public void onSuccess(String report) {
+                showStorageStatsDialog(report);
+              }
+            });
+        }
+      });
+    searchPanel.add(storageStatsButton);
 
     searchButton.addClickListener(new ClickListener() {
         @Override
@@ -290,6 +305,33 @@ public class AdminUserList extends Composite {
 
   }
 
+  private void showStorageStatsDialog(String report) {
+    final DialogBox dialogBox = new DialogBox(false, true);
+    dialogBox.setStylePrimaryName("ode-DialogBox");
+    dialogBox.setText("Storage Stats");
+    dialogBox.setGlassEnabled(true);
+    dialogBox.setAnimationEnabled(true);
+    TextArea reportArea = new TextArea();
+    reportArea.setReadOnly(true);
+    reportArea.setText(report);
+    reportArea.setCharacterWidth(80);
+    reportArea.setVisibleLines(25);
+    reportArea.getElement().getStyle().setProperty("fontFamily", "monospace");
+    VerticalPanel vPanel = new VerticalPanel();
+    vPanel.add(reportArea);
+    Button okButton = new Button("OK");
+    okButton.addClickListener(new ClickListener() {
+        @Override
+        public void onClick(Widget sender) {
+          dialogBox.hide();
+        }
+      });
+    vPanel.add(okButton);
+    dialogBox.setWidget(vPanel);
+    dialogBox.center();
+    dialogBox.show();
+  }
+
   private void addUpdateUserDialog(final AdminUser user) {
     boolean adding = true;
     if (user != null) {         // Adding a user
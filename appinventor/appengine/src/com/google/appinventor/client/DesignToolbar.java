@@ -10,6 +10,7 @@ import com.google.appinventor.client.editor.FileEditor;
 import com.google.appinventor.client.editor.ProjectEditor;
 import com.google.appinventor.client.editor.youngandroid.BlocklyPanel;
 import com.google.appinventor.client.editor.youngandroid.YaBlocksEditor;
+import com.google.appinventor.client.editor.youngandroid.YaProjectEditor;
 
 import com.google.appinventor.client.explorer.commands.AddFormCommand;
 import com.google.appinventor.client.explorer.commands.ChainableCommand;
@@ -311,7 +312,7 @@ public class DesignToolbar extends Toolbar {
       });
   }
 
-  private void doSwitchScreen1(long projectId, String screenName, View view) {
+  private void doSwitchScreen1(final long projectId, final String screenName, final View view) {
     if (!projectMap.containsKey(projectId)) {
       OdeLog.wlog("DesignToolbar: no project with id " + projectId
           + ". Ignoring SwitchScreenAction.execute().");
@@ -339,9 +340,20 @@ public class DesignToolbar extends Toolbar {
         return;
       }
     }
-    currentView = view;
     Screen screen = currentProject.screens.get(newScreenName);
     ProjectEditor projectEditor = screen.formEditor.getProjectEditor();
+    if (projectEditor instanceof YaProjectEditor
+        && !((YaProjectEditor) projectEditor).isScreenLoaded(newScreenName)) {
+      // Screens are loaded lazily. Switch once this one has loaded.
+      ((YaProjectEditor) projectEditor).loadScreen(newScreenName, new Command() {
+        @Override
+        public void execute() {
+          doSwitchScreen(projectId, screenName, view);
+        }
+      });
+      return;
+    }
+    currentView = view;
     currentProject.setCurrentScreen(newScreenName);
     setDropDownButtonCaption(WIDGET_NAME_SCREENS_DROPDOWN, newScreenName);
     OdeLog.log("Setting currentScreen to " + newScreenName);
@@ -12,6 +12,7 @@ import com.google.appinventor.client.ErrorReporter;
 import com.google.appinventor.client.Ode;
 import com.google.appinventor.client.OdeAsyncCallback;
 import com.google.appinventor.client.editor.youngandroid.YaBlocksEditor;
+import com.google.appinventor.client.editor.youngandroid.YaProjectEditor;
 import com.google.appinventor.client.editor.youngandroid.YailGenerationException;
 import com.google.appinventor.client.explorer.project.Project;
 import com.google.appinventor.client.settings.project.ProjectSettings;
@@ -313,6 +314,22 @@ public final class EditorManager {
    */
   public void generateYailForBlocksEditors(final Command successCommand, 
       final Command failureCommand) {
+    ProjectEditor projectEditor =
+        openProjectEditors.get(Ode.getInstance().getCurrentYoungAndroidProjectId());
+    if (projectEditor instanceof YaProjectEditor) {
+      // Screens are loaded lazily, and every screen needs its blocks editor to generate its yail.
+      ((YaProjectEditor) projectEditor).loadAllScreens(new Command() {
+        @Override
+        public void execute() {
+          generateYail(successCommand, failureCommand);
+        }
+      }, failureCommand);
+    } else {
+      generateYail(successCommand, failureCommand);
+    }
+  }
+
+  private void generateYail(final Command successCommand, final Command failureCommand) {
     List<FileDescriptorWithContent> yailFiles =  new ArrayList<FileDescriptorWithContent>();
     long currentProjectId = Ode.getInstance().getCurrentYoungAndroidProjectId();
     for (long projectId : openProjectEditors.keySet()) {
@@ -362,12 +379,11 @@ public final class EditorManager {
 
 
   /**
-   * This code used to send the contents of all changed files to the server
-   * in the same RPC transaction. However we are now sending them separately
-   * so that we can have more fine grained control over handling errors that
-   * happen only on one file. In particular, we need to handle the case where
-   * a trivial blocks workspace is attempting to be written over a non-trivial
-   * file.
+   * Sends the contents of all changed files to the server in one RPC, which
+   * saves the files of each project together. If that fails because a
+   * trivial blocks workspace would be written over a non-trivial file, which
+   * the user has to confirm for that file alone, nothing has been saved and
+   * the files are sent again one at a time.
    *
    * If any unhandled errors occur while saving, the afterSavingFiles
    * command will not be executed.  If filesWithContent is empty, the
@@ -388,55 +404,94 @@ public final class EditorManager {
       }
 
     } else {
-      for (FileDescriptorWithContent fileDescriptor : filesWithContent ) {
-        final long projectId = fileDescriptor.getProjectId();
-        final String fileId = fileDescriptor.getFileId();
-        final String content = fileDescriptor.getContent();
-        Ode.CLog("Saving fileId " + fileId + " for projectId " + projectId);
-        Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
-          projectId, fileId, false, content, new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
+      // The server returns the date of the last project in the list
+      final long projectId = filesWithContent.get(filesWithContent.size() - 1).getProjectId();
+      Ode.CLog("Saving " + filesWithContent.size() + " files");
+      Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
+          filesWithContent, false, new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
             @Override
             public void onSuccess(Long date) {
-              if (dateHolder.date != 0) {
-                // This sets the project modification time to that of one of
-                // the successful file saves. It doesn't really matter which
-                // file date we use, they will all be close. However it is important
-                // to use some files date because that will be based on the server's
-                // time. If we used the local clients time, then we may be off if the
-                // client's computer's time isn't set correctly.
-                dateHolder.date = date;
-                dateHolder.projectId = projectId;
-              }
+              dateHolder.date = date;
+              dateHolder.projectId = projectId;
               if (afterSavingFiles != null) {
                 afterSavingFiles.execute();
               }
             }
             @Override
             public void onFailure(Throwable caught) {
-              // Here is where we handle BlocksTruncatedException
               if (caught instanceof BlocksTruncatedException) {
-                Ode.getInstance().blocksTruncatedDialog(projectId, fileId, content, this);
-              } else {
-                // We mark the file editor as dirty again because the save failed.
-                //
-                // Note: I considered re-scheduling the auto-save and decided against
-                // it. One reason we might be getting errors is due to a problem with
-                // the server. If a lot of clients start re-scheduling saves, this might
-                // make the situation worse due to the "thundering Herd!" So we compromise
-                // we mark the editors as dirty, so the next update by the user to any
-                // file will retry all of the non-saved files. The "Save Project" menu
-                // item will also re-attempt the failed I/O
-                if (pendingFileEditors.containsKey(fileId)) {
-                  dirtyFileEditors.add(pendingFileEditors.get(fileId));
+                saveFilesOneAtATime(filesWithContent, afterSavingFiles, dateHolder);
+                return;
+              }
+              // As in saveFilesOneAtATime, mark the file editors as dirty again.
+              for (FileDescriptorWithContent fileDescriptor : filesWithContent) {
+                if (pendingFileEditors.containsKey(fileDescriptor.getFileId())) {
+                  dirtyFileEditors.add(pendingFileEditors.get(fileDescriptor.getFileId()));
                 }
-                super.onFailure(caught);
               }
-              if (afterSavingFiles != null) { // Need to call this to decrement the count
-                afterSavingFiles.execute();   // of files saved (or not in this case)
+              super.onFailure(caught);
+              if (afterSavingFiles != null) {
+                afterSavingFiles.execute();
               }
             }
           });
-      }
+    }
+  }
+
+  /*
+   * Saves the files with one RPC each, so that a BlocksTruncatedException can
+   * be handled for the file it was thrown for.
+   */
+  private void saveFilesOneAtATime(
+      final List<FileDescriptorWithContent> filesWithContent, final Command afterSavingFiles, final DateHolder dateHolder) {
+    for (FileDescriptorWithContent fileDescriptor : filesWithContent ) {
+      final long projectId = fileDescriptor.getProjectId();
+      final String fileId = fileDescriptor.getFileId();
+      final String content = fileDescriptor.getContent();
+      Ode.CLog("Saving fileId " + fileId + " for projectId " + projectId);
+      Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
+        projectId, fileId, false, content, new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
+          @Override
+          public void onSuccess(Long date) {
+            if (dateHolder.date != 0) {
+              // This sets the project modification time to that of one of
+              // the successful file saves. It doesn't really matter which
+              // file date we use, they will all be close. However it is important
+              // to use some files date because that will be based on the server's
+              // time. If we used the local clients time, then we may be off if the
+              // client's computer's time isn't set correctly.
+              dateHolder.date = date;
+              dateHolder.projectId = projectId;
+            }
+            if (afterSavingFiles != null) {
+              afterSavingFiles.execute();
+            }
+          }
+          @Override
+          public void onFailure(Throwable caught) {
+            // Here is where we handle BlocksTruncatedException
+            if (caught instanceof BlocksTruncatedException) {
+              Ode.getInstance().blocksTruncatedDialog(projectId, fileId, content, this);
+            } else {
+              // We mark the file editor as dirty again because the save failed.
+              //
+              // Note: I considered re-scheduling the auto-save and decided against
+              // it. One reason we might be getting errors is due to a problem with
+              // the server. If a lot of clients start re-scheduling saves, this might
+              // make the situation worse due to the "thundering Herd!" So we compromise
+              // we mark the editors as dirty, so the next update by the user to any
+              // file will retry all of the non-saved files. The "Save Project" menu
+              // item will also re-attempt the failed I/O
+              if (pendingFileEditors.containsKey(fileId)) {
+                dirtyFileEditors.add(pendingFileEditors.get(fileId));
+              }
+              super.onFailure(caught);
+            }
+            if (afterSavingFiles != null) { // Need to call this to decrement the count
+              afterSavingFiles.execute();   // of files saved (or not in this case)
+            }
+          }
+        });
     }
   }
 }
@@ -181,6 +181,14 @@ public final class YaBlocksEditor extends FileEditor
 
   @Override
   public void loadFile(final Command afterFileLoaded) {
+    loadFile(afterFileLoaded, null);
+  }
+
+  /**
+   * Loads the file like {@link #loadFile(Command)}, and executes
+   * afterLoadFailed, if it isn't null, if the file can't be loaded.
+   */
+  public void loadFile(final Command afterFileLoaded, final Command afterLoadFailed) {
     final long projectId = getProjectId();
     final String fileId = getFileId();
     OdeAsyncCallback<ChecksumedLoadFile> callback = new OdeAsyncCallback<ChecksumedLoadFile>(MESSAGES.loadError()) {
@@ -213,6 +221,9 @@ public final class YaBlocksEditor extends FileEditor
           Ode.getInstance().recordCorruptProject(projectId, fileId, caught.getMessage());
         }
         super.onFailure(caught);
+        if (afterLoadFailed != null) {
+          afterLoadFailed.execute();
+        }
       }
     };
     Ode.getInstance().getProjectService().load2(projectId, fileId, callback);
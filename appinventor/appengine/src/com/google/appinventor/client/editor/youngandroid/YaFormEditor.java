@@ -210,6 +210,14 @@ public final class YaFormEditor extends SimpleEditor implements FormChangeListen
 
   @Override
   public void loadFile(final Command afterFileLoaded) {
+    loadFile(afterFileLoaded, null);
+  }
+
+  /**
+   * Loads the file like {@link #loadFile(Command)}, and executes
+   * afterLoadFailed, if it isn't null, if the file can't be loaded.
+   */
+  public void loadFile(final Command afterFileLoaded, final Command afterLoadFailed) {
     final long projectId = getProjectId();
     final String fileId = getFileId();
     OdeAsyncCallback<ChecksumedLoadFile> callback = new OdeAsyncCallback<ChecksumedLoadFile>(MESSAGES.loadError()) {
@@ -229,6 +237,9 @@ public final class YaFormEditor extends SimpleEditor implements FormChangeListen
             try {
               onFileLoaded(fileContentHolder.getFileContent());
             } catch(IllegalArgumentException e) {
+              if (afterLoadFailed != null) {
+                afterLoadFailed.execute();
+              }
               return;
             }
             if (afterFileLoaded != null) {
@@ -243,6 +254,9 @@ public final class YaFormEditor extends SimpleEditor implements FormChangeListen
           Ode.getInstance().recordCorruptProject(projectId, fileId, caught.getMessage());
         }
         super.onFailure(caught);
+        if (afterLoadFailed != null) {
+          afterLoadFailed.execute();
+        }
       }
     };
     Ode.getInstance().getProjectService().load2(projectId, fileId, callback);
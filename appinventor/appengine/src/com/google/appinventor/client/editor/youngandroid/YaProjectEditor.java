@@ -77,8 +77,27 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
   private class EditorSet {
     YaFormEditor formEditor = null;
     YaBlocksEditor blocksEditor = null;
+    YoungAndroidFormNode formNode = null;
+    // Only Screen1 is loaded when the project is opened. The other screens
+    // are loaded the first time they are switched to, when something needs
+    // all of the screens, or in idle time. A screen is loaded once both of
+    // its editors have loaded their files. If either file fails to load, the
+    // screen isn't loaded in idle time again, but loading it explicitly
+    // tries again.
+    boolean loading = false;
+    boolean loaded = false;
+    boolean failed = false;
+    // Whether the form editor has loaded its file and been inserted
+    boolean formLoaded = false;
+    // Commands to execute once the screen has loaded, or if it fails to load
+    final List<Command> afterLoading = new ArrayList<Command>();
+    final List<Command> afterFailure = new ArrayList<Command>();
   }
 
+  // Delay before loading the next screen in idle time, so that loading the
+  // project's screens doesn't keep the browser busy
+  private static final int IDLE_LOAD_DELAY_MS = 500;
+
   // Maps form name -> editors for this form
   private final HashMap<String, EditorSet> editorMap = Maps.newHashMap();
   
@@ -112,6 +131,9 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
   private boolean screen1BlocksLoaded = false;
   private boolean screen1Added = false;
 
+  // Whether loading the next screen in idle time has been scheduled
+  private boolean idleLoadScheduled = false;
+
   /**
    * Returns a project editor factory for {@code YaProjectEditor}s.
    *
@@ -146,6 +168,7 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
             pos = -pos - 1;
           }
           insertFileEditor(newBlocksEditor, pos);
+          onScreenLoaded(formName);
           if (isScreen1(formName)) {
             screen1BlocksLoaded = true;
             if (readyToShowScreen1()) {
@@ -156,6 +179,11 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
             }
           }
         }
+      }, new Command() {
+        @Override
+        public void execute() {
+          onScreenLoadFailed(formName);
+        }
       });
 
   }
@@ -191,7 +219,8 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
         addBlocksEditor((YoungAndroidBlocksNode) source);
       }
     }
-    // Add the screens to the design toolbar, along with their associated editors
+    // Add the screens to the design toolbar, along with their associated editors. Only Screen1 is
+    // loaded now; the others are loaded once they are needed or in idle time.
     DesignToolbar designToolbar = Ode.getInstance().getDesignToolbar();
     for (String formName : editorMap.keySet()) {
       EditorSet editors = editorMap.get(formName);
@@ -200,6 +229,7 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
             editors.blocksEditor);
         if (isScreen1(formName)) {
           screen1Added = true;
+          loadScreen(formName, null);
           if (readyToShowScreen1()) {  // probably not yet but who knows?
             OdeLog.log("YaProjectEditor.loadProject: switching to screen " + formName 
                 + " for project " + projectRootNode.getProjectId());
@@ -257,7 +287,9 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     OdeLog.log("YaProjectEditor: got onUnload");
     super.onUnload();
     for (EditorSet editors : editorMap.values()) {
-      editors.blocksEditor.prepareForUnload();
+      if (editors.loaded) {
+        editors.blocksEditor.prepareForUnload();
+      }
     }
   }
 
@@ -271,12 +303,12 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
   public void onProjectNodeAdded(Project project, ProjectNode node) {
     String formName = null;
     if (node instanceof YoungAndroidFormNode) {
-      if (getFileEditor(node.getFileId()) == null) {
+      if (getFormFileEditor(((YoungAndroidFormNode) node).getFormName()) == null) {
         addFormEditor((YoungAndroidFormNode) node);
         formName = ((YoungAndroidFormNode) node).getFormName();
       }
     } else if (node instanceof YoungAndroidBlocksNode) {
-      if (getFileEditor(node.getFileId()) == null) {
+      if (getBlocksFileEditor(((YoungAndroidBlocksNode) node).getFormName()) == null) {
         addBlocksEditor((YoungAndroidBlocksNode) node);
         formName = ((YoungAndroidBlocksNode) node).getFormName();
       }
@@ -287,6 +319,8 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
       if (editors.formEditor != null && editors.blocksEditor != null) {
         Ode.getInstance().getDesignToolbar().addScreen(node.getProjectId(), formName, 
             editors.formEditor, editors.blocksEditor);
+        // A screen added while the project is open is about to be shown, so load it right away
+        loadScreen(formName, null);
       }
     }
   }
@@ -332,6 +366,128 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
   }
 
   /**
+   * Returns whether the editors for the given screen have loaded.
+   */
+  public boolean isScreenLoaded(String formName) {
+    EditorSet editors = editorMap.get(formName);
+    return editors != null && editors.loaded;
+  }
+
+  /**
+   * Loads the editors for the given screen, if they haven't been loaded yet,
+   * and then executes {@code afterLoading}.
+   *
+   * @param formName  the screen to load
+   * @param afterLoading  optional command to execute once the screen has loaded
+   */
+  public void loadScreen(String formName, Command afterLoading) {
+    loadScreen(formName, afterLoading, null);
+  }
+
+  /**
+   * Loads the editors for the given screen, if they haven't been loaded yet,
+   * and then executes {@code afterLoading}. If the screen fails to load,
+   * executes {@code afterFailure} instead. The failure itself has already
+   * been reported to the user.
+   *
+   * @param formName  the screen to load
+   * @param afterLoading  optional command to execute once the screen has loaded
+   * @param afterFailure  optional command to execute if the screen fails to load
+   */
+  public void loadScreen(String formName, Command afterLoading, Command afterFailure) {
+    EditorSet editors = editorMap.get(formName);
+    if (editors == null) {
+      OdeLog.wlog("YaProjectEditor: no screen " + formName + " to load for project " + projectId);
+      return;
+    }
+    if (editors.loaded) {
+      if (afterLoading != null) {
+        afterLoading.execute();
+      }
+      return;
+    }
+    if (afterLoading != null) {
+      editors.afterLoading.add(afterLoading);
+    }
+    if (afterFailure != null) {
+      editors.afterFailure.add(afterFailure);
+    }
+    if (!editors.loading && editors.formEditor != null && editors.blocksEditor != null) {
+      editors.loading = true;
+      editors.failed = false;
+      if (editors.formLoaded) {
+        // Only the blocks failed to load last time
+        loadBlocksEditor(formName);
+      } else {
+        loadFormEditor(formName);
+      }
+    }
+  }
+
+  /**
+   * Loads the editors for all of the project's screens that haven't been
+   * loaded yet, and then executes {@code afterLoading}. This is for things
+   * that need more than the summaries of the screens, such as generating
+   * yail or finding the blocks used in the project.
+   *
+   * @param afterLoading  command to execute once all of the screens have loaded
+   */
+  public void loadAllScreens(Command afterLoading) {
+    loadAllScreens(afterLoading, null);
+  }
+
+  /**
+   * Loads all of the project's screens like {@link #loadAllScreens(Command)}.
+   * If any of them fails to load, executes {@code afterFailure} instead of
+   * {@code afterLoading}.
+   *
+   * @param afterLoading  command to execute once all of the screens have loaded
+   * @param afterFailure  optional command to execute if a screen fails to load
+   */
+  public void loadAllScreens(final Command afterLoading, final Command afterFailure) {
+    final List<String> unloaded = new ArrayList<String>();
+    for (String formName : editorMap.keySet()) {
+      EditorSet editors = editorMap.get(formName);
+      if (!editors.loaded && editors.formEditor != null && editors.blocksEditor != null) {
+        unloaded.add(formName);
+      }
+    }
+    if (unloaded.isEmpty()) {
+      afterLoading.execute();
+      return;
+    }
+    final boolean[] failed = { false };
+    Command afterScreenLoaded = new Command() {
+      private int remaining = unloaded.size();
+
+      @Override
+      public void execute() {
+        if (--remaining == 0 && !failed[0]) {
+          afterLoading.execute();
+        }
+      }
+    };
+    Command afterScreenFailed = new Command() {
+      @Override
+      public void execute() {
+        if (!failed[0]) {
+          failed[0] = true;
+          if (afterFailure != null) {
+            afterFailure.execute();
+          }
+        }
+      }
+    };
+    for (String formName : unloaded) {
+      loadScreen(formName, afterScreenLoaded, afterScreenFailed);
+    }
+  }
+
+  /**
+   * Returns the names of the components in the given screen. If the screen
+   * hasn't been loaded yet, the names come from the summary of the screen
+   * that was sent with the project.
+   *
    * @return a list of component instance names
    */
   public List<String> getComponentInstances(String formName) {
@@ -340,7 +496,11 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     if (editorSet == null) {
       return components;
     }
-    components.addAll(editorSet.formEditor.getComponents().keySet());
+    if (editorSet.loaded) {
+      components.addAll(editorSet.formEditor.getComponents().keySet());
+    } else if (editorSet.formNode != null && editorSet.formNode.getComponentTypes() != null) {
+      components.addAll(editorSet.formNode.getComponentTypes().keySet());
+    }
     return  components;
   }
 
@@ -358,8 +518,12 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     if (editorSet == null) {
       return types;
     }
-    for(MockComponent m : editorSet.formEditor.getComponents().values()) {
-      types.add(m.getType());
+    if (editorSet.loaded) {
+      for(MockComponent m : editorSet.formEditor.getComponents().values()) {
+        types.add(m.getType());
+      }
+    } else if (editorSet.formNode != null && editorSet.formNode.getComponentTypes() != null) {
+      types.addAll(editorSet.formNode.getComponentTypes().values());
     }
     return types;
   }
@@ -372,20 +536,25 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     return types;
   }
 
+  // Only loaded screens are included; use loadAllScreens first to include every screen.
   public Set<String> getUniqueBuiltInBlockTypes() {
     Set<String> types = new HashSet<String>();
     for (EditorSet ed : editorMap.values()) {
-      types.addAll(ed.blocksEditor.getBlockTypeSet());
+      if (ed.loaded) {
+        types.addAll(ed.blocksEditor.getBlockTypeSet());
+      }
     }
     return types;
   }
 
   // Returns a hash of component names with the set of all component blocks (events, methods,
-  // and properties) in use for all screens in the current project
+  // and properties) in use for all loaded screens in the current project
   public HashMap<String, Set<String>> getUniqueComponentBlockTypes() {
     HashMap<String, Set<String>> componentBlocks = new HashMap<String, Set<String>>();
     for (EditorSet ed : editorMap.values()) {
-      componentBlocks = ed.blocksEditor.getComponentBlockTypeSet(componentBlocks);
+      if (ed.loaded) {
+        componentBlocks = ed.blocksEditor.getComponentBlockTypeSet(componentBlocks);
+      }
     }
     return componentBlocks;
   }
@@ -439,26 +608,40 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
   }
   
   private void addFormEditor(YoungAndroidFormNode formNode) {
-    final YaFormEditor newFormEditor = new YaFormEditor(this, formNode);
-    final String formName = formNode.getFormName();
+    YaFormEditor newFormEditor = new YaFormEditor(this, formNode);
+    String formName = formNode.getFormName();
     OdeLog.log("Adding form editor for " + formName);
     if (editorMap.containsKey(formName)) {
       // This happens if the blocks editor was already added.
       editorMap.get(formName).formEditor = newFormEditor;
+      editorMap.get(formName).formNode = formNode;
     } else {
       EditorSet editors = new EditorSet();
       editors.formEditor = newFormEditor;
+      editors.formNode = formNode;
       editorMap.put(formName, editors);
     }
+  }
+
+  // Loads the form editor for the given screen. The blocks editor is loaded once the form editor
+  // has loaded, because the blocks need the component types of the form.
+  private void loadFormEditor(final String formName) {
+    final YaFormEditor newFormEditor = editorMap.get(formName).formEditor;
     final Command afterLoadCommand = new Command() {
       @Override
       public void execute() {
+        EditorSet editors = editorMap.get(formName);
+        if (editors == null) {
+          // The screen was removed while it was loading
+          return;
+        }
         int pos = Collections.binarySearch(fileIds, newFormEditor.getFileId(),
             getFileIdComparator());
         if (pos < 0) {
           pos = -pos - 1;
         }
         insertFileEditor(newFormEditor, pos);
+        editors.formLoaded = true;
         if (isScreen1(formName)) {
           screen1FormLoaded = true;
           if (readyToShowScreen1()) {
@@ -471,6 +654,12 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
         loadBlocksEditor(formName);
       }
     };
+    final Command afterFailureCommand = new Command() {
+      @Override
+      public void execute() {
+        onScreenLoadFailed(formName);
+      }
+    };
     if (!isScreen1(formName) && !screen1FormLoaded) {
       // Defer loading other screens until Screen1 is loaded. Otherwise we can end up in an
       // inconsistent state during project upgrades with Screen1-only properties.
@@ -478,7 +667,7 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
         @Override
         public boolean execute() {
           if (screen1FormLoaded) {
-            newFormEditor.loadFile(afterLoadCommand);
+            newFormEditor.loadFile(afterLoadCommand, afterFailureCommand);
             return false;
           } else {
             return true;
@@ -486,10 +675,87 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
         }
       }, 100);
     } else {
-      newFormEditor.loadFile(afterLoadCommand);
+      newFormEditor.loadFile(afterLoadCommand, afterFailureCommand);
     }
   }
     
+  // Called once both of the editors of the given screen have loaded.
+  private void onScreenLoaded(String formName) {
+    EditorSet editors = editorMap.get(formName);
+    if (editors == null) {
+      // The screen was removed while it was loading
+      return;
+    }
+    editors.loaded = true;
+    List<Command> afterLoading = new ArrayList<Command>(editors.afterLoading);
+    editors.afterLoading.clear();
+    editors.afterFailure.clear();
+    for (Command command : afterLoading) {
+      command.execute();
+    }
+    if (screen1FormLoaded) {
+      scheduleIdleLoad();
+    }
+  }
+
+  // Called if either of the editors of the given screen fails to load its file. The error has
+  // already been reported; this fails the commands waiting for the screen and lets the idle
+  // loader move on to the next screen.
+  private void onScreenLoadFailed(String formName) {
+    EditorSet editors = editorMap.get(formName);
+    if (editors == null) {
+      // The screen was removed while it was loading
+      return;
+    }
+    editors.loading = false;
+    editors.failed = true;
+    List<Command> afterFailure = new ArrayList<Command>(editors.afterFailure);
+    editors.afterLoading.clear();
+    editors.afterFailure.clear();
+    for (Command command : afterFailure) {
+      command.execute();
+    }
+    if (screen1FormLoaded) {
+      scheduleIdleLoad();
+    }
+  }
+
+  // Schedules loading the next screen that hasn't been loaded yet. Screens are loaded one at a time
+  // in the background, and each one schedules the next once it has loaded.
+  private void scheduleIdleLoad() {
+    if (idleLoadScheduled) {
+      return;
+    }
+    idleLoadScheduled = true;
+    Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+      @Override
+      public boolean execute() {
+        idleLoadScheduled = false;
+        if (Ode.getInstance().getEditorManager().getOpenProjectEditor(projectId)
+            != YaProjectEditor.this) {
+          // The project has been closed
+          return false;
+        }
+        String next = null;
+        for (String formName : editorMap.keySet()) {
+          EditorSet editors = editorMap.get(formName);
+          if (editors.loading && !editors.loaded) {
+            // Wait for the screen being loaded; it will schedule the next one
+            return false;
+          }
+          if (!editors.loading && !editors.failed && next == null && editors.formEditor != null
+              && editors.blocksEditor != null) {
+            next = formName;
+          }
+        }
+        if (next != null) {
+          loadScreen(next, null);
+        }
+        return false;
+      }
+    }, IDLE_LOAD_DELAY_MS);
+  }
+
   private boolean readyToShowScreen1() {
     return screen1FormLoaded && screen1BlocksLoaded && screen1Added;
   }
@@ -752,10 +1018,13 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     for (ComponentDatabaseChangeListener cdbChangeListener : componentDatabaseChangeListeners) {
       cdbChangeListener.onComponentTypeAdded(componentTypes);
     }
+    // Screens that haven't loaded yet will pick up the change when they load
     for (String formName : editorMap.keySet()) {
       EditorSet editors = editorMap.get(formName);
-      editors.formEditor.onComponentTypeAdded(componentTypes);
-      editors.blocksEditor.onComponentTypeAdded(componentTypes);
+      if (editors.loaded) {
+        editors.formEditor.onComponentTypeAdded(componentTypes);
+        editors.blocksEditor.onComponentTypeAdded(componentTypes);
+      }
     }
     // Change of extensions...
     YaBlocksEditor.resendAssetsAndExtensions();
@@ -780,10 +1049,14 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     for (ComponentDatabaseChangeListener cdbChangeListener : componentDatabaseChangeListeners) {
       result = result & cdbChangeListener.beforeComponentTypeRemoved(componentTypes);
     }
+    // Callers load all of the screens first (see loadAllScreens) so that components of the removed
+    // types are deleted from every screen
     for (String formName : editorMap.keySet()) {
       EditorSet editors = editorMap.get(formName);
-      result = result & editors.formEditor.beforeComponentTypeRemoved(componentTypes);
-      result = result & editors.blocksEditor.beforeComponentTypeRemoved(componentTypes);
+      if (editors.loaded) {
+        result = result & editors.formEditor.beforeComponentTypeRemoved(componentTypes);
+        result = result & editors.blocksEditor.beforeComponentTypeRemoved(componentTypes);
+      }
     }
     return result;
   }
@@ -796,8 +1069,10 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     }
     for (String formName : editorMap.keySet()) {
       EditorSet editors = editorMap.get(formName);
-      editors.formEditor.onComponentTypeRemoved(componentTypes);
-      editors.blocksEditor.onComponentTypeRemoved(componentTypes);
+      if (editors.loaded) {
+        editors.formEditor.onComponentTypeRemoved(componentTypes);
+        editors.blocksEditor.onComponentTypeRemoved(componentTypes);
+      }
     }
     removeComponent(componentTypes);
   }
@@ -810,8 +1085,10 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
     }
     for (String formName : editorMap.keySet()) {
       EditorSet editors = editorMap.get(formName);
-      editors.formEditor.onResetDatabase();
-      editors.blocksEditor.onResetDatabase();
+      if (editors.loaded) {
+        editors.formEditor.onResetDatabase();
+        editors.blocksEditor.onResetDatabase();
+      }
     }
   }
 
@@ -821,6 +1098,10 @@ public final class YaProjectEditor extends ProjectEditor implements ProjectChang
   public void saveProject() {
     EditorManager manager = Ode.getInstance().getEditorManager();
     for (EditorSet editors : editorMap.values()) {
+      if (!editors.loaded) {
+        // Nothing has changed in a screen that hasn't been loaded
+        continue;
+      }
       // It would be more efficient to check if the editors use the component in question,
       // but we are conservative and save everything, for now.
       manager.scheduleAutoSave(editors.formEditor);
@@ -37,7 +37,11 @@ public class ShowProgressBarCommand extends ChainableCommand {
   private String target;
   private ChainableCommand nextCommand;
   private final String buildRequestTime;
-  private static final int WAIT_INTERVAL_MILLIS = 5000;
+  // The server holds each request until the build's progress changes, so
+  // there's no need to wait long before asking again.
+  private static final int WAIT_INTERVAL_MILLIS = 500;
+  // The last build progress we got from the server, or -1 if none yet
+  private int knownProgress = -1;
   private ProjectNode projectNode;
   private ProgressBarDialogBox minPB;
   private String serviceName;
@@ -83,14 +87,14 @@ public class ShowProgressBarCommand extends ChainableCommand {
         addMessages(node.getName(),result);
         if (result.succeeded()) {
             minPB.hide();
-        } else if (progressBarShow != 2 ) {
+        } else if (result.getResult() == -1 && progressBarShow != 2 ) {
           // Build isn't done yet
+          knownProgress = Integer.parseInt(result.getOutput());
           Timer timer = new Timer() {
               @Override
                 public void run() {
                 execute(node); }
             };
-          // TODO(user): Maybe do an exponential backoff here.
           timer.schedule(WAIT_INTERVAL_MILLIS);
         }
       }
@@ -99,7 +103,8 @@ public class ShowProgressBarCommand extends ChainableCommand {
         super.onFailure(caught);
         executionFailedOrCanceled();}
     };
-    ode.getProjectService().getBuildResult(node.getProjectId(), target, callback);
+    ode.getProjectService().waitForBuildResult(node.getProjectId(), target, knownProgress,
+        callback);
   }
 
   public void addMessages(String projectName, RpcResult result) {
@@ -37,7 +37,11 @@ import static com.google.appinventor.client.Ode.MESSAGES;
 public class WaitForBuildResultCommand extends ChainableCommand {
   // The build target
   private final String target;
-  private static final int WAIT_INTERVAL_MILLIS = 10000;
+  // The server holds each request until the build's progress changes, so
+  // there's no need to wait long before asking again.
+  private static final int WAIT_INTERVAL_MILLIS = 500;
+  // The last build progress we got from the server, or -1 if none yet
+  private int knownProgress = -1;
   private final MessagesOutput messagesOutput;
   private final String buildRequestTime;
 
@@ -113,13 +117,13 @@ public class WaitForBuildResultCommand extends ChainableCommand {
           executionFailedOrCanceled();
         } else {
           // Build isn't done yet
+          knownProgress = Integer.parseInt(result.getOutput());
           Timer timer = new Timer() {
             @Override
             public void run() {
               execute(node);
             }
           };
-          // TODO(user): Maybe do an exponential backoff here.
           timer.schedule(WAIT_INTERVAL_MILLIS);
         }
       }
@@ -131,7 +135,8 @@ public class WaitForBuildResultCommand extends ChainableCommand {
       }
     };
 
-    ode.getProjectService().getBuildResult(node.getProjectId(), target, callback);
+    ode.getProjectService().waitForBuildResult(node.getProjectId(), target, knownProgress,
+        callback);
   }
 
   private static YoungAndroidBlocksNode findBlocksNode(YoungAndroidProjectNode projectRootNode,
@@ -11,6 +11,7 @@ import static com.google.appinventor.client.Ode.MESSAGES;
 import com.google.appinventor.client.OdeAsyncCallback;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.UserProject;
+import com.google.appinventor.shared.rpc.project.UserProjectPage;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,6 +24,9 @@ import java.util.Map;
  * @author lizlooney@google.com (Liz Looney)
  */
 public final class ProjectManager {
+  // The number of project infos to ask the server for at a time
+  private static final int PROJECT_PAGE_SIZE = 100;
+
   // Map to find the project from a project ID.
   private final Map<Long, Project> projectsMap;
 
@@ -40,15 +44,30 @@ public final class ProjectManager {
   public ProjectManager() {
     projectsMap = new HashMap<Long, Project>();
     projectManagerEventListeners = new ArrayList<ProjectManagerEventListener>();
-    Ode.getInstance().getProjectService().getProjectInfos(
-      new OdeAsyncCallback<List<UserProject>>(
+    loadProjectInfos(null);
+  }
+
+  /*
+   * Loads the project infos a page at a time, so the project list fills in
+   * as they arrive rather than after all of them have been fetched.
+   */
+  private void loadProjectInfos(String cursor) {
+    Ode.getInstance().getProjectService().getProjectInfosPage(cursor, PROJECT_PAGE_SIZE,
+      new OdeAsyncCallback<UserProjectPage>(
         MESSAGES.projectInformationRetrievalError()) {
         @Override
-        public void onSuccess(List<UserProject> projectInfos) {
-          for (UserProject projectInfo : projectInfos) {
-            addProject(projectInfo);
+        public void onSuccess(UserProjectPage page) {
+          for (UserProject projectInfo : page.getProjects()) {
+            // A project created while we were loading may already be here
+            if (!projectsMap.containsKey(projectInfo.getProjectId())) {
+              addProject(projectInfo);
+            }
+          }
+          if (page.hasMore()) {
+            loadProjectInfos(page.getCursor());
+          } else {
+            fireProjectsLoaded();
           }
-          fireProjectsLoaded();
         }
       });
   }
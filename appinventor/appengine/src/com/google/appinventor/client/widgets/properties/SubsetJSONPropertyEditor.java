@@ -412,7 +412,17 @@ public class SubsetJSONPropertyEditor  extends PropertyEditor
 
   private void matchProject() {
     long projID = Ode.getInstance().getCurrentYoungAndroidProjectId();
-    YaProjectEditor projEditor = (YaProjectEditor)Ode.getInstance().getEditorManager().getOpenProjectEditor(projID);
+    final YaProjectEditor projEditor = (YaProjectEditor)Ode.getInstance().getEditorManager().getOpenProjectEditor(projID);
+    // The blocks in use are only known for loaded screens
+    projEditor.loadAllScreens(new Command() {
+      @Override
+      public void execute() {
+        matchProject(projEditor);
+      }
+    });
+  }
+
+  private void matchProject(YaProjectEditor projEditor) {
     Set<String> componentTypes = projEditor.getUniqueComponentTypes();
     HashMap<String, Set<String>> componentBlockTypes = projEditor.getUniqueComponentBlockTypes();
     for (int i = 0; i < componentTree.getItemCount(); ++i) {
@@ -592,6 +592,11 @@ public final class YoungAndroidFormUpgrader {
       // No properties need to be modified to upgrade to version 6.
       srcCompVersion = 6;
     }
+    if (srcCompVersion < 7) {
+      // The BluetoothClient.ReceiveInBackground property and DataReceived event were added.
+      // No properties need to be modified to upgrade to version 7.
+      srcCompVersion = 7;
+    }
     return srcCompVersion;
   }
 
@@ -618,6 +623,11 @@ public final class YoungAndroidFormUpgrader {
       // No properties need to be modified to upgrade to version 5.
       srcCompVersion = 5;
     }
+    if (srcCompVersion < 6) {
+      // The BluetoothServer.ReceiveInBackground property and DataReceived event were added.
+      // No properties need to be modified to upgrade to version 6.
+      srcCompVersion = 6;
+    }
     return srcCompVersion;
   }
   private static int upgradeSliderProperties(Map<String, JSONValue> componentProperties,
@@ -787,6 +797,11 @@ public final class YoungAndroidFormUpgrader {
       // Assets helper block was added.
       srcCompVersion = 15;
     }
+    if (srcCompVersion < 16) {
+      // The SynchronizedAnimation property was added.
+      // No properties need to be modified to upgrade to version 16.
+      srcCompVersion = 16;
+    }
     return srcCompVersion;
   }
 
@@ -1545,6 +1560,11 @@ public final class YoungAndroidFormUpgrader {
       // Added Property: Namespace
       srcCompVersion = 2;
     }
+    if (srcCompVersion < 3) {
+      // Added Property: UseDatabase
+      // No properties need to be modified to upgrade to version 3.
+      srcCompVersion = 3;
+    }
     return srcCompVersion;
   }
 
@@ -1780,6 +1800,12 @@ public final class YoungAndroidFormUpgrader {
       // No properties need to be modified to upgrade to version 8.
       srcCompVersion = 8;
     }
+    if (srcCompVersion < 9) {
+      // The ResponseTextChunkSize property and GotTextChunk event were added.
+      // The LastResponseTime and LastRequestDuration properties were added.
+      // No properties need to be modified to upgrade to version 9.
+      srcCompVersion = 9;
+    }
     return srcCompVersion;
   }
 
@@ -1846,6 +1872,16 @@ public final class YoungAndroidFormUpgrader {
       // Adds ScaleUnits and MapType dropdowns.
       srcCompVersion = 6;
     }
+    if (srcCompVersion < 7) {
+      // The ClusterMarkers property was added.
+      // No properties need to be modified to upgrade to version 7.
+      srcCompVersion = 7;
+    }
+    if (srcCompVersion < 8) {
+      // The NearestFeatures, FeaturesWithinDistance and FeaturesInBoundingBox methods were added.
+      // No properties need to be modified to upgrade to version 8.
+      srcCompVersion = 8;
+    }
     return srcCompVersion;
   }
 
@@ -1925,6 +1961,11 @@ public final class YoungAndroidFormUpgrader {
       // The GotGeoJSON and GeoJSONError events were renamed in the blocks editor.
       srcCompVersion = 2;
     }
+    if (srcCompVersion < 3) {
+      // The NearestFeatures, FeaturesWithinDistance and FeaturesInBoundingBox methods were added.
+      // No properties need to be modified to upgrade to version 3.
+      srcCompVersion = 3;
+    }
     return srcCompVersion;
   }
 
@@ -95,4 +95,12 @@ public class AdminInfoServiceImpl extends OdeRemoteServiceServlet implements Adm
     getThreadLocalResponse().addCookie(cook);
 
   }
+
+  @Override
+  public String getStorageStats() {
+    if (!userInfoProvider.getIsAdmin()) {
+      throw new IllegalArgumentException("Unauthorized.");
+    }
+    return storageIo.getStorageStats();
+  }
 }
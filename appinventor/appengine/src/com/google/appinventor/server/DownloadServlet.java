@@ -36,7 +36,7 @@ public class DownloadServlet extends OdeServlet {
    *    /<baseurl>/download/project-output/<projectId>/{<target>}
    *    /<baseurl>/download/project-source/<projectId>/{<title>}
    *    /<baseurl>/download/user-project-source/<projectIdOrName>/<userIdOrEmail>
-   *    /<baseurl>/download/all-projects-source
+   *    /<baseurl>/download/all-projects-source{?after=<projectId>}
    *    /<baseurl>/download/file/<projectId>/<file-path>
    *    /<baseurl>/download/userfile/<file-path>
    */
@@ -198,10 +198,40 @@ public class DownloadServlet extends OdeServlet {
           userId, "selected-projects.zip", projectIds);
         downloadableFile = zipFile.getRawFile();
       } else if (downloadKind.equals(ServerLayout.DOWNLOAD_ALL_PROJECTS_SOURCE)) {
-        // Download all project source files as a zip of zips.
-        ProjectSourceZip zipFile = fileExporter.exportAllProjectsSourceZip(
-            userId, "all-projects.zip");
-        downloadableFile = zipFile.getRawFile();
+        // Download all project source files as a zip of zips. The zip is
+        // streamed as it is made, so it is written straight to the response.
+        // An export that failed partway can be resumed by passing the id of
+        // the last project received (its zip entry's comment) as the after
+        // parameter.
+        String afterParam = req.getParameter("after");
+        long after = 0;
+        if (afterParam != null) {
+          try {
+            after = Long.parseLong(afterParam);
+          } catch (NumberFormatException e) {
+            after = -1;
+          }
+          if (after <= 0) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid project id: " + afterParam);
+            return;
+          }
+        }
+        String fileName = (after == 0) ? "all-projects.zip" : "all-projects-after-" + after + ".zip";
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setHeader("content-disposition", "attachment; filename=\"" + fileName + "\"");
+        resp.setContentType(StorageUtil.getContentTypeForFilePath(fileName));
+        ServletOutputStream out = resp.getOutputStream();
+        try {
+          fileExporter.exportAllProjectsSourceZip(userId, after, out);
+        } catch (IllegalArgumentException e) {
+          // Nothing has been written yet, so drop the download headers
+          resp.reset();
+          CACHE_HEADERS.setNotCacheable(resp);
+          resp.setContentType(CONTENT_TYPE);
+          throw e;
+        }
+        out.close();
+        return;
 
       } else if (downloadKind.equals(ServerLayout.DOWNLOAD_FILE)) {
         // Download a specific file.
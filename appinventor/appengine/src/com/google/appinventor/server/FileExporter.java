@@ -10,6 +10,7 @@ import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -72,16 +73,23 @@ public interface FileExporter {
   ProjectSourceZip exportSelectedProjectsSourceZip(String userId, String zipName, List<Long> projectIds) throws IOException;
 
   /**
-   * Exports all of the user's projects' source files as a zip of zips.
+   * Exports all of the user's projects' source files as a zip of zips,
+   * writing the zip to the given stream as each project is zipped. Projects
+   * are written in order of id, and each project's entry has the project id
+   * as its comment, so an export that failed partway can be resumed by
+   * passing the id of the last project received as afterProjectId.
    *
    * @param userId the userId
-   * @param zipName the desired name for the zip
-   * @return the name, contents, and number of files in the zip
+   * @param afterProjectId only projects with greater ids are exported; 0 for
+   *        all projects
+   * @param out the stream to write the zip to
+   * @return the number of files in the zip
    * @throws IllegalArgumentException if download request cannot be fulfilled
-   *         (no projects)
+   *         (no projects); nothing has been written to out in that case
    * @throws IOException if files cannot be written
    */
-  ProjectSourceZip exportAllProjectsSourceZip(String userId, String zipName) throws IOException;
+  int exportAllProjectsSourceZip(String userId, long afterProjectId, OutputStream out)
+      throws IOException;
 
   /**
    * Exports a specific project file.
@@ -6,18 +6,34 @@
 
 package com.google.appinventor.server;
 
+import com.google.appengine.api.ThreadManager;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.storage.StorageIoInstanceHolder;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.storage.StorageUtil;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
 import javax.annotation.Nullable;
@@ -28,6 +44,13 @@ import javax.annotation.Nullable;
  */
 public final class FileExporterImpl implements FileExporter {
 
+  // The number of projects zipped at the same time when exporting many projects
+  private static final int EXPORT_THREADS = 4;
+
+  // The number of zipped projects that may wait to be written while the
+  // projects before them are still being zipped
+  private static final int EXPORT_QUEUE = 4;
+
   private final StorageIo storageIo = StorageIoInstanceHolder.getInstance();
 
   @Override
@@ -80,114 +103,154 @@ public final class FileExporterImpl implements FileExporter {
 
     ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
     ZipOutputStream out = new ZipOutputStream(zipFile);
-    int count = 0;
-    String metadata = "";
-    for (Long projectId : projectIds) {
-      try {
-        ProjectSourceZip projectSourceZip =
-            exportProjectSourceZip(userId, projectId, false, false, null, false, false, false, false);
-        byte[] data = projectSourceZip.getContent();
-        String name = projectSourceZip.getFileName();
-
-        // If necessary, renae duplicate projects
-        while (true) {
-          try {
-            out.putNextEntry(new ZipEntry(name));
-            break;
-          } catch (IOException e) {
-            name = "duplicate-" + name;
-          }
-        }
-        metadata += projectSourceZip.getMetadata() + "\n";
-
-        out.write(data, 0, data.length);
-        out.closeEntry();
-        count++;
-      } catch (IllegalArgumentException e) {
-        System.err.println("No files found for userid: " + userId +
-            " for projectid: " + projectId);
-      } catch (IOException e) {
-        System.err.println("IOException while reading files found for userid: " +
-            userId + " for projectid: " + projectId);
-        continue;
-      }
-    }
+    StringBuilder metadata = new StringBuilder();
+    int count = writeProjectZips(userId, projectIds, out, metadata);
     if (count == 0) {
       throw new IllegalArgumentException("No files to download");
     }
-
-    List<String> userFiles = storageIo.getUserFiles(userId);
-    if (userFiles.contains(StorageUtil.ANDROID_KEYSTORE_FILENAME)) {
-      byte[] androidKeystoreBytes =
-          storageIo.downloadRawUserFile(userId, StorageUtil.ANDROID_KEYSTORE_FILENAME);
-      if (androidKeystoreBytes.length > 0) {
-        out.putNextEntry(new ZipEntry(StorageUtil.ANDROID_KEYSTORE_FILENAME));
-        out.write(androidKeystoreBytes, 0, androidKeystoreBytes.length);
-        out.closeEntry();
-        count++;
-      }
-    }
-
+    count += writeAndroidKeystore(userId, out);
     out.close();
 
     // Package the big zip file up as a ProjectSourceZip and return it.
     byte[] content = zipFile.toByteArray();
     ProjectSourceZip projectSourceZip = new ProjectSourceZip(zipName, content, count);
-    projectSourceZip.setMetadata(metadata);
+    projectSourceZip.setMetadata(metadata.toString());
     return projectSourceZip;
   }
 
   @Override
-  public ProjectSourceZip exportAllProjectsSourceZip(String userId,
-      String zipName) throws IOException {
-    // Create a zip file for each project's sources.
-    List<Long> projectIds = storageIo.getProjects(userId);
+  public int exportAllProjectsSourceZip(String userId, long afterProjectId,
+      OutputStream outputStream) throws IOException {
+    List<Long> projectIds = new ArrayList<Long>(storageIo.getProjects(userId));
     if (projectIds.size() == 0) {
       throw new IllegalArgumentException("No projects to download");
     }
 
-    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
-    ZipOutputStream out = new ZipOutputStream(zipFile);
+    // Export the projects in order of id, so an export that failed partway
+    // can be resumed after the last project received. Project ids don't
+    // increase with creation time, so projects created since the export
+    // started may be missed, but none is exported twice.
+    Collections.sort(projectIds);
+    int start = 0;
+    while (start < projectIds.size() && projectIds.get(start) <= afterProjectId) {
+      start++;
+    }
+    projectIds = projectIds.subList(start, projectIds.size());
+
+    // Note: We never include Yail files when exporting all source projects
+    // even for Admins. If you are an admin and want to debug a project, download
+    // it explicitly.
+    ZipOutputStream out = new ZipOutputStream(outputStream);
+    int count = writeProjectZips(userId, projectIds, out, null);
+    if (count == 0) {
+      throw new IllegalArgumentException("No files to download");
+    }
+    count += writeAndroidKeystore(userId, out);
+    out.finish();
+    return count;
+  }
+
+  /*
+   * Zips the given projects' sources and writes each one to out, in the order
+   * given. Up to EXPORT_THREADS projects are zipped at the same time, and at
+   * most EXPORT_THREADS + EXPORT_QUEUE zipped projects are held in memory
+   * waiting for their turn to be written. Each project's entry has the
+   * project id as its comment. Projects that can't be exported are logged and
+   * skipped. Returns the number of projects written.
+   */
+  private int writeProjectZips(final String userId, List<Long> projectIds, ZipOutputStream out,
+      @Nullable StringBuilder metadata) throws IOException {
+    ExecutorService executor = newExportExecutor();
+    Deque<Future<ProjectSourceZip>> pending = new ArrayDeque<Future<ProjectSourceZip>>();
+    Deque<Long> pendingIds = new ArrayDeque<Long>();
+    Iterator<Long> projectIterator = projectIds.iterator();
     int count = 0;
-    String metadata = "";
-    for (Long projectId : projectIds) {
-      try {
-        // Note: We never include Yail files when exporting all source projects
-        // even for Admins. If you are an admin and want to debug a project, download
-        // it explicitly.
-        ProjectSourceZip projectSourceZip =
-          exportProjectSourceZip(userId, projectId, false, false, null, false, false, false, false);
+    try {
+      while (projectIterator.hasNext() || !pending.isEmpty()) {
+        while (projectIterator.hasNext() && pending.size() < EXPORT_THREADS + EXPORT_QUEUE) {
+          final long projectId = projectIterator.next();
+          pendingIds.add(projectId);
+          pending.add(executor.submit(new Callable<ProjectSourceZip>() {
+            @Override
+            public ProjectSourceZip call() {
+              try {
+                return exportProjectSourceZip(userId, projectId, false, false, null, false, false,
+                    false, false);
+              } catch (IllegalArgumentException e) {
+                System.err.println("No files found for userid: " + userId +
+                    " for projectid: " + projectId);
+              } catch (IOException e) {
+                System.err.println("IOException while reading files found for userid: " +
+                    userId + " for projectid: " + projectId);
+              }
+              return null;
+            }
+          }));
+        }
+        ProjectSourceZip projectSourceZip = getExportResult(pending.remove());
+        long projectId = pendingIds.remove();
+        if (projectSourceZip == null) {
+          continue;
+        }
         byte[] data = projectSourceZip.getContent();
         String name = projectSourceZip.getFileName();
 
         // If necessary, rename duplicate projects
         while (true) {
           try {
-            out.putNextEntry(new ZipEntry(name));
+            ZipEntry entry = new ZipEntry(name);
+            entry.setComment(Long.toString(projectId));
+            out.putNextEntry(entry);
             break;
-          } catch (IOException e) {
+          } catch (ZipException e) {
             name = "duplicate-" + name;
           }
         }
-        metadata += projectSourceZip.getMetadata() + "\n";
+        if (metadata != null) {
+          metadata.append(projectSourceZip.getMetadata()).append('\n');
+        }
 
         out.write(data, 0, data.length);
         out.closeEntry();
         count++;
-      } catch (IllegalArgumentException e) {
-        System.err.println("No files found for userid: " + userId +
-            " for projectid: " + projectId);
-        continue;
-      } catch (IOException e) {
-        System.err.println("IOException while reading files found for userid: " +
-            userId + " for projectid: " + projectId);
-        continue;
       }
+    } finally {
+      executor.shutdownNow();
     }
-    if (count == 0) {
-      throw new IllegalArgumentException("No files to download");
+    return count;
+  }
+
+  private static ProjectSourceZip getExportResult(Future<ProjectSourceZip> future)
+      throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while exporting projects");
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw new IOException(e.getCause());
     }
+  }
 
+  /*
+   * Returns the executor used to zip projects. Threads on App Engine have to
+   * come from the request thread factory; where there is none (as in unit
+   * tests) the projects are zipped one at a time on the calling thread.
+   */
+  private static ExecutorService newExportExecutor() {
+    ThreadFactory threadFactory = ThreadManager.currentRequestThreadFactory();
+    if (threadFactory == null) {
+      return MoreExecutors.sameThreadExecutor();
+    }
+    return Executors.newFixedThreadPool(EXPORT_THREADS, threadFactory);
+  }
+
+  /*
+   * Adds the user's android.keystore, if there is one, to out. Returns the
+   * number of files written.
+   */
+  private int writeAndroidKeystore(String userId, ZipOutputStream out) throws IOException {
     List<String> userFiles = storageIo.getUserFiles(userId);
     if (userFiles.contains(StorageUtil.ANDROID_KEYSTORE_FILENAME)) {
       byte[] androidKeystoreBytes =
@@ -196,17 +259,10 @@ public final class FileExporterImpl implements FileExporter {
         out.putNextEntry(new ZipEntry(StorageUtil.ANDROID_KEYSTORE_FILENAME));
         out.write(androidKeystoreBytes, 0, androidKeystoreBytes.length);
         out.closeEntry();
-        count++;
+        return 1;
       }
     }
-
-    out.close();
-
-    // Package the big zip file up as a ProjectSourceZip and return it.
-    byte[] content = zipFile.toByteArray();
-    ProjectSourceZip projectSourceZip = new ProjectSourceZip(zipName, content, count);
-    projectSourceZip.setMetadata(metadata);
-    return projectSourceZip;
+    return 0;
   }
 
   @Override
@@ -10,11 +10,11 @@ import com.google.appinventor.common.utils.StringUtils;
 import com.google.appinventor.server.flags.Flag;
 import com.google.appinventor.server.project.youngandroid.YoungAndroidProjectService;
 import com.google.appinventor.server.project.youngandroid.YoungAndroidSettingsBuilder;
+import com.google.appinventor.server.storage.ProjectImport;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.storage.StorageIoInstanceHolder;
 import com.google.appinventor.shared.rpc.UploadResponse;
 import com.google.appinventor.shared.rpc.project.Project;
-import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidProjectNode;
@@ -78,83 +78,93 @@ public final class FileImporterImpl implements FileImporter {
         storageIo.getUser(userId).getUserEmail(), projectName);
     String srcDirectory = YoungAndroidProjectService.getSourceDirectory(qualifiedFormName);
 
-    ZipInputStream zin = new ZipInputStream(uploadedFileStream);
-    boolean isProjectArchive = false;  // have we found at least one project properties file?
+    // File contents are stored as they are read from the archive, so they
+    // never all have to be in memory at once. The project itself is created
+    // at the end, when we know the archive is good; until then we have to
+    // abort the import if anything goes wrong, to delete the stored contents.
+    ProjectImport projectImport = storageIo.beginProjectImport(userId);
+    boolean committed = false;
     try {
-      // Extract files
-      while (true) {
-        ZipEntry entry;
-        try {
-          entry = zin.getNextEntry();
-          if (entry == null) {
-            break;
+      ZipInputStream zin = new ZipInputStream(uploadedFileStream);
+      boolean isProjectArchive = false;  // have we found at least one project properties file?
+      try {
+        // Extract files
+        while (true) {
+          ZipEntry entry;
+          try {
+            entry = zin.getNextEntry();
+            if (entry == null) {
+              break;
+            }
+          } catch (ZipException e) {
+            // The uploaded file is not a valid zip file
+            LOG.log(Level.SEVERE, "Invalid Project Archive Format", e);
+            throw new FileImporterException(UploadResponse.Status.NOT_PROJECT_ARCHIVE);
           }
-        } catch (ZipException e) {
-          // The uploaded file is not a valid zip file
-          LOG.log(Level.SEVERE, "Invalid Project Archive Format", e);
-          throw new FileImporterException(UploadResponse.Status.NOT_PROJECT_ARCHIVE);
-        }
 
-        if (!entry.isDirectory()) {
-          String fileName = entry.getName();
-
-          if (fileName.equals(YoungAndroidProjectService.PROJECT_PROPERTIES_FILE_NAME)) {
-            // The content for the youngandroidproject/project.properties file must be regenerated
-            // so that it contains the correct entries for "main" and "name", which are dependent on
-            // the projectName and qualifiedFormName.
-            String content = new YoungAndroidSettingsBuilder()
-                .setProjectName(projectName)
-                .setQualifiedFormName(qualifiedFormName)
-                .toProperties();
-            project.addTextFile(new TextFile(fileName, content));
-            isProjectArchive = true;
-
-          } else if (fileName.equals(FileExporter.REMIX_INFORMATION_FILE_PATH) ||
-              fileName.equals(StorageUtil.ANDROID_KEYSTORE_FILENAME)) {
-            // If the remix information file is present, we ignore it. In the past, a remix
-            // information file was saved in the zip when project source was downloaded and
-            // retrieved from the zip when it was uploaded. However, we no longer do that because
-            // we don't have a way to verify that the contents of the remix information file is
-            // accurate during the upload.
-            // If a keystore file is present we ignore that too for now, since
-            // we don't have per-project keystores. The only way to get such a
-            // source zip at the moment is using the admin functionality to
-            // download another user's project source.
-            continue;
-
-          } else {
-
-            if (fileName.startsWith(YoungAndroidProjectService.SRC_FOLDER)) {
-              // For files within the src folder, we need to update the directory that we put files
-              // in. Adjust the fileName so that it corresponds to this project's package.
-              fileName = srcDirectory + '/' + StorageUtil.basename(fileName);
+          if (!entry.isDirectory()) {
+            String fileName = entry.getName();
+
+            if (fileName.equals(YoungAndroidProjectService.PROJECT_PROPERTIES_FILE_NAME)) {
+              // The content for the youngandroidproject/project.properties file must be
+              // regenerated so that it contains the correct entries for "main" and "name", which
+              // are dependent on the projectName and qualifiedFormName.
+              String content = new YoungAndroidSettingsBuilder()
+                  .setProjectName(projectName)
+                  .setQualifiedFormName(qualifiedFormName)
+                  .toProperties();
+              project.addTextFile(new TextFile(fileName, content));
+              isProjectArchive = true;
+
+            } else if (fileName.equals(FileExporter.REMIX_INFORMATION_FILE_PATH) ||
+                fileName.equals(StorageUtil.ANDROID_KEYSTORE_FILENAME)) {
+              // If the remix information file is present, we ignore it. In the past, a remix
+              // information file was saved in the zip when project source was downloaded and
+              // retrieved from the zip when it was uploaded. However, we no longer do that
+              // because we don't have a way to verify that the contents of the remix
+              // information file is accurate during the upload.
+              // If a keystore file is present we ignore that too for now, since
+              // we don't have per-project keystores. The only way to get such a
+              // source zip at the moment is using the admin functionality to
+              // download another user's project source.
+              continue;
+
+            } else {
+
+              if (fileName.startsWith(YoungAndroidProjectService.SRC_FOLDER)) {
+                // For files within the src folder, we need to update the directory that we put
+                // files in. Adjust the fileName so that it corresponds to this project's package.
+                fileName = srcDirectory + '/' + StorageUtil.basename(fileName);
+              }
+
+              // Store the file content straight from the ZipEntry.
+              projectImport.addSourceFile(fileName, zin);
             }
-
-            // Get the file content from the ZipEntry.
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-            ByteStreams.copy(zin, contentStream);
-
-            project.addRawFile(new RawFile(fileName, contentStream.toByteArray()));
           }
         }
+      } finally {
+        zin.close();
       }
-    } finally {
-      zin.close();
-    }
 
-    if (!isProjectArchive) {
-      // The uploaded file seems to be a valid zip file, but it doesn't contain the project
-      // properties file.
-      throw new FileImporterException(UploadResponse.Status.NOT_PROJECT_ARCHIVE);
-    }
+      if (!isProjectArchive) {
+        // The uploaded file seems to be a valid zip file, but it doesn't contain the project
+        // properties file.
+        throw new FileImporterException(UploadResponse.Status.NOT_PROJECT_ARCHIVE);
+      }
 
-    // Set project history if provided
-    if (projectHistory != null) {
-      project.setProjectHistory(projectHistory);
+      // Set project history if provided
+      if (projectHistory != null) {
+        project.setProjectHistory(projectHistory);
+      }
+      String settings = new YoungAndroidSettingsBuilder().build();
+      long projectId = projectImport.commit(project, settings);
+      committed = true;
+      return storageIo.getUserProject(userId, projectId);
+    } finally {
+      if (!committed) {
+        projectImport.abort();
+      }
     }
-    String settings = new YoungAndroidSettingsBuilder().build();
-    long projectId = storageIo.createProject(userId, project, settings);
-    return storageIo.getUserProject(userId, projectId);
   }
 
   @VisibleForTesting
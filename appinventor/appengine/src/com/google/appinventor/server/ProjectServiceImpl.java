@@ -24,6 +24,7 @@ import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.ProjectService;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
+import com.google.appinventor.shared.rpc.project.UserProjectPage;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidProjectNode;
 import com.google.appinventor.shared.util.Base64Util;
 import com.google.common.collect.Lists;
@@ -35,7 +36,9 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,6 +64,9 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
 
   private static final boolean DEBUG = Flag.createFlag("appinventor.debugging", false).get();
 
+  // The most project infos returned in one page
+  private static final int MAX_PROJECT_PAGE_SIZE = 500;
+
   /**
    * Creates a new project.
    * @param projectType  type of new project
@@ -293,8 +299,27 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
   @Override
   public List<UserProject> getProjectInfos() {
     String userId = userInfoProvider.getUserId();
-    List<Long> projectIds = storageIo.getProjects(userId);
-    return makeUserProjects(userId, projectIds);
+    List<UserProject> projects = Lists.newArrayList();
+    UserProjectPage page = null;
+    do {
+      page = storageIo.getUserProjectsPage(userId, page == null ? null : page.getCursor(),
+          MAX_PROJECT_PAGE_SIZE);
+      projects.addAll(page.getProjects());
+    } while (page.hasMore());
+    return projects;
+  }
+
+  /**
+   * Returns one page of project infos.
+   *
+   * @param cursor  where the page starts, or {@code null} for the first page
+   * @param count  the maximum number of project infos to return
+   * @return a page of project infos found by the backend
+   */
+  @Override
+  public UserProjectPage getProjectInfosPage(String cursor, int count) {
+    count = Math.max(1, Math.min(count, MAX_PROJECT_PAGE_SIZE));
+    return storageIo.getUserProjectsPage(userInfoProvider.getUserId(), cursor, count);
   }
 
   /**
@@ -537,11 +562,48 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
       BlocksTruncatedException {
     validateSessionId(sessionId);
     final String userId = userInfoProvider.getUserId();
-    long date = 0;
+    return saveFiles(userId, filesAndContent, true);
+  }
+
+  /**
+   * Saves the contents of multiple files, without overwriting a non-empty
+   * blocks workspace with an empty one unless force is true.
+   *
+   * @param sessionId session id
+   * @param filesAndContent  list containing file descriptors and their
+   *                         associated content
+   * @param force whether to write empty blocks workspaces
+   * @return modification date for last modified project of list
+   */
+  @Override
+  public long save2(String sessionId, List<FileDescriptorWithContent> filesAndContent,
+      boolean force) throws InvalidSessionException, BlocksTruncatedException {
+    validateSessionId(sessionId);
+    final String userId = userInfoProvider.getUserId();
+    return saveFiles(userId, filesAndContent, force);
+  }
+
+  /*
+   * Saves the files of each project in the list in one storage operation,
+   * rather than one per file. Returns the modification date of the last
+   * project saved.
+   */
+  private long saveFiles(String userId, List<FileDescriptorWithContent> filesAndContent,
+      boolean force) throws BlocksTruncatedException {
+    Map<Long, Map<String, String>> filesByProject = new LinkedHashMap<Long, Map<String, String>>();
     for (FileDescriptorWithContent fileAndContent : filesAndContent) {
-     long projectId = fileAndContent.getProjectId();
-     date = getProjectRpcImpl(userId, projectId).
-         save(userId, projectId, fileAndContent.getFileId(), fileAndContent.getContent());
+      Map<String, String> contents = filesByProject.get(fileAndContent.getProjectId());
+      if (contents == null) {
+        contents = new LinkedHashMap<String, String>();
+        filesByProject.put(fileAndContent.getProjectId(), contents);
+      }
+      contents.put(fileAndContent.getFileId(), fileAndContent.getContent());
+    }
+    long date = 0;
+    for (Map.Entry<Long, Map<String, String>> entry : filesByProject.entrySet()) {
+      long projectId = entry.getKey();
+      date = getProjectRpcImpl(userId, projectId).save2(userId, projectId, entry.getValue(),
+          force);
     }
     return date;
   }
@@ -590,6 +652,14 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
       userInfoProvider.getUser(), projectId, target);
   }
 
+  @Override
+  public RpcResult waitForBuildResult(long projectId, String target, int knownProgress) {
+    // Dispatch
+    final String userId = userInfoProvider.getUserId();
+    return getProjectRpcImpl(userId, projectId).waitForBuildResult(
+      userInfoProvider.getUser(), projectId, target, knownProgress);
+  }
+
   /*
    * Write the serialized response out to stdout. This is a very unusual thing
    * to do, but it allows us to create a static file version of the response
@@ -606,12 +676,6 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
     return storageIo.getUserProject(userId, projectId);
   }
 
-  // Bulk fetch UserProjects -- efficiently get all project infos asked for
-  // using a minimum number of datastore API calls
-  private List<UserProject> makeUserProjects(String userId, List<Long> projectIds) {
-    return storageIo.getUserProjects(userId, projectIds);
-  }
-
   /*
    * Returns the RPC implementation for the given project type.
    */
@@ -63,6 +63,7 @@ public class ReceiveBuildServlet extends OdeServlet {
     try {
       String buildFileDirPath = uriComponents[4];
       ZipInputStream zipInputStream = new ZipInputStream(req.getInputStream());
+      boolean receivedOutput = false;
       while (true) {
         ZipEntry zipEntry = zipInputStream.getNextEntry();
         if (zipEntry == null) {
@@ -83,9 +84,14 @@ public class ReceiveBuildServlet extends OdeServlet {
           LOG.info("Saving build output files: " + filePath);
           storageIo.addOutputFilesToProject(userId, projectId, filePath);
           storageIo.uploadRawFileForce(projectId, filePath, userId, fileBytes);
-          storageIo.storeBuildStatus(userId, projectId, 0); // Reset for the next build
+          receivedOutput = true;
         }
       }
+      if (receivedOutput) {
+        // Only now that all of the output files are stored can the build be
+        // reported as done.
+        storageIo.storeBuildStatus(userId, projectId, StorageIo.BUILD_PROGRESS_DONE);
+      }
     } finally {
       odeFilter.removeUser();
     }
@@ -25,6 +25,7 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The base class for classes that provide project services for a specific
@@ -302,6 +303,23 @@ public abstract class CommonProjectService {
     }
   }
 
+  /**
+   * Saves the contents of several files of a project at once. Either all of
+   * the files are saved or none are. If force is false, an error is thrown
+   * if an attempt is made to save a trivial (empty) blocks file workspace
+   * that had previously had contents.
+   *
+   * @param userId the user id
+   * @param projectId  project root node ID
+   * @param contents  contents to be saved, by file id
+   * @param force whether to write empty blocks workspaces
+   * @return modification date for project
+   */
+  public long save2(String userId, long projectId, Map<String, String> contents, boolean force)
+      throws BlocksTruncatedException {
+    return storageIo.uploadFiles(projectId, userId, force, contents, StorageUtil.DEFAULT_CHARSET);
+  }
+
   /**
    * Saves a screenshot of a current blocks editor. This is called from the client side
    * whenever the user leaves a blocks editor. The data is shipped to us in base64 encoding
@@ -350,6 +368,19 @@ public abstract class CommonProjectService {
    */
   public abstract RpcResult getBuildResult(User user, long projectId, String target);
 
+  /**
+   * Gets the result of a build command for the project, waiting for a while
+   * for the build's progress to change from the progress already known.
+   *
+   * @param user the User that owns the {@code projectId}.
+   * @param projectId  project id to be built
+   * @param target  build target (optional, implementation dependent.
+   * @param knownProgress  the build progress the caller already knows about
+   * @return  build results, as for {@link #getBuildResult}
+   */
+  public abstract RpcResult waitForBuildResult(User user, long projectId, String target,
+      int knownProgress);
+
   public TextFile importMedia(String userId, long projectId, String urlString, boolean save) throws IOException {
     InputStream is = null;
     try {
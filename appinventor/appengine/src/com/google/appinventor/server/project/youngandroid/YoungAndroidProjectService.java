@@ -6,6 +6,9 @@
 
 package com.google.appinventor.server.project.youngandroid;
 
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.appengine.api.utils.SystemProperty;
 import com.google.apphosting.api.ApiProxy;
 import com.google.appinventor.common.utils.StringUtils;
@@ -26,6 +29,7 @@ import com.google.appinventor.server.properties.json.ServerJsonParser;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.util.UriBuilder;
 import com.google.appinventor.shared.properties.json.JSONParser;
+import com.google.appinventor.shared.properties.json.JSONValue;
 import com.google.appinventor.shared.rpc.RpcResult;
 import com.google.appinventor.shared.rpc.ServerLayout;
 import com.google.appinventor.shared.rpc.project.NewProjectParameters;
@@ -33,9 +37,9 @@ import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
-import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
+import com.google.appinventor.shared.rpc.project.UserProjectPage;
 import com.google.appinventor.shared.rpc.project.youngandroid.NewYoungAndroidProjectParameters;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidAssetNode;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidAssetsFolder;
@@ -75,10 +79,12 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeSet;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -125,6 +131,11 @@ public final class YoungAndroidProjectService extends CommonProjectService {
   // Build folder path
   private static final String BUILD_FOLDER = "build";
 
+  // How long waitForBuildResult waits for a build's progress to change, and
+  // how often it checks, in milliseconds
+  private static final long BUILD_RESULT_WAIT_MILLIS = 20000;
+  private static final long BUILD_STATUS_CHECK_MILLIS = 1000;
+
   public static final String PROJECT_KEYSTORE_LOCATION = "android.keystore";
 
   // host[:port] to use for connecting to the build server
@@ -141,6 +152,11 @@ public final class YoungAndroidProjectService extends CommonProjectService {
   private static final String galleryLocation = Flag.createFlag("gallery.location", "http://localhost:9001").get();
   private static final String galleryId = Flag.createFlag("gallery.id", "").get();
 
+  // How long the component summaries of a project's forms are cached, in seconds
+  private static final int FORM_SUMMARY_CACHE_SECONDS = 3600;
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+
   public YoungAndroidProjectService(StorageIo storageIo) {
     super(YoungAndroidProjectNode.YOUNG_ANDROID_PROJECT_TYPE, storageIo);
   }
@@ -270,6 +286,8 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     newProject.setProjectHistory(oldProjectHistory);
 
     // Get the old project's source files and add them to new project, modifying where necessary.
+    // Files whose contents don't change are copied by storageIo without reading them.
+    Map<String, String> copiedFiles = Maps.newHashMap();
     for (String oldSourceFileName : storageIo.getProjectSourceFiles(userId, oldProjectId)) {
       String newSourceFileName;
 
@@ -298,15 +316,13 @@ public final class YoungAndroidProjectService extends CommonProjectService {
         newProject.addTextFile(new TextFile(newSourceFileName, newContents));
       } else {
         // If we get here, we know that the contents of the file can just be copied from the old
-        // project. Since it might be a binary file, we copy it as a raw file (that works for both
-        // text and binary files).
-        byte[] contents = storageIo.downloadRawFile(userId, oldProjectId, oldSourceFileName);
-        newProject.addRawFile(new RawFile(newSourceFileName, contents));
+        // project.
+        copiedFiles.put(newSourceFileName, oldSourceFileName);
       }
     }
 
     // Create the new project and return the new project's id.
-    return storageIo.createProject(userId, newProject, builder.build());
+    return storageIo.copyProject(userId, oldProjectId, newProject, builder.build(), copiedFiles);
   }
 
   @Override
@@ -329,6 +345,8 @@ public final class YoungAndroidProjectService extends CommonProjectService {
 
     // Retrieve project information
     List<String> sourceFiles = storageIo.getProjectSourceFiles(userId, projectId);
+    Map<String, HashMap<String, String>> formSummaries =
+        getFormSummaries(userId, projectId, sourceFiles);
     for (String fileId : sourceFiles) {
       if (fileId.startsWith(ASSETS_FOLDER + '/')) {
         if (fileId.startsWith(EXTERNAL_COMPS_FOLDER + '/')) {
@@ -341,7 +359,9 @@ public final class YoungAndroidProjectService extends CommonProjectService {
         // We send form (.scm), blocks (.blk), and yail (.yail) nodes to the ODE client.
         YoungAndroidSourceNode sourceNode = null;
         if (fileId.endsWith(FORM_PROPERTIES_EXTENSION)) {
-          sourceNode = new YoungAndroidFormNode(fileId);
+          YoungAndroidFormNode formNode = new YoungAndroidFormNode(fileId);
+          formNode.setComponentTypes(formSummaries.get(fileId));
+          sourceNode = formNode;
         } else if (fileId.endsWith(BLOCKLY_SOURCE_EXTENSION)) {
           sourceNode = new YoungAndroidBlocksNode(fileId);
         } else if (fileId.endsWith(CODEBLOCKS_SOURCE_EXTENSION)) {
@@ -377,6 +397,74 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     return rootNode;
   }
 
+  /*
+   * Returns the summaries of the project's forms, by file id (see
+   * summarizeForm). The summaries are cached under the project's modification
+   * date, which every save moves, so a project is only downloaded and parsed
+   * again after it has changed.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, HashMap<String, String>> getFormSummaries(String userId, long projectId,
+      List<String> sourceFiles) {
+    String cacheKey = "formsummaries:" + projectId + ":"
+        + storageIo.getProjectDateModified(userId, projectId);
+    HashMap<String, HashMap<String, String>> formSummaries =
+        (HashMap<String, HashMap<String, String>>) memcache.get(cacheKey);
+    if (formSummaries == null) {
+      formSummaries = Maps.newHashMap();
+      for (String fileId : sourceFiles) {
+        if (fileId.startsWith(SRC_FOLDER + '/') && fileId.endsWith(FORM_PROPERTIES_EXTENSION)) {
+          formSummaries.put(fileId, summarizeForm(userId, projectId, fileId));
+        }
+      }
+      memcache.put(cacheKey, formSummaries,
+          Expiration.byDeltaSeconds(FORM_SUMMARY_CACHE_SECONDS));
+    }
+    return formSummaries;
+  }
+
+  /*
+   * Returns the components of the form in the file named formFileId, as a
+   * map from instance name to component type. This lets the client answer
+   * questions about the project's other screens without loading them.
+   * Returns null if the form can't be read or parsed.
+   */
+  private HashMap<String, String> summarizeForm(String userId, long projectId,
+      String formFileId) {
+    try {
+      String source = storageIo.downloadFile(userId, projectId, formFileId,
+          StorageUtil.DEFAULT_CHARSET);
+      JSONValue form = YoungAndroidSourceAnalyzer.parseSourceFile(source, JSON_PARSER)
+          .get("Properties");
+      if (form == null) {
+        return null;
+      }
+      HashMap<String, String> componentTypes = Maps.newHashMap();
+      summarizeComponent(form.asObject(), componentTypes);
+      return componentTypes;
+    } catch (RuntimeException e) {
+      // The client will find out about a damaged form when it loads it
+      LOG.log(Level.WARNING, "Unable to summarize " + formFileId + " in project " + projectId, e);
+      return null;
+    }
+  }
+
+  private static void summarizeComponent(
+      com.google.appinventor.shared.properties.json.JSONObject component,
+      Map<String, String> componentTypes) {
+    JSONValue name = component.get("$Name");
+    JSONValue type = component.get("$Type");
+    if (name != null && type != null) {
+      componentTypes.put(name.asString().getString(), type.asString().getString());
+    }
+    JSONValue children = component.get("$Components");
+    if (children != null) {
+      for (JSONValue child : children.asArray().getElements()) {
+        summarizeComponent(child.asObject(), componentTypes);
+      }
+    }
+  }
+
   /*
    * Convert the contents of the codeblocks file named codeblocksFileId
    * to blockly format and return the blockly contents.
@@ -492,6 +580,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     for (String buildOutputFile : buildOutputFiles) {
       storageIo.deleteFile(userId, projectId, buildOutputFile);
     }
+    storageIo.storeBuildStatus(userId, projectId, StorageIo.BUILD_PROGRESS_QUEUED);
     URL buildServerUrl = null;
     ProjectSourceZip zipFile = null;
     try {
@@ -836,6 +925,34 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     return buildResult;
   }
 
+  /**
+   * Like {@link #getBuildResult}, but if the build isn't done and its
+   * progress is still {@code knownProgress}, waits for the progress to change
+   * before returning, for up to BUILD_RESULT_WAIT_MILLIS. This lets the client
+   * ask again as soon as it gets an answer, rather than polling on a timer.
+   *
+   * @param user the User that owns the {@code projectId}.
+   * @param projectId  project id to be built
+   * @param target  build target (optional, implementation dependent)
+   * @param knownProgress  the progress the client already knows about
+   * @return an RpcResult as for {@link #getBuildResult}
+   */
+  @Override
+  public RpcResult waitForBuildResult(User user, long projectId, String target,
+      int knownProgress) {
+    long deadline = System.currentTimeMillis() + BUILD_RESULT_WAIT_MILLIS;
+    while (getCurrentProgress(user, projectId, target) == knownProgress
+        && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(BUILD_STATUS_CHECK_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return getBuildResult(user, projectId, target);
+  }
+
   /**
    * Check if there are any build progress available for the given user's project
    *
@@ -880,12 +997,14 @@ public final class YoungAndroidProjectService extends CommonProjectService {
 
   private String verifyProjectName(String userId, String projectName) {
     int count = 0;
-    List<Long> projectIds = storageIo.getProjects(userId);
-    List<UserProject> projects = storageIo.getUserProjects(userId, projectIds);
     TreeSet<String> projectNames = new TreeSet();
-    for (UserProject project : projects) {
-      projectNames.add(project.getProjectName());
-    }
+    UserProjectPage page = null;
+    do {
+      page = storageIo.getUserProjectsPage(userId, page == null ? null : page.getCursor(), 500);
+      for (UserProject project : page.getProjects()) {
+        projectNames.add(project.getProjectName());
+      }
+    } while (page.hasMore());
     String baseProjectName = projectName;
     while (true) {
       if (count > 100) {
@@ -6,12 +6,15 @@
 
 package com.google.appinventor.server.storage;
 
+import com.google.appengine.api.ThreadManager;
 import com.google.appengine.api.appidentity.AppIdentityService;
 import com.google.appengine.api.appidentity.AppIdentityServiceFactory;
 import com.google.appengine.api.appidentity.AppIdentityServiceFailureException;
 import com.google.appengine.api.blobstore.BlobKey;
 import com.google.appengine.api.blobstore.BlobstoreInputStream;
 import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.appengine.api.memcache.ErrorHandlers;
 import com.google.appengine.api.memcache.MemcacheService;
 import com.google.appengine.api.memcache.MemcacheServiceFactory;
@@ -27,15 +30,18 @@ import com.google.appinventor.server.Server;
 import com.google.appinventor.server.flags.Flag;
 import com.google.appinventor.server.storage.StoredData.AllowedTutorialUrls;
 import com.google.appinventor.server.storage.StoredData.Backpack;
+import com.google.appinventor.server.storage.StoredData.BuildStatusData;
 import com.google.appinventor.server.storage.StoredData.CorruptionRecord;
 import com.google.appinventor.server.storage.StoredData.FeedbackData;
 import com.google.appinventor.server.storage.StoredData.FileData;
+import com.google.appinventor.server.storage.StoredData.FileManifestData;
 import com.google.appinventor.server.storage.StoredData.MotdData;
 import com.google.appinventor.server.storage.StoredData.NonceData;
 import com.google.appinventor.server.storage.StoredData.ProjectData;
 import com.google.appinventor.server.storage.StoredData.PWData;
 import com.google.appinventor.server.storage.StoredData.SplashData;
 import com.google.appinventor.server.storage.StoredData.UserData;
+import com.google.appinventor.server.storage.StoredData.SharedGcsFileData;
 import com.google.appinventor.server.storage.StoredData.UserFileData;
 import com.google.appinventor.server.storage.StoredData.UserProjectData;
 import com.google.appinventor.server.storage.StoredData.RendezvousData;
@@ -54,6 +60,7 @@ import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
+import com.google.appinventor.shared.rpc.project.UserProjectPage;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidProjectNode;
 import com.google.appinventor.shared.rpc.user.SplashConfig;
 import com.google.appinventor.shared.rpc.user.User;
@@ -61,9 +68,11 @@ import com.google.appinventor.shared.storage.StorageUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Objectify;
@@ -85,16 +94,30 @@ import com.google.appengine.tools.cloudstorage.RetryParams;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Arrays;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -127,6 +150,12 @@ public class ObjectifyStorageIo implements  StorageIo {
   // TODO(user): need a way to modify this. Also, what is really a good value?
   private static final int MAX_JOB_RETRIES = 10;
 
+  // Bounds on how long to wait before retrying a job, in milliseconds. The
+  // wait doubles with each retry so that jobs contending for the same entity
+  // group spread out instead of colliding again straight away.
+  private static final long RETRY_BASE_DELAY = 20;
+  private static final long RETRY_MAX_DELAY = 1000;
+
   private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
 
   private final GcsService gcsService;
@@ -135,6 +164,18 @@ public class ObjectifyStorageIo implements  StorageIo {
 
   private static final long TWENTYFOURHOURS = 24*3600*1000; // 24 hours in milliseconds
 
+  // Blocks files larger than this, in bytes, are stored in GCS
+  private static final int MAX_INLINE_BLOCKS_SIZE = 50000;
+
+  // How long a project's build status stays in memcache, in seconds
+  private static final int BUILD_STATUS_CACHE_SECONDS = 3600;
+
+  // The most GCS files written at the same time when saving several files
+  private static final int GCS_WRITE_THREADS = 4;
+
+  // GCS files shared between projects by copyProject are under this prefix
+  private static final String SHARED_GCS_PREFIX = "shared/";
+
   private final boolean useGcs = Flag.createFlag("use.gcs", true).get();
 
   private final boolean conversionEnabled = false; // We are converting GCS <=> Blobstore
@@ -165,6 +206,18 @@ public class ObjectifyStorageIo implements  StorageIo {
   @VisibleForTesting
   abstract class JobRetryHelper {
     private IOException exception = null;
+    // Names the entity group the job works on, for the contention counts in
+    // StorageStats. If null the job's operation name is used instead.
+    private final String entityGroup;
+
+    JobRetryHelper() {
+      this(null);
+    }
+
+    JobRetryHelper(String entityGroup) {
+      this.entityGroup = entityGroup;
+    }
+
     public abstract void run(Objectify datastore) throws ObjectifyException, IOException;
     /*
      * Called before retrying the job. Note that the underlying datastore
@@ -180,6 +233,12 @@ public class ObjectifyStorageIo implements  StorageIo {
     public IOException getIOException() {
       return exception;
     }
+    String getOperation() {
+      return StorageStats.operationName(getClass());
+    }
+    String getContentionKey() {
+      return entityGroup != null ? entityGroup : getOperation();
+    }
   }
 
   // Create a final object of this class to hold a modifiable result value that
@@ -194,6 +253,9 @@ public class ObjectifyStorageIo implements  StorageIo {
     ObjectifyService.register(ProjectData.class);
     ObjectifyService.register(UserProjectData.class);
     ObjectifyService.register(FileData.class);
+    ObjectifyService.register(FileManifestData.class);
+    ObjectifyService.register(SharedGcsFileData.class);
+    ObjectifyService.register(BuildStatusData.class);
     ObjectifyService.register(UserFileData.class);
     ObjectifyService.register(MotdData.class);
     ObjectifyService.register(RendezvousData.class);
@@ -470,7 +532,7 @@ public class ObjectifyStorageIo implements  StorageIo {
   @Override
   public void storeSettings(final String userId, final String settings) {
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(userEntityGroup(userId)) {
         @Override
         public void run(Objectify datastore) {
           UserData userData = datastore.find(userKey(userId));
@@ -489,8 +551,22 @@ public class ObjectifyStorageIo implements  StorageIo {
   @Override
   public long createProject(final String userId, final Project project,
       final String projectSettings) {
+    return createProject(userId, project, projectSettings, null,
+        Collections.<FileData>emptyList());
+  }
+
+  /*
+   * Creates a new project with the files in project plus importedFiles, whose
+   * contents have already been stored. If projectIdToUse is null a new
+   * project id is generated, otherwise it must have been allocated for
+   * ProjectData (importedFiles are keyed by it).
+   */
+  private long createProject(final String userId, final Project project,
+      final String projectSettings, @Nullable final Long projectIdToUse,
+      List<FileData> importedFiles) {
     final Result<Long> projectId = new Result<Long>();
-    final List<FileData> addedFiles = new ArrayList<FileData>();
+    final Result<Long> dateCreated = new Result<Long>();
+    final List<FileData> addedFiles = new ArrayList<FileData>(importedFiles);
 
     try {
       // first job is on the project entity, creating the ProjectData object
@@ -500,9 +576,10 @@ public class ObjectifyStorageIo implements  StorageIo {
         public void run(Objectify datastore) throws ObjectifyException {
           long date = System.currentTimeMillis();
           ProjectData pd = new ProjectData();
-          pd.id = null;  // let Objectify auto-generate the project id
+          pd.id = projectIdToUse;  // if null, let Objectify auto-generate the project id
           pd.dateCreated = date;
           pd.dateModified = date;
+          dateCreated.t = date;
           pd.history = project.getProjectHistory();
           pd.name = project.getProjectName();
           pd.settings = projectSettings;
@@ -537,6 +614,11 @@ public class ObjectifyStorageIo implements  StorageIo {
             }
           }
           datastore.put(addedFiles);  // batch put
+          Map<String, FileData.RoleEnum> roles = new LinkedHashMap<String, FileData.RoleEnum>();
+          for (FileData fd : addedFiles) {
+            roles.put(fd.fileName, fd.role);
+          }
+          putFileManifest(datastore, projectKey, roles);
         }
 
         @Override
@@ -562,12 +644,19 @@ public class ObjectifyStorageIo implements  StorageIo {
           upd.settings = projectSettings;
           upd.state = UserProjectData.StateEnum.OPEN;
           upd.userKey = userKey(userId);
+          upd.name = project.getProjectName();
+          upd.type = project.getProjectType();
+          upd.dateCreated = dateCreated.t;
+          upd.dateModified = dateCreated.t;
           datastore.put(upd);
         }
       }, true);
     } catch (ObjectifyException e) {
+      List<String> sharedGcsNames = new ArrayList<String>();
       for (FileData addedFile : addedFiles) {
-        if (isTrue(addedFile.isGCS)) {  // Do something
+        if (isTrue(addedFile.isGCS) && addedFile.gcsShared) {
+          sharedGcsNames.add(addedFile.gcsName);  // retained by copyProject
+        } else if (isTrue(addedFile.isGCS)) {
           if (addedFile.gcsName != null) {
             try {
               gcsService.delete(new GcsFilename(GCS_BUCKET_NAME, addedFile.gcsName));
@@ -577,6 +666,7 @@ public class ObjectifyStorageIo implements  StorageIo {
           }
         }
       }
+      releaseSharedGcsFiles(sharedGcsNames);
       // clear addedFiles in case we end up here more than once
       addedFiles.clear();
       throw CrashReport.createAndLogError(LOG, null,
@@ -612,12 +702,302 @@ public class ObjectifyStorageIo implements  StorageIo {
     return file;
   }
 
+  @Override
+  public ProjectImport beginProjectImport(String userId) {
+    validateGCS();
+    return new ObjectifyProjectImport(userId,
+        ObjectifyService.factory().allocateId(ProjectData.class));
+  }
+
+  /*
+   * A ProjectImport that stores each file's content as it is added: in GCS,
+   * streamed straight from the input, if useGCSforFile says so, otherwise in
+   * its FileData. The FileData entities themselves are only put when the
+   * import is committed, in the same job that creates the ProjectData. The
+   * project id is allocated up front so the GCS objects get the same names
+   * they would have had if the project had been created in one go.
+   */
+  private final class ObjectifyProjectImport implements ProjectImport {
+    private final String userId;
+    private final long projectId;
+    private final Map<String, FileData> files = new LinkedHashMap<String, FileData>();
+    private boolean finished;
+
+    ObjectifyProjectImport(String userId, long projectId) {
+      this.userId = userId;
+      this.projectId = projectId;
+    }
+
+    @Override
+    public long addSourceFile(String fileName, InputStream content) throws IOException {
+      Preconditions.checkState(!finished);
+      // Read just enough to tell whether the file goes in GCS
+      byte[] head = ByteStreams.toByteArray(ByteStreams.limit(content, MAX_INLINE_BLOCKS_SIZE + 1));
+      FileData file = new FileData();
+      file.fileName = fileName;
+      file.projectKey = projectKey(projectId);
+      file.role = FileData.RoleEnum.SOURCE;
+      file.userId = userId;
+      // Replace any earlier file with this name, whose GCS object (if any) will
+      // be overwritten or deleted below
+      FileData oldFile = files.put(fileName, file);
+      if (useGCSforFile(fileName, head.length)) {
+        file.isGCS = true;
+        file.gcsName = makeGCSfileName(fileName, projectId);
+        GcsOutputChannel outputChannel = gcsService.createOrReplace(
+            new GcsFilename(GCS_BUCKET_NAME, file.gcsName), GcsFileOptions.getDefaultInstance());
+        OutputStream out = Channels.newOutputStream(outputChannel);
+        try {
+          out.write(head);
+          return head.length + ByteStreams.copy(content, out);
+        } finally {
+          out.close();
+        }
+      } else {
+        if (oldFile != null && isTrue(oldFile.isGCS)) {
+          deleteGcsFile(oldFile.gcsName);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(head);
+        ByteStreams.copy(content, out);
+        file.content = out.toByteArray();
+        return file.content.length;
+      }
+    }
+
+    @Override
+    public long commit(Project project, String projectSettings) {
+      Preconditions.checkState(!finished);
+      // If this fails, createProject deletes the GCS objects itself
+      finished = true;
+      return createProject(userId, project, projectSettings, projectId,
+          new ArrayList<FileData>(files.values()));
+    }
+
+    @Override
+    public void abort() {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      for (FileData file : files.values()) {
+        if (isTrue(file.isGCS)) {
+          deleteGcsFile(file.gcsName);
+        }
+      }
+      files.clear();
+    }
+
+    private void deleteGcsFile(String gcsName) {
+      try {
+        gcsService.delete(new GcsFilename(GCS_BUCKET_NAME, gcsName));
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to delete " + gcsName +
+            " from GCS while aborting project import.", e);
+      }
+    }
+  }
+
+  /*
+   * A GCS file can only be shared once it's under a name that no project will
+   * ever write to; makeGCSfileName always starts with a project id, so a file
+   * that isn't shared yet is first copied (within GCS) to a name under
+   * SHARED_GCS_PREFIX, and the old project's FileData is pointed at that. From
+   * then on copying the file, from either project, is only a matter of copying
+   * its FileData. The files using a shared GCS file are counted in its
+   * SharedGcsFileData, and the GCS file is deleted when the last one stops
+   * using it (see releaseSharedGcsFiles).
+   */
+  @Override
+  public long copyProject(final String userId, final long oldProjectId, Project newProject,
+      String projectSettings, final Map<String, String> copiedFiles) {
+    validateGCS();
+    final Result<Map<Key<FileData>, FileData>> oldFiles =
+        new Result<Map<Key<FileData>, FileData>>();
+    final List<Key<FileData>> oldKeys = new ArrayList<Key<FileData>>();
+    for (String oldFileName : copiedFiles.values()) {
+      oldKeys.add(projectFileKey(projectKey(oldProjectId), oldFileName));
+    }
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          oldFiles.t = datastore.get(oldKeys);  // batch get
+        }
+      }, false);
+    } catch (ObjectifyException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, oldProjectId), e);
+    }
+
+    // Make the shared copies of GCS files that aren't shared yet, and read the
+    // content of files still in the Blobstore, outside of any job
+    final Map<String, String> copiedFrom = new HashMap<String, String>();
+    final Map<String, String> sharedNames = new HashMap<String, String>();
+    for (String oldFileName : new LinkedHashSet<String>(copiedFiles.values())) {
+      FileData fd = oldFiles.t.get(projectFileKey(projectKey(oldProjectId), oldFileName));
+      if (fd == null) {
+        deleteGcsFiles(sharedNames.values());
+        throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, oldProjectId, oldFileName),
+            new FileNotFoundException("No data for " + oldFileName));
+      }
+      if (fd.userId != null && !fd.userId.equals("") && !fd.userId.equals(userId)) {
+        deleteGcsFiles(sharedNames.values());
+        throw CrashReport.createAndLogError(LOG, null,
+            collectUserProjectErrorInfo(userId, oldProjectId),
+            new UnauthorizedAccessException(userId, oldProjectId, null));
+      }
+      if (isTrue(fd.isGCS) && !fd.gcsShared) {
+        String sharedName = SHARED_GCS_PREFIX + UUID.randomUUID() + "/" + oldFileName;
+        try {
+          gcsService.copy(new GcsFilename(GCS_BUCKET_NAME, fd.gcsName),
+              new GcsFilename(GCS_BUCKET_NAME, sharedName));
+        } catch (IOException e) {
+          deleteGcsFiles(sharedNames.values());
+          throw CrashReport.createAndLogError(LOG, null,
+              collectProjectErrorInfo(userId, oldProjectId, oldFileName), e);
+        }
+        copiedFrom.put(oldFileName, fd.gcsName);
+        sharedNames.put(oldFileName, sharedName);
+      }
+    }
+    for (Map.Entry<String, String> entry : copiedFiles.entrySet()) {
+      FileData fd = oldFiles.t.get(projectFileKey(projectKey(oldProjectId), entry.getValue()));
+      if (fd.isBlob) {
+        newProject.addRawFile(new RawFile(entry.getKey(),
+            downloadRawFile(userId, oldProjectId, entry.getValue())));
+      }
+    }
+
+    // Count the references we are about to add: one from each old file that
+    // gets a shared copy, and one from each new file using a shared GCS file.
+    // They are counted before the FileData entities are written, and the ones
+    // that aren't used are released again below.
+    final Map<String, String> expectedNames = new HashMap<String, String>();
+    final List<String> retained = new ArrayList<String>(sharedNames.values());
+    for (Map.Entry<String, String> entry : copiedFiles.entrySet()) {
+      FileData fd = oldFiles.t.get(projectFileKey(projectKey(oldProjectId), entry.getValue()));
+      if (isTrue(fd.isGCS)) {
+        String sharedName = fd.gcsShared ? fd.gcsName : sharedNames.get(entry.getValue());
+        expectedNames.put(entry.getKey(), sharedName);
+        retained.add(sharedName);
+      }
+    }
+    try {
+      retainSharedGcsFiles(retained);
+    } catch (ObjectifyException e) {
+      deleteGcsFiles(sharedNames.values());
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, oldProjectId), e);
+    }
+
+    // Point the old project's files at their shared copies, and make the new
+    // project's files from them. The old project's files are read again,
+    // since they may have been saved in the meantime; a file that has been
+    // can't use the GCS file we counted it for, and its new content is copied
+    // below instead.
+    final long projectId = ObjectifyService.factory().allocateId(ProjectData.class);
+    final List<FileData> newFiles = new ArrayList<FileData>();
+    final Map<String, String> changedFiles = new LinkedHashMap<String, String>();
+    final List<String> unusedGcsNames = new ArrayList<String>();
+    final List<String> released = new ArrayList<String>();
+    try {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(oldProjectId)) {
+        @Override
+        public void run(Objectify datastore) {
+          newFiles.clear();
+          changedFiles.clear();
+          unusedGcsNames.clear();
+          released.clear();
+          Map<Key<FileData>, FileData> files = datastore.get(oldKeys);  // batch get
+          List<FileData> sharedFiles = new ArrayList<FileData>();
+          for (Map.Entry<String, String> entry : sharedNames.entrySet()) {
+            Key<FileData> key = projectFileKey(projectKey(oldProjectId), entry.getKey());
+            FileData fd = files.get(key);
+            if (fd != null && isTrue(fd.isGCS) && !fd.gcsShared
+                && fd.gcsName.equals(copiedFrom.get(entry.getKey()))) {
+              // The old GCS file can go once this commits; the shared copy
+              // has the same content
+              unusedGcsNames.add(fd.gcsName);
+              fd.gcsName = entry.getValue();
+              fd.gcsShared = true;
+              sharedFiles.add(fd);
+              memcache.delete(key.getString());
+            } else {
+              released.add(entry.getValue());
+            }
+          }
+          datastore.put(sharedFiles);  // batch put
+          for (Map.Entry<String, String> entry : copiedFiles.entrySet()) {
+            String expectedName = expectedNames.get(entry.getKey());
+            FileData fd = files.get(projectFileKey(projectKey(oldProjectId), entry.getValue()));
+            if (fd == null || fd.isBlob) {
+              // deleted since, or already added to newProject
+              if (expectedName != null) {
+                released.add(expectedName);
+              }
+              continue;
+            }
+            if (isTrue(fd.isGCS) && !(fd.gcsShared && fd.gcsName.equals(expectedName))) {
+              changedFiles.put(entry.getKey(), entry.getValue());
+              if (expectedName != null) {
+                released.add(expectedName);
+              }
+              continue;
+            }
+            FileData file = new FileData();
+            file.fileName = entry.getKey();
+            file.projectKey = projectKey(projectId);
+            file.role = FileData.RoleEnum.SOURCE;
+            file.userId = userId;
+            file.settings = fd.settings;
+            if (isTrue(fd.isGCS)) {
+              file.isGCS = true;
+              file.gcsName = fd.gcsName;
+              file.gcsShared = true;
+            } else {
+              file.content = fd.content;
+              if (expectedName != null) {
+                released.add(expectedName);  // the file shrank
+              }
+            }
+            newFiles.add(file);
+          }
+        }
+      }, true);
+    } catch (ObjectifyException e) {
+      releaseSharedGcsFiles(retained);
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, oldProjectId), e);
+    }
+    deleteGcsFiles(unusedGcsNames);
+    releaseSharedGcsFiles(released);
+    try {
+      for (Map.Entry<String, String> entry : changedFiles.entrySet()) {
+        newProject.addRawFile(new RawFile(entry.getKey(),
+            downloadRawFile(userId, oldProjectId, entry.getValue())));
+      }
+    } catch (RuntimeException e) {
+      List<String> newSharedNames = new ArrayList<String>();
+      for (FileData file : newFiles) {
+        if (isTrue(file.isGCS)) {
+          newSharedNames.add(file.gcsName);
+        }
+      }
+      releaseSharedGcsFiles(newSharedNames);
+      throw e;
+    }
+    return createProject(userId, newProject, projectSettings, projectId, newFiles);
+  }
+
   @Override
   public void deleteProject(final String userId, final long projectId) {
     validateGCS();
     // blobs associated with the project
     final List<String> blobKeys = new ArrayList<String>();
     final List<String> gcsPaths = new ArrayList<String>();
+    final List<String> sharedGcsNames = new ArrayList<String>();
     try {
       // first job deletes the UserProjectData in the user's entity group
       runJobWithRetries(new JobRetryHelper() {
@@ -634,16 +1014,25 @@ public class ObjectifyStorageIo implements  StorageIo {
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
+          blobKeys.clear();
+          gcsPaths.clear();
+          sharedGcsNames.clear();
           Key<ProjectData> projectKey = projectKey(projectId);
           Query<FileData> fdq = datastore.query(FileData.class).ancestor(projectKey);
           for (FileData fd: fdq) {
             if (isTrue(fd.isGCS)) {
-              gcsPaths.add(fd.gcsName);
+              if (fd.gcsShared) {  // other projects may still be using a shared file
+                sharedGcsNames.add(fd.gcsName);
+              } else {
+                gcsPaths.add(fd.gcsName);
+              }
             } else if (fd.isBlob) {
               blobKeys.add(fd.blobKey);
             }
           }
           datastore.delete(fdq);
+          datastore.delete(fileManifestKey(projectKey));
+          datastore.delete(BuildStatusData.class, projectId);
           // finally, delete the ProjectData object
           datastore.delete(projectKey);
         }
@@ -660,6 +1049,7 @@ public class ObjectifyStorageIo implements  StorageIo {
           LOG.log(Level.WARNING, "Unable to delete " + gcsName + " from GCS while deleting project", e);
         }
       }
+      releaseSharedGcsFiles(sharedGcsNames);
     } catch (ObjectifyException e) {
       throw CrashReport.createAndLogError(LOG, null,
           collectUserProjectErrorInfo(userId, projectId), e);
@@ -669,7 +1059,7 @@ public class ObjectifyStorageIo implements  StorageIo {
   @Override
   public void setMoveToTrashFlag(final String userId, final long projectId, final boolean flag) {
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
           ProjectData projectData = datastore.find(projectKey(projectId));
@@ -679,6 +1069,17 @@ public class ObjectifyStorageIo implements  StorageIo {
           }
         }
       }, true);
+      // The user's summary of the project is in a different entity group
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          UserProjectData upd = datastore.find(userProjectKey(userKey(userId), projectId));
+          if (upd != null && upd.name != null) {
+            upd.projectMovedToTrashFlag = flag;
+            datastore.put(upd);
+          }
+        }
+      }, true);
     } catch (ObjectifyException e) {
       throw CrashReport.createAndLogError(LOG, null, collectUserErrorInfo(userId), e);
     }
@@ -730,7 +1131,7 @@ public class ObjectifyStorageIo implements  StorageIo {
   public void storeProjectSettings(final String userId, final long projectId,
       final String settings) {
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
           ProjectData pd = datastore.find(projectKey(projectId));
@@ -844,6 +1245,102 @@ public class ObjectifyStorageIo implements  StorageIo {
     }
   }
 
+  @Override
+  public UserProjectPage getUserProjectsPage(final String userId, final String cursor,
+      final int count) {
+    final List<UserProjectData> page = new ArrayList<UserProjectData>();
+    final Result<String> nextCursor = new Result<String>();
+    final List<Long> unsummarized = new ArrayList<Long>();
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          page.clear();
+          unsummarized.clear();
+          Query<UserProjectData> query = datastore.query(UserProjectData.class)
+              .ancestor(userKey(userId)).limit(count);
+          if (cursor != null) {
+            query.startCursor(Cursor.fromWebSafeString(cursor));
+          }
+          QueryResultIterator<UserProjectData> iterator = query.iterator();
+          while (iterator.hasNext()) {
+            UserProjectData upd = iterator.next();
+            page.add(upd);
+            if (upd.name == null) {
+              unsummarized.add(upd.projectId);
+            }
+          }
+          // A short page is the last one
+          nextCursor.t = page.size() < count ? null : iterator.getCursor().toWebSafeString();
+        }
+      }, false);
+      if (!unsummarized.isEmpty()) {
+        fillUserProjectSummaries(userId, page, unsummarized);
+      }
+    } catch (ObjectifyException e) {
+      throw CrashReport.createAndLogError(LOG, null, collectUserErrorInfo(userId), e);
+    }
+    List<UserProject> uProjects = Lists.newArrayListWithExpectedSize(page.size());
+    for (UserProjectData upd : page) {
+      if (upd.name != null) {  // Otherwise the ProjectData is gone
+        uProjects.add(new UserProject(upd.projectId, upd.name, upd.type, upd.dateCreated,
+            upd.dateModified, upd.projectMovedToTrashFlag));
+      }
+    }
+    return new UserProjectPage(uProjects, nextCursor.t);
+  }
+
+  /*
+   * Fills in the summaries of projects created before UserProjectData had
+   * one, copying them from the ProjectData, and stores them so this only
+   * happens once per project.
+   */
+  private void fillUserProjectSummaries(final String userId, List<UserProjectData> page,
+      final List<Long> projectIds) throws ObjectifyException {
+    final Result<Map<Long, ProjectData>> projectDatas = new Result<Map<Long, ProjectData>>();
+    runJobWithRetries(new JobRetryHelper() {
+      @Override
+      public void run(Objectify datastore) {
+        projectDatas.t = datastore.get(ProjectData.class, projectIds);
+      }
+    }, false);
+    for (UserProjectData upd : page) {
+      ProjectData pd = projectDatas.t.get(upd.projectId);
+      if (upd.name == null && pd != null) {
+        copyProjectSummary(pd, upd);
+      }
+    }
+    // Re-read the UserProjectData in a transaction so we don't overwrite a
+    // change made since we listed them
+    runJobWithRetries(new JobRetryHelper() {
+      @Override
+      public void run(Objectify datastore) {
+        Key<UserData> userKey = userKey(userId);
+        List<Key<UserProjectData>> keys = new ArrayList<Key<UserProjectData>>();
+        for (long projectId : projectIds) {
+          keys.add(userProjectKey(userKey, projectId));
+        }
+        List<UserProjectData> filled = new ArrayList<UserProjectData>();
+        for (UserProjectData upd : datastore.get(keys).values()) {
+          ProjectData pd = projectDatas.t.get(upd.projectId);
+          if (upd.name == null && pd != null) {
+            copyProjectSummary(pd, upd);
+            filled.add(upd);
+          }
+        }
+        datastore.put(filled);  // batch put
+      }
+    }, true);
+  }
+
+  private void copyProjectSummary(ProjectData pd, UserProjectData upd) {
+    upd.name = pd.name;
+    upd.type = pd.type;
+    upd.dateCreated = pd.dateCreated;
+    upd.dateModified = pd.dateModified;
+    upd.projectMovedToTrashFlag = pd.projectMovedToTrashFlag;
+  }
+
   @Override
   public String getProjectName(final String userId, final long projectId) {
     final Result<String> projectName = new Result<String>();
@@ -1137,13 +1634,17 @@ public class ObjectifyStorageIo implements  StorageIo {
   @Override
   public void addSourceFilesToProject(final String userId, final long projectId,
     final boolean changeModDate, final String... fileNames) {
+    final Result<Long> modTime = new Result<Long>();
+    long startTime = System.currentTimeMillis();
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
-          addFilesToProject(datastore, projectId, FileData.RoleEnum.SOURCE, changeModDate, userId, fileNames);
+          modTime.t = addFilesToProject(datastore, projectId, FileData.RoleEnum.SOURCE,
+              changeModDate, userId, fileNames);
         }
       }, true);
+      updateUserProjectModDate(userId, projectId, modTime.t, startTime);
     } catch (ObjectifyException e) {
       throw CrashReport.createAndLogError(LOG, null,
           collectProjectErrorInfo(userId, projectId, fileNames[0]), e);
@@ -1154,7 +1655,7 @@ public class ObjectifyStorageIo implements  StorageIo {
   public void addOutputFilesToProject(final String userId, final long projectId,
     final String... fileNames) {
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
           addFilesToProject(datastore, projectId, FileData.RoleEnum.TARGET, false, userId, fileNames);
@@ -1166,21 +1667,28 @@ public class ObjectifyStorageIo implements  StorageIo {
     }
   }
 
-  private void addFilesToProject(Objectify datastore, long projectId, FileData.RoleEnum role,
+  // Returns the project's modification date, or 0 if changeModDate is false
+  private long addFilesToProject(Objectify datastore, long projectId, FileData.RoleEnum role,
     boolean changeModDate, String userId, String... fileNames) {
     List<FileData> addedFiles = new ArrayList<FileData>();
+    List<String> addedNames = new ArrayList<String>();
     Key<ProjectData> projectKey = projectKey(projectId);
     for (String fileName : fileNames) {
       FileData fd = createProjectFile(datastore, projectKey, role, fileName);
       if (fd != null) {
         fd.userId = userId;
         addedFiles.add(fd);
+        addedNames.add(fileName);
       }
     }
     datastore.put(addedFiles); // batch put
+    if (!addedNames.isEmpty()) {
+      updateFileManifest(datastore, projectKey, role, addedNames, new ArrayList<String>());
+    }
     if (changeModDate) {
-      updateProjectModDate(datastore, projectId, false);
+      return updateProjectModDate(datastore, projectId, false);
     }
+    return 0;
   }
 
   private FileData createProjectFile(Objectify datastore, Key<ProjectData> projectKey,
@@ -1203,13 +1711,17 @@ public class ObjectifyStorageIo implements  StorageIo {
   @Override
   public void removeSourceFilesFromProject(final String userId, final long projectId,
       final boolean changeModDate, final String... fileNames) {
+    final Result<Long> modTime = new Result<Long>();
+    long startTime = System.currentTimeMillis();
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
-          removeFilesFromProject(datastore, projectId, FileData.RoleEnum.SOURCE, changeModDate, fileNames);
+          modTime.t = removeFilesFromProject(datastore, projectId, FileData.RoleEnum.SOURCE,
+              changeModDate, fileNames);
         }
       }, true);
+      updateUserProjectModDate(userId, projectId, modTime.t, startTime);
     } catch (ObjectifyException e) {
       throw CrashReport.createAndLogError(LOG, null,
           collectProjectErrorInfo(userId, projectId, fileNames[0]), e);
@@ -1220,7 +1732,7 @@ public class ObjectifyStorageIo implements  StorageIo {
   public void removeOutputFilesFromProject(final String userId, final long projectId,
       final String... fileNames) {
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
           removeFilesFromProject(datastore, projectId, FileData.RoleEnum.TARGET, false, fileNames);
@@ -1232,10 +1744,12 @@ public class ObjectifyStorageIo implements  StorageIo {
     }
   }
 
-  private void removeFilesFromProject(Objectify datastore, long projectId,
+  // Returns the project's modification date, or 0 if changeModDate is false
+  private long removeFilesFromProject(Objectify datastore, long projectId,
       FileData.RoleEnum role, boolean changeModDate, String... fileNames) {
     Key<ProjectData> projectKey = projectKey(projectId);
     List<Key<FileData>> filesToRemove = new ArrayList<Key<FileData>>();
+    List<String> removedNames = new ArrayList<String>();
     for (String fileName : fileNames) {
       Key<FileData> key = projectFileKey(projectKey, fileName);
       memcache.delete(key.getString()); // Remove it from memcache (if it is there)
@@ -1243,6 +1757,7 @@ public class ObjectifyStorageIo implements  StorageIo {
       if (fd != null) {
         if (fd.role.equals(role)) {
           filesToRemove.add(projectFileKey(projectKey, fileName));
+          removedNames.add(fileName);
         } else {
           throw CrashReport.createAndLogError(LOG, null,
               collectProjectErrorInfo(null, projectId, fileName),
@@ -1251,9 +1766,13 @@ public class ObjectifyStorageIo implements  StorageIo {
       }
     }
     datastore.delete(filesToRemove);  // batch delete
+    if (!removedNames.isEmpty()) {
+      updateFileManifest(datastore, projectKey, role, new ArrayList<String>(), removedNames);
+    }
     if (changeModDate) {
-      updateProjectModDate(datastore, projectId, false);
+      return updateProjectModDate(datastore, projectId, false);
     }
+    return 0;
   }
 
   @Override
@@ -1292,16 +1811,111 @@ public class ObjectifyStorageIo implements  StorageIo {
 
   private List<String> getProjectFiles(Objectify datastore, long projectId,
                                        FileData.RoleEnum role) {
-    Key<ProjectData> projectKey = projectKey(projectId);
     List<String> fileList = new ArrayList<String>();
-    for (FileData fd : datastore.query(FileData.class).ancestor(projectKey)) {
-      if (fd.role.equals(role)) {
-        fileList.add(fd.fileName);
+    for (Map.Entry<String, FileData.RoleEnum> entry :
+             getFileRoles(datastore, projectKey(projectId)).entrySet()) {
+      if (entry.getValue() == role) {
+        fileList.add(entry.getKey());
       }
     }
     return fileList;
   }
 
+  /*
+   * Returns the role of each of a project's files. The file names come from a
+   * keys-only query and the roles from the project's FileManifestData, so a
+   * FileData entity (and its content) is only loaded if the manifest doesn't
+   * know about that file yet. A missing or out of date manifest is rewritten,
+   * which is also how projects created before there were manifests get one.
+   */
+  private Map<String, FileData.RoleEnum> getFileRoles(Objectify datastore,
+      Key<ProjectData> projectKey) {
+    FileManifestData manifest = datastore.find(fileManifestKey(projectKey));
+    Map<String, FileData.RoleEnum> known = manifestRoles(manifest);
+    Map<String, FileData.RoleEnum> roles = new LinkedHashMap<String, FileData.RoleEnum>();
+    List<Key<FileData>> unknown = new ArrayList<Key<FileData>>();
+    for (Key<FileData> key : datastore.query(FileData.class).ancestor(projectKey).fetchKeys()) {
+      FileData.RoleEnum role = known.get(key.getName());
+      if (role == null) {
+        unknown.add(key);
+      }
+      roles.put(key.getName(), role);
+    }
+    if (!unknown.isEmpty()) {
+      for (FileData fd : datastore.get(unknown).values()) {
+        roles.put(fd.fileName, fd.role);
+      }
+    }
+    // known only has more entries than roles if some of the files are gone
+    if (manifest == null || !unknown.isEmpty() || known.size() != roles.size()) {
+      putFileManifest(datastore, projectKey, roles);
+    }
+    return roles;
+  }
+
+  /*
+   * Records added and removed files in the project's FileManifestData. If the
+   * project doesn't have a manifest yet it is left for getFileRoles to build.
+   */
+  private void updateFileManifest(Objectify datastore, Key<ProjectData> projectKey,
+      FileData.RoleEnum role, List<String> added, List<String> removed) {
+    FileManifestData manifest = datastore.find(fileManifestKey(projectKey));
+    if (manifest == null) {
+      return;
+    }
+    Map<String, FileData.RoleEnum> roles = manifestRoles(manifest);
+    for (String fileName : removed) {
+      roles.remove(fileName);
+    }
+    for (String fileName : added) {
+      roles.put(fileName, role);
+    }
+    putFileManifest(datastore, projectKey, roles);
+  }
+
+  private Map<String, FileData.RoleEnum> manifestRoles(FileManifestData manifest) {
+    Map<String, FileData.RoleEnum> roles = new LinkedHashMap<String, FileData.RoleEnum>();
+    if (manifest != null) {
+      // Objectify stores an empty list as null
+      if (manifest.sourceFiles != null) {
+        for (String fileName : manifest.sourceFiles) {
+          roles.put(fileName, FileData.RoleEnum.SOURCE);
+        }
+      }
+      if (manifest.targetFiles != null) {
+        for (String fileName : manifest.targetFiles) {
+          roles.put(fileName, FileData.RoleEnum.TARGET);
+        }
+      }
+      if (manifest.temporaryFiles != null) {
+        for (String fileName : manifest.temporaryFiles) {
+          roles.put(fileName, FileData.RoleEnum.TEMPORARY);
+        }
+      }
+    }
+    return roles;
+  }
+
+  private void putFileManifest(Objectify datastore, Key<ProjectData> projectKey,
+      Map<String, FileData.RoleEnum> roles) {
+    FileManifestData manifest = new FileManifestData();
+    manifest.id = FileManifestData.ID;
+    manifest.projectKey = projectKey;
+    manifest.sourceFiles = new ArrayList<String>();
+    manifest.targetFiles = new ArrayList<String>();
+    manifest.temporaryFiles = new ArrayList<String>();
+    for (Map.Entry<String, FileData.RoleEnum> entry : roles.entrySet()) {
+      if (entry.getValue() == FileData.RoleEnum.SOURCE) {
+        manifest.sourceFiles.add(entry.getKey());
+      } else if (entry.getValue() == FileData.RoleEnum.TARGET) {
+        manifest.targetFiles.add(entry.getKey());
+      } else if (entry.getValue() == FileData.RoleEnum.TEMPORARY) {
+        manifest.temporaryFiles.add(entry.getKey());
+      }
+    }
+    datastore.put(manifest);
+  }
+
   @Override
   public long uploadFile(final long projectId, final String fileName, final String userId,
       final String content, final String encoding) throws BlocksTruncatedException {
@@ -1324,6 +1938,319 @@ public class ObjectifyStorageIo implements  StorageIo {
     }
   }
 
+  @Override
+  public long uploadFiles(final long projectId, final String userId, final boolean force,
+      Map<String, String> contents, String encoding) throws BlocksTruncatedException {
+    Map<String, byte[]> rawContents = new LinkedHashMap<String, byte[]>();
+    for (Map.Entry<String, String> entry : contents.entrySet()) {
+      try {
+        rawContents.put(entry.getKey(), entry.getValue().getBytes(encoding));
+      } catch (UnsupportedEncodingException e) {
+        throw CrashReport.createAndLogError(LOG, null, "Unsupported file content encoding,"
+            + collectProjectErrorInfo(null, projectId, entry.getKey()), e);
+      }
+    }
+    long startTime = System.currentTimeMillis();
+    boolean saved = false;
+    try {
+      long modTime = uploadRawFiles(projectId, userId, force, rawContents);
+      saved = true;
+      return modTime;
+    } finally {
+      StorageStats.recordBatch("uploadFiles", System.currentTimeMillis() - startTime,
+          rawContents.size(), !saved);
+    }
+  }
+
+  /*
+   * Saves several files of a project, with the same results as calling
+   * uploadRawFile for each one, but in one datastore transaction. The files
+   * are checked first, so that nothing is written if any of them can't be
+   * saved; then the GCS files (and backups) are written, in parallel; and
+   * then all of the FileData entities and the project's modification date
+   * are put at once. New GCS content goes to new GCS files, so until the
+   * transaction commits every file still has its old content; the old GCS
+   * files are deleted afterwards, or the new ones if the transaction fails.
+   */
+  private long uploadRawFiles(final long projectId, final String userId, final boolean force,
+      final Map<String, byte[]> contents) throws BlocksTruncatedException {
+    validateGCS();
+    long startTime = System.currentTimeMillis();
+    final List<Key<FileData>> keys = new ArrayList<Key<FileData>>();
+    for (String fileName : contents.keySet()) {
+      keys.add(projectFileKey(projectKey(projectId), fileName));
+    }
+    final Map<Key<FileData>, FileData> oldFiles = new HashMap<Key<FileData>, FileData>();
+    try {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
+        @Override
+        public void run(Objectify datastore) throws ObjectifyException {
+          oldFiles.clear();
+          oldFiles.putAll(datastore.get(keys));  // batch get
+          for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            String fileName = entry.getKey();
+            FileData fd = oldFiles.get(projectFileKey(projectKey(projectId), fileName));
+            // <Screen>.yail files are missing when user converts AI1 project to AI2
+            // instead of blowing up, just create a <Screen>.yail file
+            Preconditions.checkState(fd != null
+                || fileName.endsWith(".yail") || fileName.endsWith(".png"));
+            if (fd == null) {
+              continue;
+            }
+            if (fd.userId != null && !fd.userId.equals("") && !fd.userId.equals(userId)) {
+              throw CrashReport.createAndLogError(LOG, null,
+                  collectUserProjectErrorInfo(userId, projectId),
+                  new UnauthorizedAccessException(userId, projectId, null));
+            }
+            if (!force && entry.getValue().length < 125 && fileName.endsWith(".bky")) {
+              checkForBlocksTruncation(fd);
+            }
+          }
+        }
+      }, false);
+    } catch (ObjectifyException e) {
+      if (e.getMessage().startsWith("Blocks")) { // Convert Exception
+        throw new BlocksTruncatedException();
+      }
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId), e);
+    }
+
+    // Write the GCS files outside of the datastore job, so that the job only
+    // has to be retried for the datastore
+    final Map<String, String> newGcsNames = new HashMap<String, String>();
+    final Set<String> backedUpFiles = new HashSet<String>();
+    final long backupTime = System.currentTimeMillis();
+    Map<String, byte[]> gcsWrites = new LinkedHashMap<String, byte[]>();
+    for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+      String fileName = entry.getKey();
+      if (useGCSforFile(fileName, entry.getValue().length)) {
+        String gcsName = makeNewGCSfileName(fileName, projectId);
+        newGcsNames.put(fileName, gcsName);
+        gcsWrites.put(gcsName, entry.getValue());
+      }
+      FileData fd = oldFiles.get(projectFileKey(projectKey(projectId), fileName));
+      long lastBackup = fd == null ? 0 : fd.lastBackup;
+      if (considerBackup(fileName) && lastBackup + TWENTYFOURHOURS < backupTime) {
+        backedUpFiles.add(fileName);
+        gcsWrites.put(makeGCSfileName(fileName + "." + formattedTime() + ".backup", projectId),
+            entry.getValue());
+      }
+    }
+    try {
+      writeGcsFiles(gcsWrites);
+    } catch (IOException e) {
+      deleteGcsFiles(newGcsNames.values());
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId), e);
+    }
+
+    final Result<Long> modTime = new Result<Long>();
+    final Map<String, FileData> savedFiles = new LinkedHashMap<String, FileData>();
+    final List<String> oldBlobKeys = new ArrayList<String>();
+    final List<String> oldGcsNames = new ArrayList<String>();
+    final List<String> oldSharedNames = new ArrayList<String>();
+    try {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
+        @Override
+        public void run(Objectify datastore) {
+          savedFiles.clear();
+          oldBlobKeys.clear();
+          oldGcsNames.clear();
+          oldSharedNames.clear();
+          Map<Key<FileData>, FileData> files = datastore.get(keys);  // batch get
+          for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            String fileName = entry.getKey();
+            Key<FileData> key = projectFileKey(projectKey(projectId), fileName);
+            FileData fd = files.get(key);
+            if (fd == null) {
+              // Only .yail and .png files are created by saving them (see above)
+              Preconditions.checkState(fileName.endsWith(".yail") || fileName.endsWith(".png"));
+              fd = createProjectFile(datastore, projectKey(projectId), FileData.RoleEnum.SOURCE,
+                  fileName);
+            }
+            if (fd.isBlob) {
+              // mark the old blobstore blob for deletion
+              oldBlobKeys.add(fd.blobKey);
+            }
+            if (isTrue(fd.isGCS) && !fd.gcsShared
+                && !fd.gcsName.equals(newGcsNames.get(fileName))) {
+              // The old content is replaced either way
+              oldGcsNames.add(fd.gcsName);
+            } else if (isTrue(fd.isGCS) && fd.gcsShared) {
+              oldSharedNames.add(fd.gcsName);
+            }
+            if (newGcsNames.containsKey(fileName)) {
+              fd.isGCS = true;
+              fd.gcsName = newGcsNames.get(fileName);
+              fd.gcsShared = false;
+              fd.content = null;
+            } else {
+              if (isTrue(fd.isGCS)) {  // Was a GCS file, must have gotten smaller
+                fd.isGCS = false;
+                fd.gcsName = null;
+                fd.gcsShared = false;
+              }
+              fd.content = entry.getValue();
+            }
+            fd.isBlob = false;
+            fd.blobstorePath = null;
+            if (backedUpFiles.contains(fileName)) {
+              fd.lastBackup = backupTime;
+            }
+            // Old file not marked with ownership, mark it now
+            if (fd.userId == null || fd.userId.equals("")) {
+              fd.userId = userId;
+            }
+            savedFiles.put(key.getString(), fd);
+          }
+          datastore.put(savedFiles.values());  // batch put
+          modTime.t = updateProjectModDate(datastore, projectId, false);
+        }
+      }, true);
+    } catch (ObjectifyException e) {
+      // Nothing points at the new GCS files
+      deleteGcsFiles(newGcsNames.values());
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId), e);
+    }
+    memcache.putAll(savedFiles);  // Store the updated data in memcache
+    // The old contents can only be deleted once the new ones are committed
+    for (String blobKey : oldBlobKeys) {
+      deleteBlobstoreFile(blobKey);
+    }
+    deleteGcsFiles(oldGcsNames);
+    releaseSharedGcsFiles(oldSharedNames);
+    try {
+      updateUserProjectModDate(userId, projectId, modTime.t, startTime);
+    } catch (ObjectifyException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId), e);
+    }
+    return modTime.t;
+  }
+
+  // Deletes GCS files that no FileData points at
+  private void deleteGcsFiles(Collection<String> gcsNames) {
+    for (String gcsName : gcsNames) {
+      try {
+        gcsService.delete(new GcsFilename(GCS_BUCKET_NAME, gcsName));
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to delete " + gcsName + " from GCS.", e);
+      }
+    }
+  }
+
+  // Counts a reference to a shared GCS file for each time its name appears in
+  // gcsNames. Must be called before the FileData entities using them are put.
+  private void retainSharedGcsFiles(Collection<String> gcsNames) throws ObjectifyException {
+    adjustSharedGcsReferences(gcsNames, 1);
+  }
+
+  // Drops a reference to a shared GCS file for each time its name appears in
+  // gcsNames, and deletes the ones no longer referenced. Must only be called
+  // after the FileData entities that used them have been committed. If the
+  // counts can't be updated the GCS files are left alone.
+  private void releaseSharedGcsFiles(Collection<String> gcsNames) {
+    try {
+      deleteGcsFiles(adjustSharedGcsReferences(gcsNames, -1));
+    } catch (ObjectifyException e) {
+      LOG.log(Level.WARNING, "Unable to release shared GCS files " + gcsNames, e);
+    }
+  }
+
+  // Returns the names whose reference count has dropped to zero
+  private List<String> adjustSharedGcsReferences(Collection<String> gcsNames, int delta)
+      throws ObjectifyException {
+    Map<String, Integer> deltas = new LinkedHashMap<String, Integer>();
+    for (String gcsName : gcsNames) {
+      Integer count = deltas.get(gcsName);
+      deltas.put(gcsName, (count == null ? 0 : count) + delta);
+    }
+    List<String> unreferenced = new ArrayList<String>();
+    for (final Map.Entry<String, Integer> entry : deltas.entrySet()) {
+      final Result<Boolean> deleted = new Result<Boolean>();
+      runJobWithRetries(new JobRetryHelper(sharedGcsEntityGroup(entry.getKey())) {
+        @Override
+        public void run(Objectify datastore) {
+          deleted.t = false;
+          SharedGcsFileData sgfd = datastore.find(SharedGcsFileData.class, entry.getKey());
+          if (sgfd == null) {
+            if (entry.getValue() < 0) {
+              return;  // not counted, so we can't tell whether it is still in use
+            }
+            sgfd = new SharedGcsFileData();
+            sgfd.gcsName = entry.getKey();
+          }
+          sgfd.references += entry.getValue();
+          if (sgfd.references > 0) {
+            datastore.put(sgfd);
+          } else {
+            datastore.delete(sgfd);
+            deleted.t = true;
+          }
+        }
+      }, true);
+      if (deleted.t) {
+        unreferenced.add(entry.getKey());
+      }
+    }
+    return unreferenced;
+  }
+
+  // Whether we keep a daily backup of the file in GCS
+  private boolean considerBackup(String fileName) {
+    return useGcs && fileName.contains("src/") && (fileName.endsWith(".blk")  // AI1 Blocks Files
+        || fileName.endsWith(".bky")   // Blockly files
+        || fileName.endsWith(".scm")); // Form Definitions
+  }
+
+  /*
+   * Writes the given contents to GCS, by GCS file name. Up to GCS_WRITE_THREADS
+   * files are written at the same time. Threads on App Engine have to come
+   * from the request thread factory; where there is none (as in unit tests)
+   * the files are written one at a time on the calling thread.
+   */
+  private void writeGcsFiles(Map<String, byte[]> contents) throws IOException {
+    if (contents.isEmpty()) {
+      return;
+    }
+    ThreadFactory threadFactory = contents.size() > 1
+        ? ThreadManager.currentRequestThreadFactory() : null;
+    ExecutorService executor = threadFactory == null ? MoreExecutors.sameThreadExecutor()
+        : Executors.newFixedThreadPool(Math.min(contents.size(), GCS_WRITE_THREADS),
+            threadFactory);
+    try {
+      List<Future<Void>> writes = new ArrayList<Future<Void>>();
+      for (final Map.Entry<String, byte[]> entry : contents.entrySet()) {
+        writes.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            GcsOutputChannel outputChannel = gcsService.createOrReplace(
+                new GcsFilename(GCS_BUCKET_NAME, entry.getKey()),
+                GcsFileOptions.getDefaultInstance());
+            outputChannel.write(ByteBuffer.wrap(entry.getValue()));
+            outputChannel.close();
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> write : writes) {
+        try {
+          write.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while writing to GCS");
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), IOException.class);
+          throw new IOException(e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private long updateProjectModDate(Objectify datastore, long projectId, boolean doingConversion) {
     long modDate = System.currentTimeMillis();
     ProjectData pd = datastore.find(projectKey(projectId));
@@ -1345,6 +2272,31 @@ public class ObjectifyStorageIo implements  StorageIo {
           new IllegalArgumentException("project " + projectId + " doesn't exist"));
     }
   }
+  /*
+   * Copies a project's new modification date into the user's summary of the
+   * project, which is in the user's entity group so it can't be written in the
+   * same job as the ProjectData. updateProjectModDate only moves the date
+   * forward about once a minute, and returns the old date otherwise, so there
+   * is nothing to do unless modDate is at least startTime, the time the
+   * caller started the job that called it.
+   */
+  private void updateUserProjectModDate(final String userId, final long projectId,
+      final long modDate, long startTime) throws ObjectifyException {
+    if (modDate < startTime) {
+      return;
+    }
+    runJobWithRetries(new JobRetryHelper(userEntityGroup(userId)) {
+      @Override
+      public void run(Objectify datastore) {
+        UserProjectData upd = datastore.find(userProjectKey(userKey(userId), projectId));
+        if (upd != null && upd.name != null && upd.dateModified < modDate) {
+          upd.dateModified = modDate;
+          datastore.put(upd);
+        }
+      }
+    }, true);
+  }
+
 
   @Override
   public long uploadRawFileForce(final long projectId, final String fileName, final String userId,
@@ -1367,15 +2319,20 @@ public class ObjectifyStorageIo implements  StorageIo {
       final boolean force, final byte[] content, final boolean doingConversion) throws BlocksTruncatedException {
     validateGCS();
     final Result<Long> modTime = new Result<Long>();
+    long startTime = System.currentTimeMillis();
     final boolean useGCS = useGCSforFile(fileName, content.length);
     final Result<String> oldBlobstoreKey = new Result<String>();
-    final boolean considerBackup = (useGcs?((fileName.contains("src/") && fileName.endsWith(".blk")) // AI1 Blocks Files
-        || (fileName.contains("src/") && fileName.endsWith(".bky")) // Blockly files
-        || (fileName.contains("src/") && fileName.endsWith(".scm"))) // Form Definitions
-      :false);
+    final boolean considerBackup = considerBackup(fileName);
+    // New GCS content goes to a new GCS file, and the old one is deleted once
+    // the FileData no longer points at it
+    final String newGcsName = useGCS ? makeNewGCSfileName(fileName, projectId) : null;
+    final Result<String> oldGcsName = new Result<String>();
+    final Result<String> oldSharedName = new Result<String>();
+    final Result<Boolean> saved = new Result<Boolean>();
+    saved.t = false;
 
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         FileData fd;
 
         @Override
@@ -1417,9 +2374,17 @@ public class ObjectifyStorageIo implements  StorageIo {
             // mark the old blobstore blob for deletion
            oldBlobstoreKey.t = fd.blobKey;
           }
+          if (isTrue(fd.isGCS) && !fd.gcsShared && !fd.gcsName.equals(newGcsName)) {
+            // The old content is replaced either way. (If an earlier try of
+            // this job saved the FileData, it already points at newGcsName.)
+            oldGcsName.t = fd.gcsName;
+          } else if (isTrue(fd.isGCS) && fd.gcsShared) {
+            oldSharedName.t = fd.gcsName;
+          }
           if (useGCS) {
             fd.isGCS = true;
-            fd.gcsName = makeGCSfileName(fileName, projectId);
+            fd.gcsName = newGcsName;
+            fd.gcsShared = false;
             try {
               GcsOutputChannel outputChannel =
                 gcsService.createOrReplace(new GcsFilename(GCS_BUCKET_NAME, fd.gcsName), GcsFileOptions.getDefaultInstance());
@@ -1435,14 +2400,9 @@ public class ObjectifyStorageIo implements  StorageIo {
             fd.blobstorePath = null;
           } else {
             if (isTrue(fd.isGCS)) {     // Was a GCS file, must have gotten smaller
-              try {             // and is now stored in the data store
-                gcsService.delete(new GcsFilename(GCS_BUCKET_NAME, fd.gcsName));
-              } catch (IOException e) {
-                throw CrashReport.createAndLogError(LOG, null,
-                  collectProjectErrorInfo(userId, projectId, fileName), e);
-              }
               fd.isGCS = false;
               fd.gcsName = null;
+              fd.gcsShared = false;
             }
             // Note, Don't have to do anything if the file was in the
             // Blobstore and shrank because the code above (3 lines
@@ -1472,6 +2432,7 @@ public class ObjectifyStorageIo implements  StorageIo {
             fd.userId = userId;
           }
           datastore.put(fd);
+          saved.t = true;
           memcache.put(key.getString(), fd); // Store the updated data in memcache
           modTime.t = updateProjectModDate(datastore, projectId, doingConversion);
         }
@@ -1492,7 +2453,18 @@ public class ObjectifyStorageIo implements  StorageIo {
       if (oldBlobstoreKey.t != null) {
         deleteBlobstoreFile(oldBlobstoreKey.t);
       }
+      if (oldGcsName.t != null) {
+        deleteGcsFiles(Collections.singletonList(oldGcsName.t));
+      }
+      if (oldSharedName.t != null) {
+        releaseSharedGcsFiles(Collections.singletonList(oldSharedName.t));
+      }
+      updateUserProjectModDate(userId, projectId, modTime.t, startTime);
     } catch (ObjectifyException e) {
+      if (newGcsName != null && !saved.t) {
+        // Nothing points at the new GCS file
+        deleteGcsFiles(Collections.singletonList(newGcsName));
+      }
       if (e.getMessage().startsWith("Blocks")) { // Convert Exception
         throw new BlocksTruncatedException();
       }
@@ -1526,7 +2498,7 @@ public class ObjectifyStorageIo implements  StorageIo {
       return true;              // Use GCS for package output and assets
     boolean mayUse = (fileName.contains("src/") && fileName.endsWith(".blk")) // AI1 Blocks Files
       || (fileName.contains("src/") && fileName.endsWith(".bky")); // Blockly files
-    if (mayUse && length > 50000) // Only use GCS for larger blocks files
+    if (mayUse && length > MAX_INLINE_BLOCKS_SIZE) // Only use GCS for larger blocks files
       return true;
     return false;
   }
@@ -1536,14 +2508,23 @@ public class ObjectifyStorageIo implements  StorageIo {
     return (projectId + "/" + fileName);
   }
 
+  // Make a GCS file name for new content of an existing file. The name is
+  // different every time, so the new content can be written before the
+  // FileData that points at it is committed without touching the old content.
+  String makeNewGCSfileName(String fileName, long projectId) {
+    return projectId + "/" + UUID.randomUUID() + "/" + fileName;
+  }
+
   @Override
   public long deleteFile(final String userId, final long projectId, final String fileName) {
     validateGCS();
     final Result<Long> modTime = new Result<Long>();
+    long startTime = System.currentTimeMillis();
     final Result<String> oldBlobKeyString = new Result<String>();
     final Result<String> oldgcsName = new Result<String>();
+    final Result<String> oldSharedName = new Result<String>();
     try {
-      runJobWithRetries(new JobRetryHelper() {
+      runJobWithRetries(new JobRetryHelper(projectEntityGroup(projectId)) {
         @Override
         public void run(Objectify datastore) {
           Key<FileData> fileKey = projectFileKey(projectKey(projectId), fileName);
@@ -1558,7 +2539,9 @@ public class ObjectifyStorageIo implements  StorageIo {
               }
             }
             oldBlobKeyString.t = fileData.blobKey;
-            if (isTrue(fileData.isGCS)) {
+            if (isTrue(fileData.isGCS) && fileData.gcsShared) {
+              oldSharedName.t = fileData.gcsName;
+            } else if (isTrue(fileData.isGCS)) {
               oldgcsName.t = fileData.gcsName;
             }
           }
@@ -1566,6 +2549,7 @@ public class ObjectifyStorageIo implements  StorageIo {
           modTime.t = updateProjectModDate(datastore, projectId, false);
         }
       }, true);
+      updateUserProjectModDate(userId, projectId, modTime.t, startTime);
     } catch (ObjectifyException e) {
       throw CrashReport.createAndLogError(LOG, null,
           collectProjectErrorInfo(userId, projectId, fileName), e);
@@ -1580,6 +2564,9 @@ public class ObjectifyStorageIo implements  StorageIo {
         LOG.log(Level.WARNING, "Unable to delete " + oldgcsName + " from GCS.", e);
       }
     }
+    if (oldSharedName.t != null) {
+      releaseSharedGcsFiles(Collections.singletonList(oldSharedName.t));
+    }
     return (modTime.t == null) ? 0 : modTime.t;
   }
 
@@ -1825,24 +2812,26 @@ public class ObjectifyStorageIo implements  StorageIo {
         @Override
         public void run(Objectify datastore) throws IOException {
           Key<ProjectData> projectKey = projectKey(projectId);
-          for (FileData fd : datastore.query(FileData.class).ancestor(projectKey)) {
-            fileData.add(fd);
-            String fileName = fd.fileName;
+          // Decide which files to export from their names and roles alone, and
+          // only then load the FileData for the files we keep.
+          Map<String, FileData.RoleEnum> roles = getFileRoles(datastore, projectKey);
+          fileData.clear();
+          screens.clear();
+          for (String fileName : roles.keySet()) {
             if (fileName.startsWith("src/") && (fileName.endsWith(".scm") || fileName.endsWith(".bky") || fileName.endsWith(".yail"))) {
               String fileNameNoExt = fileName.substring(0, fileName.lastIndexOf("."));
               int count = screens.containsKey(fileNameNoExt) ? screens.get(fileNameNoExt) + 1 : 1;
               screens.put(fileNameNoExt, count);
             }
           }
-          Iterator<FileData> it = fileData.iterator();
-          while (it.hasNext()) {
-            FileData fd = it.next();
-            String fileName = fd.fileName;
+          List<Key<FileData>> keep = new ArrayList<Key<FileData>>();
+          for (Map.Entry<String, FileData.RoleEnum> entry : roles.entrySet()) {
+            String fileName = entry.getKey();
             if (fileName.startsWith("assets/external_comps") && forGallery) {
               throw new IOException("FATAL Error, external component in gallery app");
             }
-            if (!fd.role.equals(FileData.RoleEnum.SOURCE)) {
-              it.remove();
+            if (entry.getValue() != FileData.RoleEnum.SOURCE) {
+              continue;
             } else if (fileName.equals(FileExporter.REMIX_INFORMATION_FILE_PATH) ||
                       (fileName.startsWith("screenshots") && !includeScreenShots) ||
                       (fileName.startsWith("src/") && fileName.endsWith(".yail") && !includeYail)) {
@@ -1855,18 +2844,26 @@ public class ObjectifyStorageIo implements  StorageIo {
               // Otherwise Yail files are confusing cruft. In the case of
               // the Firebase Component they may contain secrets which we would
               // rather not have leak into an export .aia file or into the Gallery
-              it.remove();
+              continue;
             } else if (forBuildserver && fileName.startsWith("src/") &&
                 (fileName.endsWith(".scm") || fileName.endsWith(".bky") || fileName.endsWith(".yail"))) {
               String fileNameNoExt = fileName.substring(0, fileName.lastIndexOf("."));
               if ((Integer)screens.get(fileNameNoExt) < 3) {
                 LOG.log(Level.INFO, "Not adding file to build ", fileName);
-                it.remove();
                 if (fileName.endsWith(".yail")) {
                   deleteFile(userId, projectId, fileName);
                 }
+                continue;
               }
             }
+            keep.add(projectFileKey(projectKey, fileName));
+          }
+          Map<Key<FileData>, FileData> kept = datastore.get(keep);  // batch get
+          for (Key<FileData> key : keep) {
+            FileData fd = kept.get(key);
+            if (fd != null) {
+              fileData.add(fd);
+            }
           }
           if (fileData.size() > 0) {
             ProjectData pd = datastore.find(projectKey);
@@ -2340,6 +3337,23 @@ public class ObjectifyStorageIo implements  StorageIo {
     return new Key<FileData>(projectKey, FileData.class, fileName);
   }
 
+  private Key<FileManifestData> fileManifestKey(Key<ProjectData> projectKey) {
+    return new Key<FileManifestData>(projectKey, FileManifestData.class, FileManifestData.ID);
+  }
+
+  private static String sharedGcsEntityGroup(String gcsName) {
+    return "shared " + gcsName;
+  }
+
+  // Names for entity groups in StorageStats' contention counts
+  private static String userEntityGroup(String userId) {
+    return "user " + userId;
+  }
+
+  private static String projectEntityGroup(long projectId) {
+    return "project " + projectId;
+  }
+
   /**
    * Call job.run() if we get a {@link java.util.ConcurrentModificationException}
    * or {@link com.google.appinventor.server.storage.ObjectifyException}
@@ -2347,6 +3361,8 @@ public class ObjectifyStorageIo implements  StorageIo {
    * Any other exception will cause the job to fail immediately.
    * If useTransaction is true, create a transaction and run the job in
    * that transaction. If the job terminates normally, commit the transaction.
+   * Before each retry we wait for {@link #retryDelay}. The time taken, the
+   * number of retries and any contention are recorded in {@link StorageStats}.
    *
    * Note: Originally we ran all jobs in a transaction. However in
    *       many places there is no need for a transaction because
@@ -2360,51 +3376,81 @@ public class ObjectifyStorageIo implements  StorageIo {
    */
   @VisibleForTesting
   void runJobWithRetries(JobRetryHelper job, boolean useTransaction) throws ObjectifyException {
+    long startTime = System.currentTimeMillis();
+    boolean failed = true;
     int tries = 0;
-    while (tries <= MAX_JOB_RETRIES) {
-      Objectify datastore;
-      if (useTransaction) {
-        datastore = ObjectifyService.beginTransaction();
-      } else {
-        datastore = ObjectifyService.begin();
-      }
-      try {
-        job.run(datastore);
-        if (useTransaction) {
-          datastore.getTxn().commit();
-        }
-        break;
-      } catch (ConcurrentModificationException ex) {
-        job.onNonFatalError();
-        LOG.log(Level.WARNING, "Optimistic concurrency failure", ex);
-      } catch (ObjectifyException oe) {
-        String message = oe.getMessage();
-        if (message != null &&
-          (message.startsWith("Blocks") || message.startsWith("User Al"))) { // This one is fatal!
-          throw oe;
-        }
-        // maybe this should be a fatal error? I think only thing
-        // that creates this exception is this method.
-        job.onNonFatalError();
-      } catch (IOException e) {
-        job.onIOException(e);
-        break;
-      } finally {
-        if (useTransaction && datastore.getTxn().isActive()) {
+    try {
+      while (tries <= MAX_JOB_RETRIES) {
+        if (tries > 0) {
           try {
-            datastore.getTxn().rollback();
-          } catch (RuntimeException e) {
-            LOG.log(Level.WARNING, "Transaction rollback failed", e);
+            Thread.sleep(retryDelay(tries));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
           }
         }
+        Objectify datastore;
+        if (useTransaction) {
+          datastore = ObjectifyService.beginTransaction();
+        } else {
+          datastore = ObjectifyService.begin();
+        }
+        try {
+          job.run(datastore);
+          if (useTransaction) {
+            datastore.getTxn().commit();
+          }
+          failed = false;
+          break;
+        } catch (ConcurrentModificationException ex) {
+          job.onNonFatalError();
+          StorageStats.recordContention(job.getContentionKey());
+          LOG.log(Level.WARNING, "Optimistic concurrency failure", ex);
+        } catch (ObjectifyException oe) {
+          String message = oe.getMessage();
+          if (message != null &&
+            (message.startsWith("Blocks") || message.startsWith("User Al"))) { // This one is fatal!
+            throw oe;
+          }
+          // maybe this should be a fatal error? I think only thing
+          // that creates this exception is this method.
+          job.onNonFatalError();
+        } catch (IOException e) {
+          job.onIOException(e);
+          break;
+        } finally {
+          if (useTransaction && datastore.getTxn().isActive()) {
+            try {
+              datastore.getTxn().rollback();
+            } catch (RuntimeException e) {
+              LOG.log(Level.WARNING, "Transaction rollback failed", e);
+            }
+          }
+        }
+        tries++;
       }
-      tries++;
-    }
-    if (tries > MAX_JOB_RETRIES) {
-      throw new ObjectifyException("Couldn't commit job after max retries.");
+      if (tries > MAX_JOB_RETRIES) {
+        throw new ObjectifyException("Couldn't commit job after max retries.");
+      }
+    } finally {
+      StorageStats.recordJob(job.getOperation(), System.currentTimeMillis() - startTime,
+          Math.min(tries, MAX_JOB_RETRIES), failed);
     }
   }
 
+  /**
+   * Returns how long to wait before the given retry of a job: exponential
+   * backoff with jitter, between half and all of
+   * RETRY_BASE_DELAY * 2^(retry - 1), but no more than RETRY_MAX_DELAY.
+   *
+   * @param retry the retry about to be made, starting at 1
+   * @return the delay in milliseconds
+   */
+  @VisibleForTesting
+  static long retryDelay(int retry) {
+    long delay = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << Math.min(retry - 1, 16));
+    return delay / 2 + (long) (Math.random() * (delay / 2 + 1));
+  }
+
   private static String collectUserErrorInfo(final String userId) {
     return collectUserErrorInfo(userId, CrashReport.NOT_AVAILABLE);
   }
@@ -2635,6 +3681,11 @@ public class ObjectifyStorageIo implements  StorageIo {
 
   // The routines below are part of the user admin interface. Called from AdminInfoServiceImpl
 
+  @Override
+  public String getStorageStats() {
+    return StorageStats.report();
+  }
+
   @Override
   public List<AdminUser> searchUsers(final String partialEmail) {
     final List<AdminUser> retval = new ArrayList();
@@ -2759,22 +3810,72 @@ public class ObjectifyStorageIo implements  StorageIo {
 
 
   @Override
-  public void storeBuildStatus(String userId, long projectId, int progress) {
-    String prelim = "40bae275-070f-478b-9a5f-d50361809b99";
-    String cacheKey = prelim + userId + projectId;
-    memcache.put(cacheKey, progress);
+  public void storeBuildStatus(final String userId, final long projectId, final int progress) {
+    final BuildStatusData status = new BuildStatusData();
+    status.projectId = projectId;
+    status.userId = userId;
+    status.progress = progress;
+    status.updated = System.currentTimeMillis();
+    String cachekey = buildStatusCacheKey(userId, projectId);
+    memcache.delete(cachekey);  // Flush cached copy prior to update
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          datastore.put(status);
+        }
+      }, false);
+    } catch (ObjectifyException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId), e);
+    }
+    memcache.put(cachekey, progress, Expiration.byDeltaSeconds(BUILD_STATUS_CACHE_SECONDS));
   }
 
   @Override
-  public int getBuildStatus(String userId, long projectId) {
-    String prelim = "40bae275-070f-478b-9a5f-d50361809b99";
-    String cacheKey = prelim + userId + projectId;
-    Integer ival = (Integer) memcache.get(cacheKey);
-    if (ival == null) {         // not in memcache (or memcache service down)
-      return 50;
-    } else {
-      return ival.intValue();
+  public int getBuildStatus(final String userId, final long projectId) {
+    // Clients wait for a build by polling this, so it is read through memcache. Only
+    // storeBuildStatus replaces a cached status; see cacheBuildStatus.
+    String cachekey = buildStatusCacheKey(userId, projectId);
+    Integer cached = (Integer) memcache.get(cachekey);
+    if (cached != null) {
+      return cached;
     }
+    final Result<Integer> progress = new Result<Integer>();
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          BuildStatusData status = datastore.find(BuildStatusData.class, projectId);
+          if (status == null || !userId.equals(status.userId)) {
+            progress.t = BUILD_PROGRESS_QUEUED;
+          } else {
+            progress.t = status.progress;
+          }
+        }
+      }, false);
+    } catch (ObjectifyException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId), e);
+    }
+    cacheBuildStatus(userId, projectId, progress.t);
+    return progress.t;
+  }
+
+  /*
+   * Caches a build status that getBuildStatus read from the datastore. A
+   * storeBuildStatus may have run since that read, so this only adds the
+   * status if the cache doesn't already have one; a late fill can't replace
+   * the newer status the writer put.
+   */
+  @VisibleForTesting
+  void cacheBuildStatus(String userId, long projectId, int progress) {
+    memcache.put(buildStatusCacheKey(userId, projectId), progress,
+        Expiration.byDeltaSeconds(BUILD_STATUS_CACHE_SECONDS), SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+  }
+
+  private static String buildStatusCacheKey(String userId, long projectId) {
+    return "buildstatus|" + userId + "|" + projectId;
   }
 
   @Override
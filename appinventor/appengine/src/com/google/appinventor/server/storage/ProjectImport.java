@@ -0,0 +1,54 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server.storage;
+
+import com.google.appinventor.shared.rpc.project.Project;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A project being imported one file at a time, as returned by
+ * {@link StorageIo#beginProjectImport}. File contents are stored as the files
+ * are added, but the project only exists once {@link #commit} has been called.
+ * An import that isn't committed must be aborted, so that the contents stored
+ * so far are deleted.
+ */
+public interface ProjectImport {
+
+  /**
+   * Adds a source file to the project, reading its content from the given
+   * stream up to the end of the stream. Large files are written to storage as
+   * they are read rather than held in memory. The stream is not closed.
+   *
+   * <p>Adding a file with the same name as one added before replaces it.
+   *
+   * @param fileName file name
+   * @param content the file content
+   * @return the size of the file in bytes
+   * @throws IOException if the content can't be read or stored
+   */
+  long addSourceFile(String fileName, InputStream content) throws IOException;
+
+  /**
+   * Creates the project from the given project information and the files
+   * added so far. The files in {@code project} are added too.
+   *
+   * <p>
+   * This is an atomic operation.
+   *
+   * @param project project information
+   * @param projectSettings project settings
+   * @return project id
+   */
+  long commit(Project project, String projectSettings);
+
+  /**
+   * Deletes the file contents stored so far. Does nothing if the import has
+   * already been committed.
+   */
+  void abort();
+}
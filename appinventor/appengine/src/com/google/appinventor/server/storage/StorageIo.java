@@ -14,6 +14,7 @@ import com.google.appinventor.shared.rpc.AdminInterfaceException;
 import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.UserProject;
+import com.google.appinventor.shared.rpc.project.UserProjectPage;
 import com.google.appinventor.shared.rpc.user.User;
 import com.google.appinventor.shared.rpc.user.SplashConfig;
 
@@ -21,6 +22,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import javax.annotation.Nullable;
@@ -39,6 +41,18 @@ public interface StorageIo {
    */
   public static final long INVALID_PROJECTID = 0;
 
+  /**
+   * Build progress stored when a build is started, before the build server
+   * has reported any progress.
+   */
+  public static final int BUILD_PROGRESS_QUEUED = 0;
+
+  /**
+   * Build progress stored once the build server has sent back a build's
+   * output. Progress in between is reported by the build server.
+   */
+  public static final int BUILD_PROGRESS_DONE = 100;
+
   // User management
 
   /**
@@ -134,6 +148,39 @@ public interface StorageIo {
    */
   long createProject(String userId, Project project, String projectSettings);
 
+  /**
+   * Starts creating a new project whose files are added one at a time, such
+   * as a project imported from an uploaded archive. The returned import must
+   * be either committed, which creates the project, or aborted.
+   *
+   * @param userId user id
+   * @return the new import
+   */
+  ProjectImport beginProjectImport(String userId);
+
+  /**
+   * Creates a new project as a copy of an existing one. The files named in
+   * {@code copiedFiles} take their content from the old project without it
+   * being read or written: the new project shares the stored content with the
+   * old one, and either project only gets its own copy of a file when that
+   * file is next saved. The files in {@code newProject} are added as they
+   * would be by {@link #createProject}.
+   *
+   * <p>
+   * This is an atomic operation.
+   *
+   * @param userId user id
+   * @param oldProjectId project id of the project to copy
+   * @param newProject project information, and any files whose content differs
+   *                   from the old project's
+   * @param projectSettings project settings
+   * @param copiedFiles names of the new project's source files, mapped to the
+   *                    names of the old project's files to take them from
+   * @return project id
+   */
+  long copyProject(String userId, long oldProjectId, Project newProject, String projectSettings,
+      Map<String, String> copiedFiles);
+
   /**
    * Deletes a project and all its files.
    *
@@ -202,6 +249,18 @@ public interface StorageIo {
 
   List<UserProject> getUserProjects(String userId, List<Long> projectIds);
 
+  /**
+   * Returns one page of the user's projects. The project infos are read from
+   * the user's own entity group rather than from each project.
+   * @param userId a userId
+   * @param cursor where the page starts, as returned with the previous page,
+   *     or null for the first page
+   * @param count the maximum number of projects to return
+   * @return the page of UserProject objects
+   */
+
+  UserProjectPage getUserProjectsPage(String userId, String cursor, int count);
+
   /**
    * Returns a project name.
    *
@@ -401,6 +460,20 @@ public interface StorageIo {
    */
   long uploadFileForce(long projectId, String fileId, String userId, String content, String encoding);
 
+  /**
+   * Uploads several files of a project at once. Either all of the files are
+   * saved or none of them are, and the project's modification date is
+   * updated once for all of them.
+   * @param projectId  project ID
+   * @param userId the user who owns the files
+   * @param force write files even if they are trivial workspaces
+   * @param contents  file contents, by file ID
+   * @param encoding encoding of contents
+   * @return modification date for project
+   */
+  long uploadFiles(long projectId, String userId, boolean force, Map<String, String> contents,
+      String encoding) throws BlocksTruncatedException;
+
   /**
    * Uploads a file.
    * @param projectId  project ID
@@ -590,6 +663,12 @@ public interface StorageIo {
   List<AdminUser> searchUsers(String partialEmail);
   void storeUser(AdminUser user) throws AdminInterfaceException;
 
+  /**
+   * Returns a plain text report of storage latency, retries and contention
+   * on this server instance.
+   */
+  String getStorageStats();
+
   /**
    * There are two kinds of backpacks. User backpacks, which are
    * stored with the user's personal files (which today is just the
@@ -630,14 +709,20 @@ public interface StorageIo {
    * version. Each version will likely want to store this information in
    * a different fashion.
    *
-   * Note: The App Engine version uses memcache and if memcache isn't
-   * available (yes, it can be down!) then we cheat and just return
-   * 50 (for 50%).
+   * A build's progress goes from {@link #BUILD_PROGRESS_QUEUED}, through
+   * the values reported by the buildserver, to {@link #BUILD_PROGRESS_DONE}.
+   * The App Engine version keeps it in the datastore, so it survives
+   * memcache evictions and is the same whichever instance asks for it.
    *
    */
 
   public void storeBuildStatus(String userId, long projectId, int progress);
 
+  /**
+   * Returns the progress last stored for the project's build by
+   * {@link #storeBuildStatus}, or {@link #BUILD_PROGRESS_QUEUED} if there is
+   * none for this user.
+   */
   public int getBuildStatus(String userId, long projectId);
 
   /**
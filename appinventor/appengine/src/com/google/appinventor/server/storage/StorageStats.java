@@ -0,0 +1,194 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server.storage;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the storage jobs run by
+ * {@link ObjectifyStorageIo#runJobWithRetries}: how long each kind of job
+ * takes, how often it has to be retried, and which entity groups see the
+ * most contention. The counters are kept in memory, so they cover only the
+ * jobs run on this instance since it started (or since {@link #reset}).
+ */
+final class StorageStats {
+
+  // Bounds the number of entity groups we keep contention counts for. Once
+  // full, contention on entity groups we haven't seen yet is only counted in
+  // the per-operation retries.
+  private static final int MAX_CONTENDED_KEYS = 1000;
+
+  // The number of entity groups listed in the report
+  private static final int REPORTED_CONTENDED_KEYS = 20;
+
+  static final class OperationStats {
+    final AtomicLong calls = new AtomicLong();
+    final AtomicLong retries = new AtomicLong();
+    final AtomicLong failures = new AtomicLong();
+    final AtomicLong totalMillis = new AtomicLong();
+    final AtomicLong maxMillis = new AtomicLong();
+    final AtomicLong items = new AtomicLong();
+  }
+
+  private static final ConcurrentMap<String, OperationStats> operations =
+      new ConcurrentHashMap<String, OperationStats>();
+  private static final ConcurrentMap<String, AtomicLong> contention =
+      new ConcurrentHashMap<String, AtomicLong>();
+  private static final ConcurrentMap<Class<?>, String> operationNames =
+      new ConcurrentHashMap<Class<?>, String>();
+  private static volatile long since = System.currentTimeMillis();
+
+  private StorageStats() {
+  }
+
+  /**
+   * Returns the name to record a job under: the name of the method the
+   * job's (usually anonymous) class is declared in.
+   */
+  static String operationName(Class<?> jobClass) {
+    String name = operationNames.get(jobClass);
+    if (name == null) {
+      Method method = jobClass.getEnclosingMethod();
+      name = method != null ? method.getName() : jobClass.getSimpleName();
+      operationNames.putIfAbsent(jobClass, name);
+    }
+    return name;
+  }
+
+  /**
+   * Records a finished job.
+   *
+   * @param operation the name of the job
+   * @param millis how long the job took, including retries
+   * @param retries how many times the job was retried
+   * @param failed true if the job did not complete
+   */
+  static void recordJob(String operation, long millis, int retries, boolean failed) {
+    record(operation, millis, retries, failed);
+  }
+
+  /**
+   * Records an operation on several items at once, such as saving several
+   * files, which may run more than one job.
+   *
+   * @param operation the name of the operation
+   * @param millis how long the whole operation took
+   * @param items how many items the operation was on
+   * @param failed true if the operation did not complete
+   */
+  static void recordBatch(String operation, long millis, int items, boolean failed) {
+    record(operation, millis, 0, failed).items.addAndGet(items);
+  }
+
+  private static OperationStats record(String operation, long millis, int retries,
+      boolean failed) {
+    OperationStats stats = operations.get(operation);
+    if (stats == null) {
+      OperationStats newStats = new OperationStats();
+      stats = operations.putIfAbsent(operation, newStats);
+      if (stats == null) {
+        stats = newStats;
+      }
+    }
+    stats.calls.incrementAndGet();
+    stats.retries.addAndGet(retries);
+    if (failed) {
+      stats.failures.incrementAndGet();
+    }
+    stats.totalMillis.addAndGet(millis);
+    long max = stats.maxMillis.get();
+    while (millis > max && !stats.maxMillis.compareAndSet(max, millis)) {
+      max = stats.maxMillis.get();
+    }
+    return stats;
+  }
+
+  /**
+   * Records a concurrent modification failure on an entity group.
+   *
+   * @param key names the entity group
+   */
+  static void recordContention(String key) {
+    AtomicLong count = contention.get(key);
+    if (count == null) {
+      if (contention.size() >= MAX_CONTENDED_KEYS) {
+        return;
+      }
+      AtomicLong newCount = new AtomicLong();
+      count = contention.putIfAbsent(key, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  static OperationStats getOperationStats(String operation) {
+    return operations.get(operation);
+  }
+
+  static long getContention(String key) {
+    AtomicLong count = contention.get(key);
+    return count == null ? 0 : count.get();
+  }
+
+  static void reset() {
+    operations.clear();
+    contention.clear();
+    since = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns a plain text report of the counters, with the operations that
+   * took the most time in total and the most contended entity groups first.
+   */
+  static String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Storage jobs on this instance since ").append(new Date(since)).append("\n\n");
+    sb.append(String.format("%-32s %8s %8s %8s %8s %8s %9s%n",
+        "Operation", "Calls", "Retries", "Failures", "Avg ms", "Max ms", "Avg items"));
+    List<Map.Entry<String, OperationStats>> ops =
+        new ArrayList<Map.Entry<String, OperationStats>>(operations.entrySet());
+    Collections.sort(ops, new Comparator<Map.Entry<String, OperationStats>>() {
+      @Override
+      public int compare(Map.Entry<String, OperationStats> a, Map.Entry<String, OperationStats> b) {
+        return Long.compare(b.getValue().totalMillis.get(), a.getValue().totalMillis.get());
+      }
+    });
+    for (Map.Entry<String, OperationStats> entry : ops) {
+      OperationStats stats = entry.getValue();
+      long calls = stats.calls.get();
+      long items = stats.items.get();
+      sb.append(String.format("%-32s %8d %8d %8d %8d %8d %9s%n", entry.getKey(), calls,
+          stats.retries.get(), stats.failures.get(),
+          calls == 0 ? 0 : stats.totalMillis.get() / calls, stats.maxMillis.get(),
+          items == 0 ? "-" : String.format("%.1f", (double) items / calls)));
+    }
+    sb.append("\nMost contended entity groups\n");
+    List<Map.Entry<String, AtomicLong>> keys =
+        new ArrayList<Map.Entry<String, AtomicLong>>(contention.entrySet());
+    Collections.sort(keys, new Comparator<Map.Entry<String, AtomicLong>>() {
+      @Override
+      public int compare(Map.Entry<String, AtomicLong> a, Map.Entry<String, AtomicLong> b) {
+        return Long.compare(b.getValue().get(), a.getValue().get());
+      }
+    });
+    for (Map.Entry<String, AtomicLong> entry : keys.subList(0,
+        Math.min(keys.size(), REPORTED_CONTENDED_KEYS))) {
+      sb.append(String.format("%-32s %8d%n", entry.getKey(), entry.getValue().get()));
+    }
+    return sb.toString();
+  }
+}
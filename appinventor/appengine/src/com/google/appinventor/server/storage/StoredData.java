@@ -15,6 +15,7 @@ import com.googlecode.objectify.annotation.Unindexed;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.Id;
 
@@ -123,6 +124,16 @@ public class StoredData {
     // User specific project settings
     // TODO(user): is this ever used?
     String settings;
+
+    // A copy of the ProjectData fields shown in the project list, so the
+    // list can be read from the user's entity group alone. name is null if
+    // the summary hasn't been filled in yet (projects created before it
+    // existed get one the first time they are listed).
+    String name;
+    String type;
+    long dateCreated;
+    long dateModified;
+    boolean projectMovedToTrashFlag;
   }
 
   // Non-project-specific files (tied to user)
@@ -188,6 +199,12 @@ public class StoredData {
     // The GCS filename, sans bucket name
     String gcsName;
 
+    // Is the GCS file shared with files in other projects (because one was
+    // copied from the other). A shared GCS file is never overwritten; saving
+    // the file gives it a GCS file of its own. The GCS file is deleted once
+    // no file uses it (see SharedGcsFileData).
+    boolean gcsShared;
+
     // File settings
     String settings;
 
@@ -199,6 +216,58 @@ public class StoredData {
                                 // it yet
   }
 
+  // The names of a project's files, by role. This lets us list a project's
+  // files without loading every FileData entity (and its content). The file
+  // names themselves come from a keys-only query on FileData, so this only
+  // has to supply the roles; a missing or stale manifest is rebuilt the next
+  // time the project's files are listed.
+  @Unindexed
+  static final class FileManifestData {
+    // There is one manifest per project
+    static final String ID = "manifest";
+
+    @Id String id;
+
+    // Key of the project (parent) to which this manifest belongs
+    @Parent Key<ProjectData> projectKey;
+
+    List<String> sourceFiles;
+    List<String> targetFiles;
+    List<String> temporaryFiles;
+  }
+
+  // The number of FileData entities that use a shared GCS file (see
+  // FileData.gcsShared). This is a root entity, keyed by the GCS file name,
+  // because the files using it are in different projects' entity groups and
+  // can't be updated in the same transaction. Instead the count is raised
+  // before a file starts using the GCS file and lowered after it stops, so a
+  // failure in between can only leave the count too high (and the GCS file
+  // undeleted), never too low.
+  @Unindexed
+  static final class SharedGcsFileData {
+    @Id String gcsName;
+
+    int references;
+  }
+
+  // The progress of a project's latest build, as reported by the build
+  // server. This is a root entity, keyed by the project id, so that progress
+  // updates don't contend with writes to the user's or project's entity
+  // groups.
+  @Unindexed
+  static final class BuildStatusData {
+    @Id Long projectId;
+
+    // The user who started the build
+    String userId;
+
+    // See StorageIo.BUILD_PROGRESS_QUEUED and BUILD_PROGRESS_DONE
+    int progress;
+
+    // When progress was last updated
+    long updated;
+  }
+
   // MOTD data.
   @Unindexed
   static final class MotdData {
@@ -39,4 +39,11 @@ public interface AdminInfoService extends RemoteService {
 
   void switchUser(AdminUser user) throws AdminInterfaceException;
 
+  /*
+   * Report storage latency, retries and contention on the server
+   * instance that handles the call
+   */
+
+  String getStorageStats();
+
 }
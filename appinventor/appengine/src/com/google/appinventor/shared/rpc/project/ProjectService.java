@@ -129,6 +129,16 @@ public interface ProjectService extends RemoteService {
    */
   List<UserProject> getProjectInfos();
 
+  /**
+   * Returns one page of project infos, so the project list can be loaded a
+   * piece at a time.
+   * @param cursor  where the page starts, as returned with the previous page,
+   *                or {@code null} for the first page
+   * @param count  the maximum number of project infos to return
+   * @return a page of project infos found by the back-end
+   */
+  UserProjectPage getProjectInfosPage(String cursor, int count);
+
   /**
    * Returns the root node for the given project.
    * @param projectId  project ID as received by
@@ -292,6 +302,21 @@ public interface ProjectService extends RemoteService {
   public long save(String sessionId, List<FileDescriptorWithContent> filesAndContent) throws InvalidSessionException,
       BlocksTruncatedException;
 
+  /**
+   * Saves the contents of multiple files. The files of each project are saved
+   * together: either all of them are saved or none are. This version takes a
+   * "force" argument which if false will result in an exception if an empty
+   * blocks workspace is attempted to be saved over a non-empty one.
+   *
+   * @param sessionId current session id
+   * @param filesAndContent  list containing file descriptor and their
+   *                         associated content
+   * @param force whether to write empty blocks workspaces
+   * @return modification date for last modified project of list
+   */
+  long save2(String sessionId, List<FileDescriptorWithContent> filesAndContent, boolean force)
+      throws InvalidSessionException, BlocksTruncatedException;
+
   /**
    * Saves a screenshot of the blocks
    * This is called on the client side when a user leaves a blocks editor
@@ -330,6 +355,21 @@ public interface ProjectService extends RemoteService {
    */
   RpcResult getBuildResult(long projectId, String target);
 
+  /**
+   * Gets the result of a build command for the project from the back-end. If
+   * the build isn't done and its progress hasn't changed from
+   * {@code knownProgress}, the back-end waits a while for it to change before
+   * answering.
+   *
+   * @param projectId  project ID
+   * @param target  build target (optional, implementation dependent)
+   * @param knownProgress  the build progress the client already knows about,
+   *                       or -1 if none
+   *
+   * @return  results of build, as for {@link #getBuildResult}
+   */
+  RpcResult waitForBuildResult(long projectId, String target, int knownProgress);
+
   /**
    * Adds a new file to the given project.
    *
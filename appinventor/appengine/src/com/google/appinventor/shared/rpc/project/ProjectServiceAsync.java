@@ -85,6 +85,11 @@ public interface ProjectServiceAsync {
    */
   void getProjectInfos(AsyncCallback<List<UserProject>> callback);
 
+  /**
+   * @see ProjectService#getProjectInfosPage(String, int)
+   */
+  void getProjectInfosPage(String cursor, int count, AsyncCallback<UserProjectPage> callback);
+
   /**
    * @see ProjectService#getProject(long)
    */
@@ -160,6 +165,12 @@ public interface ProjectServiceAsync {
    */
   void save(String sessionId, List<FileDescriptorWithContent> filesAndContent, AsyncCallback<Long> callback);
 
+  /**
+   * @see ProjectService#save2(String, List, boolean)
+   */
+  void save2(String sessionId, List<FileDescriptorWithContent> filesAndContent, boolean force,
+      AsyncCallback<Long> callback);
+
   /**
    * @see ProjectService#screnshot(String, long, String, String)
    */
@@ -177,6 +188,12 @@ public interface ProjectServiceAsync {
    */
   void getBuildResult(long projectId, String target, AsyncCallback<RpcResult> callback);
 
+  /**
+   * @see ProjectService#waitForBuildResult(long, String, int)
+   */
+  void waitForBuildResult(long projectId, String target, int knownProgress,
+      AsyncCallback<RpcResult> callback);
+
   /**
    * @see ProjectService#addFile(long, String)
    */
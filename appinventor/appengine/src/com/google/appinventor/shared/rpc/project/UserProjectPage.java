@@ -0,0 +1,72 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a user's project infos, sent over an RPC so the project list
+ * can be loaded a piece at a time.
+ */
+public class UserProjectPage implements IsSerializable {
+  /**
+   * The project infos on this page.
+   */
+  private ArrayList<UserProject> projects;
+
+  /**
+   * Where the next page starts, or {@code null} if this is the last page.
+   */
+  private String cursor;
+
+  /**
+   * Default constructor. This constructor is required by GWT.
+   */
+  @SuppressWarnings("unused")
+  private UserProjectPage() {
+  }
+
+  /**
+   * Creates a new page of project infos.
+   *
+   * @param projects the project infos on this page
+   * @param cursor where the next page starts, or {@code null} for the last page
+   */
+  public UserProjectPage(List<UserProject> projects, String cursor) {
+    this.projects = new ArrayList<UserProject>(projects);
+    this.cursor = cursor;
+  }
+
+  /**
+   * Returns the project infos on this page.
+   *
+   * @return the project infos
+   */
+  public List<UserProject> getProjects() {
+    return projects;
+  }
+
+  /**
+   * Returns the cursor to pass when asking for the next page.
+   *
+   * @return the cursor, or {@code null} if this is the last page
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * Returns whether there are more pages after this one.
+   *
+   * @return {@code true} if there are more pages
+   */
+  public boolean hasMore() {
+    return cursor != null;
+  }
+}
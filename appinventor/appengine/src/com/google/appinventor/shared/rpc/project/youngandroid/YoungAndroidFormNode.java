@@ -10,6 +10,7 @@ import com.google.common.base.Preconditions;
 import com.google.appinventor.shared.storage.StorageUtil;
 import com.google.appinventor.shared.youngandroid.YoungAndroidSourceAnalyzer;
 
+import java.util.HashMap;
 
 /**
  * Young Android form source file node in the project tree.
@@ -20,6 +21,11 @@ public final class YoungAndroidFormNode extends YoungAndroidSourceNode {
   // For serialization
   private static final long serialVersionUID = -933267987704020542L;
 
+  // A summary of the form's components (instance name to component type),
+  // so the client can answer questions about screens it hasn't loaded yet.
+  // Null if the summary isn't known.
+  private HashMap<String, String> componentTypes;
+
   /**
    * Default constructor (for serialization only).
    */
@@ -35,6 +41,24 @@ public final class YoungAndroidFormNode extends YoungAndroidSourceNode {
     super(StorageUtil.basename(fileId), fileId);
   }
 
+  /**
+   * Returns the form's components, as a map from instance name to component
+   * type, or {@code null} if the summary isn't known. The summary reflects
+   * the form as it was when the project tree was retrieved.
+   */
+  public HashMap<String, String> getComponentTypes() {
+    return componentTypes;
+  }
+
+  /**
+   * Sets the summary of the form's components.
+   *
+   * @param componentTypes  map from instance name to component type
+   */
+  public void setComponentTypes(HashMap<String, String> componentTypes) {
+    this.componentTypes = componentTypes;
+  }
+
   public static String getFormFileId(String qualifiedName) {
     return SRC_PREFIX + qualifiedName.replace('.', '/')
         + YoungAndroidSourceAnalyzer.FORM_PROPERTIES_EXTENSION;
@@ -20,8 +20,11 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -167,5 +170,54 @@ public class FileExporterImplTest extends LocalDatastoreTestCase {
     }
   }
 
-  // TODO(user): Add test of exportAllProjectsSourceZip().
+  private static List<String> zipEntryNames(byte[] zip) throws IOException {
+    ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip));
+    List<String> names = new ArrayList<String>();
+    ZipEntry zipEntry;
+    while ((zipEntry = zis.getNextEntry()) != null) {
+      names.add(zipEntry.getName());
+    }
+    return names;
+  }
+
+  public void testExportAllProjectsSourceZip() throws IOException {
+    Project project = new Project("Project2");
+    project.setProjectType(FAKE_PROJECT_TYPE);
+    project.addTextFile(new TextFile(FORM1_QUALIFIED_NAME, FORM1_CONTENT));
+    storageIo.createProject(USER_ID, project, SETTINGS);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(2, exporter.exportAllProjectsSourceZip(USER_ID, 0, out));
+    List<String> names = zipEntryNames(out.toByteArray());
+    assertEquals(2, names.size());
+    assertTrue(names.contains(PROJECT_NAME + ".aia"));
+    assertTrue(names.contains("Project2.aia"));
+
+    // Resuming after the first project gives the rest, in the same order
+    List<Long> projectIds = new ArrayList<Long>(storageIo.getProjects(USER_ID));
+    Collections.sort(projectIds);
+    out = new ByteArrayOutputStream();
+    assertEquals(1, exporter.exportAllProjectsSourceZip(USER_ID, projectIds.get(0), out));
+    assertEquals(names.subList(1, 2), zipEntryNames(out.toByteArray()));
+
+    // There is nothing after the last project
+    out = new ByteArrayOutputStream();
+    try {
+      exporter.exportAllProjectsSourceZip(USER_ID, projectIds.get(1), out);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testExportAllProjectsSourceZipWithNoProjects() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      exporter.exportAllProjectsSourceZip("nobody", 0, out);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals(0, out.size());
+  }
 }
@@ -7,14 +7,21 @@
 package com.google.appinventor.server.storage;
 
 import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.appinventor.server.LocalDatastoreTestCase;
+import com.google.appinventor.server.storage.StoredData.BuildStatusData;
+import com.google.appinventor.server.storage.StoredData.FileManifestData;
 import com.google.appinventor.server.storage.StoredData.ProjectData;
+import com.google.appinventor.server.storage.StoredData.SharedGcsFileData;
+import com.google.appinventor.server.storage.StoredData.UserData;
+import com.google.appinventor.server.storage.StoredData.UserProjectData;
 import com.google.appinventor.shared.rpc.BlocksTruncatedException;
 import com.google.appinventor.shared.rpc.component.Component;
 import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
+import com.google.appinventor.shared.rpc.project.UserProjectPage;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidProjectNode;
 import com.google.appinventor.shared.rpc.user.User;
@@ -22,7 +29,12 @@ import com.google.appinventor.shared.storage.StorageUtil;
 
 import com.google.common.base.Charsets;
 
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Objectify;
+import com.googlecode.objectify.ObjectifyService;
+
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -31,7 +43,9 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.json.JSONObject;
 
@@ -199,6 +213,105 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     fail();
   }
 
+  public void testProjectImport() throws IOException {
+    final String USER_ID = "750";
+    final String USER_EMAIL = "newuser750@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+
+    // An aborted import doesn't create a project
+    ProjectImport projectImport = storage.beginProjectImport(USER_ID);
+    projectImport.addSourceFile(ASSET_FILE_NAME1, new ByteArrayInputStream(ASSET_FILE_CONTENT1));
+    projectImport.abort();
+    assertEquals(0, storage.getProjects(USER_ID).size());
+
+    projectImport = storage.beginProjectImport(USER_ID);
+    assertEquals(RAW_FILE_CONTENT3.length, projectImport.addSourceFile(ASSET_FILE_NAME1,
+        new ByteArrayInputStream(RAW_FILE_CONTENT3)));
+    // A later file with the same name replaces the earlier one
+    assertEquals(ASSET_FILE_CONTENT1.length, projectImport.addSourceFile(ASSET_FILE_NAME1,
+        new ByteArrayInputStream(ASSET_FILE_CONTENT1)));
+    projectImport.addSourceFile(BLOCK_FILE_NAME, new ByteArrayInputStream(BLOCK_FILE_CONTENT));
+    long projectId = projectImport.commit(project, SETTINGS);
+    projectImport.abort();  // does nothing after commit
+
+    assertEquals(Arrays.asList(projectId), storage.getProjects(USER_ID));
+    List<String> sourceFiles = storage.getProjectSourceFiles(USER_ID, projectId);
+    assertTrue(sourceFiles.contains(FILE_NAME1));
+    assertTrue(sourceFiles.contains(RAW_FILE_NAME1));
+    assertTrue(sourceFiles.contains(ASSET_FILE_NAME1));
+    assertTrue(sourceFiles.contains(BLOCK_FILE_NAME));
+    assertTrue(Arrays.equals(ASSET_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, projectId, ASSET_FILE_NAME1)));
+    assertTrue(Arrays.equals(BLOCK_FILE_CONTENT,
+        storage.downloadRawFile(USER_ID, projectId, BLOCK_FILE_NAME)));
+    assertTrue(storage.isGcsFile(projectId, ASSET_FILE_NAME1));
+    assertFalse(storage.isGcsFile(projectId, BLOCK_FILE_NAME));
+  }
+
+  public void testCopyProject() throws BlocksTruncatedException {
+    final String USER_ID = "760";
+    final String USER_EMAIL = "newuser760@test.com";
+    final String COPIED_ASSET_NAME = "assets/Copy.wav";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = storage.createProject(USER_ID, project, SETTINGS);
+
+    Project newProject = new Project("Copy");
+    newProject.setProjectType(FAKE_PROJECT_TYPE);
+    newProject.addTextFile(new TextFile(FILE_NAME2, FILE_CONTENT1));
+    Map<String, String> copiedFiles = new HashMap<String, String>();
+    copiedFiles.put(FILE_NAME1, FILE_NAME1);
+    copiedFiles.put(RAW_FILE_NAME1, RAW_FILE_NAME1);
+    copiedFiles.put(COPIED_ASSET_NAME, RAW_FILE_NAME2);
+    long copyId = storage.copyProject(USER_ID, projectId, newProject, SETTINGS, copiedFiles);
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, copyId, FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, copyId, FILE_NAME2,
+        StorageUtil.DEFAULT_CHARSET));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, copyId, RAW_FILE_NAME1)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, copyId, COPIED_ASSET_NAME)));
+    assertTrue(storage.isGcsFile(copyId, RAW_FILE_NAME1));
+    // The old project still has its files
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, projectId, RAW_FILE_NAME1)));
+    assertEquals(FILE_CONTENT2, storage.downloadFile(USER_ID, projectId, FILE_NAME2,
+        StorageUtil.DEFAULT_CHARSET));
+
+    // Copy the copy, whose files are already shared
+    Project secondProject = new Project("Copy2");
+    secondProject.setProjectType(FAKE_PROJECT_TYPE);
+    copiedFiles.clear();
+    copiedFiles.put(RAW_FILE_NAME1, RAW_FILE_NAME1);
+    long secondCopyId = storage.copyProject(USER_ID, copyId, secondProject, SETTINGS,
+        copiedFiles);
+
+    // Saving a shared file in any of the projects doesn't change it in the others
+    storage.uploadRawFile(copyId, RAW_FILE_NAME1, USER_ID, true, RAW_FILE_CONTENT3);
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT3,
+        storage.downloadRawFile(USER_ID, copyId, RAW_FILE_NAME1)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, projectId, RAW_FILE_NAME1)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, secondCopyId, RAW_FILE_NAME1)));
+    storage.uploadRawFile(projectId, RAW_FILE_NAME2, USER_ID, true, RAW_FILE_CONTENT3);
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, copyId, COPIED_ASSET_NAME)));
+
+    // Nor does deleting the old project
+    storage.deleteProject(USER_ID, projectId);
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, copyId, COPIED_ASSET_NAME)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, secondCopyId, RAW_FILE_NAME1)));
+
+    // Once no project uses a shared file it is no longer counted
+    storage.deleteProject(USER_ID, copyId);
+    assertEquals(1, ObjectifyService.begin().query(SharedGcsFileData.class).count());
+    storage.deleteProject(USER_ID, secondCopyId);
+    assertEquals(0, ObjectifyService.begin().query(SharedGcsFileData.class).count());
+  }
+
   public void testUploadBeforeAdd() throws BlocksTruncatedException {
     final String USER_ID = "800";
     final String USER_EMAIL = "newuser800@test.com";
@@ -333,6 +446,91 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     assertFalse(storage.getProjectOutputFiles(USER_ID, projectId).contains(FILE_NAME_OUTPUT));
   }
 
+  public void testUploadFiles() throws BlocksTruncatedException {
+    final String USER_ID = "1205";
+    final String USER_EMAIL = "newuser1205@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, FILE_NAME1, BKY_FILE_NAME1,
+        RAW_FILE_NAME1);
+    storage.uploadFile(projectId, BKY_FILE_NAME1, USER_ID, FILE_CONTENT2,
+        StorageUtil.DEFAULT_CHARSET);
+
+    Map<String, String> contents = new HashMap<String, String>();
+    contents.put(FILE_NAME1, FILE_CONTENT1);
+    contents.put(RAW_FILE_NAME1, FILE_CONTENT2);
+    storage.uploadFiles(projectId, USER_ID, false, contents, StorageUtil.DEFAULT_CHARSET);
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, projectId, FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals(FILE_CONTENT2, storage.downloadFile(USER_ID, projectId, RAW_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertTrue(storage.isGcsFile(projectId, RAW_FILE_NAME1));
+    assertTrue(StorageStats.getOperationStats("uploadFiles").items.get() >= 2);
+
+    // Nothing is saved if one of the files would truncate a blocks workspace
+    contents.put(FILE_NAME1, FILE_CONTENT2);
+    contents.put(BKY_FILE_NAME1, "");
+    try {
+      storage.uploadFiles(projectId, USER_ID, false, contents, StorageUtil.DEFAULT_CHARSET);
+      fail("Allowed blocks workspace to be truncated");
+    } catch (BlocksTruncatedException expected) {
+    }
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, projectId, FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+
+    // Or if one of the files isn't in the project
+    contents.put(FILE_NAME2, FILE_CONTENT1);
+    try {
+      storage.uploadFiles(projectId, USER_ID, true, contents, StorageUtil.DEFAULT_CHARSET);
+      fail("Allowed upload before add");
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, projectId, FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+
+    contents.remove(FILE_NAME2);
+    storage.uploadFiles(projectId, USER_ID, true, contents, StorageUtil.DEFAULT_CHARSET);
+    assertEquals(FILE_CONTENT2, storage.downloadFile(USER_ID, projectId, FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals("", storage.downloadFile(USER_ID, projectId, BKY_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
+  public void testFileManifest() throws BlocksTruncatedException {
+    final String USER_ID = "1210";
+    final String USER_EMAIL = "newuser1210@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, FILE_NAME1);
+    storage.addOutputFilesToProject(USER_ID, projectId, FILE_NAME_OUTPUT);
+    Key<ProjectData> projectKey = new Key<ProjectData>(ProjectData.class, projectId);
+    Key<FileManifestData> manifestKey =
+        new Key<FileManifestData>(projectKey, FileManifestData.class, FileManifestData.ID);
+    FileManifestData manifest = ObjectifyService.begin().find(manifestKey);
+    assertNotNull(manifest);
+    assertTrue(manifest.sourceFiles.contains(FILE_NAME1));
+    assertTrue(manifest.targetFiles.contains(FILE_NAME_OUTPUT));
+
+    // A project without a manifest (e.g., one created before there were manifests) gets one
+    // the first time its files are listed
+    ObjectifyService.begin().delete(manifestKey);
+    assertTrue(storage.getProjectSourceFiles(USER_ID, projectId).contains(FILE_NAME1));
+    assertFalse(storage.getProjectSourceFiles(USER_ID, projectId).contains(FILE_NAME_OUTPUT));
+    assertTrue(storage.getProjectOutputFiles(USER_ID, projectId).contains(FILE_NAME_OUTPUT));
+    manifest = ObjectifyService.begin().find(manifestKey);
+    assertNotNull(manifest);
+    assertTrue(manifest.sourceFiles.contains(FILE_NAME1));
+
+    // Files deleted without updating the manifest are dropped from it
+    storage.deleteFile(USER_ID, projectId, FILE_NAME1);
+    assertFalse(storage.getProjectSourceFiles(USER_ID, projectId).contains(FILE_NAME1));
+    manifest = ObjectifyService.begin().find(manifestKey);
+    assertTrue(manifest.sourceFiles == null || !manifest.sourceFiles.contains(FILE_NAME1));
+
+    storage.deleteProject(USER_ID, projectId);
+    assertNull(ObjectifyService.begin().find(manifestKey));
+  }
+
   public void testAddRemoveUserFile() {
     // Note that neither FILE_NAME1 nor FILE_NAME_OUTPUT should exist
     // at the start of this test
@@ -576,6 +774,111 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     sourcesFiles = storage.getProjectSourceFiles(USER_ID, projectId);
     assertFalse(sourcesFiles.contains(YAIL_FILE_NAME2));
   }
+  public void testUserProjectsPage() {
+    final String USER_ID = "2000";
+    final String USER_EMAIL = "newuser2000@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId1 = createProject(USER_ID, "Project1", FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    long projectId2 = createProject(USER_ID, "Project2", FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    long projectId3 = createProject(USER_ID, "Project3", FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.setMoveToTrashFlag(USER_ID, projectId2, true);
+
+    // Forget the summary of one project, as for a project created before there were summaries
+    Objectify datastore = ObjectifyService.begin();
+    UserProjectData upd = datastore.find(new Key<UserProjectData>(
+        new Key<UserData>(UserData.class, USER_ID), UserProjectData.class, projectId3));
+    upd.name = null;
+    datastore.put(upd);
+
+    UserProjectPage page = storage.getUserProjectsPage(USER_ID, null, 2);
+    assertEquals(2, page.getProjects().size());
+    assertTrue(page.hasMore());
+    List<UserProject> projects = new ArrayList<UserProject>(page.getProjects());
+    page = storage.getUserProjectsPage(USER_ID, page.getCursor(), 2);
+    assertEquals(1, page.getProjects().size());
+    assertFalse(page.hasMore());
+    projects.addAll(page.getProjects());
+
+    for (UserProject project : projects) {
+      UserProject expected = storage.getUserProject(USER_ID, project.getProjectId());
+      assertEquals(expected.getProjectName(), project.getProjectName());
+      assertEquals(expected.getDateCreated(), project.getDateCreated());
+      assertEquals(expected.getDateModified(), project.getDateModified());
+      assertEquals(project.getProjectId() == projectId2, project.isInTrash());
+    }
+    assertNotNull(datastore.find(new Key<UserProjectData>(
+        new Key<UserData>(UserData.class, USER_ID), UserProjectData.class, projectId3)).name);
+    assertEquals(3, storage.getUserProjects(USER_ID, Arrays.asList(
+        projectId1, projectId2, projectId3)).size());
+  }
+
+  public void testBuildStatus() {
+    final String USER_ID = "2100";
+    final String OTHER_USER_ID = "2101";
+    final long PROJECT_ID = 2100;
+    assertEquals(StorageIo.BUILD_PROGRESS_QUEUED, storage.getBuildStatus(USER_ID, PROJECT_ID));
+    storage.storeBuildStatus(USER_ID, PROJECT_ID, 35);
+    assertEquals(35, storage.getBuildStatus(USER_ID, PROJECT_ID));
+    // The status is kept in the datastore, so another instance sees it too
+    assertEquals(35, new ObjectifyStorageIo().getBuildStatus(USER_ID, PROJECT_ID));
+    // Only the user who started the build can see its progress
+    assertEquals(StorageIo.BUILD_PROGRESS_QUEUED,
+        storage.getBuildStatus(OTHER_USER_ID, PROJECT_ID));
+    storage.storeBuildStatus(USER_ID, PROJECT_ID, StorageIo.BUILD_PROGRESS_DONE);
+    assertEquals(StorageIo.BUILD_PROGRESS_DONE, storage.getBuildStatus(USER_ID, PROJECT_ID));
+  }
+
+  public void testBuildStatusReadsThroughMemcache() {
+    final String USER_ID = "2102";
+    final long PROJECT_ID = 2102;
+    storage.storeBuildStatus(USER_ID, PROJECT_ID, 35);
+    // Polling the status is answered from memcache while it holds the status
+    ObjectifyService.begin().delete(BuildStatusData.class, PROJECT_ID);
+    assertEquals(35, storage.getBuildStatus(USER_ID, PROJECT_ID));
+    // and falls back to the datastore once memcache has lost it
+    storage.storeBuildStatus(USER_ID, PROJECT_ID, 60);
+    MemcacheServiceFactory.getMemcacheService().clearAll();
+    assertEquals(60, storage.getBuildStatus(USER_ID, PROJECT_ID));
+    // A poller that read 60 from the datastore before the build finished
+    // can't replace the status stored since when it fills the cache late
+    storage.storeBuildStatus(USER_ID, PROJECT_ID, StorageIo.BUILD_PROGRESS_DONE);
+    storage.cacheBuildStatus(USER_ID, PROJECT_ID, 60);
+    assertEquals(StorageIo.BUILD_PROGRESS_DONE, storage.getBuildStatus(USER_ID, PROJECT_ID));
+    // An empty cache is still filled from the datastore
+    MemcacheServiceFactory.getMemcacheService().clearAll();
+    storage.cacheBuildStatus(USER_ID, PROJECT_ID, StorageIo.BUILD_PROGRESS_DONE);
+    ObjectifyService.begin().delete(BuildStatusData.class, PROJECT_ID);
+    assertEquals(StorageIo.BUILD_PROGRESS_DONE, storage.getBuildStatus(USER_ID, PROJECT_ID));
+  }
+
+  public void testRetryDelay() {
+    for (int retry = 1; retry <= 10; retry++) {
+      long delay = ObjectifyStorageIo.retryDelay(retry);
+      long max = Math.min(1000, 20L << (retry - 1));
+      assertTrue(delay >= max / 2);
+      assertTrue(delay <= max);
+    }
+  }
+
+  public void testJobRetriesRecorded() throws ObjectifyException {
+    final int[] runs = { 0 };
+    storage.runJobWithRetries(storage.new JobRetryHelper("test contention") {
+      @Override
+      public void run(Objectify datastore) {
+        if (++runs[0] < 3) {
+          throw new ConcurrentModificationException("Collision (on purpose)");
+        }
+      }
+    }, false);
+    assertEquals(3, runs[0]);
+    assertEquals(2, StorageStats.getContention("test contention"));
+    StorageStats.OperationStats stats = StorageStats.getOperationStats("testJobRetriesRecorded");
+    assertEquals(1, stats.calls.get());
+    assertEquals(2, stats.retries.get());
+    assertEquals(0, stats.failures.get());
+    assertTrue(storage.getStorageStats().contains("test contention"));
+  }
+
   /*
    * Fail on the Nth call to runJobWithRetries, where N is the value of the
    * failingRun argument to the constructor. Also allows counting
@@ -651,7 +651,14 @@ Blockly.ReplMgr.putYail = (function() {
                 return;
             }
             // We only get here if we are not using webrtc
-            if (top.loadAll && (rs.phoneState.assetQueue.length == 0)) { // If we have assets, do not chunk
+            if (rs.phoneState.batch && rs.phoneState.assetQueue.length == 0 &&
+                rs.phoneState.phoneQueue.length > 1) {
+                // The Companion takes a batch of forms in one request with one MAC. Unlike
+                // a chunk, each form keeps its block, so an error is reported against the
+                // block that caused it and the rest of the batch still runs.
+                work = { 'batch' : rs.phoneState.phoneQueue.splice(0, rs.phoneState.phoneQueue.length) };
+                rs.phoneState.ioRunning = true;
+            } else if (top.loadAll && (rs.phoneState.assetQueue.length == 0)) { // If we have assets, do not chunk
                 // First we load the assets, do not "chunk" them
                 var chunk;
                 var allcode = "";
@@ -703,16 +710,27 @@ Blockly.ReplMgr.putYail = (function() {
                 }
             }
 
+            var items = work.batch || [work];
+            var sent = new Date().getTime();
             conn.open('POST', rs.url, true);
             conn.onreadystatechange = function() {
+                if (this.readyState == 4) {
+                    context.recordRoundTrip(items.length, new Date().getTime() - sent);
+                }
                 if (this.readyState == 4 && this.status == 200) {
                     var json = goog.json.parse(this.response);
                     if (json.status != 'OK') {
-                        if (work.failure)
-                            work.failure(Blockly.Msg.REPL_ERROR_FROM_COMPANION);
+                        items.forEach(function(item) {
+                            if (item.failure)
+                                item.failure(Blockly.Msg.REPL_ERROR_FROM_COMPANION);
+                        });
                     } else {
-                        if (work.success)
-                            work.success();
+                        // Only Companions that accept a batch of forms say so
+                        rs.phoneState.batch = (json.batch === true);
+                        items.forEach(function(item) {
+                            if (item.success)
+                                item.success();
+                        });
                     }
                     context.processRetvals(json.values);
                     rs.seq_count += 1;
@@ -723,9 +741,11 @@ Blockly.ReplMgr.putYail = (function() {
                 } else {
                     if (this.readyState == 4) {
                         console.log("putYail(poller): status = " + this.status);
-                        if (work.failure) {
-                            work.failure(Blockly.Msg.REPL_NETWORK_CONNECTION_ERROR);
-                        }
+                        items.forEach(function(item) {
+                            if (item.failure) {
+                                item.failure(Blockly.Msg.REPL_NETWORK_CONNECTION_ERROR);
+                            }
+                        });
                         var dialog = new Blockly.Util.Dialog(Blockly.Msg.REPL_NETWORK_ERROR, Blockly.Msg.REPL_NETWORK_ERROR_RESTART, Blockly.Msg.REPL_OK, false, null, 0,
                             function() {
                                 dialog.hide();
@@ -736,10 +756,20 @@ Blockly.ReplMgr.putYail = (function() {
                 }
 
             };
-            encoder.add('mac', Blockly.ReplMgr.hmac(work.code + rs.seq_count + blockid));
-            encoder.add('seq', rs.seq_count);
-            encoder.add('code', work.code);
-            encoder.add('blockid', blockid);
+            if (work.batch) {
+                var forms = JSON.stringify(work.batch.map(function(item) {
+                    return { 'blockid' : item.block ? '"' + item.block.id + '"' : '-1',
+                             'code' : item.code };
+                }));
+                encoder.add('mac', Blockly.ReplMgr.hmac(forms + rs.seq_count));
+                encoder.add('seq', rs.seq_count);
+                encoder.add('forms', forms);
+            } else {
+                encoder.add('mac', Blockly.ReplMgr.hmac(work.code + rs.seq_count + blockid));
+                encoder.add('seq', rs.seq_count);
+                encoder.add('code', work.code);
+                encoder.add('blockid', blockid);
+            }
             var stuff = encoder.toString();
             conn.send(stuff);
         },
@@ -1613,6 +1643,31 @@ Blockly.ReplMgr.makeDialogMessage = function(code) {
     return retval;
 };
 
+// Round trip metrics for requests to the Companion's /_newblocks, from sending a
+// request to receiving its response. The Companion's own view of the same requests
+// is served by its /_metrics.
+Blockly.ReplMgr.recordRoundTrip = function(forms, millis) {
+    var rs = top.ReplState;
+    if (!rs.metrics) {
+        rs.metrics = { 'requests' : 0, 'forms' : 0, 'totalMillis' : 0, 'maxMillis' : 0 };
+    }
+    rs.metrics.requests += 1;
+    rs.metrics.forms += forms;
+    rs.metrics.totalMillis += millis;
+    rs.metrics.maxMillis = Math.max(rs.metrics.maxMillis, millis);
+};
+
+Blockly.ReplMgr.getMetrics = function() {
+    var metrics = top.ReplState.metrics;
+    if (!metrics) {
+        return { 'requests' : 0, 'forms' : 0, 'averageMillis' : 0, 'maxMillis' : 0 };
+    }
+    return { 'requests' : metrics.requests,
+             'forms' : metrics.forms,
+             'averageMillis' : metrics.totalMillis / metrics.requests,
+             'maxMillis' : metrics.maxMillis };
+};
+
 Blockly.ReplMgr.hmac = function(input) {
     var googhash = new goog.crypt.Hmac(new goog.crypt.Sha1(), this.string_to_bytes(top.ReplState.replcode), 64);
     return(this.bytes_to_hexstring(googhash.getHmac(this.string_to_bytes(input))));
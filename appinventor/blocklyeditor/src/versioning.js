@@ -1565,7 +1565,11 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // The BluetoothClient.DisconnectOnError property was added.
     // No blocks need to be modified to upgrade to version 5.
-    6: "noUpgrade"
+    6: "noUpgrade",
+
+    // AI2:
+    // - The ReceiveInBackground property and DataReceived event were added
+    7: "noUpgrade"
 
   }, // End BluetoothClient upgraders
 
@@ -1591,7 +1595,11 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // The BluetoothServer.Secure property was added.
     // No blocks need to be modified to upgrade to version 5.
-    5: "noUpgrade"
+    5: "noUpgrade",
+
+    // AI2:
+    // - The ReceiveInBackground property and DataReceived event were added
+    6: "noUpgrade"
 
   }, // End BluetoothServer upgraders
 
@@ -1722,7 +1730,11 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // Assets helper block was added.
     15: Blockly.Versioning.makeSetterUseHelper(
-        'Canvas', 'BackgroundImage', Blockly.Versioning.tryReplaceBlockWithAssets)
+        'Canvas', 'BackgroundImage', Blockly.Versioning.tryReplaceBlockWithAssets),
+
+    // SynchronizedAnimation was added
+    // No blocks need to be modified to upgrade to version 16.
+    16: "noUpgrade"
 
   }, // End Canvas upgraders
 
@@ -1840,7 +1852,11 @@ Blockly.Versioning.AllUpgradeMaps =
       Blockly.Versioning.changeEventName('FeatureCollection', 'GeoGeoJSON', 'GotFeatures'),
       Blockly.Versioning.changeEventName('FeatureCollection', 'ErrorLoadingFeatureCollection', 'LoadError'),
       Blockly.Versioning.changeEventName('FeatureCollection', 'LoadedFeatureCollection', 'GotFeatures')
-    ]
+    ],
+
+    // AI2:
+    // - The NearestFeatures, FeaturesWithinDistance and FeaturesInBoundingBox methods were added
+    3: "noUpgrade"
   },
 
   "File": {
@@ -2314,7 +2330,15 @@ Blockly.Versioning.AllUpgradeMaps =
     6: [Blockly.Versioning.makeSetterUseDropdown(
           'Map', 'ScaleUnits', 'ScaleUnits'),
         Blockly.Versioning.makeSetterUseDropdown(
-          'Map', 'MapType', 'MapType')]
+          'Map', 'MapType', 'MapType')],
+
+    // AI2:
+    // - The ClusterMarkers property was added
+    7: "noUpgrade",
+
+    // AI2:
+    // - The NearestFeatures, FeaturesWithinDistance and FeaturesInBoundingBox methods were added
+    8: "noUpgrade"
 
   }, // End Map upgraders
 
@@ -3028,7 +3052,10 @@ Blockly.Versioning.AllUpgradeMaps =
     1: "noUpgrade",
 
     //Added Property: Namespace
-    2: "noUpgrade"
+    2: "noUpgrade",
+
+    // AI2: Added Property: UseDatabase
+    3: "noUpgrade"
 
   }, // End TinyDB upgraders
 
@@ -3207,7 +3234,11 @@ Blockly.Versioning.AllUpgradeMaps =
     7: "noUpgrade",
 	
 	// AI2: Added methods PatchText, PatchTextWithEncoding, and PatchFile
-    8: "noUpgrade"
+    8: "noUpgrade",
+
+    // AI2: Added property ResponseTextChunkSize and event GotTextChunk
+    // AI2: Added properties LastResponseTime and LastRequestDuration
+    9: "noUpgrade"
 
   }, // End Web upgraders
 
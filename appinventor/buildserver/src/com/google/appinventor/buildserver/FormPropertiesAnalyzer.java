@@ -6,7 +6,6 @@
 
 package com.google.appinventor.buildserver;
 
-import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.xml.sax.Attributes;
@@ -21,10 +20,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -84,28 +80,7 @@ public class FormPropertiesAnalyzer {
    * Returns the Set of component types used in the given form file source.
    */
   public static Set<String> getComponentTypesFromFormFile(String source) {
-    Set<String> componentTypes = new HashSet<String>();
-    JSONObject propertiesObject = parseSourceFile(source);
-    try {
-      collectComponentTypes(propertiesObject.getJSONObject("Properties"), componentTypes);
-    } catch (JSONException e) {
-      throw new IllegalArgumentException("Unable to parse file - invalid $JSON section syntax");
-    }
-    return componentTypes;
-  }
-
-  private static void collectComponentTypes(JSONObject componentProperties,
-      Set<String> componentTypes) throws JSONException {
-    String componentType = componentProperties.getString("$Type");
-    componentTypes.add(componentType);
-
-    // Recursive call to collect nested components.
-    if (componentProperties.has("$Components")) {
-      JSONArray components = componentProperties.getJSONArray("$Components");
-      for (int i = 0; i < components.length(); i++) {
-        collectComponentTypes(components.getJSONObject(i), componentTypes);
-      }
-    }
+    return new HashSet<String>(ParsedForm.forSource(source).getComponentTypes());
   }
 
   /**
@@ -119,32 +94,9 @@ public class FormPropertiesAnalyzer {
    */
   public static Map<String, Set<String>> getComponentBlocksFromSchemeFile(String source) {
     Map<String, Set<String>> result = new HashMap<>();
-    JSONObject propertiesObject = parseSourceFile(source);
-    try {
-      Queue<JSONObject> toProcess = new LinkedList<JSONObject>();
-      toProcess.add(propertiesObject.getJSONObject("Properties"));
-      while ((propertiesObject = toProcess.poll()) != null) {
-        String type = propertiesObject.getString("$Type");
-        if (!result.containsKey(type)) {
-          result.put(type, new HashSet<String>());
-        }
-        Set<String> typeProps = result.get(type);
-        Iterator<String> it = propertiesObject.keys();
-        while (it.hasNext()) {
-          String key = it.next();
-          if (!key.startsWith("$")) {
-            typeProps.add(key);
-          }
-        }
-        if (propertiesObject.has("$Components")) {
-          JSONArray components = propertiesObject.getJSONArray("$Components");
-          for (int i = 0; i < components.length(); i++) {
-            toProcess.add(components.getJSONObject(i));
-          }
-        }
-      }
-    } catch (JSONException e) {
-      throw new IllegalArgumentException("Unable to parse file - invalid $JSON section syntax");
+    for (Map.Entry<String, Set<String>> entry
+        : ParsedForm.forSource(source).getComponentBlocks().entrySet()) {
+      result.put(entry.getKey(), new HashSet<String>(entry.getValue()));
     }
     return result;
   }
@@ -0,0 +1,133 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * What the build needs to know about a Form (.scm) file: the component types
+ * it uses and, for each type, the properties set in the designer. A ParsedForm
+ * is immutable and is built in a single pass over the $JSON section, so the
+ * JSON tree can be dropped as soon as it has been read.
+ *
+ * <p>ParsedForms are cached by a hash of the file's content, so rebuilding a
+ * project whose screens haven't changed doesn't parse them again.
+ */
+final class ParsedForm {
+
+  // The number of forms to keep. Each one is small, a few sets of names.
+  private static final int CACHE_SIZE = 512;
+
+  private static final Map<String, ParsedForm> CACHE = Collections.synchronizedMap(
+      new LinkedHashMap<String, ParsedForm>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedForm> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      });
+
+  private final Set<String> componentTypes;
+  private final Map<String, Set<String>> componentBlocks;
+
+  private ParsedForm(Set<String> componentTypes, Map<String, Set<String>> componentBlocks) {
+    this.componentTypes = componentTypes;
+    this.componentBlocks = componentBlocks;
+  }
+
+  /**
+   * Returns the ParsedForm for the given form file source, parsing it only if
+   * the same content hasn't been parsed recently.
+   *
+   * @param source a complete source file
+   * @return the parsed form
+   * @throws IllegalArgumentException if the source can't be parsed
+   */
+  static ParsedForm forSource(String source) {
+    String key = Hashing.sha1().hashString(source, Charsets.UTF_8).toString();
+    ParsedForm form = CACHE.get(key);
+    if (form == null) {
+      form = parse(source);
+      CACHE.put(key, form);
+    }
+    return form;
+  }
+
+  /**
+   * Parses the given form file source, without using the cache.
+   *
+   * @param source a complete source file
+   * @return the parsed form
+   * @throws IllegalArgumentException if the source can't be parsed
+   */
+  static ParsedForm parse(String source) {
+    JSONObject propertiesObject = FormPropertiesAnalyzer.parseSourceFile(source);
+    Set<String> componentTypes = new HashSet<String>();
+    Map<String, Set<String>> componentBlocks = new HashMap<String, Set<String>>();
+    try {
+      Queue<JSONObject> toProcess = new LinkedList<JSONObject>();
+      toProcess.add(propertiesObject.getJSONObject("Properties"));
+      while ((propertiesObject = toProcess.poll()) != null) {
+        String type = propertiesObject.getString("$Type");
+        componentTypes.add(type);
+        Set<String> typeProps = componentBlocks.get(type);
+        if (typeProps == null) {
+          typeProps = new HashSet<String>();
+          componentBlocks.put(type, typeProps);
+        }
+        Iterator<?> it = propertiesObject.keys();
+        while (it.hasNext()) {
+          String key = (String) it.next();
+          if (!key.startsWith("$")) {
+            typeProps.add(key);
+          }
+        }
+        if (propertiesObject.has("$Components")) {
+          JSONArray components = propertiesObject.getJSONArray("$Components");
+          for (int i = 0; i < components.length(); i++) {
+            toProcess.add(components.getJSONObject(i));
+          }
+        }
+      }
+    } catch (JSONException e) {
+      throw new IllegalArgumentException("Unable to parse file - invalid $JSON section syntax");
+    }
+    for (Map.Entry<String, Set<String>> entry : componentBlocks.entrySet()) {
+      entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+    }
+    return new ParsedForm(Collections.unmodifiableSet(componentTypes),
+        Collections.unmodifiableMap(componentBlocks));
+  }
+
+  /**
+   * Returns the component types used in the form.
+   */
+  Set<String> getComponentTypes() {
+    return componentTypes;
+  }
+
+  /**
+   * Returns a mapping from each component type used in the form to the
+   * properties set on components of that type.
+   */
+  Map<String, Set<String>> getComponentBlocks() {
+    return componentBlocks;
+  }
+}
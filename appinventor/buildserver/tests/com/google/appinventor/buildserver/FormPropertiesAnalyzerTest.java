@@ -8,10 +8,13 @@ package com.google.appinventor.buildserver;
 import org.codehaus.jettison.json.JSONObject;
 import org.junit.Test;
 
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class FormPropertiesAnalyzerTest {
@@ -57,4 +60,35 @@ public class FormPropertiesAnalyzerTest {
   public void testGetComponentTypesFromFormFileThrows() {
     FormPropertiesAnalyzer.getComponentTypesFromFormFile("#|\n$JSON\n{}\n|$\n");
   }
+
+  private static final String NESTED_DATA = "#|\n$JSON\n{\"Properties\":{\"$Type\":\"Form\","
+      + "\"Title\":\"Hi\",\"$Components\":[{\"$Type\":\"Button\",\"$Name\":\"Button1\","
+      + "\"Text\":\"A\"},{\"$Type\":\"HorizontalArrangement\",\"$Components\":["
+      + "{\"$Type\":\"Button\",\"Width\":\"-2\"}]}]}}\n|#\n";
+
+  @Test
+  public void testGetComponentBlocksFromSchemeFile() {
+    Map<String, Set<String>> result =
+        FormPropertiesAnalyzer.getComponentBlocksFromSchemeFile(NESTED_DATA);
+    assertEquals(3, result.size());
+    assertEquals(1, result.get("Form").size());
+    assertTrue(result.get("Form").contains("Title"));
+    assertEquals(2, result.get("Button").size());
+    assertTrue(result.get("Button").contains("Text"));
+    assertTrue(result.get("Button").contains("Width"));
+    assertTrue(result.get("HorizontalArrangement").isEmpty());
+  }
+
+  @Test
+  public void testParsedFormCachedByContent() {
+    ParsedForm form = ParsedForm.forSource(NESTED_DATA);
+    assertSame(form, ParsedForm.forSource(new String(NESTED_DATA)));
+    assertEquals(3, form.getComponentTypes().size());
+
+    // Callers get their own copies, so changing them doesn't change the cache
+    FormPropertiesAnalyzer.getComponentBlocksFromSchemeFile(NESTED_DATA).get("Form").add("X");
+    FormPropertiesAnalyzer.getComponentTypesFromFormFile(NESTED_DATA).clear();
+    assertFalse(form.getComponentBlocks().get("Form").contains("X"));
+    assertEquals(3, ParsedForm.forSource(NESTED_DATA).getComponentTypes().size());
+  }
 }
@@ -551,7 +551,21 @@ public class YaVersion {
   // - LISTVIEW_COMPONENT_VERSION was incremented to 6
   // For YOUNG_ANDROID_VERSION 214:
   // - FILE_COMPONENT_VERSION was incremented to 4
-  public static final int YOUNG_ANDROID_VERSION = 213;
+  // For YOUNG_ANDROID_VERSION 215:
+  // - CANVAS_COMPONENT_VERSION was incremented to 16
+  // For YOUNG_ANDROID_VERSION 216:
+  // - WEB_COMPONENT_VERSION was incremented to 9
+  // For YOUNG_ANDROID_VERSION 217:
+  // - TINYDB_COMPONENT_VERSION was incremented to 3
+  // For YOUNG_ANDROID_VERSION 218:
+  // - MAP_COMPONENT_VERSION was incremented to 7
+  // For YOUNG_ANDROID_VERSION 219:
+  // - MAP_COMPONENT_VERSION was incremented to 8
+  // - FEATURE_COLLECTION_COMPONENT_VERSION was incremented to 3
+  // For YOUNG_ANDROID_VERSION 220:
+  // - BLUETOOTHCLIENT_COMPONENT_VERSION was incremented to 7
+  // - BLUETOOTHSERVER_COMPONENT_VERSION was incremented to 6
+  public static final int YOUNG_ANDROID_VERSION = 220;
 
   // ............................... Blocks Language Version Number ...............................
 
@@ -740,7 +754,9 @@ public class YaVersion {
   // - The BluetoothClient.Secure property was added.
   // For BLUETOOTHCLIENT_COMPONENT_VERSION 6:
   // - The BluetoothClient.DisconnectOnError property was added.
-  public static final int BLUETOOTHCLIENT_COMPONENT_VERSION = 6;
+  // For BLUETOOTHCLIENT_COMPONENT_VERSION 7:
+  // - The BluetoothClient.ReceiveInBackground property and DataReceived event were added.
+  public static final int BLUETOOTHCLIENT_COMPONENT_VERSION = 7;
 
   // For BLUETOOTHSERVER_COMPONENT_VERSION 2:
   // - The BluetoothServer.Enabled property was added.
@@ -750,7 +766,9 @@ public class YaVersion {
   // - The BluetoothServer.DelimiterByte property was added.
   // For BLUETOOTHSERVER_COMPONENT_VERSION 5:
   // - The BluetoothServer.Secure property was added.
-  public static final int BLUETOOTHSERVER_COMPONENT_VERSION = 5;
+  // For BLUETOOTHSERVER_COMPONENT_VERSION 6:
+  // - The BluetoothServer.ReceiveInBackground property and DataReceived event were added.
+  public static final int BLUETOOTHSERVER_COMPONENT_VERSION = 6;
 
   // For BUTTON_COMPONENT_VERSION 2:
   // - The Alignment property was renamed to TextAlignment.
@@ -811,7 +829,9 @@ public class YaVersion {
   // -TapThreshold was added
   // For CANVAS_COMPONENT_VERSION 15
   // - Assets helper block was added.
-  public static final int CANVAS_COMPONENT_VERSION = 15;
+  // For CANVAS_COMPONENT_VERSION 16
+  // - SynchronizedAnimation property was added.
+  public static final int CANVAS_COMPONENT_VERSION = 16;
 
   // For CHECKBOX_COMPONENT_VERSION 2:
   // - The Value property was renamed to Checked.
@@ -870,7 +890,9 @@ public class YaVersion {
   // - GotGeoJSON event was renamed to GotFeatures
   // - ErrorLoadingFeatureCollection event was removed
   // - LoadedFeatureCollection event was removed
-  public static final int FEATURE_COLLECTION_COMPONENT_VERSION = 2;
+  // For FEATURE_COLLECTION_COMPONENT_VERSION 3:
+  // - Added NearestFeatures, FeaturesWithinDistance and FeaturesInBoundingBox methods
+  public static final int FEATURE_COLLECTION_COMPONENT_VERSION = 3;
 
   // For FILE_COMPONENT_VERSION 2:
   // - The AfterFileSaved event was added.
@@ -1103,7 +1125,11 @@ public class YaVersion {
   // - Added ScaleUnits property
   // For MAP_COMPONENT_VERSION 6:
   // - Adds ScaleUnits and MapType dropdowns.
-  public static final int MAP_COMPONENT_VERSION = 6;
+  // For MAP_COMPONENT_VERSION 7:
+  // - Added ClusterMarkers property
+  // For MAP_COMPONENT_VERSION 8:
+  // - Added NearestFeatures, FeaturesWithinDistance and FeaturesInBoundingBox methods
+  public static final int MAP_COMPONENT_VERSION = 8;
 
   // For MARKER_COMPONENT_VERSION 1:
   // - Initial Marker implementation using OpenStreetMap
@@ -1343,7 +1369,9 @@ public class YaVersion {
 
   // For TINYDB_COMPONENT_VERSION 2:
   // - Added Property: Namespace
-  public static final int TINYDB_COMPONENT_VERSION = 2;
+  // For TINYDB_COMPONENT_VERSION 3:
+  // - Added Property: UseDatabase
+  public static final int TINYDB_COMPONENT_VERSION = 3;
 
   // For TINYWEBDB_COMPONENT_VERSION 2:
   // - The TinyWebDB.ShowAlert method was removed. Notifier.ShowAlert should be used instead.
@@ -1444,7 +1472,10 @@ public class YaVersion {
   // - The XMLTextDecodeAsDictionary method was added.
   // For WEB_COMPONENT_VERSION 8:
   // - PATCH methods added (PatchText, PatchTextWithEncoding, and PatchFile).
-  public static final int WEB_COMPONENT_VERSION = 8;
+  // For WEB_COMPONENT_VERSION 9:
+  // - The ResponseTextChunkSize property and GotTextChunk event were added.
+  // - The LastResponseTime and LastRequestDuration properties were added.
+  public static final int WEB_COMPONENT_VERSION = 9;
 
   // For WEBVIEWER_COMPONENT_VERSION 2:
   // - The CanGoForward and CanGoBack methods were added
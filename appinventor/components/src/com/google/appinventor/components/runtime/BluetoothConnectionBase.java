@@ -15,20 +15,21 @@ import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.runtime.util.BluetoothReflection;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
+import com.google.appinventor.components.runtime.util.FrameInputStream;
 import com.google.appinventor.components.runtime.util.SdkLevel;
 import com.google.appinventor.components.runtime.util.YailList;
 
 import android.util.Log;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -51,11 +52,24 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   protected boolean disconnectOnError;
   protected boolean secure;
 
+  // The most frames raised in one DataReceived event
+  private static final int MAX_FRAMES_PER_EVENT = 100;
+
   private Object connectedBluetoothSocket;
-  private InputStream inputStream;
+  private volatile FrameInputStream inputStream;
   private OutputStream outputStream;
   private final int sdkLevel;
 
+  // The bytes of the last number received, reused by the Receive...ByteNumber functions
+  private final byte[] numberBytes = new byte[4];
+
+  private volatile boolean receiveInBackground;
+  // The stream being read by the background reader and the reader's thread, or null if there is
+  // no background reader. Guarded by backgroundReaderLock.
+  private FrameInputStream backgroundStream;
+  private Thread backgroundThread;
+  private final Object backgroundReaderLock = new Object();
+
   /**
    * Creates a new BluetoothConnectionBase.
    */
@@ -74,6 +88,7 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
     CharacterEncoding("UTF-8");
     DelimiterByte(0);
     Secure(true);
+    ReceiveInBackground(false);
   }
 
   /**
@@ -83,7 +98,7 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
     this((Form) null, (String) null, SdkLevel.LEVEL_ECLAIR_MR1);
     this.connectedBluetoothSocket = "Not Null";
     this.outputStream = outputStream;
-    this.inputStream = inputStream;
+    this.inputStream = new FrameInputStream(inputStream);
   }
 
   /**
@@ -167,11 +182,12 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
 
   protected final void setConnection(Object bluetoothSocket) throws IOException {
     connectedBluetoothSocket = bluetoothSocket;
-    inputStream = new BufferedInputStream(
+    inputStream = new FrameInputStream(
         BluetoothReflection.getInputStream(connectedBluetoothSocket));
     outputStream = new BufferedOutputStream(
         BluetoothReflection.getOutputStream(connectedBluetoothSocket));
     fireAfterConnectEvent();
+    startBackgroundReader();
   }
 
   /**
@@ -240,6 +256,56 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
     this.secure = secure;
   }
 
+  /**
+   * Returns `true`{:.logic.block} if text is received in the background and delivered by the
+   * {@link #DataReceived(YailList)} event.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Whether text ending with the DelimiterByte is received in the background " +
+      "and delivered by the DataReceived event.")
+  public boolean ReceiveInBackground() {
+    return receiveInBackground;
+  }
+
+  /**
+   * Specifies whether to receive text in the background. While connected, the component reads
+   * text ending with the {@link #DelimiterByte(int)} as it arrives and raises the
+   * {@link #DataReceived(YailList)} event with the frames received since the last event, so that
+   * the app does not need to poll {@link #BytesAvailableToReceive()} from a Clock. The Receive
+   * functions should not be used while this is `true`{:.logic.block}, since the background reader
+   * takes the bytes they would have read.
+   *
+   * @param enabled {@code true} to receive text in the background
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void ReceiveInBackground(boolean enabled) {
+    synchronized (backgroundReaderLock) {
+      receiveInBackground = enabled;
+      if (!enabled && backgroundThread != null) {
+        // Stop the reader from waiting for another frame. Bytes it has already read stay
+        // buffered for the Receive functions.
+        backgroundThread.interrupt();
+      }
+    }
+    startBackgroundReader();
+  }
+
+  /**
+   * Indicates that text was received in the background. Each item of
+   * `frames`{:.variable.block} is the text received up to a
+   * {@link #DelimiterByte(int)}, without the delimiter. Frames that arrive close together are
+   * delivered in one event.
+   *
+   * @param frames the list of text frames received, oldest first
+   */
+  @SimpleEvent(description = "Indicates that text was received in the background. The frames " +
+      "list contains the text received up to each delimiter byte, oldest first.")
+  public void DataReceived(YailList frames) {
+    EventDispatcher.dispatchEvent(this, "DataReceived", frames);
+  }
+
   /**
    * Returns `true`{:.logic.block} if numbers are sent and received with the most significant
    * byte first (big endian). If `false`{:.logic.block}, the least significant byte in a
@@ -594,16 +660,25 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
       "If numberOfBytes is less than 0, read until a delimiter byte value is received.")
   public String ReceiveText(int numberOfBytes) {
     byte[] bytes = read("ReceiveText", numberOfBytes);
+    return decode(bytes, numberOfBytes < 0);
+  }
+
+  /**
+   * Converts received bytes to text using the {@link #CharacterEncoding()}.
+   *
+   * @param bytes the bytes to convert
+   * @param delimited whether to leave out a trailing delimiter byte
+   */
+  private String decode(byte[] bytes, boolean delimited) {
+    int length = bytes.length;
+    if (delimited && length > 0 && bytes[length - 1] == delimiter) {
+      length--;
+    }
     try {
-      if (numberOfBytes < 0) {
-        // bytes contains a trailing delimiter byte that we ignore when converting to String.
-        return new String(bytes, 0, bytes.length - 1, encoding);
-      } else {
-        return new String(bytes, encoding);
-      }
+      return new String(bytes, 0, length, encoding);
     } catch (UnsupportedEncodingException e) {
       Log.w(logTag, "UnsupportedEncodingException: " + e.getMessage());
-      return new String(bytes);
+      return new String(bytes, 0, length);
     }
   }
 
@@ -613,10 +688,10 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   @SimpleFunction(description = "Receive a signed 1-byte number from the connected " +
       "Bluetooth device.")
   public int ReceiveSigned1ByteNumber() {
-    byte[] bytes = read("ReceiveSigned1ByteNumber", 1);
-    if (bytes.length != 1) {
+    if (!readNumber("ReceiveSigned1ByteNumber", 1)) {
       return 0; // an error occurred
     }
+    byte[] bytes = numberBytes;
 
     return bytes[0];
   }
@@ -627,10 +702,10 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   @SimpleFunction(description = "Receive an unsigned 1-byte number from the connected " +
       "Bluetooth device.")
   public int ReceiveUnsigned1ByteNumber() {
-    byte[] bytes = read("ReceiveUnsigned1ByteNumber", 1);
-    if (bytes.length != 1) {
+    if (!readNumber("ReceiveUnsigned1ByteNumber", 1)) {
       return 0; // an error occurred
     }
+    byte[] bytes = numberBytes;
 
     return bytes[0] & 0xFF;
   }
@@ -641,10 +716,10 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   @SimpleFunction(description = "Receive a signed 2-byte number from the connected " +
       "Bluetooth device.")
   public int ReceiveSigned2ByteNumber() {
-    byte[] bytes = read("ReceiveSigned2ByteNumber", 2);
-    if (bytes.length != 2) {
+    if (!readNumber("ReceiveSigned2ByteNumber", 2)) {
       return 0; // an error occurred
     }
+    byte[] bytes = numberBytes;
 
     if (byteOrder == ByteOrder.BIG_ENDIAN) {
       return (bytes[1] & 0xFF) | (bytes[0] << 8);
@@ -659,10 +734,10 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   @SimpleFunction(description = "Receive a unsigned 2-byte number from the connected " +
       "Bluetooth device.")
   public int ReceiveUnsigned2ByteNumber() {
-    byte[] bytes = read("ReceiveUnsigned2ByteNumber", 2);
-    if (bytes.length != 2) {
+    if (!readNumber("ReceiveUnsigned2ByteNumber", 2)) {
       return 0; // an error occurred
     }
+    byte[] bytes = numberBytes;
 
     if (byteOrder == ByteOrder.BIG_ENDIAN) {
       return (bytes[1] & 0xFF) | ((bytes[0] & 0xFF) << 8);
@@ -677,10 +752,10 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   @SimpleFunction(description = "Receive a signed 4-byte number from the connected " +
       "Bluetooth device.")
   public long ReceiveSigned4ByteNumber() {
-    byte[] bytes = read("ReceiveSigned4ByteNumber", 4);
-    if (bytes.length != 4) {
+    if (!readNumber("ReceiveSigned4ByteNumber", 4)) {
       return 0; // an error occurred
     }
+    byte[] bytes = numberBytes;
 
     if (byteOrder == ByteOrder.BIG_ENDIAN) {
       return (bytes[3] & 0xFF) |
@@ -701,10 +776,10 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   @SimpleFunction(description = "Receive a unsigned 4-byte number from the connected " +
       "Bluetooth device.")
   public long ReceiveUnsigned4ByteNumber() {
-    byte[] bytes = read("ReceiveUnsigned4ByteNumber", 4);
-    if (bytes.length != 4) {
+    if (!readNumber("ReceiveUnsigned4ByteNumber", 4)) {
       return 0; // an error occurred
     }
+    byte[] bytes = numberBytes;
 
     if (byteOrder == ByteOrder.BIG_ENDIAN) {
       return (bytes[3] & 0xFFL) |
@@ -782,59 +857,181 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
       return new byte[0];
     }
 
-    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-
-    if (numberOfBytes >= 0) {
-      // Read <numberOfBytes> bytes.
-      byte[] bytes = new byte[numberOfBytes];
-      int totalBytesRead = 0;
-      while (totalBytesRead < numberOfBytes) {
-        try {
-          int numBytesRead = inputStream.read(bytes, totalBytesRead, bytes.length - totalBytesRead);
-          if (numBytesRead == -1) {
-            bluetoothError(functionName,
-                ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM);
-            break;
-          }
-          totalBytesRead += numBytesRead;
-        } catch (IOException e) {
-          Log.e(logTag, "IO Exception during Reading " + e.getMessage());
-          if (disconnectOnError) {
-            Disconnect();
-          }
+    try {
+      if (numberOfBytes >= 0) {
+        // Read <numberOfBytes> bytes.
+        byte[] bytes = new byte[numberOfBytes];
+        int totalBytesRead = inputStream.readFully(bytes, 0, numberOfBytes);
+        if (totalBytesRead < numberOfBytes) {
           bluetoothError(functionName,
-              ErrorMessages.ERROR_BLUETOOTH_UNABLE_TO_READ, e.getMessage());
-          break;
+              ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM);
+          return Arrays.copyOf(bytes, totalBytesRead);
+        }
+        return bytes;
+      } else {
+        // Read until a delimiter byte is read.
+        byte[] bytes = inputStream.readUntil(delimiter);
+        if (bytes.length == 0 || bytes[bytes.length - 1] != delimiter) {
+          bluetoothError(functionName,
+              ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM);
         }
+        return bytes;
       }
-      buffer.write(bytes, 0, totalBytesRead);
-    } else {
-      // Read one byte at a time until a delimiter byte is read.
+    } catch (IOException e) {
+      readError(functionName, e);
+      return new byte[0];
+    }
+  }
+
+  /**
+   * Reads a number of {@code size} bytes into {@link #numberBytes}.
+   *
+   * @param functionName the name of the SimpleFunction calling this method
+   * @param size the number of bytes in the number
+   * @return true if the number was read, false if an error occurred
+   */
+  private boolean readNumber(String functionName, int size) {
+    if (!IsConnected()) {
+      bluetoothError(functionName,
+          ErrorMessages.ERROR_BLUETOOTH_NOT_CONNECTED_TO_DEVICE);
+      return false;
+    }
+
+    try {
+      if (inputStream.readFully(numberBytes, 0, size) == size) {
+        return true;
+      }
+      bluetoothError(functionName,
+          ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM);
+    } catch (IOException e) {
+      readError(functionName, e);
+    }
+    return false;
+  }
+
+  private void readError(String functionName, IOException e) {
+    Log.e(logTag, "IO Exception during Reading " + e.getMessage());
+    if (disconnectOnError) {
+      Disconnect();
+    }
+    bluetoothError(functionName,
+        ErrorMessages.ERROR_BLUETOOTH_UNABLE_TO_READ, e.getMessage());
+  }
+
+  /**
+   * Starts reading in the background if {@link #ReceiveInBackground()} is true, the component is
+   * connected, and the connection is not already being read in the background.
+   */
+  private void startBackgroundReader() {
+    final FrameInputStream stream;
+    synchronized (backgroundReaderLock) {
+      stream = inputStream;
+      if (!receiveInBackground || stream == null || backgroundStream == stream) {
+        return;
+      }
+      backgroundStream = stream;
+      // The reader runs for as long as the connection lasts, so it gets its own thread rather
+      // than holding one of the shared AsynchUtil threads
+      backgroundThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          readInBackground(stream);
+        }
+      }, logTag + "-reader");
+      backgroundThread.setDaemon(true);
+      backgroundThread.start();
+    }
+  }
+
+  /**
+   * Reads frames from the stream until background reading is turned off or the connection is
+   * closed. Frames that are already buffered when a frame is read are delivered with it, so a
+   * device that sends quickly causes a few large events rather than many small ones.
+   */
+  private void readInBackground(FrameInputStream stream) {
+    List<String> frames = new ArrayList<String>();
+    // Whether the reader stopped because it was asked to, rather than because of an error
+    boolean stopped = false;
+    try {
       while (true) {
-        try {
-          int value = inputStream.read();
-          if (value == -1) {
-            bluetoothError(functionName,
-                ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM);
-            break;
-          }
-          buffer.write(value);
-          if (value == delimiter) {
+        synchronized (backgroundReaderLock) {
+          if (!receiveInBackground || stream != inputStream) {
+            stopped = true;
             break;
           }
-        } catch (IOException e) {
-          Log.e(logTag, "IO Exception during Reading " + e.getMessage());
-          if (disconnectOnError) {
-            Disconnect();
-          }
-          bluetoothError(functionName,
-              ErrorMessages.ERROR_BLUETOOTH_UNABLE_TO_READ, e.getMessage());
+        }
+        byte[] frame = stream.readUntil(delimiter);
+        boolean complete = frame.length > 0 && frame[frame.length - 1] == delimiter;
+        if (frame.length > 0) {
+          frames.add(decode(frame, true));
+        }
+        if (!complete) {
+          postFrames(frames);
+          postError(stream, "DataReceived", ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM, null);
           break;
         }
+        if (frames.size() >= MAX_FRAMES_PER_EVENT || !stream.hasFrame(delimiter)) {
+          postFrames(frames);
+          frames = new ArrayList<String>();
+        }
+      }
+    } catch (InterruptedIOException e) {
+      // ReceiveInBackground was turned off
+      postFrames(frames);
+      stopped = true;
+    } catch (IOException e) {
+      postFrames(frames);
+      postError(stream, "DataReceived", ErrorMessages.ERROR_BLUETOOTH_UNABLE_TO_READ, e);
+    } finally {
+      synchronized (backgroundReaderLock) {
+        if (backgroundThread == Thread.currentThread()) {
+          backgroundStream = null;
+          backgroundThread = null;
+        }
       }
     }
+    if (stopped) {
+      // ReceiveInBackground may have been turned back on while this reader was stopping
+      startBackgroundReader();
+    }
+  }
 
-    return buffer.toByteArray();
+  private void postFrames(List<String> frames) {
+    if (frames.isEmpty()) {
+      return;
+    }
+    final YailList list = YailList.makeList(frames);
+    runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        DataReceived(list);
+      }
+    });
+  }
+
+  private void postError(final FrameInputStream stream, final String functionName,
+      final int errorNumber, final IOException e) {
+    runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        if (stream != inputStream) {
+          // The connection was closed by Disconnect, which is not an error
+          return;
+        }
+        if (e == null) {
+          bluetoothError(functionName, errorNumber);
+        } else {
+          readError(functionName, e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs code on the UI thread, where events must be raised.
+   */
+  void runOnUiThread(Runnable runnable) {
+    form.runOnUiThread(runnable);
   }
 
   // OnDestroyListener implementation
@@ -115,7 +115,8 @@ public final class BluetoothServer extends BluetoothConnectionBase {
       return;
     }
 
-    AsynchUtil.runAsynchronously(new Runnable() {
+    // accept() waits until a client connects, however long that takes
+    AsynchUtil.runBlockingAsynchronously(new Runnable() {
       public void run() {
         Object acceptedBluetoothSocket = null;
 
@@ -25,6 +25,9 @@ import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 
+import android.os.Handler;
+import android.os.SystemClock;
+
 import android.text.TextUtils;
 
 import android.util.Base64;
@@ -62,6 +65,7 @@ import com.google.appinventor.components.runtime.util.BoundingBox;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.FileWriteOperation;
+import com.google.appinventor.components.runtime.util.JellybeanUtil;
 import com.google.appinventor.components.runtime.util.MediaUtil;
 import com.google.appinventor.components.runtime.util.PaintUtil;
 import com.google.appinventor.components.runtime.util.ScopedFile;
@@ -74,8 +78,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -135,7 +142,8 @@ import java.util.Set;
     category = ComponentCategory.ANIMATION)
 @SimpleObject
 @UsesPermissions(permissionNames = "android.permission.INTERNET")
-public final class Canvas extends AndroidViewComponent implements ComponentContainer {
+public final class Canvas extends AndroidViewComponent
+    implements ComponentContainer, OnDestroyListener {
   private static final String LOG_TAG = "Canvas";
 
   private final Activity context;
@@ -152,7 +160,8 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
   private String backgroundImagePath = "";
   private int textAlignment;
   private boolean extendMovesOutsideCanvas = false;
-  
+  private boolean synchronizedAnimation = false;
+
   /**
    * The number of pixels right, left, up, or down, a sequence of drags must
    * move from the starting point to be considered a drag (instead of a
@@ -178,6 +187,16 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
   // sorted by increasing sprite.Z().
   private final List<Sprite> sprites;
 
+  // A copy of sprites for loops that raise sprite events, whose handlers may
+  // add, remove or reorder sprites. It is dropped whenever sprites changes.
+  private Sprite[] spriteSnapshot;
+
+  // Moves sprites once per frame when synchronizedAnimation is set
+  private final SpriteAnimator spriteAnimator;
+
+  // Sprites moved during the current animation frame, reused across frames
+  private final List<Sprite> movedSprites = new ArrayList<Sprite>();
+
   // Handle touches and drags
   private final MotionEventParser motionEventParser;
 
@@ -397,6 +416,74 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     }
   }
 
+  /**
+   * Frame loop used when {@link #SynchronizedAnimation()} is set.  Rather than
+   * each sprite posting its own timer messages, all enabled sprites are
+   * advanced in one pass per frame, after which the view is invalidated and
+   * collisions are checked once.  On Jelly Bean and later, frames are driven
+   * by {@link android.view.Choreographer} so that they line up with the
+   * display's vsync.  On earlier versions a {@link Handler} approximates the
+   * same rate.  The loop stops by itself once no sprite is moving.
+   */
+  private final class SpriteAnimator implements Runnable {
+    private static final int FALLBACK_FRAME_INTERVAL = 16;  // ms
+
+    private final Handler handler = new Handler();
+    private final Object frameCallback;
+    private boolean running = false;
+    private long lastFrameTime;
+
+    SpriteAnimator() {
+      frameCallback = SdkLevel.getLevel() >= SdkLevel.LEVEL_JELLYBEAN
+          ? JellybeanUtil.newFrameCallback(this)
+          : null;
+    }
+
+    void start() {
+      if (running) {
+        return;
+      }
+      running = true;
+      lastFrameTime = SystemClock.uptimeMillis();
+      scheduleFrame();
+    }
+
+    void stop() {
+      if (!running) {
+        return;
+      }
+      running = false;
+      if (frameCallback != null) {
+        JellybeanUtil.removeFrameCallback(frameCallback);
+      } else {
+        handler.removeCallbacks(this);
+      }
+    }
+
+    private void scheduleFrame() {
+      if (frameCallback != null) {
+        JellybeanUtil.postFrameCallback(frameCallback);
+      } else {
+        handler.postDelayed(this, FALLBACK_FRAME_INTERVAL);
+      }
+    }
+
+    @Override
+    public void run() {
+      if (!running) {
+        return;
+      }
+      long now = SystemClock.uptimeMillis();
+      long elapsed = now - lastFrameTime;
+      lastFrameTime = now;
+      if (advanceSprites(elapsed)) {
+        scheduleFrame();
+      } else {
+        running = false;
+      }
+    }
+  }
+
   /**
    * Panel for drawing and manipulating sprites.
    *
@@ -416,11 +503,26 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     // to null whenever the canvas size or backgroundDrawable changes.
     private Bitmap scaledBackgroundBitmap;
 
-    // completeCache is created if the user calls getPixelColor().  It is set
-    // back to null whenever the view is redrawn.  If available, it is used
-    // when the Canvas is saved to a file.
+    // completeCache is created if the user calls getPixelColor().  Rather than
+    // being discarded whenever the view is redrawn, it tracks the regions that
+    // have changed since it was last used (cacheDirtyRegion) and only those
+    // regions are re-rendered.  It is also used when the Canvas is saved to a
+    // file.
     private Bitmap completeCache;
 
+    // Region of completeCache that is out of date.
+    private final Rect cacheDirtyRegion = new Rect();
+
+    // Bounds at which each sprite was last rendered into completeCache, so
+    // that the area it vacates can be re-rendered when it moves.
+    private final Map<Sprite, Rect> cachedSpriteBounds = new HashMap<Sprite, Rect>();
+
+    // Sprites that have changed since completeCache was last brought up to date.
+    private final Set<Sprite> changedSprites = new HashSet<Sprite>();
+
+    // Scratch rectangle for hit-testing sprites in getPixelColor().
+    private final Rect spriteBounds = new Rect();
+
     public CanvasView(Context context) {
       super(context);
       bitmap = Bitmap.createBitmap(ComponentConstants.CANVAS_PREFERRED_WIDTH,
@@ -451,10 +553,115 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
       return cache;
     }
 
+    /*
+     * Marks all of completeCache as out of date.
+     */
+    private void invalidateCache() {
+      if (completeCache != null) {
+        cacheDirtyRegion.set(0, 0, completeCache.getWidth(), completeCache.getHeight());
+      }
+    }
+
+    /*
+     * Marks the given region of completeCache as out of date.  The region is
+     * padded by the line width to cover strokes and anti-aliasing.
+     */
+    private void invalidateCache(float left, float top, float right, float bottom) {
+      if (completeCache != null) {
+        float pad = paint.getStrokeWidth() / 2 + 1;
+        cacheDirtyRegion.union(
+            (int) Math.floor(Math.min(left, right) - pad),
+            (int) Math.floor(Math.min(top, bottom) - pad),
+            (int) Math.ceil(Math.max(left, right) + pad),
+            (int) Math.ceil(Math.max(top, bottom) + pad));
+      }
+    }
+
+    /*
+     * Marks the area a sprite covered in completeCache, and the area it
+     * covers now, as out of date.
+     */
+    private void invalidateCachedSprite(Sprite sprite) {
+      if (completeCache != null) {
+        Rect cachedBounds = cachedSpriteBounds.get(sprite);
+        if (cachedBounds != null) {
+          cacheDirtyRegion.union(cachedBounds);
+        }
+        changedSprites.add(sprite);
+      }
+    }
+
+    /*
+     * Marks the area a removed sprite covered in completeCache as out of date.
+     */
+    private void removeCachedSprite(Sprite sprite) {
+      Rect cachedBounds = cachedSpriteBounds.remove(sprite);
+      if (completeCache != null && cachedBounds != null) {
+        cacheDirtyRegion.union(cachedBounds);
+      }
+      changedSprites.remove(sprite);
+    }
+
+    /*
+     * Computes the area of the view, in pixels, that a sprite may draw to.
+     * Rotated image sprites can extend past their unrotated rectangle, so this
+     * is the square around the sprite's center that contains its diagonal.
+     */
+    private void getSpriteBounds(Sprite sprite, Rect outBounds) {
+      float density = form.deviceDensity();
+      double centerX = (sprite.xLeft + sprite.Width() / 2.0) * density;
+      double centerY = (sprite.yTop + sprite.Height() / 2.0) * density;
+      double halfDiagonal = Math.hypot(sprite.Width(), sprite.Height()) / 2 * density + 1;
+      outBounds.set((int) Math.floor(centerX - halfDiagonal),
+          (int) Math.floor(centerY - halfDiagonal),
+          (int) Math.ceil(centerX + halfDiagonal),
+          (int) Math.ceil(centerY + halfDiagonal));
+    }
+
+    /*
+     * Brings completeCache up to date, re-rendering only the regions that
+     * changed since it was last used.  Returns null if the view has not been
+     * laid out yet.
+     */
+    private Bitmap refreshCache() {
+      int width = getWidth();
+      int height = getHeight();
+      if (width <= 0 || height <= 0) {
+        return null;
+      }
+      if (completeCache == null || completeCache.getWidth() != width
+          || completeCache.getHeight() != height) {
+        completeCache = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        cacheDirtyRegion.set(0, 0, width, height);
+        cachedSpriteBounds.clear();
+        changedSprites.addAll(sprites);
+      }
+
+      // Include the area each changed sprite now covers, and remember it so
+      // that it can be re-rendered when the sprite moves away.
+      for (Sprite sprite : changedSprites) {
+        Rect bounds = cachedSpriteBounds.get(sprite);
+        if (bounds == null) {
+          bounds = new Rect();
+          cachedSpriteBounds.put(sprite, bounds);
+        }
+        getSpriteBounds(sprite, bounds);
+        cacheDirtyRegion.union(bounds);
+      }
+      changedSprites.clear();
+
+      if (cacheDirtyRegion.intersect(0, 0, width, height)) {
+        android.graphics.Canvas cacheCanvas = new android.graphics.Canvas(completeCache);
+        cacheCanvas.clipRect(cacheDirtyRegion);
+        cacheCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        draw(cacheCanvas);
+      }
+      cacheDirtyRegion.setEmpty();
+      return completeCache;
+    }
+
     @Override
     public void onDraw(android.graphics.Canvas canvas0) {
-      completeCache = null;
-
       // This will draw the background image and color, if present.
       super.onDraw(canvas0);
 
@@ -472,6 +679,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
 
     @Override
     protected void onSizeChanged(int w, int h, int oldW, int oldH) {
+      invalidateCache();
       int oldBitmapWidth = bitmap.getWidth();
       int oldBitmapHeight = bitmap.getHeight();
       if (w != oldBitmapWidth || h != oldBitmapHeight) {
@@ -648,6 +856,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
 
     private void clearDrawingLayer() {
       canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+      invalidateCache();
       invalidate();
     }
 
@@ -669,6 +878,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
       canvas.rotate(-angle, x, y);
       canvas.drawText(text, x, y, paint);
       canvas.restore();
+      invalidateCache();
       invalidate();
     }
 
@@ -721,31 +931,30 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
         return Component.COLOR_NONE;
       }
 
-      // If the cache isn't available, try to avoid rebuilding it.
-      if (completeCache == null) {
-        // If there are no visible sprites, just call getBackgroundPixelColor().
-        boolean anySpritesVisible = false;
-        for (Sprite sprite : sprites) {
-          if (sprite.Visible()) {
-            anySpritesVisible = true;
+      // If no visible sprite overlaps (x, y), the background determines the
+      // color and there is no need to render the sprites at all.
+      boolean anySpriteOverlaps = false;
+      for (Sprite sprite : sprites) {
+        if (sprite.Visible()) {
+          getSpriteBounds(sprite, spriteBounds);
+          if (spriteBounds.contains(x, y)) {
+            anySpriteOverlaps = true;
             break;
           }
         }
-        if (!anySpritesVisible) {
-          return getBackgroundPixelColor(x, y);
-        }
-
-        // TODO(user): If needed for efficiency, check whether there are any
-        // sprites overlapping (x, y).  If not, we can just call getBackgroundPixelColor().
-        // If so, maybe we can just draw those sprites instead of building a full
-        // cache of the view.
+      }
+      if (!anySpriteOverlaps) {
+        return getBackgroundPixelColor(x, y);
+      }
 
-        completeCache = buildCache();
+      Bitmap cache = refreshCache();
+      if (cache == null) {
+        return getBackgroundPixelColor(x, y);
       }
 
       // Check the complete cache.
       try {
-        return completeCache.getPixel(x, y);
+        return cache.getPixel(x, y);
       } catch (IllegalArgumentException e) {
         // This should never occur, since we have checked bounds.
         Log.e(LOG_TAG,
@@ -775,6 +984,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     TapThreshold(DEFAULT_TAP_THRESHOLD);
 
     sprites = new LinkedList<Sprite>();
+    spriteAnimator = new SpriteAnimator();
     motionEventParser = new MotionEventParser();
     mGestureDetector = new GestureDetector(context, new FlingGestureListener());
     if (FileUtil.needsWritePermission(form.DefaultFileScope())) {
@@ -782,6 +992,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     } else {
       havePermission = true;
     }
+    form.registerForOnDestroy(this);
   }
 
   @Override
@@ -841,6 +1052,8 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     // ordered by creation time.  While we don't wish to guarantee
     // this behavior going forward, it does provide consistency
     // with how things worked before Z layering was added.
+    view.invalidateCachedSprite(sprite);
+    spriteSnapshot = null;
     for (int i = 0; i < sprites.size(); i++) {
       if (sprites.get(i).Z() > sprite.Z()) {
         sprites.add(i, sprite);
@@ -859,6 +1072,8 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    */
   void removeSprite(Sprite sprite) {
     sprites.remove(sprite);
+    spriteSnapshot = null;
+    view.removeCachedSprite(sprite);
   }
 
   /**
@@ -873,6 +1088,24 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     view.invalidate();
   }
 
+  /**
+   * Returns the sprites in Z order as an array that stays the same while
+   * event handlers add, remove or reorder sprites.
+   */
+  private Sprite[] getSpriteSnapshot() {
+    if (spriteSnapshot == null) {
+      spriteSnapshot = sprites.toArray(new Sprite[sprites.size()]);
+    }
+    return spriteSnapshot;
+  }
+
+  /**
+   * Returns whether a sprite in snapshot is still on the canvas.
+   */
+  private boolean isOnCanvas(Sprite sprite, Sprite[] snapshot) {
+    return snapshot == spriteSnapshot || sprites.contains(sprite);
+  }
+
   @Override
   public Activity $context() {
     return context;
@@ -912,10 +1145,66 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * @param sprite the sprite whose location, size, or appearance has changed
    */
   void registerChange(Sprite sprite) {
-    view.invalidate();
+    redrawSprite(sprite);
     findSpriteCollisions(sprite);
   }
 
+  /**
+   * Indicates that a sprite has changed and needs to be redrawn, without
+   * checking for collisions.
+   *
+   * @param sprite the sprite whose location, size, or appearance has changed
+   */
+  void redrawSprite(Sprite sprite) {
+    view.invalidate();
+    view.invalidateCachedSprite(sprite);
+  }
+
+  /**
+   * Starts the synchronized animation loop if {@link #SynchronizedAnimation()}
+   * is set and the loop is not already running.  Sprites call this when they
+   * may have started moving.
+   */
+  void requestSpriteAnimation() {
+    if (synchronizedAnimation) {
+      spriteAnimator.start();
+    }
+  }
+
+  /**
+   * Advances every enabled sprite for one frame of the synchronized animation
+   * loop, then redraws the view and checks the sprites that moved for
+   * collisions.
+   *
+   * @param elapsedMillis milliseconds since the previous frame
+   * @return {@code true} if any sprite is still moving, {@code false} if the
+   *         loop can stop
+   */
+  boolean advanceSprites(long elapsedMillis) {
+    boolean anyMoving = false;
+    movedSprites.clear();
+    Sprite[] snapshot = getSpriteSnapshot();
+    for (Sprite sprite : snapshot) {
+      if (sprite.Enabled() && sprite.Speed() != 0 && isOnCanvas(sprite, snapshot)) {
+        anyMoving = true;
+        if (sprite.advanceFrame(elapsedMillis)) {
+          movedSprites.add(sprite);
+          view.invalidateCachedSprite(sprite);
+        }
+      }
+    }
+    if (!movedSprites.isEmpty()) {
+      view.invalidate();
+      for (Sprite sprite : movedSprites) {
+        if (isOnCanvas(sprite, snapshot)) {
+          findSpriteCollisions(sprite);
+        }
+      }
+      movedSprites.clear();
+    }
+    return anyMoving;
+  }
+
 
   // Methods for detecting collisions
 
@@ -935,8 +1224,9 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * @param movedSprite the sprite that has just changed position
    */
   protected void findSpriteCollisions(Sprite movedSprite) {
-    for (Sprite sprite : sprites) {
-      if (sprite != movedSprite) {
+    Sprite[] snapshot = getSpriteSnapshot();
+    for (Sprite sprite : snapshot) {
+      if (sprite != movedSprite && isOnCanvas(sprite, snapshot)) {
         // Check whether we already raised an event for their collision.
         if (movedSprite.CollidingWith(sprite)) {
           // If they no longer conflict, note that.
@@ -1279,6 +1569,46 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     extendMovesOutsideCanvas = extend;   
   }
 
+  /**
+   * Specifies whether sprites are moved together, once per display frame,
+   * instead of each on its own timer.  Each sprite still moves by its
+   * `Speed` once every `Interval` milliseconds,
+   * but all sprites are redrawn together and collisions are checked once per
+   * frame.  This gives smoother animation when there are many sprites.
+   *
+   * @return {@code true} if sprites are animated by the Canvas
+   */
+  @SimpleProperty(description =
+      "Determines whether all sprites on the canvas are moved together once per " +
+      "display frame, rather than each on its own timer. This gives smoother " +
+      "animation when there are many sprites.",
+      category = PropertyCategory.BEHAVIOR)
+  public boolean SynchronizedAnimation() {
+    return synchronizedAnimation;
+  }
+
+  /**
+   * @suppressdoc
+   * @param synchronizedAnimation {@code true} to animate sprites from a single frame loop
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void SynchronizedAnimation(boolean synchronizedAnimation) {
+    if (this.synchronizedAnimation == synchronizedAnimation) {
+      return;
+    }
+    this.synchronizedAnimation = synchronizedAnimation;
+    for (Sprite sprite : sprites) {
+      sprite.synchronizedAnimationChanged(synchronizedAnimation);
+    }
+    if (synchronizedAnimation) {
+      spriteAnimator.start();
+    } else {
+      spriteAnimator.stop();
+    }
+  }
+
   // Methods supporting event handling
 
   /**
@@ -1393,6 +1723,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     float correctedX = x * $form().deviceDensity();
     float correctedY = y * $form().deviceDensity();
     view.canvas.drawPoint(correctedX, correctedY, paint);
+    view.invalidateCache(correctedX, correctedY, correctedX, correctedY);
     view.invalidate();
   }
 
@@ -1413,6 +1744,8 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     Paint p = new Paint(paint);
     p.setStyle(fill ? Paint.Style.FILL : Paint.Style.STROKE);
     view.canvas.drawCircle(correctedX, correctedY, correctedR, p);
+    view.invalidateCache(correctedX - correctedR, correctedY - correctedR,
+        correctedX + correctedR, correctedY + correctedR);
     view.invalidate();
   }
 
@@ -1431,6 +1764,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     float correctedX2 = x2 * $form().deviceDensity();
     float correctedY2 = y2 * $form().deviceDensity();
     view.canvas.drawLine(correctedX1, correctedY1, correctedX2, correctedY2, paint);
+    view.invalidateCache(correctedX1, correctedY1, correctedX2, correctedY2);
     view.invalidate();
   }
 
@@ -1461,6 +1795,9 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     Paint p = new Paint(paint);
     p.setStyle(fill ? Paint.Style.FILL : Paint.Style.STROKE);
     view.canvas.drawPath(path, p);
+    RectF bounds = new RectF();
+    path.computeBounds(bounds, true);
+    view.invalidateCache(bounds.left, bounds.top, bounds.right, bounds.bottom);
     view.invalidate();
   }
 
@@ -1534,10 +1871,10 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     float scalingFactor = $form().deviceDensity();
     Paint p = new Paint(paint);
     p.setStyle(fill ? Paint.Style.FILL : Paint.Style.STROKE);
-    view.canvas.drawArc(
-      new RectF(scalingFactor * left, scalingFactor * top,
-                scalingFactor * right, scalingFactor * bottom),
-      startAngle, sweepAngle, useCenter, p);
+    RectF oval = new RectF(scalingFactor * left, scalingFactor * top,
+        scalingFactor * right, scalingFactor * bottom);
+    view.canvas.drawArc(oval, startAngle, sweepAngle, useCenter, p);
+    view.invalidateCache(oval.left, oval.top, oval.right, oval.bottom);
     view.invalidate();
   }
 
@@ -1557,6 +1894,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     float correctedX = x * fontScalingFactor;
     float correctedY = y * fontScalingFactor;
     view.canvas.drawText(text, correctedX, correctedY, paint);
+    view.invalidateCache();
     view.invalidate();
   }
 
@@ -1612,6 +1950,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     int correctedX = (int) (x * $form().deviceDensity());
     int correctedY = (int) (y * $form().deviceDensity());
     view.canvas.drawPoint(correctedX, correctedY, pixelPaint);
+    view.invalidateCache(correctedX, correctedY, correctedX, correctedY);
     view.invalidate();
   }
 
@@ -1695,7 +2034,10 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     new FileWriteOperation(form, this, method, scopedFile, false, false) {
       @Override
       protected boolean process(OutputStream stream) {
-        Bitmap bitmap = view.completeCache == null ? view.buildCache() : view.completeCache;
+        Bitmap bitmap = view.refreshCache();
+        if (bitmap == null) {
+          bitmap = view.buildCache();
+        }
         result.wakeup(bitmap.compress(format, 100, stream));
         return true;
       }
@@ -1720,6 +2062,13 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
     return "";
   }
 
+  // OnDestroyListener implementation
+
+  @Override
+  public void onDestroy() {
+    spriteAnimator.stop();
+  }
+
   class FlingGestureListener extends GestureDetector.SimpleOnGestureListener {
     @Override
     public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX,
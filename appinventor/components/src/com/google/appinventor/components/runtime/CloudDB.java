@@ -11,9 +11,6 @@ import static android.Manifest.permission.INTERNET;
 import android.Manifest;
 import android.app.Activity;
 
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 
@@ -38,6 +35,7 @@ import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 
 import com.google.appinventor.components.runtime.util.BulkPermissionRequest;
+import com.google.appinventor.components.runtime.util.CloudDBBatcher;
 import com.google.appinventor.components.runtime.util.CloudDBJedisListener;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.JsonUtil;
@@ -54,12 +52,10 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicReference;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
@@ -71,6 +67,7 @@ import org.json.JSONException;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
@@ -240,31 +237,25 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
 
   // Store can be called frequenly and quickly in some situations. For example
   // using store inside of a Canvas Drag event (for realtime updating of a remote
-  // canvas). Or in a handler for the Accelerometer (gasp!). To make storing as
-  // effecient as possible, we have a queue of pending store requests and we
-  // have a background task that drains this queue as fast as possible and
-  // iterates over the queue until it is drained.
-  private final List<storedValue> storeQueue = Collections.synchronizedList(new ArrayList());
+  // canvas). Or in a handler for the Accelerometer (gasp!). Apps also tend to
+  // fetch dozens of tags from Screen.Initialize. Rather than paying a network
+  // round trip for each of these, every operation is added to a batch which is
+  // sent as a single Redis pipeline once the current event handler returns.
+  // Consecutive stores to the same tag are coalesced into one.
+  private final CloudDBBatcher batcher = new CloudDBBatcher(new JedisBackend());
+
+  private final Runnable flushBatch = new Runnable() {
+      public void run() {
+        background.submit(new Runnable() {
+            public void run() {
+              runBatch();
+            }
+          });
+      }
+    };
 
   private ConnectivityManager cm;
 
-  private static class storedValue {
-    private String tag;
-    private JSONArray  valueList;
-    storedValue(String tag, JSONArray valueList) {
-      this.tag = tag;
-      this.valueList = valueList;
-    }
-
-    public String getTag() {
-      return tag;
-    }
-
-    public JSONArray getValueList() {
-      return valueList;
-    }
-  }
-
   /**
    * Creates a new CloudDB component.
    * @param container the Form that this component is contained in.
@@ -602,121 +593,12 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
       if (DEBUG) {
         Log.d(LOG_TAG,"Device is online...");
       }
-      synchronized(storeQueue) {
-        boolean kickit = false;
-        if (storeQueue.size() == 0) { // Need to kick off the background task
-          if (DEBUG) {
-            Log.d(LOG_TAG, "storeQueue is zero length, kicking background");
-          }
-          kickit = true;
-        } else {
-          if (DEBUG) {
-            Log.d(LOG_TAG, "storeQueue has " + storeQueue.size() + " entries");
-          }
-        }
-        JSONArray valueList = new JSONArray();
-        try {
-          valueList.put(0, value);
-        } catch (JSONException e) {
-          throw new YailRuntimeError("JSON Error putting value.", "value is not convertable");
-        }
-        storedValue work  = new storedValue(tag, valueList);
-        storeQueue.add(work);
-        if (kickit) {
-          background.submit(new Runnable() {
-              public void run() {
-                JSONArray pendingValueList = null;
-                String pendingTag = null;
-                String pendingValue = null;
-                try {
-                  storedValue work;
-                  if (DEBUG) {
-                    Log.d(LOG_TAG, "store background task running.");
-                  }
-                  while (true) {
-                    synchronized(storeQueue) {
-                      if (DEBUG) {
-                        Log.d(LOG_TAG, "store: In background synchronized block");
-                      }
-                      int size = storeQueue.size();
-                      if (size == 0) {
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "store background task exiting.");
-                        }
-                        work = null;
-                      } else {
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "store: storeQueue.size() == " + size);
-                        }
-                        work = storeQueue.remove(0);
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "store: got work.");
-                        }
-                      }
-                    }
-                    if (DEBUG) {
-                      Log.d(LOG_TAG, "store: left synchronized block");
-                    }
-                    if (work == null) {
-                      try {
-                        if (pendingTag != null) {
-                          String jsonValueList = pendingValueList.toString();
-                          if (DEBUG) {
-                            Log.d(LOG_TAG, "Workqueue empty, sending pendingTag, valueListLength = " + pendingValueList.length());
-                          }
-                          jEval(SET_SUB_SCRIPT, SET_SUB_SCRIPT_SHA1, 1, pendingTag, pendingValue, jsonValueList, projectID);
-                          UpdateDone(pendingTag, "StoreValue");
-                        }
-                      } catch (JedisException e) {
-                        CloudDBError(e.getMessage());
-                        flushJedis(true);
-                      }
-                      return;
-                    }
-
-                    String tag = work.getTag();
-                    JSONArray valueList = work.getValueList();
-                    if (tag == null || valueList == null) {
-                      if (DEBUG) {
-                        Log.d(LOG_TAG, "Either tag or value is null!");
-                      }
-                    } else {
-                      if (DEBUG) {
-                        Log.d(LOG_TAG, "Got Work: tag = " + tag + " value = " + valueList.get(0));
-                      }
-                    }
-                    if (pendingTag == null) { // First time through this invocation
-                      pendingTag = tag;
-                      pendingValueList = valueList;
-                      pendingValue = valueList.getString(0);
-                    } else if (pendingTag.equals(tag)) { // work is for the same tag
-                      pendingValue = valueList.getString(0);
-                      pendingValueList.put(pendingValue);
-                    } else {    // Work is for a different tag, send what we have
-                      try {     // and add the new tag,incoming valuelist for the next round
-                        String jsonValueList = pendingValueList.toString();
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "pendingTag changed sending pendingTag, valueListLength = " + pendingValueList.length());
-                        }
-                        jEval(SET_SUB_SCRIPT, SET_SUB_SCRIPT_SHA1, 1, pendingTag, pendingValue, jsonValueList, projectID);
-                      } catch (JedisException e) {
-                        CloudDBError(e.getMessage());
-                        flushJedis(true);
-                        storeQueue.clear(); // Flush pending changes, we are in
-                        return;             // an error state
-                      }
-                      pendingTag = tag;
-                      pendingValueList = valueList;
-                      pendingValue = valueList.getString(0);
-                    }
-                  }
-                } catch (Exception e) {
-                Log.e(LOG_TAG, "Exception in store worker!", e);
-                }
-              }
-            });
-        }
-      }
+      enqueue(new CloudDBBatcher.Operation(CloudDBBatcher.OpType.STORE, tag, value,
+          new BatchCallback() {
+            public void onResult(Object result) {
+              UpdateDone(tag, "StoreValue");
+            }
+          }));
     } else {
       CloudDBError("Cannot store values off-line.");
     }
@@ -740,66 +622,42 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
       Log.d(LOG_TAG, "getting value ... for tag: " + tag);
     }
     checkProjectIDNotBlank();
-    final AtomicReference<Object> value = new AtomicReference<Object>();
-    Cursor cursor = null;
-    SQLiteDatabase db = null;
     NetworkInfo networkInfo = cm.getActiveNetworkInfo();
     boolean isConnected = networkInfo != null && networkInfo.isConnected();
 
     if (isConnected) {
       // Set value to either the JSON from the CloudDB
       // or the JSON representation of valueIfTagNotThere
-      background.submit(new Runnable() {
-          public void run() {
-            Jedis jedis = getJedis();
-            try {
-              if (DEBUG) {
-                Log.d(LOG_TAG,"about to call jedis.get()");
-              }
-              String returnValue = jedis.get(projectID + ":" + tag);
-              if (DEBUG) {
-                Log.d(LOG_TAG, "finished call jedis.get()");
-              }
-              if (returnValue != null) {
-                String val = JsonUtil.getJsonRepresentationIfValueFileName(form, returnValue);
-                if(val != null) value.set(val);
-                else value.set(returnValue);
-              }
-              else {
-                if (DEBUG) {
-                  Log.d(CloudDB.LOG_TAG,"Value retrieved is null");
+      enqueue(new CloudDBBatcher.Operation(CloudDBBatcher.OpType.GET, tag, null,
+          new BatchCallback() {
+            public void onResult(Object result) {
+              final Object value;
+              try {
+                if (result != null) {
+                  String returnValue = (String) result;
+                  String val = JsonUtil.getJsonRepresentationIfValueFileName(form, returnValue);
+                  value = val != null ? val : returnValue;
+                } else {
+                  if (DEBUG) {
+                    Log.d(CloudDB.LOG_TAG,"Value retrieved is null");
+                  }
+                  value = JsonUtil.getJsonRepresentation(valueIfTagNotThere);
                 }
-                value.set(JsonUtil.getJsonRepresentation(valueIfTagNotThere));
+              } catch (JSONException e) {
+                CloudDBError("JSON conversion error for " + tag);
+                return;
               }
-            } catch (JSONException e) {
-              CloudDBError("JSON conversion error for " + tag);
-              return;
-            } catch (NullPointerException e) {
-              CloudDBError("System Error getting tag " + tag);
-              flushJedis(true);
-              return;
-            } catch (JedisException e) {
-              Log.e(LOG_TAG, "Exception in GetValue", e);
-              CloudDBError(e.getMessage());
-              flushJedis(true);
-              return;
-            } catch (Exception e) {
-              Log.e(LOG_TAG, "Exception in GetValue", e);
-              CloudDBError(e.getMessage());
-              flushJedis(true);
-              return;
-            }
 
-            androidUIHandler.post(new Runnable() {
-                public void run() {
-                  // Signal an event to indicate that the value was
-                  // received.  We post this to run in the Application's main
-                  // UI thread.
-                  GotValue(tag, value.get());
-                }
-              });
-          }
-        });
+              androidUIHandler.post(new Runnable() {
+                  public void run() {
+                    // Signal an event to indicate that the value was
+                    // received.  We post this to run in the Application's main
+                    // UI thread.
+                    GotValue(tag, value);
+                  }
+                });
+            }
+          }));
     } else {
       if (DEBUG) {
         Log.d(LOG_TAG, "GetValue(): We're offline");
@@ -894,19 +752,12 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
   public void RemoveFirstFromList(final String tag) {
     checkProjectIDNotBlank();
 
-    final String key = tag;
-
-    background.submit(new Runnable() {
-        public void run() {
-          Jedis jedis = getJedis();
-          try {
-            FirstRemoved(jEval(POP_FIRST_SCRIPT, POP_FIRST_SCRIPT_SHA1, 1, key, projectID));
-          } catch (JedisException e) {
-            CloudDBError(e.getMessage());
-            flushJedis(true);
+    enqueue(new CloudDBBatcher.Operation(CloudDBBatcher.OpType.POP_FIRST, tag, null,
+        new BatchCallback() {
+          public void onResult(Object result) {
+            FirstRemoved(result);
           }
-        }
-      });
+        }));
   }
 
   private static final String APPEND_SCRIPT =
@@ -952,20 +803,13 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
     }
 
     final String item = (String) itemObject;
-    final String key = tag;
 
-    background.submit(new Runnable() {
-        public void run() {
-          Jedis jedis = getJedis();
-          try {
-            jEval(APPEND_SCRIPT, APPEND_SCRIPT_SHA1, 1, key, item, projectID);
-            UpdateDone(key, "AppendValueToList");
-          } catch(JedisException e) {
-            CloudDBError(e.getMessage());
-            flushJedis(true);
+    enqueue(new CloudDBBatcher.Operation(CloudDBBatcher.OpType.APPEND, tag, item,
+        new BatchCallback() {
+          public void onResult(Object result) {
+            UpdateDone(tag, "AppendValueToList");
           }
-        }
-      });
+        }));
   }
 
   /**
@@ -1014,18 +858,12 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
   @SimpleFunction(description = "Remove the tag from CloudDB.")
   public void ClearTag(final String tag) {
     checkProjectIDNotBlank();
-    background.submit(new Runnable() {
-        public void run() {
-          try {
-            Jedis jedis = getJedis();
-            jedis.del(projectID + ":" + tag);
+    enqueue(new CloudDBBatcher.Operation(CloudDBBatcher.OpType.CLEAR, tag, null,
+        new BatchCallback() {
+          public void onResult(Object result) {
             UpdateDone(tag, "ClearTag");
-          } catch (Exception e) {
-            CloudDBError(e.getMessage());
-            flushJedis(true);
           }
-        }
-      });
+        }));
   }
 
   /**
@@ -1258,6 +1096,11 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
             Log.d(LOG_TAG, "Killing background executor, returned tasks = " + tasks);
           }
           background = Executors.newSingleThreadExecutor();
+          // Any batch we just killed is gone, but operations queued since
+          // then still need to be sent.
+          if (batcher.getPendingCount() > 0) {
+            flushBatch.run();
+          }
         }
       });
 
@@ -1317,6 +1160,109 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
     return background;
   }
 
+  /**
+   * Returns the batcher used to pipeline operations to the Redis server. Its
+   * batch size and latency counters are useful for tuning and testing.
+   */
+  public CloudDBBatcher getBatcher() {
+    return batcher;
+  }
+
+  /*
+   * enqueue -- Add an operation to the current batch, and schedule the batch
+   * to be sent once the current event handler has returned, so that all the
+   * operations it issues share a single round trip.
+   */
+  private void enqueue(CloudDBBatcher.Operation op) {
+    if (batcher.add(op)) {
+      androidUIHandler.post(flushBatch);
+    }
+  }
+
+  /*
+   * runBatch -- Send the pending batch. Always called on the background thread.
+   */
+  private void runBatch() {
+    if (getJedis() == null) {   // getJedis() has already reported the error
+      batcher.discard();
+      return;
+    }
+    try {
+      int size = batcher.flush();
+      if (DEBUG) {
+        Log.d(LOG_TAG, "Sent batch of " + size + " operations in "
+            + batcher.getLastBatchLatency() + "ms");
+      }
+    } catch (Exception e) {
+      Log.e(LOG_TAG, "Exception sending batch", e);
+      CloudDBError(e.getMessage());
+      flushJedis(true);
+    }
+  }
+
+  /*
+   * Reports per-operation errors from a batch. Errors returned by our own
+   * scripts (e.g., appending to something that is not a list) leave the
+   * connection usable, so unlike connection errors they do not flush it.
+   */
+  private abstract class BatchCallback implements CloudDBBatcher.Callback {
+    public void onError(Exception e) {
+      CloudDBError(e.getMessage());
+    }
+  }
+
+  /*
+   * Executes batches as a single Redis pipeline on our shared connection.
+   * The Lua scripts are loaded once per connection so that the pipeline can
+   * use EVALSHA without having to recover from NOSCRIPT replies midway.
+   */
+  private class JedisBackend implements CloudDBBatcher.Backend {
+    private Jedis scriptsLoadedOn = null;
+
+    public List<Object> execute(List<CloudDBBatcher.Operation> batch) {
+      Jedis jedis = getJedis();
+      if (jedis != scriptsLoadedOn) {
+        jedis.scriptLoad(SET_SUB_SCRIPT);
+        jedis.scriptLoad(POP_FIRST_SCRIPT);
+        jedis.scriptLoad(APPEND_SCRIPT);
+        scriptsLoadedOn = jedis;
+      }
+      Pipeline pipeline = jedis.pipelined();
+      for (CloudDBBatcher.Operation op : batch) {
+        String tag = op.getTag();
+        switch (op.getType()) {
+          case GET:
+            pipeline.get(projectID + ":" + tag);
+            break;
+          case STORE:
+            String published = new JSONArray(op.getPublishedValues()).toString();
+            pipeline.evalsha(SET_SUB_SCRIPT_SHA1, 1, tag, op.getValue(), published, projectID);
+            break;
+          case APPEND:
+            pipeline.evalsha(APPEND_SCRIPT_SHA1, 1, tag, op.getValue(), projectID);
+            break;
+          case POP_FIRST:
+            pipeline.evalsha(POP_FIRST_SCRIPT_SHA1, 1, tag, projectID);
+            break;
+          case CLEAR:
+            pipeline.del(projectID + ":" + tag);
+            break;
+        }
+      }
+      List<Object> results = new ArrayList<Object>(pipeline.syncAndReturnAll());
+      for (int i = 0; i < results.size(); i++) {
+        Object result = results.get(i);
+        if (result instanceof JedisNoScriptException) {
+          // The server lost its scripts, for example because it restarted. Reload them and have
+          // the batcher run the operation again rather than failing the write.
+          scriptsLoadedOn = null;
+          results.set(i, new CloudDBBatcher.RetryableException((JedisNoScriptException) result));
+        }
+      }
+      return results;
+    }
+  }
+
   public Object jEval(String script, String scriptsha1, int argcount, String... args) throws JedisException {
     Jedis jedis = getJedis();
     try {
@@ -178,6 +178,24 @@ public class EventDispatcher {
     }
   }
 
+  /**
+   * Returns true if a handler for the named event may be registered for the component. Handlers
+   * are registered by component name, which is not known here, so this returns true if any
+   * component handled by the same dispatch delegate has a handler for the event. Generic ("when
+   * any") handlers are not taken into account.
+   *
+   * @param component  the component that would raise the event
+   * @param eventName  name of the event
+   */
+  public static boolean hasEventHandler(Component component, String eventName) {
+    EventRegistry er = mapDispatchDelegateToEventRegistry.get(component.getDispatchDelegate());
+    if (er == null) {
+      return false;
+    }
+    Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
+    return eventClosures != null && !eventClosures.isEmpty();
+  }
+
   /**
    * Dispatches an event based on its name to any registered handlers.
    *
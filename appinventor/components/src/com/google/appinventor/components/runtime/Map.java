@@ -128,6 +128,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
     ShowZoom(false);
     EnableRotation(false);
     ShowScale(false);
+    ClusterMarkers(false);
   }
 
   @Override
@@ -448,6 +449,33 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
     return mapController.isRotationEnabled();
   }
 
+  /**
+   * Groups markers that are close together on screen into a single circle showing how many
+   * markers it contains. Tapping the circle zooms in on its markers. Clustering keeps maps with
+   * many markers responsive, since only the markers in view are drawn.
+   *
+   * @param cluster True if nearby markers should be clustered, otherwise false.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void ClusterMarkers(boolean cluster) {
+    mapController.setClusteringEnabled(cluster);
+  }
+
+  /**
+   * Get whether nearby markers are clustered.
+   *
+   * @suppressdoc
+   * @return True if nearby markers are clustered, otherwise false.
+   */
+  @SimpleProperty(category = PropertyCategory.APPEARANCE,
+      description = "Group markers that are close together on screen into a single circle " +
+          "that shows how many markers it contains.")
+  public boolean ClusterMarkers() {
+    return mapController.isClusteringEnabled();
+  }
+
   @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "True")
   @SimpleProperty
   public void EnablePan(boolean pan) {
@@ -844,6 +872,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapMarker marker) {
     features.add(marker);
+    featureIndex.add(marker);
     marker.setMap(this);
     mapController.addFeature(marker);
   }
@@ -851,6 +880,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapLineString lineString) {
     features.add(lineString);
+    featureIndex.add(lineString);
     lineString.setMap(this);
     mapController.addFeature(lineString);
   }
@@ -858,6 +888,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapPolygon polygon) {
     features.add(polygon);
+    featureIndex.add(polygon);
     polygon.setMap(this);
     mapController.addFeature(polygon);
   }
@@ -865,6 +896,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapRectangle rectangle) {
     features.add(rectangle);
+    featureIndex.add(rectangle);
     rectangle.setMap(this);
     mapController.addFeature(rectangle);
   }
@@ -872,6 +904,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapCircle circle) {
     features.add(circle);
+    featureIndex.add(circle);
     circle.setMap(this);
     mapController.addFeature(circle);
   }
@@ -879,6 +912,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   public void removeFeature(MapFeature feature) {
     features.remove(feature);
+    featureIndex.remove(feature);
     mapController.removeFeature(feature);
   }
 }
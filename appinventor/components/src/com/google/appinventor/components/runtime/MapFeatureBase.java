@@ -427,9 +427,19 @@ public abstract class MapFeatureBase implements MapFeature, HasStroke {
   }
 
   @SuppressWarnings("WeakerAccess")
-  protected final synchronized void clearGeometry() {
-    centroid = null;
-    geometry = null;
+  protected final void clearGeometry() {
+    synchronized (this) {
+      centroid = null;
+      geometry = null;
+    }
+    // Let the containers reindex the feature. This is done outside of the lock since queries of
+    // the index lock the index before computing geometries.
+    if (container instanceof MapFeatureContainerBase) {
+      ((MapFeatureContainerBase) container).featureChanged(this);
+    }
+    if (map != null && map != container) {
+      map.featureChanged(this);
+    }
   }
 
   protected abstract Geometry computeGeometry();
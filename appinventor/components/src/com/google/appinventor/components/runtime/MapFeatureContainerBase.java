@@ -12,18 +12,26 @@ import com.google.appinventor.components.annotations.SimpleEvent;
 import com.google.appinventor.components.annotations.SimpleFunction;
 import com.google.appinventor.components.annotations.SimpleObject;
 import com.google.appinventor.components.annotations.SimpleProperty;
+import com.google.appinventor.components.runtime.errors.DispatchableError;
 import com.google.appinventor.components.runtime.util.AsynchUtil;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
+import com.google.appinventor.components.runtime.util.GeoJSONReader;
+import com.google.appinventor.components.runtime.util.GeometryUtil;
+import com.google.appinventor.components.runtime.util.IOUtils;
 import com.google.appinventor.components.runtime.util.MapFactory;
 import com.google.appinventor.components.runtime.util.MapFactory.MapFeature;
+import com.google.appinventor.components.runtime.util.SpatialIndex;
 import com.google.appinventor.components.runtime.util.YailList;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.locationtech.jts.geom.Envelope;
+import org.osmdroid.util.GeoPoint;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -34,8 +42,6 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-import static com.google.appinventor.components.runtime.util.GeoJSONUtil.getGeoJSONFeatures;
-import static com.google.appinventor.components.runtime.util.GeoJSONUtil.getGeoJSONType;
 import static com.google.appinventor.components.runtime.util.GeoJSONUtil.processGeoJSONFeature;
 
 @SimpleObject
@@ -55,12 +61,63 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
   private static final String GEOJSON_GEOMETRYCOLLECTION = "GeometryCollection";
   private static final String GEOJSON_FEATURES = "features";
 
+  // Features read from a URL are put on the map in groups of this many, so that the map fills in
+  // while a large document is still loading
+  private static final int FEATURE_BATCH_SIZE = 100;
+
   /**
    * <p>List of {@link MapFactory.MapFeature features} associated with this map, including those that are
    * invisible.</p>
    */
   protected List<MapFeature> features = new CopyOnWriteArrayList<MapFeature>();
 
+  /**
+   * Index of the {@link #features} by location, used to answer the distance and bounding box
+   * queries without measuring every feature. Features report changes to their geometry through
+   * {@link #featureChanged(MapFeature)}.
+   */
+  protected final SpatialIndex<MapFeature> featureIndex = new SpatialIndex<MapFeature>() {
+    @Override
+    protected Envelope getEnvelope(MapFeature feature) {
+      if (feature instanceof MapFactory.MapCircle) {
+        // The geometry of a circle is its center
+        GeoPoint center = feature.getCentroid();
+        double[] box = getBoundsAround(center.getLatitude(), center.getLongitude(),
+            ((MapFactory.MapCircle) feature).Radius());
+        if (box[1] > box[3]) {
+          return new Envelope(-180, 180, box[2], box[0]);
+        }
+        return new Envelope(box[1], box[3], box[2], box[0]);
+      }
+      return new Envelope(feature.getGeometry().getEnvelopeInternal());
+    }
+
+    @Override
+    protected double getDistance(MapFeature feature, double latitude, double longitude) {
+      if (feature instanceof MapFeatureBase) {
+        return ((MapFeatureBase) feature).DistanceToPoint(latitude, longitude, false);
+      }
+      return GeometryUtil.distanceBetween(feature.getCentroid(),
+          new GeoPoint(latitude, longitude));
+    }
+
+    @Override
+    protected boolean intersects(MapFeature feature, double north, double west, double south,
+        double east) {
+      if (feature instanceof MapFactory.MapCircle) {
+        // The circle intersects the box if the point of the box closest to its center is inside it
+        GeoPoint center = feature.getCentroid();
+        GeoPoint closest = new GeoPoint(Math.max(south, Math.min(north, center.getLatitude())),
+            Math.max(west, Math.min(east, center.getLongitude())));
+        return GeometryUtil.distanceBetween(center, closest)
+            <= ((MapFactory.MapCircle) feature).Radius();
+      }
+      return feature.getGeometry().intersects(
+          GeometryUtil.createGeometry(north, east, south, west));
+    }
+  };
+
+
   private final MapFactory.MapFeatureVisitor<Void> featureAdder = new MapFactory.MapFeatureVisitor<Void>() {
     @Override
     public Void visit(MapFactory.MapMarker marker, Object... arguments) {
@@ -105,16 +162,24 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
    */
   @SimpleProperty
   public void Features(YailList features) {
-    for (MapFactory.MapFeature feature : this.features) {
-      feature.removeFromMap();
-    }
-    this.features.clear();
-    ListIterator<?> it = features.listIterator(1);
-    while (it.hasNext()) {
-      Object o = it.next();
-      if (o instanceof MapFactory.MapFeature) {
-        this.addFeature((MapFactory.MapFeature) o);
+    // Replace the features in one change to the map rather than one change per feature
+    MapFactory.MapController controller = getMap().getController();
+    controller.beginFeatureBatch();
+    try {
+      for (MapFactory.MapFeature feature : this.features) {
+        feature.removeFromMap();
+      }
+      this.features.clear();
+      featureIndex.clear();
+      ListIterator<?> it = features.listIterator(1);
+      while (it.hasNext()) {
+        Object o = it.next();
+        if (o instanceof MapFactory.MapFeature) {
+          this.addFeature((MapFactory.MapFeature) o);
+        }
       }
+    } finally {
+      controller.endFeatureBatch();
     }
     getMap().getView().invalidate();
   }
@@ -268,6 +333,57 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     }
   }
 
+  /**
+   * Gets up to `count`{:.variable.block} features on the `%type%` nearest to the point given by
+   * `latitude`{:.variable.block} and `longitude`{:.variable.block}, nearest first. Distances are
+   * measured to the edges of the features, so a point inside a feature is at distance 0 from it.
+   *
+   * @param latitude the latitude of the point
+   * @param longitude the longitude of the point
+   * @param count the maximum number of features to return
+   * @return a list of the nearest features
+   */
+  @SimpleFunction(description = "Get up to count features nearest to the given latitude and " +
+      "longitude, nearest first.")
+  public YailList NearestFeatures(double latitude, double longitude, int count) {
+    checkPoint(latitude, longitude);
+    return YailList.makeList(featureIndex.getNearestItems(latitude, longitude, count));
+  }
+
+  /**
+   * Gets the features on the `%type%` that are within `distance`{:.variable.block} meters of the
+   * point given by `latitude`{:.variable.block} and `longitude`{:.variable.block}, nearest first.
+   * Distances are measured to the edges of the features.
+   *
+   * @param latitude the latitude of the point
+   * @param longitude the longitude of the point
+   * @param distance the distance in meters
+   * @return a list of the features within the distance
+   */
+  @SimpleFunction(description = "Get the features within the given distance, in meters, of the " +
+      "given latitude and longitude, nearest first.")
+  public YailList FeaturesWithinDistance(double latitude, double longitude, double distance) {
+    checkPoint(latitude, longitude);
+    return YailList.makeList(featureIndex.getItemsWithinDistance(latitude, longitude, distance));
+  }
+
+  /**
+   * Gets the features on the `%type%` that are inside or overlap `boundingBox`{:.variable.block}.
+   * The bounding box is given in the same form as the {@link Map#BoundingBox()} property of the
+   * `Map`, ``((North West) (South East))``.
+   *
+   * @param boundingBox the bounding box to search
+   * @return a list of the features that intersect the bounding box
+   */
+  @SimpleFunction(description = "Get the features that are inside or overlap the given bounding " +
+      "box, given as [[North, West], [South, East]].")
+  public YailList FeaturesInBoundingBox(YailList boundingBox) {
+    GeoPoint northWest = GeometryUtil.pointFromYailList((YailList) boundingBox.getObject(0));
+    GeoPoint southEast = GeometryUtil.pointFromYailList((YailList) boundingBox.getObject(1));
+    return YailList.makeList(featureIndex.getItemsInBoundingBox(northWest.getLatitude(),
+        northWest.getLongitude(), southEast.getLatitude(), southEast.getLongitude()));
+  }
+
   /**
    * The `GotFeatures` event is run when when a feature collection is successfully read from the
    * given `url`{:.variable.block}. The `features`{:.variable.block} parameter will be a list of
@@ -282,10 +398,16 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
   public void GotFeatures(String url, YailList features) {
     if (!EventDispatcher.dispatchEvent(this, "GotFeatures", url, features)) {
       // If the app inventor hasn't defined GotFeatures, we by default create the features for them
-      Iterator it = features.iterator();
-      it.next();  // skip *list* symbol
-      while (it.hasNext()) {
-        FeatureFromDescription((YailList) it.next());
+      MapFactory.MapController controller = getMap().getController();
+      controller.beginFeatureBatch();
+      try {
+        Iterator it = features.iterator();
+        it.next();  // skip *list* symbol
+        while (it.hasNext()) {
+          FeatureFromDescription((YailList) it.next());
+        }
+      } finally {
+        controller.endFeatureBatch();
       }
     }
   }
@@ -345,6 +467,7 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
 
   public void removeFeature(MapFactory.MapFeature feature) {
     features.remove(feature);
+    featureIndex.remove(feature);
     getMap().removeFeature(feature);
   }
 
@@ -355,26 +478,31 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
 
   void addFeature(MapFactory.MapMarker marker) {
     features.add(marker);
+    featureIndex.add(marker);
     getMap().addFeature(marker);
   }
 
   void addFeature(MapFactory.MapLineString polyline) {
     features.add(polyline);
+    featureIndex.add(polyline);
     getMap().addFeature(polyline);
   }
 
   void addFeature(MapFactory.MapPolygon polygon) {
     features.add(polygon);
+    featureIndex.add(polygon);
     getMap().addFeature(polygon);
   }
 
   void addFeature(MapFactory.MapCircle circle) {
     features.add(circle);
+    featureIndex.add(circle);
     getMap().addFeature(circle);
   }
 
   void addFeature(MapFactory.MapRectangle rectangle) {
     features.add(rectangle);
+    featureIndex.add(rectangle);
     getMap().addFeature(rectangle);
   }
 
@@ -383,13 +511,40 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     feature.accept(featureAdder);
   }
 
+  /**
+   * Called by a feature when its geometry changes so that it is reindexed before the next query.
+   */
+  void featureChanged(MapFactory.MapFeature feature) {
+    featureIndex.invalidate(feature);
+  }
+
+  private static void checkPoint(double latitude, double longitude) {
+    try {
+      GeometryUtil.coerceToPoint(latitude, longitude);
+    } catch (IllegalArgumentException e) {
+      throw new DispatchableError(ErrorMessages.ERROR_INVALID_POINT, latitude, longitude);
+    }
+  }
+
   private void performGet(final String url) {
     try {
-      String jsonContent = loadUrl(url);
-      if (jsonContent == null) {
+      Reader reader = openUrl(url);
+      if (reader == null) {
         return;
       }
-      processGeoJSON(url, jsonContent);
+      try {
+        processGeoJSON(url, reader, FEATURE_BATCH_SIZE);
+      } finally {
+        IOUtils.closeQuietly(TAG, reader);
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Exception reading GeoJSON", e);
+      $form().runOnUiThread(new Runnable() {
+        public void run() {
+          MapFeatureContainerBase.this.LoadError(url, ERROR_CODE_IO_EXCEPTION,
+              ERROR_IO_EXCEPTION);
+        }
+      });
     } catch(Exception e) {
       Log.e(TAG, "Exception retreiving GeoJSON", e);
       $form().dispatchErrorOccurredEvent(this, "LoadFromURL", ERROR_CODE_UNKNOWN_TYPE,
@@ -397,7 +552,7 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     }
   }
 
-  private String loadUrl(final String url) {
+  private Reader openUrl(final String url) {
     try {
       URLConnection connection = new URL(url).openConnection();
       connection.connect();
@@ -415,16 +570,8 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
           return null;
         }
       }
-      BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(),
-            "UTF-8"));
-      StringBuilder content = new StringBuilder();
-      String line;
-      while ((line = reader.readLine()) != null) {
-        content.append(line);
-        content.append("\n");
-      }
-      reader.close();
-      return content.toString();
+      // The document is parsed as it downloads rather than read into memory first
+      return new InputStreamReader(connection.getInputStream(), "UTF-8");
     } catch(MalformedURLException e) {
       $form().runOnUiThread(new Runnable() {
         public void run() {
@@ -445,21 +592,119 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
 
   @SuppressWarnings("WeakerAccess")
   protected void processGeoJSON(final String url, final String content) throws JSONException {
-    String type = getGeoJSONType(content, GEOJSON_TYPE);
-    if (!GEOJSON_FEATURECOLLECTION.equals(type) && !GEOJSON_GEOMETRYCOLLECTION.equals(type)) {
+    try {
+      // The whole document is already in memory, so its features are added all at once
+      processGeoJSON(url, new StringReader(content), Integer.MAX_VALUE);
+    } catch (IOException e) {
+      // A StringReader does not throw
+      throw new JSONException(e.toString());
+    }
+  }
+
+  /**
+   * Reads a GeoJSON feature collection and raises {@link #GotFeatures(String, YailList)} with
+   * its features. If nothing handles GotFeatures, the features are instead put on the map in
+   * groups of batchSize while the rest of the document is still being read, and GotFeatures is
+   * raised with an empty list. Either way, only the features still to be handed over are kept
+   * in memory.
+   */
+  private void processGeoJSON(final String url, Reader reader, int batchSize)
+      throws JSONException, IOException {
+    FeatureLoader loader = new FeatureLoader(url, batchSize,
+        !EventDispatcher.hasEventHandler(this, "GotFeatures"));
+    new GeoJSONReader(reader).read(loader);
+    loader.finish();
+  }
+
+  /**
+   * Receives features from a {@link GeoJSONReader} and hands them to the UI thread.
+   */
+  private class FeatureLoader implements GeoJSONReader.Handler {
+    private final String url;
+    private final int batchSize;
+    private final boolean addWhileLoading;
+    // When adding while loading, the features read since the last batch was posted
+    private List<GeoJSONReader.Feature> batch = new ArrayList<GeoJSONReader.Feature>();
+    // Otherwise, the descriptions of the features read so far, for the GotFeatures handler
+    private final List<YailList> descriptions = new ArrayList<YailList>();
+    private boolean valid = false;
+
+    FeatureLoader(String url, int batchSize, boolean addWhileLoading) {
+      this.url = url;
+      this.batchSize = batchSize;
+      this.addWhileLoading = addWhileLoading;
+    }
+
+    @Override
+    public boolean onType(String type) {
+      valid = GEOJSON_FEATURECOLLECTION.equals(type) || GEOJSON_GEOMETRYCOLLECTION.equals(type);
+      if (!valid) {
+        $form().runOnUiThread(new Runnable() {
+          public void run() {
+            MapFeatureContainerBase.this.LoadError(url, ERROR_CODE_MALFORMED_GEOJSON,
+                ERROR_MALFORMED_GEOJSON);
+          }
+        });
+      }
+      return valid;
+    }
+
+    @Override
+    public void onFeature(GeoJSONReader.Feature feature) {
+      if (addWhileLoading) {
+        batch.add(feature);
+        if (batch.size() >= batchSize) {
+          postBatch();
+        }
+      } else {
+        // The description is built here, off the UI thread, and the feature itself is dropped
+        descriptions.add(feature.toYailList());
+      }
+    }
+
+    private void postBatch() {
+      final List<GeoJSONReader.Feature> posted = batch;
+      batch = new ArrayList<GeoJSONReader.Feature>();
       $form().runOnUiThread(new Runnable() {
         public void run() {
-          MapFeatureContainerBase.this.LoadError(url, ERROR_CODE_MALFORMED_GEOJSON,
-              ERROR_MALFORMED_GEOJSON);
+          addFeatures(posted);
         }
       });
-      return;
     }
-    final List<YailList> yailFeatures = getGeoJSONFeatures(TAG, content);
-    $form().runOnUiThread(new Runnable() {
-      public void run() {
-        MapFeatureContainerBase.this.GotFeatures(url, YailList.makeList(yailFeatures));
+
+    void finish() {
+      if (!valid) {
+        return;
       }
-    });
+      if (addWhileLoading && !batch.isEmpty()) {
+        postBatch();
+      }
+      // When the features were added while loading, nothing handles GotFeatures, so no
+      // descriptions were built. The event is still raised, with no features to add, since
+      // subclasses such as FeatureCollection also act on it.
+      final YailList featureList = YailList.makeList(descriptions);
+      $form().runOnUiThread(new Runnable() {
+        public void run() {
+          MapFeatureContainerBase.this.GotFeatures(url, featureList);
+        }
+      });
+    }
+  }
+
+  private void addFeatures(List<GeoJSONReader.Feature> batch) {
+    MapFactory.MapController controller = getMap().getController();
+    controller.beginFeatureBatch();
+    try {
+      for (GeoJSONReader.Feature feature : batch) {
+        try {
+          processGeoJSONFeature(TAG, this, feature);
+        } catch (IllegalArgumentException e) {
+          $form().dispatchErrorOccurredEvent(this, "FeatureFromDescription",
+              ERROR_CODE_MALFORMED_GEOJSON, e.getMessage());
+        }
+      }
+    } finally {
+      controller.endFeatureBatch();
+    }
   }
 }
@@ -341,6 +341,22 @@ public class Polygon extends PolygonBase implements MapPolygon {
     return GeometryUtil.createGeometry(points, holePoints);
   }
 
+  /**
+   * Sets the points and holes of the polygon from points that are already converted, such as
+   * those read from GeoJSON, and initializes the polygon.
+   *
+   * @param points the outer ring of each part of the polygon
+   * @param holePoints the holes in each part, or an empty list if there are none
+   * @param multipolygon true if the polygon came from a multipolygon, even one with a single part
+   */
+  public void setGeometry(List<List<GeoPoint>> points, List<List<List<GeoPoint>>> holePoints,
+      boolean multipolygon) {
+    this.points = points;
+    this.holePoints = holePoints;
+    this.multipolygon = multipolygon;
+    Initialize();
+  }
+
   @Override
   public void updatePoints(List<List<GeoPoint>> points) {
     this.points.clear();
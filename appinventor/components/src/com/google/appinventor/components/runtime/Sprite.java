@@ -46,6 +46,9 @@ public abstract class Sprite extends VisibleComponent
   private static final boolean DEFAULT_VISIBLE = true;
   private static final double DEFAULT_Z = 1.0;
   private static final int DIRECTION_NONE = 0;
+  // Upper bound on the number of Interval steps taken in a single animation frame, so that a
+  // long stall (e.g., a slow event handler) does not make sprites jump across the Canvas.
+  private static final int MAX_STEPS_PER_FRAME = 10;
   protected static final boolean DEFAULT_ORIGIN_AT_CENTER = false;
 
   protected final Canvas canvas;              // enclosing Canvas
@@ -62,6 +65,14 @@ public abstract class Sprite extends VisibleComponent
   // all components has taken place.  This was added to fix bug 2262218.
   protected boolean initialized = false;
 
+  // Whether the sprite moves.  This is tracked separately from timerInternal because the timer is
+  // idle when the enclosing Canvas drives movement from its synchronized animation loop.
+  private boolean enabled = DEFAULT_ENABLED;
+
+  // Milliseconds of frame time not yet consumed by a whole Interval step.  Only used when the
+  // enclosing Canvas uses synchronized animation.
+  private long frameTimeAccumulated = 0;
+
   // Properties: These are protected, instead of private, both so they
   // can be used by subclasses and tests.
   protected int interval;      // number of milliseconds until next move
@@ -150,6 +161,9 @@ public abstract class Sprite extends VisibleComponent
   public void Initialize() {
     initialized = true;
     canvas.registerChange(this);
+    if (enabled && speed != 0) {
+      canvas.requestSpriteAnimation();
+    }
   }
 
   // Properties (Enabled, Heading, Interval, Speed, Visible, X, Y, Z, OriginAtCenter)
@@ -167,7 +181,7 @@ public abstract class Sprite extends VisibleComponent
       description = "Controls whether the %type% moves and can be interacted with " +
           "through collisions, dragging, touching, and flinging.")
   public boolean Enabled() {
-    return timerInternal.Enabled();
+    return enabled;
   }
 
   /**
@@ -181,7 +195,11 @@ public abstract class Sprite extends VisibleComponent
       defaultValue = DEFAULT_ENABLED ? "True" : "False")
   @SimpleProperty
   public void Enabled(boolean enabled) {
-    timerInternal.Enabled(enabled);
+    this.enabled = enabled;
+    timerInternal.Enabled(enabled && !canvas.SynchronizedAnimation());
+    if (enabled && speed != 0) {
+      canvas.requestSpriteAnimation();
+    }
   }
 
   /**
@@ -264,6 +282,9 @@ public abstract class Sprite extends VisibleComponent
       defaultValue = DEFAULT_SPEED + "")
   public void Speed(float speed) {
     this.speed = speed;
+    if (enabled && speed != 0) {
+      canvas.requestSpriteAnimation();
+    }
   }
 
   /**
@@ -781,7 +802,7 @@ public abstract class Sprite extends VisibleComponent
     // before all components had been constructed.
     if (!initialized) {
       // During REPL, components are not initalized, but we still want to repaint the canvas.
-      canvas.getView().invalidate();
+      canvas.redrawSprite(this);
       return;
     }
     Direction edge = hitEdgeAbstract();
@@ -1068,6 +1089,62 @@ public abstract class Sprite extends VisibleComponent
     }
   }
 
+  /**
+   * Switches between moving on this sprite's own timer and being moved by the
+   * synchronized animation loop of the enclosing Canvas.
+   *
+   * @param synchronizedAnimation {@code true} if the Canvas drives movement
+   */
+  void synchronizedAnimationChanged(boolean synchronizedAnimation) {
+    frameTimeAccumulated = 0;
+    timerInternal.Enabled(enabled && !synchronizedAnimation);
+  }
+
+  /**
+   * Advances the sprite by as many whole {@link #Interval()} steps as fit in
+   * the frame time accumulated so far.  This is the fixed-timestep counterpart
+   * of {@link #alarm()} used by the synchronized animation loop of the Canvas.
+   * {@link #EdgeReached(int)} is raised as usual, but the caller is responsible
+   * for redrawing the Canvas and checking for collisions once all sprites have
+   * been advanced.
+   *
+   * @param elapsedMillis milliseconds since the previous frame
+   * @return {@code true} if the sprite moved, {@code false} otherwise
+   */
+  boolean advanceFrame(long elapsedMillis) {
+    if (!initialized || !enabled || speed == 0) {
+      frameTimeAccumulated = 0;
+      return false;
+    }
+    int interval = timerInternal.Interval();
+    if (interval <= 0) {
+      // A zero interval means "as often as possible", which is once per frame.
+      frameTimeAccumulated = 0;
+      moveOneStep();
+      return true;
+    }
+    frameTimeAccumulated += elapsedMillis;
+    int steps = 0;
+    while (frameTimeAccumulated >= interval && steps < MAX_STEPS_PER_FRAME) {
+      frameTimeAccumulated -= interval;
+      moveOneStep();
+      steps++;
+    }
+    if (steps == MAX_STEPS_PER_FRAME) {
+      // Drop the backlog rather than trying to catch up over later frames.
+      frameTimeAccumulated = 0;
+    }
+    return steps > 0;
+  }
+
+  private void moveOneStep() {
+    updateCoordinates();
+    Direction edge = hitEdgeAbstract();
+    if (edge != null) {
+      EdgeReachedAbstract(edge);
+    }
+  }
+
   // Component implementation
 
   @Override
@@ -16,14 +16,12 @@ import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 import com.google.appinventor.components.runtime.util.JsonUtil;
+import com.google.appinventor.components.runtime.util.TinyDBStore;
 
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
 import org.json.JSONException;
 
@@ -77,12 +75,16 @@ import org.json.JSONException;
     iconName = "images/tinyDB.png")
 
 @SimpleObject
-public class TinyDB extends AndroidNonvisibleComponent implements Component, Deleteable {
+public class TinyDB extends AndroidNonvisibleComponent implements Component, Deleteable,
+    OnPauseListener, OnStopListener {
 
   public static final String DEFAULT_NAMESPACE="TinyDB1";
 
-  private SharedPreferences sharedPreferences;
+  // Caches decoded values and writes changes to disk in the background. Shared
+  // by all TinyDB components with the same namespace.
+  private TinyDBStore store;
   private String namespace;
+  private boolean useDatabase = false;
 
   private Context context;  // this was a local in constructor and final not private
 
@@ -96,6 +98,9 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     super(container.$form());
     context = (Context) container.$context();
     Namespace(DEFAULT_NAMESPACE);
+    // Make sure pending writes reach the disk before the app can be killed
+    form.registerForOnPause(this);
+    form.registerForOnStop(this);
   }
 
   /**
@@ -113,7 +118,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
   @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_STRING, defaultValue = DEFAULT_NAMESPACE)
   public void Namespace(String namespace) {
     this.namespace = namespace;
-    sharedPreferences = context.getSharedPreferences(namespace, Context.MODE_PRIVATE);
+    store = TinyDBStore.getStore(context, namespace, useDatabase);
   }
 
   @SimpleProperty(description = "Namespace for storing data.")
@@ -121,6 +126,33 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     return namespace;
   }
 
+  /**
+   * Specifies whether the data is kept in a database instead of in Android's shared
+   * preferences. Shared preferences load and rewrite the entire namespace on every change, which
+   * becomes slow once a namespace holds many tags or large lists. With a database, storing and
+   * retrieving a tag only touches that tag. Data already stored in the namespace is moved into the
+   * database the first time it is used. This cannot be undone: once a namespace's data is in the
+   * database, every `TinyDB` component with that `Namespace` uses the database, whatever its
+   * own setting.
+   *
+   * @param useDatabase true to keep the data in a database
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, userVisible = false)
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  public void UseDatabase(boolean useDatabase) {
+    this.useDatabase = useDatabase;
+    store = TinyDBStore.getStore(context, namespace, useDatabase);
+  }
+
+  /**
+   * Returns whether the data is kept in a database instead of in shared preferences.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, userVisible = false)
+  public boolean UseDatabase() {
+    return useDatabase;
+  }
+
   /**
    * Store the given `valueToStore`{:.variable.block} under the given `tag`{:.text.block}.
    * The storage persists on the phone when the app is restarted.
@@ -132,10 +164,8 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
   @SimpleFunction(description = "Store the given value under the given tag.  The storage persists "
       + "on the phone when the app is restarted.")
   public void StoreValue(final String tag, final Object valueToStore) {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
     try {
-      sharedPrefsEditor.putString(tag, JsonUtil.getJsonRepresentation(valueToStore));
-      sharedPrefsEditor.commit();
+      getStore().putValue(tag, JsonUtil.getJsonRepresentation(valueToStore));
     } catch (JSONException e) {
       throw new YailRuntimeError("Value failed to convert to JSON.", "JSON Creation Error.");
     }
@@ -154,10 +184,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
       + "such tag, then return valueIfTagNotThere.")
   public Object GetValue(final String tag, final Object valueIfTagNotThere) {
     try {
-      String value = sharedPreferences.getString(tag, "");
-      // If there's no entry with tag as a key then return the empty string.
-      //    was  return (value.length() == 0) ? "" : JsonUtil.getObjectFromJson(value);
-      return (value.length() == 0) ? valueIfTagNotThere : JsonUtil.getObjectFromJson(value, true);
+      return getStore().getValue(tag, valueIfTagNotThere);
     } catch (JSONException e) {
       throw new YailRuntimeError("Value failed to convert from JSON.", "JSON Creation Error.");
     }
@@ -170,10 +197,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Return a list of all the tags in the data store.")
   public Object GetTags() {
-    List<String> keyList = new ArrayList<String>();
-    Map<String,?> keyValues = sharedPreferences.getAll();
-    // here is the simple way to get keys
-    keyList.addAll(keyValues.keySet());
+    List<String> keyList = getStore().getTags();
     java.util.Collections.sort(keyList);
     return keyList;
   }
@@ -184,9 +208,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Clear the entire data store.")
   public void ClearAll() {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.clear();
-    sharedPrefsEditor.commit();
+    getStore().clear();
   }
 
   /**
@@ -196,15 +218,34 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Clear the entry with the given tag.")
   public void ClearTag(final String tag) {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.remove(tag);
-    sharedPrefsEditor.commit();
+    getStore().removeValue(tag);
+  }
+
+  /**
+   * Returns the store behind this component's namespace. Its cache and flush
+   * counters are useful for debugging.
+   */
+  public TinyDBStore getStore() {
+    // Another component may have moved the namespace to another backend
+    if (store.isReplaced()) {
+      store = TinyDBStore.getStore(context, namespace, useDatabase);
+    }
+    return store;
   }
 
   @Override
   public void onDelete() {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.clear();
-    sharedPrefsEditor.commit();
+    getStore().clear();
+    getStore().flush();
+  }
+
+  @Override
+  public void onPause() {
+    getStore().flush();
+  }
+
+  @Override
+  public void onStop() {
+    getStore().flush();
   }
 }
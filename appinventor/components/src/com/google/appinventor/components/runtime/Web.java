@@ -12,6 +12,8 @@ import static android.Manifest.permission.WRITE_EXTERNAL_STORAGE;
 
 import android.app.Activity;
 
+import android.os.SystemClock;
+
 import android.text.TextUtils;
 
 import android.util.Log;
@@ -55,13 +57,14 @@ import com.google.appinventor.components.runtime.util.XmlParser;
 import com.google.appinventor.components.runtime.util.YailDictionary;
 import com.google.appinventor.components.runtime.util.YailList;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 
@@ -79,6 +82,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import java.util.zip.GZIPInputStream;
+
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
@@ -158,6 +163,7 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     final boolean saveResponse;
     final String responseFileName;
     final int timeout;
+    final int responseTextChunkSize;
     final Map<String, List<String>> requestHeaders;
     final Map<String, List<String>> cookies;
 
@@ -168,6 +174,7 @@ public class Web extends AndroidNonvisibleComponent implements Component {
       saveResponse = web.saveResponse;
       responseFileName = web.responseFileName;
       timeout = web.timeout;
+      responseTextChunkSize = web.responseTextChunkSize;
       requestHeaders = processRequestHeaders(web.requestHeaders);
 
       Map<String, List<String>> cookiesTemp = null;
@@ -186,6 +193,9 @@ public class Web extends AndroidNonvisibleComponent implements Component {
 
   private static final String LOG_TAG = "Web";
 
+  // Size of the buffer used when copying request and response bodies.
+  private static final int COPY_BUFFER_SIZE = 0x2000;
+
   private static final Map<String, String> mimeTypeToExtension;
   static {
     mimeTypeToExtension = Maps.newHashMap();
@@ -213,6 +223,11 @@ public class Web extends AndroidNonvisibleComponent implements Component {
   private boolean saveResponse;
   private String responseFileName = "";
   private int timeout = 0;
+  private int responseTextChunkSize = 0;
+
+  // Timing of the most recently completed request, in milliseconds. Written on the request thread.
+  private volatile long lastResponseTime = 0;
+  private volatile long lastRequestDuration = 0;
 
   // whether we have permission to manipulate external storage (read and write, separately)
   // requests may need different combinations of permissions, so consider these independently.
@@ -394,6 +409,56 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     this.timeout = timeout;
   }
 
+  /**
+   * The maximum number of characters of response text delivered per
+   * {@link #GotTextChunk(String, int, String, String, boolean)} event. If set to 0 (the default),
+   * the whole response is delivered at once through the {@link #GotText(String, int, String, String)}
+   * event instead. Chunks let an app start processing a large response before all of it has
+   * arrived, and avoid holding the whole response in memory at once.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The maximum number of characters of response text delivered per " +
+          "GotTextChunk event. If set to 0, the whole response is delivered at once through " +
+          "the GotText event instead.")
+  public int ResponseTextChunkSize() {
+    return responseTextChunkSize;
+  }
+
+  /**
+   * Specifies the maximum number of characters of response text delivered per GotTextChunk event.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "0")
+  @SimpleProperty
+  public void ResponseTextChunkSize(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentError("Web ResponseTextChunkSize must be a non-negative integer.");
+    }
+    this.responseTextChunkSize = size;
+  }
+
+  /**
+   * The number of milliseconds between starting the most recent request and receiving the
+   * response headers from the server.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of milliseconds between starting the most recent request and " +
+          "receiving the response headers from the server.")
+  public long LastResponseTime() {
+    return lastResponseTime;
+  }
+
+  /**
+   * The number of milliseconds the most recent request took, from starting the request until
+   * the whole response had been received.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of milliseconds the most recent request took, from starting " +
+          "the request until the whole response had been received.")
+  public long LastRequestDuration() {
+    return lastRequestDuration;
+  }
+
   @SimpleFunction(description = "Clears all cookies for this Web component.")
   public void ClearCookies() {
     if (cookieHandler != null) {
@@ -776,6 +841,26 @@ public class Web extends AndroidNonvisibleComponent implements Component {
         responseContent);
   }
 
+  /**
+   * Event indicating that part of the response text has been received. This event is raised
+   * instead of {@link #GotText(String, int, String, String)} when
+   * {@link #ResponseTextChunkSize(int)} is greater than 0. The chunks arrive in order, and the
+   * last one has `isLast` set to `true`{:.logic.block}.
+   *
+   * @param url the URL used for the request
+   * @param responseCode the response code from the server
+   * @param responseType the mime type of the response
+   * @param chunk the next part of the response content
+   * @param isLast whether this is the final part of the response
+   */
+  @SimpleEvent
+  public void GotTextChunk(String url, int responseCode, String responseType, String chunk,
+      boolean isLast) {
+    // invoke the application's "GotTextChunk" event handler.
+    EventDispatcher.dispatchEvent(this, "GotTextChunk", url, responseCode, responseType, chunk,
+        isLast);
+  }
+
   /**
    * Event indicating that a request has finished.
    *
@@ -1184,8 +1269,13 @@ public class Web extends AndroidNonvisibleComponent implements Component {
 
     try {
       // Open the connection.
+      final long startTime = SystemClock.elapsedRealtime();
       HttpURLConnection connection = openConnection(webProps, httpVerb);
       if (connection != null) {
+        // Whether the response was read to the end. If so, the connection is left to
+        // HttpURLConnection's keep-alive pool rather than being disconnected, so that the next
+        // request to the same host can reuse it without a new TCP and TLS handshake.
+        boolean completed = false;
         try {
           if (postData != null) {
             writeRequestData(connection, postData);
@@ -1195,12 +1285,14 @@ public class Web extends AndroidNonvisibleComponent implements Component {
 
           // Get the response.
           final int responseCode = connection.getResponseCode();
+          lastResponseTime = SystemClock.elapsedRealtime() - startTime;
           final String responseType = getResponseType(connection);
           processResponseCookies(connection);
 
           if (saveResponse) {
             final String path = saveResponseContent(connection, webProps.responseFileName,
               responseType);
+            lastRequestDuration = SystemClock.elapsedRealtime() - startTime;
 
             // Dispatch the event.
             activity.runOnUiThread(new Runnable() {
@@ -1209,8 +1301,12 @@ public class Web extends AndroidNonvisibleComponent implements Component {
                   GotFile(webProps.urlString, responseCode, responseType, path);
                 }
               });
+          } else if (webProps.responseTextChunkSize > 0) {
+            streamResponseContent(connection, webProps, responseCode, responseType);
+            lastRequestDuration = SystemClock.elapsedRealtime() - startTime;
           } else {
             final String responseContent = getResponseContent(connection);
+            lastRequestDuration = SystemClock.elapsedRealtime() - startTime;
 
             // Dispatch the event.
             activity.runOnUiThread(new Runnable() {
@@ -1220,6 +1316,7 @@ public class Web extends AndroidNonvisibleComponent implements Component {
                 }
               });
           }
+          completed = true;
 
         } catch (SocketTimeoutException e) {
           // Dispatch timeout event.
@@ -1231,7 +1328,9 @@ public class Web extends AndroidNonvisibleComponent implements Component {
             });
           throw new RequestTimeoutException();
         } finally {
-          connection.disconnect();
+          if (!completed) {
+            connection.disconnect();
+          }
         }
       }
     } catch (PermissionException e) {
@@ -1299,13 +1398,23 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     }
 
     // Request Headers
+    boolean hasAcceptEncoding = false;
     for (Map.Entry<String, List<String>> header : webProps.requestHeaders.entrySet()) {
       String name = header.getKey();
+      if ("Accept-Encoding".equalsIgnoreCase(name)) {
+        hasAcceptEncoding = true;
+      }
       for (String value : header.getValue()) {
         connection.addRequestProperty(name, value);
       }
     }
 
+    // Ask for a compressed response unless the app asked for a specific encoding. The response
+    // is decompressed in getConnectionStream.
+    if (!hasAcceptEncoding) {
+      connection.setRequestProperty("Accept-Encoding", "gzip");
+    }
+
     // Cookies
     if (webProps.cookies != null) {
       for (Map.Entry<String, List<String>> cookie : webProps.cookies.entrySet()) {
@@ -1341,7 +1450,7 @@ public class Web extends AndroidNonvisibleComponent implements Component {
       throws IOException {
     // Use MediaUtil.openMedia to open the file. This means that path could be file on the SD card,
     // an asset, a contact picture, etc.
-    BufferedInputStream in = new BufferedInputStream(MediaUtil.openMedia(form, path));
+    InputStream in = MediaUtil.openMedia(form, path);
     try {
       // Write the file's data.
       // According to the documentation at
@@ -1350,15 +1459,9 @@ public class Web extends AndroidNonvisibleComponent implements Component {
       // been called.
       connection.setDoOutput(true); // This makes it something other than a HTTP GET.
       connection.setChunkedStreamingMode(0);
-      BufferedOutputStream out = new BufferedOutputStream(connection.getOutputStream());
+      OutputStream out = connection.getOutputStream();
       try {
-        while (true) {
-          int b = in.read();
-          if (b == -1) {
-            break;
-          }
-          out.write(b);
-        }
+        copy(in, out);
         out.flush();
       } finally {
         out.close();
@@ -1368,6 +1471,14 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     }
   }
 
+  private static void copy(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+  }
+
   private static String getResponseType(HttpURLConnection connection) {
     String responseType = connection.getContentType();
     return (responseType != null) ? responseType : "";
@@ -1386,13 +1497,33 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     }
   }
 
-  private static String getResponseContent(HttpURLConnection connection) throws IOException {
-    // Use the content encoding to convert bytes to characters.
-    String encoding = connection.getContentEncoding();
-    if (encoding == null) {
-      encoding = "UTF-8";
+  /*
+   * Returns the character set named in the response's Content-Type header, or UTF-8 if there is
+   * none. (The Content-Encoding header names a compression scheme such as gzip, not a character
+   * set.)
+   */
+  private static String getResponseCharset(HttpURLConnection connection) {
+    String contentType = connection.getContentType();
+    if (contentType != null) {
+      for (String param : contentType.split(";")) {
+        param = param.trim();
+        if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+          String charset = param.substring(8).trim();
+          if (charset.length() > 1 && charset.startsWith("\"") && charset.endsWith("\"")) {
+            charset = charset.substring(1, charset.length() - 1);
+          }
+          if (charset.length() > 0) {
+            return charset;
+          }
+        }
+      }
     }
-    InputStreamReader reader = new InputStreamReader(getConnectionStream(connection), encoding);
+    return "UTF-8";
+  }
+
+  private static String getResponseContent(HttpURLConnection connection) throws IOException {
+    InputStreamReader reader = new InputStreamReader(getConnectionStream(connection),
+        getResponseCharset(connection));
     try {
       int contentLength = connection.getContentLength();
       StringBuilder sb = (contentLength != -1)
@@ -1409,6 +1540,54 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     }
   }
 
+  /*
+   * Reads the response text in chunks of at most webProps.responseTextChunkSize characters and
+   * raises GotTextChunk for each one as it arrives, so that the whole response never has to be
+   * held in memory.
+   */
+  private void streamResponseContent(HttpURLConnection connection,
+      final CapturedProperties webProps, final int responseCode, final String responseType)
+      throws IOException {
+    InputStreamReader reader = new InputStreamReader(getConnectionStream(connection),
+        getResponseCharset(connection));
+    try {
+      char[] buf = new char[webProps.responseTextChunkSize];
+      String pending = null;
+      while (true) {
+        // Fill the buffer, since a single read may return less than a full chunk.
+        int filled = 0;
+        int read;
+        while (filled < buf.length && (read = reader.read(buf, filled, buf.length - filled)) != -1) {
+          filled += read;
+        }
+        if (filled == 0) {
+          break;
+        }
+        if (pending != null) {
+          dispatchTextChunk(webProps.urlString, responseCode, responseType, pending, false);
+        }
+        pending = new String(buf, 0, filled);
+        if (filled < buf.length) {
+          break;
+        }
+      }
+      dispatchTextChunk(webProps.urlString, responseCode, responseType,
+          pending == null ? "" : pending, true);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void dispatchTextChunk(final String url, final int responseCode,
+      final String responseType, final String chunk, final boolean isLast) {
+    activity.runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          GotTextChunk(url, responseCode, responseType, chunk, isLast);
+        }
+      });
+  }
+
   private String saveResponseContent(HttpURLConnection connection,
       String responseFileName, String responseType) throws IOException {
     File file = createFile(responseFileName, responseType);
@@ -1420,18 +1599,12 @@ public class Web extends AndroidNonvisibleComponent implements Component {
           parent.getAbsolutePath());
     }
 
-    BufferedInputStream in = new BufferedInputStream(getConnectionStream(connection), 0x1000);
+    InputStream in = getConnectionStream(connection);
     try {
-      BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file), 0x1000);
+      OutputStream out = new FileOutputStream(file);
       try {
         // Copy the contents from the input stream to the output stream.
-        while (true) {
-          int b = in.read();
-          if (b == -1) {
-            break;
-          }
-          out.write(b);
-        }
+        copy(in, out);
         out.flush();
       } finally {
         out.close();
@@ -1443,18 +1616,34 @@ public class Web extends AndroidNonvisibleComponent implements Component {
     return file.getAbsolutePath();
   }
 
-  private static InputStream getConnectionStream(HttpURLConnection connection) throws SocketTimeoutException {
+  @VisibleForTesting
+  static InputStream getConnectionStream(HttpURLConnection connection)
+      throws IOException {
     // According to the Android reference documentation for HttpURLConnection: If the HTTP response
     // indicates that an error occurred, getInputStream() will throw an IOException. Use
     // getErrorStream() to read the error response.
+    InputStream in;
     try {
-      return connection.getInputStream();
+      in = connection.getInputStream();
     } catch (SocketTimeoutException e) {
       throw e; //Rethrow exception - should not attempt to read stream for timeouts
     } catch (IOException e1) {
       // Use the error response for all other IO Exceptions.
-      return connection.getErrorStream();
+      in = connection.getErrorStream();
+    }
+    // Decompress the response if the server honored our Accept-Encoding header. Responses such
+    // as those to HEAD requests, 204 and 304 have no body even when they carry the header, and
+    // GZIPInputStream fails on an empty stream, so only wrap a body that has at least one byte.
+    if (in != null && "gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+      PushbackInputStream body = new PushbackInputStream(in, 1);
+      int first = body.read();
+      if (first == -1) {
+        return body;
+      }
+      body.unread(first);
+      in = new GZIPInputStream(body, COPY_BUFFER_SIZE);
     }
+    return in;
   }
 
   private File createFile(String fileName, String responseType)
@@ -10,7 +10,6 @@ import com.google.appinventor.components.runtime.ReplForm;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.Formatter;
 import java.util.List;
 import java.util.Properties;
 import java.io.File;
@@ -19,6 +18,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.security.GeneralSecurityException;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -48,9 +48,36 @@ public class AppInvHTTPD extends NanoHTTPD {
   private static final int YAV_SKEW_FORWARD = 1;
   private static final int YAV_SKEW_BACKWARD = 4;
   private static final String LOG_TAG = "AppInvHTTPD";
-  private static byte[] hmacKey;
+  private static volatile byte[] hmacKey;
   private static int seq;
   private static final String MIME_JSON = "application/json"; // Other mime types defined in NanoHTTPD
+  private static final String REPL_PREFIX =
+      "(begin (require <com.google.youngandroid.runtime>) (process-repl-input ";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // The Mac of each HTTPD session thread and the key it was initialized with. Getting a Mac is
+  // slow and a Mac cannot be shared between threads, so each thread keeps its own and initializes
+  // it again only when the key changes.
+  private static class HmacState {
+    Mac mac;
+    byte[] key;
+  }
+
+  private static final ThreadLocal<HmacState> hmacState = new ThreadLocal<HmacState>() {
+    @Override
+    protected HmacState initialValue() {
+      return new HmacState();
+    }
+  };
+
+  // Metrics for /_newblocks requests, reported by /_metrics. Guarded by metricsLock.
+  private static final Object metricsLock = new Object();
+  private static long requestCount;
+  private static long batchCount;
+  private static long formCount;
+  private static long failedFormCount;
+  private static long totalRequestNanos;
+  private static long maxRequestNanos;
   private final Handler androidUIHandler = new Handler();
 
   public AppInvHTTPD( int port, File wwwroot, boolean secure, ReplForm form) throws IOException
@@ -119,69 +146,32 @@ public class AppInvHTTPD extends NanoHTTPD {
 
     if (uri.equals("/_newblocks")) { // Handle AJAX calls from the newblocks code
       adoptMainThreadClassLoader();
+      long startTime = System.nanoTime();
       String inSeq = parms.getProperty("seq", "0");
-      int iseq = Integer.parseInt(inSeq);
+      String inMac = parms.getProperty("mac", "no key provided");
+      String forms = parms.getProperty("forms");
+      if (forms != null) {      // A batch of forms from a newer blocks editor
+        Response res = checkRequest(forms + inSeq, inSeq, inMac);
+        if (res == null) {
+          res = evalBatch(forms, startTime);
+        }
+        return res;
+      }
       String blockid = parms.getProperty("blockid");
       String code = parms.getProperty("code");
-      String inMac = parms.getProperty("mac", "no key provided");
-      String compMac = "";
       String input_code = code;
-      if (hmacKey != null) {
-        try {
-          Mac hmacSha1 = Mac.getInstance("HmacSHA1");
-          SecretKeySpec key = new SecretKeySpec(hmacKey, "RAW");
-          hmacSha1.init(key);
-          byte [] tmpMac = hmacSha1.doFinal((code + inSeq + blockid).getBytes());
-          StringBuffer sb = new StringBuffer(tmpMac.length * 2);
-          Formatter formatter = new Formatter(sb);
-          for (byte b : tmpMac)
-            formatter.format("%02x", b);
-          compMac = sb.toString();
-        } catch (Exception e) {
-          Log.e(LOG_TAG, "Error working with hmac", e);
-          form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
-            ErrorMessages.ERROR_REPL_SECURITY_ERROR, "Exception working on HMAC");
-          Response res = new Response(HTTP_OK, MIME_PLAINTEXT, "NOT");
-          return(res);
-        }
-        Log.d(LOG_TAG, "Incoming Mac = " + inMac);
-        Log.d(LOG_TAG, "Computed Mac = " + compMac);
-        Log.d(LOG_TAG, "Incoming seq = " + inSeq);
-        Log.d(LOG_TAG, "Computed seq = " + seq);
-        Log.d(LOG_TAG, "blockid = " + blockid);
-        if (!inMac.equals(compMac)) {
-          Log.e(LOG_TAG, "Hmac does not match");
-          form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
-            ErrorMessages.ERROR_REPL_SECURITY_ERROR, "Invalid HMAC");
-          Response res = new Response(HTTP_OK, MIME_JSON, "{\"status\" : \"BAD\", \"message\" : \"Security Error: Invalid MAC\"}");
-          return(res);
-        }
-        if ((seq != iseq) && (seq != (iseq+1))) {
-          Log.e(LOG_TAG, "Seq does not match");
-          form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
-            ErrorMessages.ERROR_REPL_SECURITY_ERROR, "Invalid Seq");
-          Response res = new Response(HTTP_OK, MIME_JSON, "{\"status\" : \"BAD\", \"message\" : \"Security Error: Invalid Seq\"}");
-          return(res);
-        }
-        // Seq Fixup: Sometimes the Companion doesn't increment it's seq if it is in the middle of a project switch
-        // so we tolerate an off-by-one here.
-        if (seq == (iseq+1))
-          Log.e(LOG_TAG, "Seq Fixup Invoked");
-        seq = iseq + 1;
-      } else {                  // No hmacKey
-        Log.e(LOG_TAG, "No HMAC Key");
-        form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
-          ErrorMessages.ERROR_REPL_SECURITY_ERROR, "No HMAC Key");
-        Response res = new Response(HTTP_OK, MIME_JSON, "{\"status\" : \"BAD\", \"message\" : \"Security Error: No HMAC Key\"}");
-        return(res);
+      Log.d(LOG_TAG, "blockid = " + blockid);
+      Response check = checkRequest(code + inSeq + blockid, inSeq, inMac);
+      if (check != null) {
+        return check;
       }
 
-      code = "(begin (require <com.google.youngandroid.runtime>) (process-repl-input " + blockid + " (begin " +
-        code + " )))";
+      code = REPL_PREFIX + blockid + " (begin " + code + " )))";
 
       Log.d(LOG_TAG, "To Eval: " + code);
 
       Response res;
+      int failures = 0;
       try {
         // Don't evaluate a simple "#f" which is used by the poller
         if (input_code.equals("#f")) {
@@ -192,9 +182,11 @@ public class AppInvHTTPD extends NanoHTTPD {
         res = new Response(HTTP_OK, MIME_JSON, RetValManager.fetch(false));
       } catch (Throwable ex) {
         Log.e(LOG_TAG, "newblocks: Scheme Failure", ex);
-        RetValManager.appendReturnValue(blockid, "BAD", ex.toString());
+        RetValManager.appendReturnValue(unquote(blockid), "BAD", ex.toString());
         res = new Response(HTTP_OK, MIME_JSON, RetValManager.fetch(false));
+        failures = 1;
       }
+      recordRequest(false, 1, failures, startTime);
       res.addHeader("Access-Control-Allow-Origin", "*");
       res.addHeader("Access-Control-Allow-Headers", "origin, content-type");
       res.addHeader("Access-Control-Allow-Methods", "POST,OPTIONS,GET,HEAD,PUT");
@@ -250,6 +242,8 @@ public class AppInvHTTPD extends NanoHTTPD {
       return (res);
     } else if (uri.equals("/_extensions")) {
       return processLoadExtensionsRequest(parms);
+    } else if (uri.equals("/_metrics")) {
+      return json(getMetrics());
     }
 
     if (method.equals("PUT")) { // Asset File Upload for newblocks
@@ -305,6 +299,178 @@ public class AppInvHTTPD extends NanoHTTPD {
     return serveFile( uri, header, rootDir, true );
   }
 
+  /**
+   * Checks the MAC and sequence number of a /_newblocks request, and advances the sequence number
+   * if they are valid.
+   *
+   * @param macInput the content of the request that the MAC covers
+   * @param inSeq the sequence number of the request
+   * @param inMac the MAC sent with the request
+   * @return null if the request may be evaluated, otherwise the response to send
+   */
+  private Response checkRequest(String macInput, String inSeq, String inMac) {
+    int iseq = Integer.parseInt(inSeq);
+    String compMac;
+    if (hmacKey != null) {
+      try {
+        compMac = computeMac(macInput);
+      } catch (Exception e) {
+        Log.e(LOG_TAG, "Error working with hmac", e);
+        form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
+          ErrorMessages.ERROR_REPL_SECURITY_ERROR, "Exception working on HMAC");
+        Response res = new Response(HTTP_OK, MIME_PLAINTEXT, "NOT");
+        return(res);
+      }
+      Log.d(LOG_TAG, "Incoming Mac = " + inMac);
+      Log.d(LOG_TAG, "Computed Mac = " + compMac);
+      Log.d(LOG_TAG, "Incoming seq = " + inSeq);
+      Log.d(LOG_TAG, "Computed seq = " + seq);
+      if (!inMac.equals(compMac)) {
+        Log.e(LOG_TAG, "Hmac does not match");
+        form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
+          ErrorMessages.ERROR_REPL_SECURITY_ERROR, "Invalid HMAC");
+        Response res = new Response(HTTP_OK, MIME_JSON, "{\"status\" : \"BAD\", \"message\" : \"Security Error: Invalid MAC\"}");
+        return(res);
+      }
+      if ((seq != iseq) && (seq != (iseq+1))) {
+        Log.e(LOG_TAG, "Seq does not match");
+        form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
+          ErrorMessages.ERROR_REPL_SECURITY_ERROR, "Invalid Seq");
+        Response res = new Response(HTTP_OK, MIME_JSON, "{\"status\" : \"BAD\", \"message\" : \"Security Error: Invalid Seq\"}");
+        return(res);
+      }
+      // Seq Fixup: Sometimes the Companion doesn't increment it's seq if it is in the middle of a project switch
+      // so we tolerate an off-by-one here.
+      if (seq == (iseq+1))
+        Log.e(LOG_TAG, "Seq Fixup Invoked");
+      seq = iseq + 1;
+      return null;
+    } else {                  // No hmacKey
+      Log.e(LOG_TAG, "No HMAC Key");
+      form.dispatchErrorOccurredEvent(form, "AppInvHTTPD",
+        ErrorMessages.ERROR_REPL_SECURITY_ERROR, "No HMAC Key");
+      Response res = new Response(HTTP_OK, MIME_JSON, "{\"status\" : \"BAD\", \"message\" : \"Security Error: No HMAC Key\"}");
+      return(res);
+    }
+  }
+
+  /**
+   * Computes the HMAC-SHA1 of the input with the current key, as lowercase hex digits.
+   */
+  private static String computeMac(String input) throws GeneralSecurityException {
+    HmacState state = hmacState.get();
+    byte[] key = hmacKey;
+    if (state.mac == null) {
+      state.mac = Mac.getInstance("HmacSHA1");
+    }
+    if (state.key != key) {
+      state.mac.init(new SecretKeySpec(key, "RAW"));
+      state.key = key;
+    }
+    byte[] tmpMac = state.mac.doFinal(input.getBytes());
+    char[] hex = new char[tmpMac.length * 2];
+    for (int i = 0; i < tmpMac.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(tmpMac[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX_DIGITS[tmpMac[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Evaluates a batch of forms sent by the blocks editor in one request. The batch is a JSON
+   * array of objects, each with the "blockid" and "code" that a single request would carry. Each
+   * form is evaluated on its own, so an error in one form is reported against its block and the
+   * forms after it are still evaluated. Results are returned as they arrive, by this response or
+   * by the /_values poll, rather than after the whole batch has run.
+   *
+   * @param forms the JSON encoded batch
+   * @param startTime the value of System.nanoTime() when the request arrived
+   */
+  private Response evalBatch(String forms, long startTime) {
+    JSONArray batch;
+    try {
+      batch = new JSONArray(forms);
+    } catch (JSONException e) {
+      return error(e);
+    }
+    Log.d(LOG_TAG, "Evaluating a batch of " + batch.length() + " forms");
+    StringBuilder code = new StringBuilder();
+    int failures = 0;
+    for (int i = 0; i < batch.length(); i++) {
+      JSONObject item = batch.optJSONObject(i);
+      String blockid = item == null ? null : item.optString("blockid", null);
+      String inputCode = item == null ? null : item.optString("code", null);
+      if (blockid == null || inputCode == null) {
+        return error("Invalid JSON content at index " + i);
+      }
+      // Don't evaluate a simple "#f" which is used by the poller
+      if (inputCode.equals("#f")) {
+        continue;
+      }
+      code.setLength(0);
+      code.append(REPL_PREFIX).append(blockid).append(" (begin ").append(inputCode)
+          .append(" )))");
+      try {
+        scheme.eval(code.toString());
+      } catch (Throwable ex) {
+        Log.e(LOG_TAG, "newblocks: Scheme Failure", ex);
+        RetValManager.appendReturnValue(unquote(blockid), "BAD", ex.toString());
+        failures++;
+      }
+    }
+    recordRequest(true, batch.length(), failures, startTime);
+    return json(RetValManager.fetch(false));
+  }
+
+  /**
+   * Removes the quotes around a block id. The blocks editor quotes block ids so they can be
+   * pasted into Scheme code, but process-repl-input reports them without the quotes.
+   */
+  private static String unquote(String blockid) {
+    if (blockid != null && blockid.length() >= 2 && blockid.startsWith("\"")
+        && blockid.endsWith("\"")) {
+      return blockid.substring(1, blockid.length() - 1);
+    }
+    return blockid;
+  }
+
+  private static void recordRequest(boolean batch, int forms, int failures, long startTime) {
+    long elapsed = System.nanoTime() - startTime;
+    synchronized (metricsLock) {
+      requestCount++;
+      if (batch) {
+        batchCount++;
+      }
+      formCount += forms;
+      failedFormCount += failures;
+      totalRequestNanos += elapsed;
+      maxRequestNanos = Math.max(maxRequestNanos, elapsed);
+    }
+  }
+
+  /**
+   * Returns the /_newblocks metrics as JSON. Times are the time from receiving a request to
+   * sending its response, in milliseconds.
+   */
+  private static String getMetrics() {
+    JSONObject result = new JSONObject();
+    synchronized (metricsLock) {
+      try {
+        result.put("status", "OK");
+        result.put("requests", requestCount);
+        result.put("batches", batchCount);
+        result.put("forms", formCount);
+        result.put("failedForms", failedFormCount);
+        result.put("averageMillis",
+            requestCount == 0 ? 0 : totalRequestNanos / requestCount / 1000000.0);
+        result.put("maxMillis", maxRequestNanos / 1000000.0);
+      } catch (JSONException e) {
+        Log.wtf(LOG_TAG, "Unable to write basic JSON content", e);
+      }
+    }
+    return result.toString();
+  }
+
   private boolean copyFile(File infile, File outfile) {
     try {
       FileInputStream in = new FileInputStream(infile);
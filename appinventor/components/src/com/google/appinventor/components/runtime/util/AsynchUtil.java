@@ -11,11 +11,41 @@ import android.os.Looper;
 
 import android.util.Log;
 
+import com.google.appinventor.components.runtime.Form;
+import com.google.appinventor.components.runtime.OnDestroyListener;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Utilities for handling asynchronous calls.
  *
+ * Asynchronous calls run on shared thread pools rather than on a new thread
+ * per call. The I/O pool is meant for work that mostly waits on the network
+ * or on storage but finishes in bounded time. It reuses idle threads, grows
+ * up to {@link #IO_POOL_MAX_SIZE} threads and queues any further work. Calls
+ * that may block indefinitely, such as waiting for a connection, use
+ * {@link #runBlockingAsynchronously(Runnable)} instead, which never queues, so
+ * that they can't hold up each other or the I/O pool. Calls made while a
+ * {@link Form} is active that have not started when that Form is destroyed
+ * are dropped.
+ *
  * @author markf@google.com (Mark Friedman)
  */
 
@@ -23,17 +53,246 @@ public class AsynchUtil {
 
   private static final String LOG_TAG = AsynchUtil.class.getSimpleName();
 
+  // Maximum number of threads running I/O-bound calls at once. These mostly
+  // block on sockets and files, so this is well above the number of cores.
+  private static final int IO_POOL_MAX_SIZE = 16;
+
+  // How long an idle thread is kept around for reuse.
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private static final ThreadPoolExecutor IO_EXECUTOR =
+      newIoExecutor(IO_POOL_MAX_SIZE, "AsynchUtil-io");
+
+  // Starts a thread for every call that finds no idle one
+  private static final ThreadPoolExecutor BLOCKING_EXECUTOR = new ThreadPoolExecutor(
+      0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new SynchronousQueue<Runnable>(), new NamedThreadFactory("AsynchUtil-blocking"));
+
+  // Calls that have not yet finished, by the Form that was active when they were made.
+  private static final Map<Object, Set<FormTask>> PENDING_TASKS =
+      new WeakHashMap<Object, Set<FormTask>>();
+
+  /**
+   * Names pool threads so that they can be told apart in stack traces and
+   * profilers.
+   */
+  private static class NamedThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    NamedThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      return new Thread(runnable, prefix + "-" + count.incrementAndGet());
+    }
+  }
+
+  /**
+   * Executor for the I/O pool. A {@link ThreadPoolExecutor} only starts
+   * threads beyond its core size when its queue refuses work, so its queue
+   * refuses work while every thread has a call to run and the pool can still
+   * grow. That way idle threads are reused, new threads are started up to the
+   * maximum, and only then is work queued. Calls are counted from the moment
+   * they are submitted, since a call handed to a newly started thread does not
+   * show up in {@link #getActiveCount()} straight away.
+   */
+  private static class IoExecutor extends ThreadPoolExecutor {
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+
+    IoExecutor(int maxSize, String name, IoQueue queue) {
+      super(0, maxSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, new NamedThreadFactory(name),
+          queue);
+      queue.executor = this;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+      outstanding.incrementAndGet();
+      super.execute(runnable);
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+      outstanding.decrementAndGet();
+    }
+
+    @Override
+    public boolean remove(Runnable runnable) {
+      if (super.remove(runnable)) {
+        outstanding.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Work queue for the I/O pool; see {@link IoExecutor}.
+   */
+  private static class IoQueue extends LinkedBlockingQueue<Runnable>
+      implements RejectedExecutionHandler {
+    private IoExecutor executor;
+
+    @Override
+    public boolean offer(Runnable runnable) {
+      if (executor.getPoolSize() < executor.getMaximumPoolSize()
+          && executor.outstanding.get() > executor.getPoolSize()) {
+        return false;
+      }
+      return super.offer(runnable);
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+      // The pool reached its maximum size between the queue's check and the
+      // attempt to start a thread, so queue the call instead.
+      super.offer(runnable);
+    }
+  }
+
+  static ThreadPoolExecutor newIoExecutor(int maxSize, String name) {
+    return new IoExecutor(maxSize, name, new IoQueue());
+  }
+
   /**
-   * Make an asynchronous call in a separate thread.
+   * A call that is tracked against the Form that was active when it was made,
+   * so that it can be cancelled when the Form is destroyed.
+   */
+  private static class FormTask extends FutureTask<Void> {
+    private final Object form;
+    private final ThreadPoolExecutor executor;
+
+    FormTask(Object form, ThreadPoolExecutor executor, Runnable call) {
+      super(call, null);
+      this.form = form;
+      this.executor = executor;
+    }
+
+    @Override
+    protected void done() {
+      if (form != null) {
+        synchronized (PENDING_TASKS) {
+          Set<FormTask> tasks = PENDING_TASKS.get(form);
+          if (tasks != null) {
+            tasks.remove(this);
+          }
+        }
+      }
+      try {
+        get();
+      } catch (CancellationException e) {
+        // Cancelled because the Form was destroyed.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        // Report the failure the same way an uncaught exception on a plain
+        // thread would have been reported.
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e.getCause());
+      }
+    }
+  }
+
+  private static void submit(ThreadPoolExecutor executor, Runnable call) {
+    submit(executor, Form.getActiveForm(), call);
+  }
+
+  /**
+   * Runs call on executor, tracked against form (a {@link Form}, or any other
+   * object in tests) unless it is null.
+   */
+  static Future<Void> submit(ThreadPoolExecutor executor, Object form, Runnable call) {
+    FormTask task = new FormTask(form, executor, call);
+    if (form != null) {
+      boolean firstForForm;
+      synchronized (PENDING_TASKS) {
+        Set<FormTask> tasks = PENDING_TASKS.get(form);
+        firstForForm = tasks == null;
+        if (firstForForm) {
+          tasks = new HashSet<FormTask>();
+          PENDING_TASKS.put(form, tasks);
+        }
+        tasks.add(task);
+      }
+      if (firstForForm && form instanceof Form) {
+        cancelWhenDestroyed((Form) form);
+      }
+    }
+    executor.execute(task);
+    return task;
+  }
+
+  private static void cancelWhenDestroyed(final Form form) {
+    final OnDestroyListener listener = new OnDestroyListener() {
+      @Override
+      public void onDestroy() {
+        cancelPendingCalls(form);
+      }
+    };
+    // Form listeners may only be registered from the UI thread.
+    if (isUiThread()) {
+      form.registerForOnDestroy(listener);
+    } else {
+      form.runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          form.registerForOnDestroy(listener);
+        }
+      });
+    }
+  }
+
+  /**
+   * Cancels the asynchronous calls made while the given Form was active that
+   * have not yet started. Running calls are left to finish, since interrupting
+   * them could leave a write or a transfer half done.
+   *
+   * @param form the Form whose calls should be cancelled
+   */
+  public static void cancelPendingCalls(Form form) {
+    cancelPendingCalls((Object) form);
+  }
+
+  static void cancelPendingCalls(Object form) {
+    List<FormTask> tasks;
+    synchronized (PENDING_TASKS) {
+      Set<FormTask> pending = PENDING_TASKS.remove(form);
+      if (pending == null) {
+        return;
+      }
+      tasks = new ArrayList<FormTask>(pending);
+    }
+    for (FormTask task : tasks) {
+      task.cancel(false);
+      task.executor.remove(task);
+    }
+  }
+
+  /**
+   * Make an asynchronous call on the shared I/O thread pool.
    * @param call a {@link Runnable} to run in the thread.
    */
   public static void runAsynchronously(final Runnable call) {
-    Thread thread = new Thread(call);
-    thread.start();
+    submit(IO_EXECUTOR, call);
+  }
+
+  /**
+   * Make an asynchronous call that may block for a long or unbounded time,
+   * such as accepting a connection, on a thread of its own (reused once it is
+   * idle). Such calls must not use {@link #runAsynchronously(Runnable)}, where
+   * enough of them would leave every I/O thread waiting.
+   * @param call a {@link Runnable} to run in the thread.
+   */
+  public static void runBlockingAsynchronously(final Runnable call) {
+    submit(BLOCKING_EXECUTOR, call);
   }
+
   /**
-   * Make an asynchronous call in a separate thread, with a callback that's run on the current
-   * Android UI thread.
+   * Make an asynchronous call on the shared I/O thread pool, with a callback that's run on the
+   * current Android UI thread.
    * @param androidUIHandler  the Handler from the current Android context
    * @param call a {@link Runnable} to run in the thread.
    * @param callback a {@link Runnable} to run in the Android UI thread when the call above returns
@@ -53,8 +312,28 @@ public class AsynchUtil {
         }
       }
     };
-    Thread thread = new Thread(runnable);
-    thread.start();
+    submit(IO_EXECUTOR, runnable);
+  }
+
+  /**
+   * Returns the number of I/O calls waiting for a thread.
+   */
+  public static int getIoQueueLength() {
+    return IO_EXECUTOR.getQueue().size();
+  }
+
+  /**
+   * Returns the number of I/O calls currently running.
+   */
+  public static int getIoActiveCount() {
+    return IO_EXECUTOR.getActiveCount();
+  }
+
+  /**
+   * Returns the number of blocking calls currently running.
+   */
+  public static int getBlockingActiveCount() {
+    return BLOCKING_EXECUTOR.getActiveCount();
   }
 
   public static boolean isUiThread() {
@@ -0,0 +1,301 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the operations that a {@link com.google.appinventor.components.runtime.CloudDB}
+ * component issues in quick succession and sends them to the server as a single batch (a Redis
+ * pipeline), so that an app which reads or writes dozens of tags from one event handler pays for
+ * one network round trip instead of dozens.
+ *
+ * Operations are executed in the order in which they were added, and the result of each one is
+ * handed back to the {@link Callback} supplied with it. Consecutive stores to the same tag are
+ * coalesced into a single store, just as the original CloudDB store queue did: only the last
+ * value is written, but every value is published to the other devices listening on the project.
+ *
+ * The batcher itself does no I/O. The actual work is done by a {@link Backend}, which lets the
+ * batching logic be tested against an in-memory stand-in for the Redis server.
+ */
+public class CloudDBBatcher {
+
+  /**
+   * The kinds of operations that can be batched.
+   */
+  public enum OpType {
+    GET,
+    STORE,
+    APPEND,
+    POP_FIRST,
+    CLEAR
+  }
+
+  /**
+   * Receives the outcome of a single batched operation. Callbacks are invoked on the thread
+   * that calls {@link #flush()}, in the order the operations were added.
+   */
+  public interface Callback {
+    void onResult(Object result);
+    void onError(Exception e);
+  }
+
+  /**
+   * Executes a batch of operations against the server.
+   */
+  public interface Backend {
+    /**
+     * Executes {@code batch} in order, in as few round trips as possible.
+     *
+     * @param batch the operations to execute
+     * @return one entry per operation, in the same order. An operation that failed on the
+     *     server has the resulting {@link Exception} as its entry. An operation that the server
+     *     didn't execute, but will once the backend has recovered, has a
+     *     {@link RetryableException}.
+     * @throws RuntimeException if the batch as a whole could not be executed, for example
+     *     because the connection to the server was lost
+     */
+    List<Object> execute(List<Operation> batch);
+  }
+
+  /**
+   * The entry a {@link Backend} returns for an operation that the server didn't execute but
+   * will after the backend has recovered, for example a script call after the server lost its
+   * scripts. The batcher executes the batch again from the first such operation, once, so that
+   * the retried operations and the ones after them still run in order.
+   */
+  public static class RetryableException extends RuntimeException {
+    public RetryableException(Exception cause) {
+      super(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * A single pending operation.
+   */
+  public static final class Operation {
+    private final OpType type;
+    private final String tag;
+    private final String value;
+    private final List<String> published;
+    private final Callback callback;
+
+    public Operation(OpType type, String tag, String value, Callback callback) {
+      this(type, tag, value, type == OpType.STORE ? Collections.singletonList(value) : null,
+          callback);
+    }
+
+    private Operation(OpType type, String tag, String value, List<String> published,
+        Callback callback) {
+      this.type = type;
+      this.tag = tag;
+      this.value = value;
+      this.published = published;
+      this.callback = callback;
+    }
+
+    public OpType getType() {
+      return type;
+    }
+
+    public String getTag() {
+      return tag;
+    }
+
+    /**
+     * Returns the JSON value to store or append, or null for operations that take no value.
+     */
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * Returns every value written by a (possibly coalesced) store, oldest first. These are the
+     * values that are published to listening devices.
+     */
+    public List<String> getPublishedValues() {
+      return published;
+    }
+
+    public Callback getCallback() {
+      return callback;
+    }
+
+    private Operation coalesce(Operation next) {
+      List<String> values = new ArrayList<String>(published.size() + 1);
+      values.addAll(published);
+      values.add(next.value);
+      return new Operation(OpType.STORE, tag, next.value, values, next.callback);
+    }
+  }
+
+  private final Backend backend;
+  private final List<Operation> pending = new ArrayList<Operation>();
+
+  // Metrics, guarded by this
+  private int batchCount = 0;
+  private long operationCount = 0;
+  private int lastBatchSize = 0;
+  private int maxBatchSize = 0;
+  private long lastBatchLatency = 0;
+  private long totalBatchLatency = 0;
+
+  public CloudDBBatcher(Backend backend) {
+    this.backend = backend;
+  }
+
+  /**
+   * Adds an operation to the current batch.
+   *
+   * @param op the operation to add
+   * @return true if the batch was empty, meaning that the caller must arrange for
+   *     {@link #flush()} to be called
+   */
+  public synchronized boolean add(Operation op) {
+    pending.add(op);
+    return pending.size() == 1;
+  }
+
+  /**
+   * Returns the number of operations waiting for the next flush.
+   */
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Drops every pending operation without executing it.
+   */
+  public synchronized void discard() {
+    pending.clear();
+  }
+
+  /**
+   * Executes every pending operation as one batch and dispatches the results to the operations'
+   * callbacks. Operations added while the batch is executing are left for the next flush. If
+   * the backend reports operations it didn't execute, the batch is sent again from the first of
+   * them (see {@link RetryableException}).
+   *
+   * @return the number of operations sent to the server, after coalescing
+   * @throws RuntimeException if the backend fails to execute the batch. The operations in the
+   *     failed batch are dropped and none of their callbacks are invoked.
+   */
+  public int flush() {
+    List<Operation> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      batch = coalesce(pending);
+      pending.clear();
+    }
+    List<Object> results = execute(batch);
+    int retryFrom = firstRetryable(results);
+    if (retryFrom != -1) {
+      // Operations after the first retryable one may have run against state the retried ones
+      // would have changed, so they are all executed again, in order
+      List<Object> retried = execute(batch.subList(retryFrom, batch.size()));
+      results = new ArrayList<Object>(results.subList(0, retryFrom));
+      results.addAll(retried);
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      Callback callback = batch.get(i).getCallback();
+      Object result = i < results.size() ? results.get(i) : null;
+      if (callback == null) {
+        continue;
+      } else if (result instanceof Exception) {
+        callback.onError((Exception) result);
+      } else {
+        callback.onResult(result);
+      }
+    }
+    return batch.size();
+  }
+
+  private List<Object> execute(List<Operation> batch) {
+    long start = System.nanoTime();
+    List<Object> results = backend.execute(batch);
+    long latency = (System.nanoTime() - start) / 1000000L;
+    synchronized (this) {
+      batchCount++;
+      operationCount += batch.size();
+      lastBatchSize = batch.size();
+      maxBatchSize = Math.max(maxBatchSize, lastBatchSize);
+      lastBatchLatency = latency;
+      totalBatchLatency += latency;
+    }
+    return results;
+  }
+
+  private static int firstRetryable(List<Object> results) {
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) instanceof RetryableException) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of batches sent to the server.
+   */
+  public synchronized int getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Returns the total number of operations sent to the server, after coalescing.
+   */
+  public synchronized long getOperationCount() {
+    return operationCount;
+  }
+
+  /**
+   * Returns the number of operations in the most recent batch.
+   */
+  public synchronized int getLastBatchSize() {
+    return lastBatchSize;
+  }
+
+  /**
+   * Returns the number of operations in the largest batch sent so far.
+   */
+  public synchronized int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Returns how long, in milliseconds, the most recent batch took to execute.
+   */
+  public synchronized long getLastBatchLatency() {
+    return lastBatchLatency;
+  }
+
+  /**
+   * Returns the average time, in milliseconds, that a batch took to execute.
+   */
+  public synchronized long getAverageBatchLatency() {
+    return batchCount == 0 ? 0 : totalBatchLatency / batchCount;
+  }
+
+  private static List<Operation> coalesce(List<Operation> ops) {
+    List<Operation> result = new ArrayList<Operation>(ops.size());
+    Operation last = null;
+    for (Operation op : ops) {
+      if (last != null && last.type == OpType.STORE && op.type == OpType.STORE
+          && last.tag.equals(op.tag)) {
+        last = last.coalesce(op);
+        result.set(result.size() - 1, last);
+      } else {
+        result.add(op);
+        last = op;
+      }
+    }
+    return result;
+  }
+}
@@ -49,7 +49,17 @@ public final class ContinuationUtil {
    */
   public static <T> void callWithContinuation(final Callable<T> block,
       final Continuation<T> continuation) {
-    AsynchUtil.runAsynchronously(new Runnable() {
+    callWithContinuation(block, continuation, false);
+  }
+
+  /**
+   * Like {@link #callWithContinuation(Callable, Continuation)}, but if {@code blocking} is true
+   * the block runs on a thread of its own instead of possibly waiting for a shared one. Use this
+   * when a thread waits for the result, which could otherwise wait for threads waiting for it.
+   */
+  private static <T> void callWithContinuation(final Callable<T> block,
+      final Continuation<T> continuation, boolean blocking) {
+    Runnable call = new Runnable() {
       @Override
       public void run() {
         try {
@@ -59,7 +69,12 @@ public final class ContinuationUtil {
           throw new RuntimeException(e);
         }
       }
-    });
+    };
+    if (blocking) {
+      AsynchUtil.runBlockingAsynchronously(call);
+    } else {
+      AsynchUtil.runAsynchronously(call);
+    }
   }
 
   /**
@@ -91,7 +106,7 @@ public final class ContinuationUtil {
           result.wakeup(value);
         }
       }
-    });
+    }, true);
     Throwable error = result.getThrowable();
     if (error != null) {
       if (error instanceof RuntimeException) {
@@ -15,6 +15,10 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * Implementation of various date and time related runtime functions.
@@ -62,6 +66,87 @@ public final class Dates {
   public static final int DATE_NOVEMBER = Calendar.NOVEMBER;
   public static final int DATE_DECEMBER = Calendar.DECEMBER;
 
+  // The number of formatters each thread keeps. This covers the patterns DateValue tries plus a
+  // few used by the app.
+  private static final int FORMATTER_CACHE_SIZE = 16;
+
+  private static final String[] DATE_VALUE_FORMATS = {
+    "MM/dd/yyyy hh:mm:ss a",
+    "MM/dd/yyyy HH:mm:ss",
+    "MM/dd/yyyy hh:mm a",
+    "MM/dd/yyyy HH:mm",
+    "MM/dd/yyyy",
+    "hh:mm:ss a",
+    "HH:mm:ss",
+    "hh:mm a",
+    "HH:mm"
+  };
+
+  /**
+   * Formatters recently used by a thread, by pattern, least recently used first. Compiling a
+   * pattern costs far more than using it, and SimpleDateFormat is not thread safe, so each thread
+   * keeps its own formatters. The formatters are dropped when the default locale or time zone
+   * changes, since they were created for the old ones.
+   */
+  private static class FormatterCache extends LinkedHashMap<String, DateFormat> {
+    private Locale locale;
+    private TimeZone timeZone;
+    private DateFormat timeFormat;
+    // Reused to pass instants to the formatters without allocating a Date for each one
+    private final Date date = new Date();
+
+    FormatterCache() {
+      super(FORMATTER_CACHE_SIZE, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, DateFormat> eldest) {
+      return size() > FORMATTER_CACHE_SIZE;
+    }
+
+    DateFormat getFormatter(String pattern) {
+      checkDefaults();
+      DateFormat formatter = get(pattern);
+      if (formatter == null) {
+        formatter = new SimpleDateFormat(pattern);
+        put(pattern, formatter);
+      }
+      return formatter;
+    }
+
+    DateFormat getTimeFormatter() {
+      checkDefaults();
+      if (timeFormat == null) {
+        timeFormat = DateFormat.getTimeInstance(DateFormat.MEDIUM);
+      }
+      return timeFormat;
+    }
+
+    String format(DateFormat formatter, Calendar instant) {
+      date.setTime(instant.getTimeInMillis());
+      return formatter.format(date);
+    }
+
+    private void checkDefaults() {
+      Locale defaultLocale = Locale.getDefault();
+      TimeZone defaultTimeZone = TimeZone.getDefault();
+      if (!defaultLocale.equals(locale) || !defaultTimeZone.equals(timeZone)) {
+        clear();
+        timeFormat = null;
+        locale = defaultLocale;
+        timeZone = defaultTimeZone;
+      }
+    }
+  }
+
+  private static final ThreadLocal<FormatterCache> FORMATTERS =
+      new ThreadLocal<FormatterCache>() {
+        @Override
+        protected FormatterCache initialValue() {
+          return new FormatterCache();
+        }
+      };
+
   private Dates() {  // COV_NF_LINE
   }                  // COV_NF_LINE
 
@@ -132,20 +217,10 @@ public final class Dates {
   }
 
   private static Date tryParseDate(String value) {
-    String[] formats = {
-      "MM/dd/yyyy hh:mm:ss a",
-      "MM/dd/yyyy HH:mm:ss",
-      "MM/dd/yyyy hh:mm a",
-      "MM/dd/yyyy HH:mm",
-      "MM/dd/yyyy",
-      "hh:mm:ss a",
-      "HH:mm:ss",
-      "hh:mm a",
-      "HH:mm"
-    };
-    for (String format : formats) {
+    FormatterCache formatters = FORMATTERS.get();
+    for (String format : DATE_VALUE_FORMATS) {
       try {
-        return new SimpleDateFormat(format).parse(value);
+        return formatters.getFormatter(format).parse(value);
       } catch (ParseException e) {}
     }
     throw new IllegalArgumentException("illegal date/time format in function DateValue()");
@@ -199,13 +274,11 @@ public final class Dates {
    */
   @SimpleFunction
   public static String FormatDateTime(Calendar date, String pattern) {
-    SimpleDateFormat formatdate = new SimpleDateFormat();
     if (pattern.length() == 0) {
-      formatdate.applyPattern("MMM d, yyyy hh:mm:ss a");
-    } else {
-      formatdate.applyPattern(pattern);
+      pattern = "MMM d, yyyy hh:mm:ss a";
     }
-    return formatdate.format(date.getTime());
+    FormatterCache formatters = FORMATTERS.get();
+    return formatters.format(formatters.getFormatter(pattern), date);
   }
 
   /**
@@ -219,13 +292,11 @@ public final class Dates {
    */
   @SimpleFunction
   public static String FormatDate(Calendar date, String pattern) {
-    SimpleDateFormat formatdate = new SimpleDateFormat();
     if (pattern.length() == 0) {
-      formatdate.applyPattern("MMM d, yyyy");
-    } else {
-      formatdate.applyPattern(pattern);
+      pattern = "MMM d, yyyy";
     }
-      return formatdate.format(date.getTime());
+    FormatterCache formatters = FORMATTERS.get();
+    return formatters.format(formatters.getFormatter(pattern), date);
   }
 
   /**
@@ -238,7 +309,8 @@ public final class Dates {
    */
   @SimpleFunction
   public static String FormatTime(Calendar date) {
-    return DateFormat.getTimeInstance(DateFormat.MEDIUM).format(date.getTime());
+    FormatterCache formatters = FORMATTERS.get();
+    return formatters.format(formatters.getTimeFormatter(), date);
   }
 
   /**
@@ -312,4 +312,24 @@ class DummyMapController implements MapController {
   public ScaleUnits getScaleUnitsAbstract() {
     throw new UnsupportedOperationException();
   }
+
+  @Override
+  public void setClusteringEnabled(boolean enabled) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isClusteringEnabled() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void beginFeatureBatch() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void endFeatureBatch() {
+    throw new UnsupportedOperationException();
+  }
 }
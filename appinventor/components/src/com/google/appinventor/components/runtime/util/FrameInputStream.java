@@ -0,0 +1,281 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * An input stream that buffers its source in a ring buffer and can read frames that end with a
+ * delimiter byte, such as lines of text.
+ *
+ * Reading a frame reads as much as the source has available at once and scans the buffered bytes
+ * for the delimiter, rather than reading one byte at a time. Bytes that follow the delimiter stay
+ * in the buffer for the next read. The buffer grows only when the bytes buffered do not fit in it.
+ *
+ * A background reader and the app's own reads can share the stream. The buffer is locked only
+ * while bytes are scanned or copied, never while waiting for the source, so a read that can be
+ * answered from the buffer, or {@link #available()}, does not wait for a blocked reader. Only one
+ * thread at a time reads from the source, so bytes are buffered in the order they arrive.
+ */
+public final class FrameInputStream extends InputStream {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final InputStream in;
+  // Held while reading from the source. Guards chunk.
+  private final Object sourceLock = new Object();
+  // Bytes read from the source before they are added to the buffer
+  private final byte[] chunk;
+
+  // The fields below are guarded by this.
+  private byte[] buffer;
+  // The index of the first buffered byte and the number of bytes buffered. The buffered bytes
+  // wrap around the end of the buffer. count is volatile so available() can read it without
+  // locking.
+  private int head = 0;
+  private volatile int count = 0;
+  // The number of bytes ever consumed from and added to the buffer. These let a reader tell
+  // whether the buffer changed while it was waiting for the source.
+  private long consumed = 0;
+  private long received = 0;
+  private boolean ended = false;
+
+  public FrameInputStream(InputStream in) {
+    this(in, DEFAULT_BUFFER_SIZE);
+  }
+
+  public FrameInputStream(InputStream in, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive");
+    }
+    this.in = in;
+    this.buffer = new byte[bufferSize];
+    this.chunk = new byte[bufferSize];
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (true) {
+      long seen;
+      synchronized (this) {
+        if (count > 0) {
+          int value = buffer[head] & 0xFF;
+          consume(1);
+          return value;
+        }
+        seen = received;
+      }
+      if (!fill(seen)) {
+        return -1;
+      }
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (true) {
+      long seen;
+      synchronized (this) {
+        if (count > 0) {
+          int n = Math.min(len, count);
+          copy(b, off, n);
+          consume(n);
+          return n;
+        }
+        seen = received;
+      }
+      if (!fill(seen)) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes that can be read without blocking. This does not lock the
+   * buffer, so it does not wait for a reader that is blocked on the source.
+   */
+  @Override
+  public int available() throws IOException {
+    return count + in.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Reads bytes up to and including the next delimiter byte, blocking until the delimiter
+   * arrives. If the source ends first, this returns the bytes read before the end, which do not
+   * end with the delimiter.
+   *
+   * @param delimiter the byte that ends a frame
+   * @return the bytes of the frame
+   * @throws InterruptedIOException if the thread is interrupted while waiting for the delimiter.
+   *     The bytes read so far stay buffered.
+   * @throws IOException if the source cannot be read
+   */
+  public byte[] readUntil(byte delimiter) throws IOException {
+    // The position, counted from the start of the stream, up to which the buffer has been scanned
+    long scannedTo = 0;
+    while (true) {
+      long seen;
+      synchronized (this) {
+        int index = indexOf(delimiter, (int) Math.max(0, scannedTo - consumed));
+        if (index >= 0) {
+          return take(index + 1);
+        }
+        scannedTo = consumed + count;
+        seen = received;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedIOException();
+      }
+      if (!fill(seen)) {
+        synchronized (this) {
+          return take(count);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether a whole frame ending with the delimiter is already buffered, so that
+   * {@link #readUntil(byte)} would return it without blocking.
+   */
+  public synchronized boolean hasFrame(byte delimiter) {
+    return indexOf(delimiter, 0) >= 0;
+  }
+
+  /**
+   * Reads exactly {@code len} bytes into {@code b}, blocking until they arrive.
+   *
+   * @return the number of bytes read, which is less than {@code len} only if the source ended
+   * @throws IOException if the source cannot be read
+   */
+  public int readFully(byte[] b, int off, int len) throws IOException {
+    int total = 0;
+    while (total < len) {
+      int n = read(b, off + total, len - total);
+      if (n == -1) {
+        break;
+      }
+      total += n;
+    }
+    return total;
+  }
+
+  /**
+   * Finds the delimiter among the buffered bytes, starting {@code from} bytes after the head.
+   *
+   * @return the offset of the delimiter from the head, or -1 if it is not buffered
+   */
+  private int indexOf(byte delimiter, int from) {
+    int capacity = buffer.length;
+    for (int i = from; i < count; i++) {
+      int index = head + i;
+      if (index >= capacity) {
+        index -= capacity;
+      }
+      if (buffer[index] == delimiter) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Waits until bytes have been added to the buffer since it held {@code seen} received bytes,
+   * reading from the source if no other thread is. The buffer is not locked while the source is
+   * read.
+   *
+   * @return true if bytes were added, or false if the source ended
+   */
+  private boolean fill(long seen) throws IOException {
+    synchronized (sourceLock) {
+      synchronized (this) {
+        if (received != seen) {
+          // Another thread read from the source while this one waited for it
+          return true;
+        }
+        if (ended) {
+          return false;
+        }
+      }
+      int n = in.read(chunk, 0, chunk.length);
+      synchronized (this) {
+        if (n == -1) {
+          ended = true;
+          return false;
+        }
+        append(chunk, n);
+        return true;
+      }
+    }
+  }
+
+  private void append(byte[] b, int n) {
+    if (count + n > buffer.length) {
+      grow(count + n);
+    }
+    int capacity = buffer.length;
+    int tail = head + count;
+    if (tail >= capacity) {
+      tail -= capacity;
+    }
+    int first = Math.min(n, capacity - tail);
+    System.arraycopy(b, 0, buffer, tail, first);
+    if (first < n) {
+      System.arraycopy(b, first, buffer, 0, n - first);
+    }
+    count += n;
+    received += n;
+  }
+
+  private void grow(int needed) {
+    int capacity = buffer.length * 2;
+    while (capacity < needed) {
+      capacity *= 2;
+    }
+    byte[] larger = new byte[capacity];
+    copy(larger, 0, count);
+    buffer = larger;
+    head = 0;
+  }
+
+  private byte[] take(int n) {
+    byte[] result = new byte[n];
+    copy(result, 0, n);
+    consume(n);
+    return result;
+  }
+
+  private void copy(byte[] b, int off, int n) {
+    int first = Math.min(n, buffer.length - head);
+    System.arraycopy(buffer, head, b, off, first);
+    if (first < n) {
+      System.arraycopy(buffer, 0, b, off + first, n - first);
+    }
+  }
+
+  private void consume(int n) {
+    head += n;
+    if (head >= buffer.length) {
+      head -= buffer.length;
+    }
+    count -= n;
+    consumed += n;
+    if (count == 0) {
+      // Start over at the beginning so the whole buffer is free in one piece
+      head = 0;
+    }
+  }
+}
@@ -0,0 +1,707 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONException;
+
+/**
+ * Reads a GeoJSON feature collection from a character stream one feature at a time, so that
+ * features can be put on a map while the rest of the document is still being read and the
+ * document never has to be held in memory as a whole.
+ *
+ * Coordinates are decoded straight into arrays of doubles rather than into lists of boxed
+ * numbers. Everything else in a feature is converted to YAIL values the same way GeoJSONUtil has
+ * always converted the parsed JSON: objects become lists of (key, value) pairs in document order,
+ * arrays become lists, and nulls are dropped.
+ */
+public final class GeoJSONReader {
+
+  private static final int BUFFER_SIZE = 0x2000;
+  private static final String GEOJSON_COORDINATES = "coordinates";
+  private static final String GEOJSON_FEATURES = "features";
+  private static final String GEOJSON_GEOMETRY = "geometry";
+  private static final String GEOJSON_PROPERTIES = "properties";
+  private static final String GEOJSON_TYPE = "type";
+
+  // Stands in for a JSON null while parsing
+  private static final Object NULL = new Object();
+
+  /**
+   * Receives the contents of a feature collection as it is read.
+   */
+  public interface Handler {
+    /**
+     * Called once with the type of the root object, or null if it has none. No features are
+     * passed to {@link #onFeature(Feature)} before this is called.
+     *
+     * @return true to continue reading, false to stop
+     */
+    boolean onType(String type);
+
+    /**
+     * Called for each feature in the collection, in document order.
+     */
+    void onFeature(Feature feature);
+  }
+
+  /**
+   * A single feature of a feature collection.
+   */
+  public static final class Feature {
+    // The names of the feature's members, in document order
+    private final List<String> keys = new ArrayList<String>();
+    // The values of members other than the geometry, in the same order as keys
+    private final List<Object> values = new ArrayList<Object>();
+    String type;
+    String geometryType;
+    // Coordinates are grouped into parts and rings, with the longitude and latitude of each
+    // position stored next to each other:
+    //   depth 1 (a position):               {{{lon, lat}}}
+    //   depth 2 (a list of positions):      {{{lon1, lat1, lon2, lat2, ...}}}
+    //   depth 3 (a list of rings):          {{ring1, ring2, ...}}
+    //   depth 4 (a list of lists of rings): {{ring1, ...}, {ring1, ...}, ...}
+    double[][][] coordinates;
+    int coordinateDepth = 0;
+    YailList properties;
+    // Members of the geometry other than its type and coordinates
+    private final List<Object> geometryExtras = new ArrayList<Object>();
+
+    /**
+     * Returns the value of the feature's "type" member.
+     */
+    public String getType() {
+      return type;
+    }
+
+    /**
+     * Returns the type of the feature's geometry, for example "Point" or "Polygon".
+     */
+    public String getGeometryType() {
+      return geometryType;
+    }
+
+    /**
+     * Returns the feature's properties as a list of (key, value) pairs, or null if it has none.
+     */
+    public YailList getProperties() {
+      return properties;
+    }
+
+    /**
+     * Returns the feature as a list of (key, value) pairs, the form in which features are given
+     * to the GotFeatures event and accepted by FeatureFromDescription.
+     */
+    public YailList toYailList() {
+      List<YailList> pairs = new ArrayList<YailList>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        Object value = values.get(i);
+        if (GEOJSON_GEOMETRY.equals(key) && value == null) {
+          value = geometryToYailList();
+        }
+        pairs.add(YailList.makeList(new Object[] { key, value }));
+      }
+      return YailList.makeList(pairs);
+    }
+
+    private YailList geometryToYailList() {
+      List<YailList> pairs = new ArrayList<YailList>();
+      for (int i = 0; i < geometryExtras.size(); i += 2) {
+        pairs.add(YailList.makeList(new Object[] { geometryExtras.get(i),
+            geometryExtras.get(i + 1) }));
+      }
+      if (geometryType != null) {
+        pairs.add(0, YailList.makeList(new Object[] { GEOJSON_TYPE, geometryType }));
+      }
+      if (coordinates != null) {
+        pairs.add(YailList.makeList(new Object[] { GEOJSON_COORDINATES,
+            coordinatesToYailList() }));
+      }
+      return YailList.makeList(pairs);
+    }
+
+    private YailList coordinatesToYailList() {
+      switch (coordinateDepth) {
+        case 1:
+          return YailList.makeList(new Object[] { coordinates[0][0][0], coordinates[0][0][1] });
+        case 2:
+          return positionsToYailList(coordinates[0][0]);
+        case 3:
+          return ringsToYailList(coordinates[0]);
+        default: {
+          List<YailList> parts = new ArrayList<YailList>(coordinates.length);
+          for (double[][] part : coordinates) {
+            parts.add(ringsToYailList(part));
+          }
+          return YailList.makeList(parts);
+        }
+      }
+    }
+
+    private static YailList ringsToYailList(double[][] rings) {
+      List<YailList> result = new ArrayList<YailList>(rings.length);
+      for (double[] ring : rings) {
+        result.add(positionsToYailList(ring));
+      }
+      return YailList.makeList(result);
+    }
+
+    private static YailList positionsToYailList(double[] positions) {
+      List<YailList> result = new ArrayList<YailList>(positions.length / 2);
+      for (int i = 0; i + 1 < positions.length; i += 2) {
+        result.add(YailList.makeList(new Object[] { positions[i], positions[i + 1] }));
+      }
+      return YailList.makeList(result);
+    }
+  }
+
+  private final Reader reader;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int pos = 0;
+  private int limit = 0;
+  private int consumed = 0;
+  private final StringBuilder scratch = new StringBuilder();
+  private double[] positions = new double[64];
+  private int positionCount = 0;
+  private int coordinateDepth = 0;
+
+  public GeoJSONReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the feature collection, passing its type and features to handler.
+   *
+   * @throws JSONException if the document is not valid JSON or has no features
+   * @throws IOException if the underlying reader fails
+   */
+  public void read(Handler handler) throws JSONException, IOException {
+    int c = nextClean();
+    if (c == '\uFEFF') {
+      c = nextClean();
+    }
+    if (c != '{') {
+      throw syntaxError("A JSONObject text must begin with '{'");
+    }
+    boolean typeSeen = false;
+    boolean featuresSeen = false;
+    // Features that come before the root type, which is rare but allowed
+    List<Feature> early = new ArrayList<Feature>();
+    c = nextClean();
+    if (c != '}') {
+      pos--;
+      while (true) {
+        String name = readName();
+        if (GEOJSON_TYPE.equals(name) && !typeSeen) {
+          Object value = readValue();
+          typeSeen = true;
+          if (!handler.onType(value instanceof String ? (String) value : null)) {
+            return;
+          }
+          for (Feature feature : early) {
+            handler.onFeature(feature);
+          }
+          early = null;
+        } else if (GEOJSON_FEATURES.equals(name) && !featuresSeen) {
+          featuresSeen = true;
+          readFeatures(handler, typeSeen ? null : early);
+        } else {
+          skipValue();
+        }
+        c = nextClean();
+        if (c == '}') {
+          break;
+        } else if (c != ',') {
+          throw syntaxError("Unterminated object");
+        }
+      }
+    }
+    if (!typeSeen) {
+      if (!handler.onType(null)) {
+        return;
+      }
+      for (Feature feature : early) {
+        handler.onFeature(feature);
+      }
+    }
+    if (!featuresSeen) {
+      throw new JSONException("JSONObject[\"" + GEOJSON_FEATURES + "\"] not found.");
+    }
+  }
+
+  private void readFeatures(Handler handler, List<Feature> early)
+      throws JSONException, IOException {
+    expect('[');
+    int c = nextClean();
+    if (c == ']') {
+      return;
+    }
+    pos--;
+    while (true) {
+      expect('{');
+      Feature feature = readFeature();
+      if (early != null) {
+        early.add(feature);
+      } else {
+        handler.onFeature(feature);
+      }
+      c = nextClean();
+      if (c == ']') {
+        return;
+      } else if (c != ',') {
+        throw syntaxError("Unterminated array");
+      }
+    }
+  }
+
+  private Feature readFeature() throws JSONException, IOException {
+    Feature feature = new Feature();
+    int c = nextClean();
+    if (c == '}') {
+      return feature;
+    }
+    pos--;
+    while (true) {
+      String name = readName();
+      if (GEOJSON_GEOMETRY.equals(name) && peekClean() == '{') {
+        expect('{');
+        readGeometry(feature);
+        // The geometry is converted on demand by Feature.toYailList()
+        addMember(feature, name, null);
+      } else {
+        Object value = readValue();
+        if (value != NULL) {
+          if (GEOJSON_TYPE.equals(name) && value instanceof String) {
+            feature.type = (String) value;
+          } else if (GEOJSON_PROPERTIES.equals(name) && value instanceof YailList) {
+            feature.properties = (YailList) value;
+          }
+          addMember(feature, name, value);
+        }
+      }
+      c = nextClean();
+      if (c == '}') {
+        return feature;
+      } else if (c != ',') {
+        throw syntaxError("Unterminated object");
+      }
+    }
+  }
+
+  private static void addMember(Feature feature, String name, Object value) {
+    // As in a JSONObject, a repeated name replaces the earlier value
+    int index = feature.keys.indexOf(name);
+    if (index >= 0) {
+      feature.keys.remove(index);
+      feature.values.remove(index);
+    }
+    feature.keys.add(name);
+    feature.values.add(value);
+  }
+
+  private void readGeometry(Feature feature) throws JSONException, IOException {
+    int c = nextClean();
+    if (c == '}') {
+      return;
+    }
+    pos--;
+    while (true) {
+      String name = readName();
+      if (GEOJSON_COORDINATES.equals(name) && peekClean() == '[') {
+        expect('[');
+        feature.coordinates = normalize(readCoordinates());
+        feature.coordinateDepth = coordinateDepth;
+      } else {
+        Object value = readValue();
+        if (GEOJSON_TYPE.equals(name) && value instanceof String) {
+          feature.geometryType = (String) value;
+        } else if (value != NULL) {
+          feature.geometryExtras.add(name);
+          feature.geometryExtras.add(value);
+        }
+      }
+      c = nextClean();
+      if (c == '}') {
+        return;
+      } else if (c != ',') {
+        throw syntaxError("Unterminated object");
+      }
+    }
+  }
+
+  private double[][][] normalize(Object coordinates) {
+    switch (coordinateDepth) {
+      case 1:
+      case 2:
+        return new double[][][] { { (double[]) coordinates } };
+      case 3:
+        return new double[][][] { (double[][]) coordinates };
+      default:
+        return (double[][][]) coordinates;
+    }
+  }
+
+  /**
+   * Reads a coordinate array whose opening bracket has been consumed, and sets coordinateDepth
+   * to its nesting depth. A position is returned as {lon, lat}, a list of positions as a single
+   * array of longitudes and latitudes, and deeper lists as arrays of those.
+   */
+  private Object readCoordinates() throws JSONException, IOException {
+    int c = nextClean();
+    if (c == ']') {
+      // An empty list is taken to be an empty list of positions
+      coordinateDepth = 2;
+      return new double[0];
+    }
+    pos--;
+    if (c != '[') {
+      double longitude = readNumber();
+      expectComma();
+      double latitude = readNumber();
+      // Any altitude is ignored, as it always has been
+      while ((c = nextClean()) == ',') {
+        readNumber();
+      }
+      if (c != ']') {
+        throw syntaxError("Unterminated array");
+      }
+      coordinateDepth = 1;
+      return new double[] { longitude, latitude };
+    }
+    expect('[');
+    Object first = readCoordinates();
+    int childDepth = coordinateDepth;
+    if (childDepth == 1) {
+      // Collect the positions into the shared buffer, which only grows
+      positionCount = 0;
+      appendPosition((double[]) first);
+      while ((c = nextClean()) == ',') {
+        expect('[');
+        Object next = readCoordinates();
+        if (coordinateDepth != 1) {
+          throw syntaxError("Inconsistent coordinate nesting");
+        }
+        appendPosition((double[]) next);
+      }
+      if (c != ']') {
+        throw syntaxError("Unterminated array");
+      }
+      coordinateDepth = 2;
+      return Arrays.copyOf(positions, positionCount);
+    }
+    List<Object> children = new ArrayList<Object>();
+    children.add(first);
+    while ((c = nextClean()) == ',') {
+      expect('[');
+      children.add(readCoordinates());
+      if (coordinateDepth != childDepth) {
+        throw syntaxError("Inconsistent coordinate nesting");
+      }
+    }
+    if (c != ']') {
+      throw syntaxError("Unterminated array");
+    }
+    coordinateDepth = childDepth + 1;
+    if (childDepth == 2) {
+      return children.toArray(new double[children.size()][]);
+    } else if (childDepth == 3) {
+      return children.toArray(new double[children.size()][][]);
+    }
+    throw syntaxError("Coordinates are nested too deeply");
+  }
+
+  private void appendPosition(double[] position) {
+    if (positionCount + 2 > positions.length) {
+      positions = Arrays.copyOf(positions, positions.length * 2);
+    }
+    positions[positionCount++] = position[0];
+    positions[positionCount++] = position[1];
+  }
+
+  private double readNumber() throws JSONException, IOException {
+    Object value = readValue();
+    if (!(value instanceof Number)) {
+      throw syntaxError("Expected a number in coordinates but found " + value);
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  /**
+   * Reads any JSON value and converts it to a YAIL value. Returns {@link #NULL} for null.
+   */
+  private Object readValue() throws JSONException, IOException {
+    int c = nextClean();
+    switch (c) {
+      case -1:
+        throw syntaxError("End of input");
+      case '"':
+        return readString();
+      case '{': {
+        List<YailList> pairs = new ArrayList<YailList>();
+        c = nextClean();
+        if (c != '}') {
+          pos--;
+          while (true) {
+            String name = readName();
+            Object value = readValue();
+            if (value != NULL) {
+              pairs.add(YailList.makeList(new Object[] { name, value }));
+            }
+            c = nextClean();
+            if (c == '}') {
+              break;
+            } else if (c != ',') {
+              throw syntaxError("Unterminated object");
+            }
+          }
+        }
+        return YailList.makeList(pairs);
+      }
+      case '[': {
+        List<Object> items = new ArrayList<Object>();
+        c = nextClean();
+        if (c != ']') {
+          pos--;
+          while (true) {
+            Object value = readValue();
+            if (value != NULL) {
+              items.add(value);
+            }
+            c = nextClean();
+            if (c == ']') {
+              break;
+            } else if (c != ',') {
+              throw syntaxError("Unterminated array");
+            }
+          }
+        }
+        return YailList.makeList(items);
+      }
+      default:
+        pos--;
+        return readLiteral();
+    }
+  }
+
+  /**
+   * Skips over a value without building it.
+   */
+  private void skipValue() throws JSONException, IOException {
+    int depth = 0;
+    do {
+      int c = nextClean();
+      switch (c) {
+        case -1:
+          throw syntaxError("End of input");
+        case '"':
+          skipString();
+          break;
+        case '{':
+        case '[':
+          depth++;
+          break;
+        case '}':
+        case ']':
+          depth--;
+          break;
+        case ',':
+        case ':':
+          break;
+        default:
+          pos--;
+          readLiteral();
+          break;
+      }
+    } while (depth > 0);
+  }
+
+  private String readName() throws JSONException, IOException {
+    expect('"');
+    String name = readString();
+    expect(':');
+    return name;
+  }
+
+  private String readString() throws JSONException, IOException {
+    scratch.setLength(0);
+    while (true) {
+      int start = pos;
+      while (pos < limit) {
+        char ch = buffer[pos];
+        if (ch == '"' || ch == '\\') {
+          break;
+        }
+        pos++;
+      }
+      scratch.append(buffer, start, pos - start);
+      int c = read();
+      if (c == -1) {
+        throw syntaxError("Unterminated string");
+      } else if (c == '"') {
+        return scratch.toString();
+      } else if (c == '\\') {
+        scratch.append(readEscape());
+      } else {
+        scratch.append((char) c);
+      }
+    }
+  }
+
+  private void skipString() throws JSONException, IOException {
+    while (true) {
+      int c = read();
+      if (c == -1) {
+        throw syntaxError("Unterminated string");
+      } else if (c == '"') {
+        return;
+      } else if (c == '\\') {
+        readEscape();
+      }
+    }
+  }
+
+  private char readEscape() throws JSONException, IOException {
+    int c = read();
+    switch (c) {
+      case 'u': {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(read(), 16);
+          if (digit == -1) {
+            throw syntaxError("Illegal escape.");
+          }
+          value = (value << 4) | digit;
+        }
+        return (char) value;
+      }
+      case 't':
+        return '\t';
+      case 'b':
+        return '\b';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 'f':
+        return '\f';
+      case '"':
+      case '\\':
+      case '/':
+      case '\'':
+        return (char) c;
+      default:
+        throw syntaxError("Illegal escape.");
+    }
+  }
+
+  /**
+   * Reads true, false, null or a number, converting numbers the way org.json does.
+   */
+  private Object readLiteral() throws JSONException, IOException {
+    scratch.setLength(0);
+    while (true) {
+      if (pos == limit && !fill()) {
+        break;
+      }
+      char ch = buffer[pos];
+      if (ch == ',' || ch == '}' || ch == ']' || ch == ':' || ch <= ' ') {
+        break;
+      }
+      scratch.append(ch);
+      pos++;
+    }
+    String literal = scratch.toString();
+    if (literal.length() == 0) {
+      throw syntaxError("Expected literal value");
+    } else if ("null".equals(literal)) {
+      return NULL;
+    } else if ("true".equals(literal)) {
+      return Boolean.TRUE;
+    } else if ("false".equals(literal)) {
+      return Boolean.FALSE;
+    }
+    try {
+      if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1
+          && literal.indexOf('E') == -1) {
+        long value = Long.parseLong(literal);
+        if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
+          return (int) value;
+        }
+        return value;
+      }
+      return Double.valueOf(literal);
+    } catch (NumberFormatException e) {
+      throw syntaxError("Unexpected value " + literal);
+    }
+  }
+
+  private void expect(char expected) throws JSONException, IOException {
+    int c = nextClean();
+    if (c != expected) {
+      throw syntaxError("Expected '" + expected + "'");
+    }
+  }
+
+  private void expectComma() throws JSONException, IOException {
+    if (nextClean() != ',') {
+      throw syntaxError("Expected ','");
+    }
+  }
+
+  private int peekClean() throws JSONException, IOException {
+    int c = nextClean();
+    if (c != -1) {
+      pos--;
+    }
+    return c;
+  }
+
+  private int nextClean() throws IOException {
+    while (true) {
+      int c = read();
+      if (c == -1 || c > ' ') {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * Reads a character. The character can be put back with {@code pos--}, since the buffer is
+   * only refilled once every character in it has been read.
+   */
+  private int read() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return buffer[pos++];
+  }
+
+  private boolean fill() throws IOException {
+    if (limit > 0) {
+      // Keep the last character so that it can still be put back
+      buffer[0] = buffer[limit - 1];
+      consumed += limit - 1;
+      pos = 1;
+      limit = 1;
+    }
+    int n = reader.read(buffer, limit, buffer.length - limit);
+    if (n <= 0) {
+      return false;
+    }
+    limit += n;
+    return true;
+  }
+
+  private JSONException syntaxError(String message) {
+    return new JSONException(message + " at character " + (consumed + pos));
+  }
+}
@@ -22,7 +22,6 @@ import com.google.common.annotations.VisibleForTesting;
 import gnu.lists.FString;
 import gnu.lists.LList;
 import gnu.lists.Pair;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.osmdroid.util.GeoPoint;
@@ -30,6 +29,7 @@ import org.osmdroid.util.GeoPoint;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -47,7 +47,6 @@ public final class GeoJSONUtil {
   private static final java.util.Map<String, Integer> colors;
   private static final int ERROR_CODE_MALFORMED_GEOJSON = -3;
   private static final String ERROR_MALFORMED_GEOJSON = "Malformed GeoJSON response. Expected FeatureCollection as root element.";
-  private static final String ERROR_UNKNOWN_TYPE = "Unrecognized/invalid type in JSON object";
   private static final String GEOJSON_COORDINATES = "coordinates";
   private static final String GEOJSON_FEATURE = "Feature";
   private static final String GEOJSON_FEATURECOLLECTION = "FeatureCollection";
@@ -395,6 +394,92 @@ public final class GeoJSONUtil {
     return polygon;
   }
 
+  /**
+   * Creates a map feature from a feature read by {@link GeoJSONReader}. The result is the same as
+   * that of {@link #processGeoJSONFeature(String, MapFeatureContainer, YailList)} on the
+   * feature's description, but the coordinates go straight from the reader's arrays to points
+   * without passing through YailLists.
+   *
+   * @throws IllegalArgumentException if the feature is not valid
+   */
+  public static MapFactory.MapFeature processGeoJSONFeature(final String logTag,
+      final MapFactory.MapFeatureContainer container, final GeoJSONReader.Feature description) {
+    if (!GEOJSON_FEATURE.equals(description.type)) {
+      throw new IllegalArgumentException(String.format("Unknown type \"%s\"", description.type));
+    }
+    if (description.coordinates == null) {
+      throw new IllegalArgumentException("No coordinates found in GeoJSON Feature");
+    }
+    String type = description.geometryType;
+    double[][][] coordinates = description.coordinates;
+    int depth = description.coordinateDepth;
+    MapFeature feature;
+    if (MapFeatureType.TYPE_POINT.equals(type) && depth == 1) {
+      Marker marker = new Marker(container);
+      marker.Latitude(coordinates[0][0][1]);
+      marker.Longitude(coordinates[0][0][0]);
+      feature = marker;
+    } else if (MapFeatureType.TYPE_LINESTRING.equals(type) && depth == 2) {
+      List<GeoPoint> points = toGeoPoints(coordinates[0][0]);
+      if (points.size() < 2) {
+        throw new IllegalArgumentException("Too few coordinates supplied in GeoJSON");
+      }
+      LineString lineString = new LineString(container);
+      lineString.updatePoints(points);
+      container.getMap().getController().updateFeaturePosition(lineString);
+      feature = lineString;
+    } else if (MapFeatureType.TYPE_POLYGON.equals(type) && depth == 3) {
+      List<List<GeoPoint>> points = new ArrayList<List<GeoPoint>>();
+      List<List<List<GeoPoint>>> holePoints = new ArrayList<List<List<GeoPoint>>>();
+      addPolygonPart(coordinates[0], points, holePoints);
+      if (holePoints.get(0).isEmpty()) {
+        holePoints.clear();
+      }
+      Polygon polygon = new Polygon(container);
+      polygon.setGeometry(points, holePoints, false);
+      feature = polygon;
+    } else if (MapFeatureType.TYPE_MULTIPOLYGON.equals(type) && depth == 4) {
+      List<List<GeoPoint>> points = new ArrayList<List<GeoPoint>>();
+      List<List<List<GeoPoint>>> holePoints = new ArrayList<List<List<GeoPoint>>>();
+      for (double[][] part : coordinates) {
+        addPolygonPart(part, points, holePoints);
+      }
+      Polygon polygon = new Polygon(container);
+      polygon.setGeometry(points, holePoints, true);
+      feature = polygon;
+    } else {
+      throw new IllegalArgumentException();
+    }
+    if (description.properties != null) {
+      processProperties(logTag, feature, description.properties);
+    }
+    return feature;
+  }
+
+  private static void addPolygonPart(double[][] rings, List<List<GeoPoint>> points,
+      List<List<List<GeoPoint>>> holePoints) {
+    if (rings.length == 0) {
+      throw new IllegalArgumentException("Too few coordinates supplied in GeoJSON");
+    }
+    points.add(toGeoPoints(rings[0]));
+    List<List<GeoPoint>> holes = new ArrayList<List<GeoPoint>>(rings.length - 1);
+    for (int i = 1; i < rings.length; i++) {
+      holes.add(toGeoPoints(rings[i]));
+    }
+    holePoints.add(holes);
+  }
+
+  /**
+   * Converts longitude, latitude pairs, in GeoJSON order, to points.
+   */
+  private static List<GeoPoint> toGeoPoints(double[] positions) {
+    List<GeoPoint> points = new ArrayList<GeoPoint>(positions.length / 2);
+    for (int i = 0; i + 1 < positions.length; i += 2) {
+      points.add(GeometryUtil.coerceToPoint(positions[i + 1], positions[i]));
+    }
+    return points;
+  }
+
   private static void processProperties(final String logTag, final MapFactory.MapFeature feature,
       final YailList properties) {
     for (Object o : properties) {
@@ -451,11 +536,22 @@ public final class GeoJSONUtil {
   }
 
   public static List<YailList> getGeoJSONFeatures(final String logTag, final String content) throws JSONException {
-    JSONObject parsedData = new JSONObject(stripBOM(content));
-    JSONArray features = parsedData.getJSONArray(GEOJSON_FEATURES);
-    List<YailList> yailFeatures = new ArrayList<YailList>();
-    for (int i = 0; i < features.length(); i++) {
-      yailFeatures.add(jsonObjectToYail(logTag, features.getJSONObject(i)));
+    final List<YailList> yailFeatures = new ArrayList<YailList>();
+    try {
+      new GeoJSONReader(new StringReader(content)).read(new GeoJSONReader.Handler() {
+        @Override
+        public boolean onType(String type) {
+          return true;
+        }
+
+        @Override
+        public void onFeature(GeoJSONReader.Feature feature) {
+          yailFeatures.add(feature.toYailList());
+        }
+      });
+    } catch (IOException e) {
+      // A StringReader does not throw
+      throw new JSONException(e.toString());
     }
     return yailFeatures;
   }
@@ -466,53 +562,6 @@ public final class GeoJSONUtil {
     return type;
   }
 
-  private static YailList jsonObjectToYail(final String logTag, final JSONObject object) throws JSONException {
-    List<YailList> pairs = new ArrayList<YailList>();
-    @SuppressWarnings("unchecked")  // json only allows String keys
-        Iterator<String> j = object.keys();
-    while (j.hasNext()) {
-      String key = j.next();
-      Object value = object.get(key);
-      if (value instanceof Boolean ||
-          value instanceof Integer ||
-          value instanceof Long ||
-          value instanceof Double ||
-          value instanceof String) {
-        pairs.add(YailList.makeList(new Object[] { key, value }));
-      } else if (value instanceof JSONArray) {
-        pairs.add(YailList.makeList(new Object[] { key, jsonArrayToYail(logTag, (JSONArray) value)}));
-      } else if (value instanceof JSONObject) {
-        pairs.add(YailList.makeList(new Object[] { key, jsonObjectToYail(logTag, (JSONObject) value)}));
-      } else if (!JSONObject.NULL.equals(value)) {
-        Log.wtf(logTag, ERROR_UNKNOWN_TYPE + ": " + value.getClass());
-        throw new IllegalArgumentException(ERROR_UNKNOWN_TYPE);
-      }
-    }
-    return YailList.makeList(pairs);
-  }
-
-  private static YailList jsonArrayToYail(final String logTag, final JSONArray array) throws JSONException {
-    List<Object> items = new ArrayList<Object>();
-    for (int i = 0; i < array.length(); i++) {
-      Object value = array.get(i);
-      if (value instanceof Boolean ||
-          value instanceof Integer ||
-          value instanceof Long ||
-          value instanceof Double ||
-          value instanceof String) {
-        items.add(value);
-      } else if (value instanceof JSONArray) {
-        items.add(jsonArrayToYail(logTag, (JSONArray) value));
-      } else if (value instanceof JSONObject) {
-        items.add(jsonObjectToYail(logTag, (JSONObject) value));
-      } else if (!JSONObject.NULL.equals(value)) {
-        Log.wtf(logTag, ERROR_UNKNOWN_TYPE + ": " + value.getClass());
-        throw new IllegalArgumentException(ERROR_UNKNOWN_TYPE);
-      }
-    }
-    return YailList.makeList(items);
-  }
-
   private static String stripBOM(String content) {
     if (content.charAt(0) == '\uFEFF') {
       return content.substring(1);
@@ -62,8 +62,10 @@ public final class GeometryUtil {
   }
 
   public static GeoPoint coerceToPoint(Object lat, Object lng) {
-    double latitude = coerceToDouble(lat);
-    double longitude = coerceToDouble(lng);
+    return coerceToPoint(coerceToDouble(lat), coerceToDouble(lng));
+  }
+
+  public static GeoPoint coerceToPoint(double latitude, double longitude) {
     if (Double.isNaN(latitude)) {
       throw new IllegalArgumentException("Latitude must be a numeric.");
     } else if (Double.isNaN(longitude)) {
@@ -9,6 +9,7 @@ package com.google.appinventor.components.runtime.util;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.nfc.NdefMessage;
 import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
@@ -37,6 +38,14 @@ public class GingerbreadUtil {
   private GingerbreadUtil() {
   }
 
+  /**
+   * Writes the changes in {@code editor} to disk in the background using
+   * {@link SharedPreferences.Editor#apply()}.
+   */
+  public static void applyChanges(SharedPreferences.Editor editor) {
+    editor.apply();
+  }
+
   /**
    * Creates a new CookieManager instance.
    */
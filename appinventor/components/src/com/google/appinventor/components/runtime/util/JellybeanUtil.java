@@ -8,6 +8,7 @@ package com.google.appinventor.components.runtime.util;
 import android.graphics.Point;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.Display;
 
 /**
@@ -23,4 +24,29 @@ public class JellybeanUtil {
     display.getRealSize(outSize);
   }
 
+  /**
+   * Creates a {@link Choreographer.FrameCallback} that runs the given runnable.
+   * The callback is returned as an {@code Object} so that callers do not
+   * reference Choreographer on devices that predate it.
+   *
+   * @param runnable the runnable to run on each frame the callback is posted for
+   * @return the frame callback, to be passed to {@link #postFrameCallback(Object)}
+   */
+  public static Object newFrameCallback(final Runnable runnable) {
+    return new Choreographer.FrameCallback() {
+      @Override
+      public void doFrame(long frameTimeNanos) {
+        runnable.run();
+      }
+    };
+  }
+
+  public static void postFrameCallback(Object callback) {
+    Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+  }
+
+  public static void removeFrameCallback(Object callback) {
+    Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
+  }
+
 }
@@ -0,0 +1,389 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONException;
+
+/**
+ * A single pass JSON parser that builds YAIL values directly from JSON text, without first
+ * building an org.json {@code JSONObject}/{@code JSONArray} tree.
+ *
+ * The values produced are exactly those that {@link JsonUtil#getObjectFromJson(String, boolean)}
+ * has always produced by running org.json's {@code JSONTokener} and then converting the result
+ * with {@link JsonUtil#convertJsonItem(Object, boolean)}. In particular, the parser accepts the
+ * same relaxed syntax as {@code JSONTokener} (comments, single quoted and unquoted strings, '='
+ * and ';' separators, hex and octal integers), numbers are returned as Integer, Long or Double,
+ * nested nulls become the string "null", nested strings "true" and "false" become booleans, and
+ * object keys are sorted.
+ */
+final class JsonStreamParser {
+
+  private final String text;
+  private final boolean useDicts;
+  private int pos = 0;          // next character of text to read
+  private final StringBuilder scratch = new StringBuilder();
+
+  JsonStreamParser(String text, boolean useDicts) {
+    this.text = text;
+    this.useDicts = useDicts;
+  }
+
+  /**
+   * Parses the first JSON value in the input. Any text after that value is ignored, as it is
+   * by {@code JSONTokener.nextValue()}.
+   *
+   * @return the parsed value, or "" if the input is empty
+   * @throws JSONException if the JSON is malformed
+   */
+  Object parse() throws JSONException {
+    int c = read();
+    if (c == -1) {
+      return "";
+    }
+    unread(c);
+    c = nextClean();
+    switch (c) {
+      case -1:
+        throw syntaxError("End of input");
+      case '{':
+        return readObject();
+      case '[':
+        // Only nested arrays are converted to YailLists. The outer array is returned as a plain
+        // list, as getListFromJsonArray always did.
+        return readArray();
+      case '"':
+      case '\'':
+        return readString((char) c);
+      default:
+        unread(c);
+        Object literal = readLiteral();
+        return literal == NULL ? null : literal;
+    }
+  }
+
+  // Stands in for a JSON null while parsing, since null is a legitimate Java value
+  private static final Object NULL = new Object();
+
+  /**
+   * Reads a value nested inside an array or object and converts it the way
+   * {@link JsonUtil#convertJsonItem(Object, boolean)} does.
+   */
+  private Object readNestedValue() throws JSONException {
+    int c = nextClean();
+    switch (c) {
+      case -1:
+        throw syntaxError("End of input");
+      case '{':
+        return readObject();
+      case '[': {
+        List<Object> list = readArray();
+        return useDicts ? YailList.makeList(list) : list;
+      }
+      case '"':
+      case '\'':
+        return convertString(readString((char) c));
+      default:
+        unread(c);
+        Object literal = readLiteral();
+        if (literal == NULL) {
+          return "null";
+        } else if (literal instanceof String) {
+          return convertString((String) literal);
+        }
+        return literal;
+    }
+  }
+
+  private static Object convertString(String s) {
+    if (s.equalsIgnoreCase("true")) {
+      return true;
+    } else if (s.equalsIgnoreCase("false")) {
+      return false;
+    }
+    return s;
+  }
+
+  private List<Object> readArray() throws JSONException {
+    List<Object> result = new ArrayList<Object>();
+    int c = nextClean();
+    if (c == ']') {
+      return result;
+    }
+    unread(c);
+    while (true) {
+      c = nextClean();
+      if (c == ',' || c == ';') {
+        // JSONTokener stores a null here, which JSONArray.get() then refuses to return
+        throw syntaxError("Value at " + result.size() + " is null.");
+      }
+      unread(c);
+      result.add(readNestedValue());
+      switch (nextClean()) {
+        case ']':
+          return result;
+        case ',':
+        case ';':
+          c = nextClean();
+          if (c == ']') {
+            throw syntaxError("Value at " + result.size() + " is null.");
+          }
+          unread(c);
+          continue;
+        default:
+          throw syntaxError("Unterminated array");
+      }
+    }
+  }
+
+  private Object readObject() throws JSONException {
+    // A TreeMap both sorts the keys and lets later duplicates replace earlier ones, matching
+    // the sorted traversal of a JSONObject
+    Map<String, Object> entries = new TreeMap<String, Object>();
+    int c = nextClean();
+    if (c != '}') {
+      unread(c);
+      while (true) {
+        String name = readName();
+        int separator = nextClean();
+        if (separator != ':' && separator != '=') {
+          throw syntaxError("Expected ':' after " + name);
+        }
+        c = read();
+        if (c != '>') {
+          unread(c);
+        }
+        Object value = readNestedValue();
+        if (value instanceof Double
+            && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+          throw new JSONException("Forbidden numeric value: " + value);
+        }
+        entries.put(name, value);
+        c = nextClean();
+        if (c == '}') {
+          break;
+        } else if (c != ',' && c != ';') {
+          throw syntaxError("Unterminated object");
+        }
+      }
+    }
+    if (useDicts) {
+      YailDictionary dict = new YailDictionary();
+      dict.putAll(entries);
+      return dict;
+    }
+    List<Object> alist = new ArrayList<Object>(entries.size());
+    for (Map.Entry<String, Object> entry : entries.entrySet()) {
+      List<Object> pair = new ArrayList<Object>(2);
+      pair.add(entry.getKey());
+      pair.add(entry.getValue());
+      alist.add(pair);
+    }
+    return alist;
+  }
+
+  private String readName() throws JSONException {
+    int c = nextClean();
+    switch (c) {
+      case -1:
+        throw syntaxError("End of input");
+      case '"':
+      case '\'':
+        return readString((char) c);
+      case '{':
+      case '[':
+        throw syntaxError("Names must be strings");
+      default:
+        unread(c);
+        Object name = readLiteral();
+        if (name == NULL) {
+          throw syntaxError("Names cannot be null");
+        } else if (!(name instanceof String)) {
+          throw syntaxError("Names must be strings, but " + name + " is of type "
+              + name.getClass().getName());
+        }
+        return (String) name;
+    }
+  }
+
+  private String readString(char quote) throws JSONException {
+    scratch.setLength(0);
+    while (true) {
+      // Copy runs of ordinary characters straight out of the text
+      int start = pos;
+      int length = text.length();
+      while (pos < length) {
+        char ch = text.charAt(pos);
+        if (ch == quote || ch == '\\') {
+          break;
+        }
+        pos++;
+      }
+      scratch.append(text, start, pos);
+      int c = read();
+      if (c == -1) {
+        throw syntaxError("Unterminated string");
+      } else if (c == quote) {
+        return scratch.toString();
+      } else if (c == '\\') {
+        scratch.append(readEscape());
+      } else {
+        scratch.append((char) c);
+      }
+    }
+  }
+
+  private char readEscape() throws JSONException {
+    int c = read();
+    switch (c) {
+      case -1:
+        throw syntaxError("Unterminated escape sequence");
+      case 'u': {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(read(), 16);
+          if (digit == -1) {
+            throw syntaxError("Unterminated escape sequence");
+          }
+          value = (value << 4) | digit;
+        }
+        return (char) value;
+      }
+      case 't':
+        return '\t';
+      case 'b':
+        return '\b';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 'f':
+        return '\f';
+      default:
+        return (char) c;
+    }
+  }
+
+  private Object readLiteral() throws JSONException {
+    scratch.setLength(0);
+    int c;
+    while ((c = read()) != -1) {
+      if ("{}[]/\\:,=;# \t\f\r\n".indexOf(c) != -1) {
+        unread(c);
+        break;
+      }
+      scratch.append((char) c);
+    }
+    String literal = scratch.toString();
+    if (literal.length() == 0) {
+      throw syntaxError("Expected literal value");
+    } else if ("null".equalsIgnoreCase(literal)) {
+      return NULL;
+    } else if ("true".equalsIgnoreCase(literal)) {
+      return Boolean.TRUE;
+    } else if ("false".equalsIgnoreCase(literal)) {
+      return Boolean.FALSE;
+    }
+    if (literal.indexOf('.') == -1) {
+      int base = 10;
+      String number = literal;
+      if (number.startsWith("0x") || number.startsWith("0X")) {
+        number = number.substring(2);
+        base = 16;
+      } else if (number.startsWith("0") && number.length() > 1) {
+        number = number.substring(1);
+        base = 8;
+      }
+      try {
+        long longValue = Long.parseLong(number, base);
+        if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+          return (int) longValue;
+        } else {
+          return longValue;
+        }
+      } catch (NumberFormatException e) {
+        // Not an integer, try again as a double
+      }
+    }
+    try {
+      return Double.valueOf(literal);
+    } catch (NumberFormatException e) {
+      // An unquoted string
+    }
+    return literal;
+  }
+
+  /**
+   * Returns the next character that is not whitespace or part of a comment.
+   */
+  private int nextClean() throws JSONException {
+    while (true) {
+      int c = read();
+      switch (c) {
+        case '\t':
+        case ' ':
+        case '\n':
+        case '\r':
+          continue;
+        case '/': {
+          int next = read();
+          if (next == '*') {
+            int prev = -1;
+            while (true) {
+              c = read();
+              if (c == -1) {
+                throw syntaxError("Unterminated comment");
+              } else if (prev == '*' && c == '/') {
+                break;
+              }
+              prev = c;
+            }
+            continue;
+          } else if (next == '/') {
+            skipToEndOfLine();
+            continue;
+          }
+          unread(next);
+          return c;
+        }
+        case '#':
+          skipToEndOfLine();
+          continue;
+        default:
+          return c;
+      }
+    }
+  }
+
+  private void skipToEndOfLine() {
+    int c;
+    do {
+      c = read();
+    } while (c != -1 && c != '\r' && c != '\n');
+  }
+
+  private int read() {
+    if (pos == text.length()) {
+      return -1;
+    }
+    return text.charAt(pos++);
+  }
+
+  // Steps back over c, which must be the character read last
+  private void unread(int c) {
+    if (c != -1) {
+      pos--;
+    }
+  }
+
+  private JSONException syntaxError(String message) {
+    return new JSONException(message + " at character " + pos);
+  }
+}
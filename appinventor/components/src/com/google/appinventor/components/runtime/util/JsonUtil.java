@@ -13,6 +13,7 @@ import com.google.appinventor.components.runtime.Form;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 
 import gnu.lists.FString;
+import gnu.lists.Pair;
 
 import gnu.math.IntFraction;
 
@@ -33,7 +34,6 @@ import java.util.TreeSet;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
 /**
  * Provides utility functions to convert between Java object and JSON.
@@ -245,14 +245,49 @@ public class JsonUtil {
   }
 
   public static String getJsonRepresentation(Object value) throws JSONException {
+    StringBuilder sb = new StringBuilder();
+    try {
+      writeJsonRepresentation(value, sb);
+    } catch (IOException e) {
+      // StringBuilder does not throw IOException
+      throw new JSONException(e.getMessage());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes the JSON representation of {@code value} to {@code out}. The output is identical to
+   * {@link #getJsonRepresentation(Object)}, but nested values are written straight into
+   * {@code out} instead of being built up as separate strings and concatenated.
+   *
+   * @param value the value to encode
+   * @param out the destination for the JSON text
+   * @throws JSONException if value contains a number that JSON cannot represent
+   * @throws IOException if writing to out fails
+   */
+  public static void writeJsonRepresentation(Object value, Appendable out)
+      throws JSONException, IOException {
     if (value == null || value.equals(null)) {
-      return "null";
+      out.append("null");
+      return;
     }
     if (value instanceof FString) {
-      return JSONObject.quote(value.toString());
+      writeJsonString(value.toString(), out);
+      return;
     }
     if (value instanceof YailList) {
-      return ((YailList) value).toJSONString();
+      out.append('[');
+      String separator = "";
+      // Walk the pairs rather than calling get(i), which is linear in i
+      Object pair = ((YailList) value).getCdr();
+      while (pair instanceof Pair) {
+        out.append(separator);
+        writeJsonRepresentation(((Pair) pair).getCar(), out);
+        separator = ",";
+        pair = ((Pair) pair).getCdr();
+      }
+      out.append(']');
+      return;
     }
     // The Json tokener used in getObjectFromJson cannot handle
     // fractions.  So we Json encode fractions by first converting
@@ -262,44 +297,102 @@ public class JsonUtil {
     // StoreValue.  See the "warning" comment in runtime.scm at
     // call-component-method.
     if (value instanceof IntFraction) {
-      return JSONObject.numberToString((Number) ((IntFraction)value).doubleValue());
+      out.append(JSONObject.numberToString((Number) ((IntFraction)value).doubleValue()));
+      return;
     }
     if (value instanceof Number) {
-      return JSONObject.numberToString((Number) value);
+      out.append(JSONObject.numberToString((Number) value));
+      return;
     }
     if (value instanceof Boolean) {
-      return value.toString();
+      out.append(value.toString());
+      return;
     }
     if (value instanceof List) {
-      value = ((List)value).toArray();
+      out.append('[');
+      String separator = "";
+      for (Object o : (List) value) {
+        out.append(separator);
+        writeJsonRepresentation(o, out);
+        separator = ",";
+      }
+      out.append(']');
+      return;
     }
     if (value instanceof YailDictionary) {
-      StringBuilder sb = new StringBuilder();
       YailDictionary dict = (YailDictionary) value;
       String sep = "";
-      sb.append('{');
+      out.append('{');
       for (Entry<Object, Object> entry : (Set<Entry<Object, Object>>) dict.entrySet()) {
-        sb.append(sep);
-        sb.append(JSONObject.quote(entry.getKey().toString()));
-        sb.append(':');
-        sb.append(getJsonRepresentation(entry.getValue()));
+        out.append(sep);
+        writeJsonString(entry.getKey().toString(), out);
+        out.append(':');
+        writeJsonRepresentation(entry.getValue(), out);
         sep = ",";
       }
-      sb.append('}');
-      return sb.toString();
+      out.append('}');
+      return;
     }
     if (value.getClass().isArray()) {
-      StringBuilder sb = new StringBuilder();
-      sb.append("[");
+      out.append('[');
       String separator = "";
       for (Object o: (Object[]) value) {
-        sb.append(separator).append(getJsonRepresentation(o));
+        out.append(separator);
+        writeJsonRepresentation(o, out);
         separator = ",";
       }
-      sb.append("]");
-      return sb.toString();
+      out.append(']');
+      return;
+    }
+    writeJsonString(value.toString(), out);
+  }
+
+  /**
+   * Writes {@code s} as a quoted JSON string, escaping it exactly as
+   * {@link JSONObject#quote(String)} does.
+   */
+  private static void writeJsonString(String s, Appendable out) throws IOException {
+    out.append('"');
+    int start = 0;
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      String escape;
+      switch (c) {
+        case '"':
+          escape = "\\\"";
+          break;
+        case '\\':
+          escape = "\\\\";
+          break;
+        case '/':
+          escape = "\\/";
+          break;
+        case '\t':
+          escape = "\\t";
+          break;
+        case '\b':
+          escape = "\\b";
+          break;
+        case '\n':
+          escape = "\\n";
+          break;
+        case '\r':
+          escape = "\\r";
+          break;
+        case '\f':
+          escape = "\\f";
+          break;
+        default:
+          if (c > 0x1F) {
+            continue;
+          }
+          escape = String.format("\\u%04x", (int) c);
+      }
+      out.append(s, start, i).append(escape);
+      start = i + 1;
     }
-    return JSONObject.quote(value.toString());
+    out.append(s, start, length).append('"');
   }
 
   /**
@@ -338,24 +431,7 @@ public class JsonUtil {
       // when given the empty string.
       return "";
     } else {
-      final Object value = (new JSONTokener(jsonString)).nextValue();
-      // Note that the JSONTokener may return a value equals() to null.
-      if (value == null || value.equals(JSONObject.NULL)) {
-        return null;
-      } else if ((value instanceof String) ||
-          (value instanceof Number) ||
-          (value instanceof Boolean)) {
-        return value;
-      } else if (value instanceof JSONArray) {
-        return getListFromJsonArray((JSONArray)value, useDicts);
-      } else if (value instanceof JSONObject) {
-        if (useDicts) {
-          return getDictionaryFromJsonObject((JSONObject) value);
-        } else {
-          return getListFromJsonObject((JSONObject) value);
-        }
-      }
-      throw new JSONException("Invalid JSON string.");
+      return new JsonStreamParser(jsonString, useDicts).parse();
     }
   }
 
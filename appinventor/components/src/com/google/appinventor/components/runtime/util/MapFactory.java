@@ -594,6 +594,33 @@ public final class MapFactory {
      * Returns the units for the scale.
      */
     ScaleUnits getScaleUnitsAbstract();
+
+    /**
+     * Sets whether markers that are close together on screen are drawn as a single cluster.
+     * While clustering, markers outside the visible part of the map are neither drawn nor
+     * hit tested.
+     * @param enabled true if markers should be clustered
+     */
+    void setClusteringEnabled(boolean enabled);
+
+    /**
+     * Gets whether markers that are close together on screen are drawn as a single cluster.
+     * @return true if markers are clustered
+     */
+    boolean isClusteringEnabled();
+
+    /**
+     * Starts a batch of feature changes. Until the matching call to
+     * {@link #endFeatureBatch()}, features that are added, removed, shown or hidden are only
+     * recorded, and the map is updated for all of them at once when the batch ends. Batches
+     * may be nested, in which case the changes are applied when the outermost batch ends.
+     */
+    void beginFeatureBatch();
+
+    /**
+     * Ends a batch of feature changes started by {@link #beginFeatureBatch()}.
+     */
+    void endFeatureBatch();
   }
 
   /**
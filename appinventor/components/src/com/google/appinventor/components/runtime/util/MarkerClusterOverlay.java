@@ -0,0 +1,191 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.view.MotionEvent;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.TileSystem;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Marker;
+import org.osmdroid.views.overlay.Overlay;
+
+/**
+ * A single overlay that draws a map's markers, replacing markers that are close together on
+ * screen with one circle showing how many markers it stands for. Markers outside the visible
+ * part of the map are neither drawn nor hit tested, so the cost of drawing and touching the map
+ * depends on what is on screen rather than on how many markers the map has.
+ *
+ * Tapping a cluster zooms in on the markers it contains. Markers that are not clustered behave
+ * exactly as if they had been added to the map directly.
+ */
+final class MarkerClusterOverlay extends Overlay {
+
+  // Markers closer together than this on screen are clustered
+  private static final int CELL_SIZE_DP = 64;
+
+  private static final int CLUSTER_RADIUS_DP = 16;
+  private static final int CLUSTER_COLOR = 0xCC2962FF;
+  private static final int CLUSTER_TEXT_SIZE_DP = 13;
+
+  private final MarkerClusterer<Marker> clusterer = new MarkerClusterer<Marker>();
+  private List<MarkerClusterer.Cluster<Marker>> clusters = Collections.emptyList();
+  private final float density;
+  private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Point point = new Point();
+
+  MarkerClusterOverlay(Context context) {
+    super(context);
+    density = context.getResources().getDisplayMetrics().density;
+    fillPaint.setColor(CLUSTER_COLOR);
+    strokePaint.setColor(0xFFFFFFFF);
+    strokePaint.setStyle(Paint.Style.STROKE);
+    strokePaint.setStrokeWidth(2 * density);
+    textPaint.setColor(0xFFFFFFFF);
+    textPaint.setTextSize(CLUSTER_TEXT_SIZE_DP * density);
+    textPaint.setTextAlign(Paint.Align.CENTER);
+    textPaint.setFakeBoldText(true);
+  }
+
+  /**
+   * Adds a marker, or records the new position of a marker that has moved.
+   */
+  void add(Marker marker) {
+    GeoPoint position = marker.getPosition();
+    clusterer.put(marker, position.getLatitude(), position.getLongitude());
+  }
+
+  /**
+   * Records the new position of a marker if the overlay holds it.
+   */
+  void update(Marker marker) {
+    if (clusterer.contains(marker)) {
+      add(marker);
+    }
+  }
+
+  void remove(Marker marker) {
+    clusterer.remove(marker);
+  }
+
+  boolean contains(Marker marker) {
+    return clusterer.contains(marker);
+  }
+
+  Collection<Marker> getMarkers() {
+    return clusterer.getItems();
+  }
+
+  void clear() {
+    clusterer.clear();
+    clusters = Collections.emptyList();
+  }
+
+  @Override
+  public void draw(Canvas canvas, MapView mapView, boolean shadow) {
+    if (shadow) {
+      return;
+    }
+    Projection projection = mapView.getProjection();
+    BoundingBox bounds = projection.getBoundingBox();
+    clusters = clusterer.getClusters(TileSystem.MapSize(projection.getZoomLevel()),
+        CELL_SIZE_DP * density, bounds.getLatNorth(), bounds.getLatSouth(), bounds.getLonEast(),
+        bounds.getLonWest());
+    for (MarkerClusterer.Cluster<Marker> cluster : clusters) {
+      if (cluster.size() == 1) {
+        cluster.get(0).draw(canvas, mapView, false);
+      } else {
+        projection.toPixels(new GeoPoint(cluster.getLatitude(), cluster.getLongitude()), point);
+        float radius = getRadius(cluster);
+        canvas.drawCircle(point.x, point.y, radius, fillPaint);
+        canvas.drawCircle(point.x, point.y, radius, strokePaint);
+        canvas.drawText(Integer.toString(cluster.size()), point.x,
+            point.y - (textPaint.descent() + textPaint.ascent()) / 2, textPaint);
+      }
+    }
+  }
+
+  @Override
+  public boolean onSingleTapConfirmed(MotionEvent e, MapView mapView) {
+    // Clusters drawn last are on top, so they get the first chance to handle the tap
+    for (int i = clusters.size() - 1; i >= 0; i--) {
+      MarkerClusterer.Cluster<Marker> cluster = clusters.get(i);
+      if (cluster.size() == 1) {
+        if (cluster.get(0).onSingleTapConfirmed(e, mapView)) {
+          return true;
+        }
+      } else if (hitTest(cluster, e, mapView)) {
+        zoomTo(cluster, mapView);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean onLongPress(MotionEvent e, MapView mapView) {
+    for (int i = clusters.size() - 1; i >= 0; i--) {
+      MarkerClusterer.Cluster<Marker> cluster = clusters.get(i);
+      if (cluster.size() == 1 && cluster.get(0).onLongPress(e, mapView)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean onTouchEvent(MotionEvent e, MapView mapView) {
+    // Lets a marker being dragged follow the finger
+    for (int i = clusters.size() - 1; i >= 0; i--) {
+      MarkerClusterer.Cluster<Marker> cluster = clusters.get(i);
+      if (cluster.size() == 1 && cluster.get(0).onTouchEvent(e, mapView)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private float getRadius(MarkerClusterer.Cluster<Marker> cluster) {
+    // Grow slowly with the number of markers so large clusters stand out without covering
+    // their neighbors
+    return (CLUSTER_RADIUS_DP + 4 * (float) Math.log10(cluster.size())) * density;
+  }
+
+  private boolean hitTest(MarkerClusterer.Cluster<Marker> cluster, MotionEvent e,
+      MapView mapView) {
+    mapView.getProjection().toPixels(
+        new GeoPoint(cluster.getLatitude(), cluster.getLongitude()), point);
+    float dx = e.getX() - point.x;
+    float dy = e.getY() - point.y;
+    float radius = getRadius(cluster);
+    return dx * dx + dy * dy <= radius * radius;
+  }
+
+  private void zoomTo(MarkerClusterer.Cluster<Marker> cluster, MapView mapView) {
+    double north = cluster.getNorth();
+    double south = cluster.getSouth();
+    double east = cluster.getEast();
+    double west = cluster.getWest();
+    if (north - south < 1e-6 && east - west < 1e-6) {
+      // The markers are on top of each other, so fitting them to the screen would not help
+      mapView.getController().setCenter(new GeoPoint(cluster.getLatitude(),
+          cluster.getLongitude()));
+      mapView.getController().zoomIn();
+    } else {
+      mapView.zoomToBoundingBox(new BoundingBox(north, east, south, west), true);
+    }
+  }
+}
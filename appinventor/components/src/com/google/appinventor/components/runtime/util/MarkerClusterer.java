@@ -0,0 +1,239 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups points that would be drawn close together on a map into clusters, using a grid whose
+ * cells have a fixed size in screen pixels. Positions are stored in Web Mercator coordinates
+ * normalized to the unit square, so the grid can be laid over them at any zoom level without
+ * repeating the projection for every point.
+ *
+ * Only points in and around the visible part of the map are clustered. The result covers the
+ * viewport plus a margin of half its size on every side, and is reused as long as the viewport
+ * stays inside that area at the same zoom level and no points are added, moved or removed. Since
+ * the margin is aligned to the grid, the clusters do not change as the map is panned.
+ *
+ * @param <T> the type of the items being clustered
+ */
+final class MarkerClusterer<T> {
+
+  // Web Mercator cannot represent the poles
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  /**
+   * A group of items that fall into the same grid cell. A cluster with a single item stands for
+   * that item alone.
+   */
+  static final class Cluster<T> {
+    private final List<T> items = new ArrayList<T>(1);
+    private double sumX = 0;
+    private double sumY = 0;
+    private double minX = Double.MAX_VALUE;
+    private double maxX = -Double.MAX_VALUE;
+    private double minY = Double.MAX_VALUE;
+    private double maxY = -Double.MAX_VALUE;
+
+    private void add(T item, double[] position) {
+      items.add(item);
+      sumX += position[0];
+      sumY += position[1];
+      minX = Math.min(minX, position[0]);
+      maxX = Math.max(maxX, position[0]);
+      minY = Math.min(minY, position[1]);
+      maxY = Math.max(maxY, position[1]);
+    }
+
+    public int size() {
+      return items.size();
+    }
+
+    public T get(int index) {
+      return items.get(index);
+    }
+
+    public List<T> getItems() {
+      return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Returns the latitude of the center of the cluster, the mean of its items' projected
+     * positions.
+     */
+    public double getLatitude() {
+      return toLatitude(sumY / items.size());
+    }
+
+    /**
+     * Returns the longitude of the center of the cluster.
+     */
+    public double getLongitude() {
+      return toLongitude(sumX / items.size());
+    }
+
+    public double getNorth() {
+      return toLatitude(minY);
+    }
+
+    public double getSouth() {
+      return toLatitude(maxY);
+    }
+
+    public double getEast() {
+      return toLongitude(maxX);
+    }
+
+    public double getWest() {
+      return toLongitude(minX);
+    }
+  }
+
+  private final Map<T, double[]> positions = new LinkedHashMap<T, double[]>();
+
+  // Changes whenever an item is added, moved or removed
+  private int version = 0;
+
+  private List<Cluster<T>> clusters = Collections.emptyList();
+  private int clustersVersion = -1;
+  private double clustersCellSize = Double.NaN;
+  private double coveredLeft;
+  private double coveredRight;
+  private double coveredTop;
+  private double coveredBottom;
+  private int computeCount = 0;
+
+  /**
+   * Adds an item at the given position, or moves it there if it is already present.
+   */
+  void put(T item, double latitude, double longitude) {
+    positions.put(item, new double[] { toX(longitude), toY(latitude) });
+    version++;
+  }
+
+  /**
+   * Removes an item.
+   *
+   * @return true if the item was present
+   */
+  boolean remove(T item) {
+    if (positions.remove(item) != null) {
+      version++;
+      return true;
+    }
+    return false;
+  }
+
+  boolean contains(T item) {
+    return positions.containsKey(item);
+  }
+
+  int size() {
+    return positions.size();
+  }
+
+  Collection<T> getItems() {
+    return Collections.unmodifiableSet(positions.keySet());
+  }
+
+  void clear() {
+    positions.clear();
+    version++;
+  }
+
+  /**
+   * Returns the number of times clusters were actually computed rather than reused.
+   */
+  int getComputeCount() {
+    return computeCount;
+  }
+
+  /**
+   * Returns the clusters for the items in and around the given viewport. Items far outside the
+   * viewport are left out.
+   *
+   * @param worldSize the width of the whole map, in pixels, at the current zoom level
+   * @param cellSize the size of a grid cell, in pixels
+   * @param north the northern edge of the viewport
+   * @param south the southern edge of the viewport
+   * @param east the eastern edge of the viewport
+   * @param west the western edge of the viewport
+   * @return the clusters, in the order in which their first items were added
+   */
+  List<Cluster<T>> getClusters(double worldSize, double cellSize, double north, double south,
+      double east, double west) {
+    double cell = cellSize / worldSize;
+    double left = toX(west);
+    double right = toX(east);
+    double top = toY(north);
+    double bottom = toY(south);
+    if (right < left) {
+      // The viewport spans the antimeridian, so no longitudes are culled
+      left = 0;
+      right = 1;
+    }
+    if (clustersVersion == version && clustersCellSize == cell && left >= coveredLeft
+        && right <= coveredRight && top >= coveredTop && bottom <= coveredBottom) {
+      return clusters;
+    }
+    double marginX = (right - left) / 2;
+    double marginY = (bottom - top) / 2;
+    coveredLeft = Math.floor((left - marginX) / cell) * cell;
+    coveredRight = Math.ceil((right + marginX) / cell) * cell;
+    coveredTop = Math.floor((top - marginY) / cell) * cell;
+    coveredBottom = Math.ceil((bottom + marginY) / cell) * cell;
+    clusters = computeClusters(cell);
+    clustersVersion = version;
+    clustersCellSize = cell;
+    computeCount++;
+    return clusters;
+  }
+
+  private List<Cluster<T>> computeClusters(double cell) {
+    Map<Long, Cluster<T>> cells = new LinkedHashMap<Long, Cluster<T>>();
+    for (Map.Entry<T, double[]> entry : positions.entrySet()) {
+      double[] position = entry.getValue();
+      double x = position[0];
+      double y = position[1];
+      if (x < coveredLeft || x > coveredRight || y < coveredTop || y > coveredBottom) {
+        continue;
+      }
+      long column = (long) Math.floor(x / cell);
+      long row = (long) Math.floor(y / cell);
+      long key = (column << 32) | (row & 0xFFFFFFFFL);
+      Cluster<T> cluster = cells.get(key);
+      if (cluster == null) {
+        cluster = new Cluster<T>();
+        cells.put(key, cluster);
+      }
+      cluster.add(entry.getKey(), position);
+    }
+    return new ArrayList<Cluster<T>>(cells.values());
+  }
+
+  private static double toX(double longitude) {
+    return (longitude + 180.0) / 360.0;
+  }
+
+  private static double toY(double latitude) {
+    double clipped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    double sin = Math.sin(Math.toRadians(clipped));
+    return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+  }
+
+  private static double toLongitude(double x) {
+    return x * 360.0 - 180.0;
+  }
+
+  private static double toLatitude(double y) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+  }
+}
@@ -53,6 +53,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -129,6 +130,19 @@ class NativeOpenStreetMapController implements MapController, MapListener {
    */
   private Set<MapFeature> hiddenFeatures = new HashSet<>();
 
+  /**
+   * Draws the markers while clustering is enabled. Created the first time clustering is enabled.
+   */
+  private MarkerClusterOverlay clusterOverlay = null;
+  private boolean clusteringEnabled = false;
+
+  /**
+   * The overlays shown (true) or hidden (false) during the current feature batch, in the order
+   * of their last change.
+   */
+  private final Map<Overlay, Boolean> batchedOverlays = new LinkedHashMap<Overlay, Boolean>();
+  private int batchDepth = 0;
+
   private static final float[] ANCHOR_HORIZONTAL = { Float.NaN, 0.0f, 1.0f, 0.5f };
   private static final float[] ANCHOR_VERTICAL = { Float.NaN, 0.0f, 0.5f, 1.0f };
 
@@ -564,6 +578,9 @@ class NativeOpenStreetMapController implements MapController, MapListener {
           public void onMarkerDragEnd(Marker marker) {
             IGeoPoint point = marker.getPosition();
             aiMarker.updateLocation(point.getLatitude(), point.getLongitude());
+            if (clusterOverlay != null) {
+              clusterOverlay.update(marker);
+            }
             for (MapEventListener listener : eventListeners) {
               listener.onFeatureStopDrag(aiMarker);
             }
@@ -736,8 +753,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
 
   @Override
   public void removeFeature(MapFeature aiFeature) {
-    view.getOverlayManager().remove(featureOverlays.get(aiFeature));
-    featureOverlays.remove(aiFeature);
+    hideOverlay(featureOverlays.remove(aiFeature));
   }
 
   @Override
@@ -747,6 +763,9 @@ class NativeOpenStreetMapController implements MapController, MapListener {
       marker.setAnchor(ANCHOR_HORIZONTAL[aiMarker.AnchorHorizontal()],
           ANCHOR_VERTICAL[aiMarker.AnchorVertical()]);
       marker.setPosition(new GeoPoint(aiMarker.Latitude(), aiMarker.Longitude()));
+      if (clusterOverlay != null) {
+        clusterOverlay.update(marker);
+      }
       view.invalidate();
     }
   }
@@ -1176,7 +1195,15 @@ class NativeOpenStreetMapController implements MapController, MapListener {
   }
 
   protected void showOverlay(OverlayWithIW overlay) {
-    view.getOverlayManager().add(overlay);
+    if (batchDepth > 0) {
+      batchOverlayChange(overlay, true);
+      return;
+    }
+    if (clusteringEnabled && overlay instanceof Marker) {
+      clusterOverlay.add((Marker) overlay);
+    } else {
+      view.getOverlayManager().add(overlay);
+    }
     view.invalidate();
   }
 
@@ -1186,14 +1213,43 @@ class NativeOpenStreetMapController implements MapController, MapListener {
   }
 
   protected void hideOverlay(OverlayWithIW overlay) {
-    view.getOverlayManager().remove(overlay);
+    if (batchDepth > 0) {
+      batchOverlayChange(overlay, false);
+      return;
+    }
+    if (overlay instanceof Marker && clusterOverlay != null
+        && clusterOverlay.contains((Marker) overlay)) {
+      clusterOverlay.remove((Marker) overlay);
+    } else {
+      view.getOverlayManager().remove(overlay);
+    }
     view.invalidate();
   }
 
+  private void batchOverlayChange(Overlay overlay, boolean visible) {
+    if (overlay != null) {
+      // Removing first moves the overlay to the end, so overlays keep the order in which they
+      // were last shown
+      batchedOverlays.remove(overlay);
+      batchedOverlays.put(overlay, visible);
+    }
+  }
+
   @Override
   public boolean isFeatureVisible(MapFeature feature) {
     OverlayWithIW overlay = featureOverlays.get(feature);
-    return overlay != null && view.getOverlayManager().contains(overlay);
+    if (overlay == null) {
+      return false;
+    }
+    Boolean batched = batchedOverlays.get(overlay);
+    if (batched != null) {
+      return batched;
+    }
+    if (overlay instanceof Marker && clusterOverlay != null
+        && clusterOverlay.contains((Marker) overlay)) {
+      return true;
+    }
+    return view.getOverlayManager().contains(overlay);
   }
 
   @Override
@@ -1208,6 +1264,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
       // Nothing to do
       return;
     }
+    beginFeatureBatch();
     if (visible) {
       hiddenFeatureCollections.remove(collection);
       for (MapFeature feature : collection) {
@@ -1223,6 +1280,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
         hideFeature(feature);
       }
     }
+    endFeatureBatch();
   }
 
   @Override
@@ -1365,6 +1423,84 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     }
   }
 
+  @Override
+  public void setClusteringEnabled(boolean enabled) {
+    if (enabled == clusteringEnabled) {
+      return;
+    }
+    // Overlays changed during a batch are moved when the batch ends
+    List<Overlay> overlays = view.getOverlayManager().overlays();
+    if (enabled) {
+      if (clusterOverlay == null) {
+        clusterOverlay = new MarkerClusterOverlay(view.getContext());
+      }
+      Set<Overlay> markers = new HashSet<Overlay>();
+      for (Overlay overlay : overlays) {
+        if (overlay instanceof Marker) {
+          markers.add(overlay);
+          clusterOverlay.add((Marker) overlay);
+        }
+      }
+      overlays.removeAll(markers);
+      overlays.add(clusterOverlay);
+    } else {
+      overlays.remove(clusterOverlay);
+      overlays.addAll(clusterOverlay.getMarkers());
+      clusterOverlay.clear();
+    }
+    clusteringEnabled = enabled;
+    view.invalidate();
+  }
+
+  @Override
+  public boolean isClusteringEnabled() {
+    return clusteringEnabled;
+  }
+
+  @Override
+  public void beginFeatureBatch() {
+    batchDepth++;
+  }
+
+  @Override
+  public void endFeatureBatch() {
+    if (batchDepth == 0 || --batchDepth > 0) {
+      return;
+    }
+    if (batchedOverlays.isEmpty()) {
+      return;
+    }
+    List<Overlay> overlays = view.getOverlayManager().overlays();
+    Set<Overlay> removed = new HashSet<Overlay>();
+    List<Overlay> added = new ArrayList<Overlay>();
+    for (Map.Entry<Overlay, Boolean> entry : batchedOverlays.entrySet()) {
+      Overlay overlay = entry.getKey();
+      boolean visible = entry.getValue();
+      if (clusteringEnabled && overlay instanceof Marker) {
+        if (visible) {
+          clusterOverlay.add((Marker) overlay);
+        } else {
+          clusterOverlay.remove((Marker) overlay);
+        }
+      } else if (visible) {
+        added.add(overlay);
+      } else {
+        removed.add(overlay);
+      }
+    }
+    batchedOverlays.clear();
+    // The overlay list is copied on every change, so it is changed in bulk rather than once per
+    // overlay. Overlays that are already shown are not added a second time.
+    if (!removed.isEmpty()) {
+      overlays.removeAll(removed);
+    }
+    if (!added.isEmpty()) {
+      added.removeAll(new HashSet<Overlay>(overlays));
+      overlays.addAll(added);
+    }
+    view.invalidate();
+  }
+
   static class MultiPolygon extends Polygon {
 
     private List<Polygon> children = new ArrayList<Polygon>();
@@ -11,9 +11,6 @@ import android.util.Log;
 import com.google.appinventor.components.runtime.PhoneStatus;
 import com.google.appinventor.components.runtime.ReplForm;
 
-import java.util.ArrayList;
-
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -30,8 +27,13 @@ public class RetValManager {
   private static final Object semaphore = new Object();
   private static final long TENSECONDS = 10000; // Ten Seconds (in milliseconds)
 
-  // There can be only one!
-  private static ArrayList<JSONObject> currentArray = new ArrayList<JSONObject>(10);
+  // There can be only one! The pending values are kept already encoded as JSON and separated by
+  // commas, so each value is encoded once when it is added rather than again on every fetch.
+  private static final StringBuilder currentArray = new StringBuilder();
+  private static int currentCount = 0;
+
+  // Reused to build the output of fetch and webRTCsendCurrent
+  private static final StringBuilder output = new StringBuilder();
 
   // Need a better place for this version string, but for various reasons, this is how we
   // are going to do this for now...
@@ -60,13 +62,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      add(retval);
     }
   }
 
@@ -81,13 +77,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      add(retval);
     }
   }
 
@@ -110,13 +100,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      add(retval);
     }
   }
 
@@ -138,13 +122,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      add(retval);
     }
   }
 
@@ -165,13 +143,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      add(retval);
     }
   }
 
@@ -189,13 +161,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      add(retval);
     }
   }
 
@@ -210,7 +176,7 @@ public class RetValManager {
   public static String fetch(boolean block) {
     long startTime = System.currentTimeMillis();
     synchronized (semaphore) {
-      while (currentArray.isEmpty() && block) {
+      while (currentCount == 0 && block) {
         long time = System.currentTimeMillis();
         if ((time - startTime) > (TENSECONDS - 100)) // Time to give up...
           break;
@@ -219,33 +185,54 @@ public class RetValManager {
         } catch (InterruptedException e) {
         }
       }
-      JSONArray arrayoutput = new JSONArray(currentArray);
-      JSONObject output = new JSONObject();
-      try {
-        output.put("status", "OK");
-        output.put("values", arrayoutput);
-      } catch (JSONException e) {
-        Log.e(LOG_TAG, "Error fetching retvals", e);
-        return("{\"status\" : \"BAD\", \"message\" : \"Failure in RetValManager\"}");
-      }
-      currentArray.clear();       // empty it out
-      return output.toString();
+      // batch tells the blocks editor that /_newblocks accepts a batch of forms
+      return takeCurrent(true);
     }
   }
 
+  /*
+   * add -- Add a value to the pending values and send them on their way.
+   * Our caller is holding "semaphore".
+   *
+   * @param retval The value to add
+   */
+  private static void add(JSONObject retval) {
+    boolean sendNotify = currentCount == 0;
+    if (currentCount > 0) {
+      currentArray.append(',');
+    }
+    currentArray.append(retval.toString());
+    currentCount++;
+    if (PhoneStatus.getUseWebRTC()) {
+      webRTCsendCurrent();
+    } else if (sendNotify) {
+      semaphore.notifyAll();
+    }
+  }
+
+  /*
+   * takeCurrent -- Wrap the pending values in a status object and empty them
+   * out. Our caller is holding "semaphore".
+   *
+   * @param batch true to tell the blocks editor that it may send a batch of forms
+   * @return String The JSON encoded status object
+   */
+  private static String takeCurrent(boolean batch) {
+    output.setLength(0);
+    output.append("{\"status\":\"OK\",");
+    if (batch) {
+      output.append("\"batch\":true,");
+    }
+    output.append("\"values\":[").append(currentArray).append("]}");
+    currentArray.setLength(0);  // empty it out
+    currentCount = 0;
+    return output.toString();
+  }
+
   // Only used for webrtc. Note: Our caller is holding "semphore" so we don't
   // need to worry about multi-thread synchonization here
   private static void webRTCsendCurrent() {
-    try {
-      JSONObject output = new JSONObject();
-      output.put("status", "OK");
-      output.put("values", new JSONArray(currentArray));
-      ReplForm.returnRetvals(output.toString());
-    } catch (JSONException e) {
-      Log.e(LOG_TAG, "Error building retval", e);
-      return;
-    }
-    currentArray.clear();
+    ReplForm.returnRetvals(takeCurrent(false));
   }
 
 }
@@ -0,0 +1,293 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
+
+/**
+ * An index over the bounding boxes of map items that answers bounding box, distance and
+ * nearest neighbor queries without visiting every item.
+ *
+ * Items are indexed lazily. Adding an item or reporting that it has changed only marks it as
+ * stale, and stale items are (re)inserted at the start of the next query. An item that moves many
+ * times between two queries, such as a marker being dragged, is therefore indexed once.
+ *
+ * Envelopes use longitude for x and latitude for y, matching the geometries built by
+ * {@link GeometryUtil}. Distances are in meters.
+ *
+ * @param <T> the type of the indexed items
+ */
+public abstract class SpatialIndex<T> {
+
+  // A small fraction of the world, used to start the search for the nearest items when the items
+  // are all in one place
+  private static final double MIN_SEARCH_RADIUS = 10;
+
+  private final Quadtree tree = new Quadtree();
+  private final Map<T, Envelope> envelopes = new LinkedHashMap<T, Envelope>();
+  // The order in which the items were added. Query results are put in this order before they are
+  // sorted by distance, so that they do not depend on the layout of the tree.
+  private final Map<T, Long> order = new HashMap<T, Long>();
+  private long nextOrder = 0;
+  private final Set<T> stale = new LinkedHashSet<T>();
+
+  // Contains every item indexed since the last clear. It does not shrink when items are removed,
+  // which only makes the first guess of getNearestItems a little larger.
+  private Envelope bounds = new Envelope();
+
+  /**
+   * Computes the bounding box of an item. The box must contain every point of the item, so that
+   * an item is never missed by a query that it matches.
+   */
+  protected abstract Envelope getEnvelope(T item);
+
+  /**
+   * Computes the distance, in meters, between an item and a point.
+   */
+  protected abstract double getDistance(T item, double latitude, double longitude);
+
+  /**
+   * Tests whether an item intersects the given bounding box.
+   */
+  protected abstract boolean intersects(T item, double north, double west, double south,
+      double east);
+
+  public synchronized void add(T item) {
+    if (!envelopes.containsKey(item)) {
+      envelopes.put(item, null);
+      order.put(item, nextOrder++);
+    }
+    stale.add(item);
+  }
+
+  public synchronized void remove(T item) {
+    Envelope envelope = envelopes.remove(item);
+    order.remove(item);
+    stale.remove(item);
+    if (envelope != null) {
+      tree.remove(envelope, item);
+    }
+  }
+
+  /**
+   * Marks an item as changed so that it is reindexed before the next query. Items that are not
+   * in the index are ignored.
+   */
+  public synchronized void invalidate(T item) {
+    if (envelopes.containsKey(item)) {
+      stale.add(item);
+    }
+  }
+
+  public synchronized void clear() {
+    for (Map.Entry<T, Envelope> entry : envelopes.entrySet()) {
+      if (entry.getValue() != null) {
+        tree.remove(entry.getValue(), entry.getKey());
+      }
+    }
+    envelopes.clear();
+    order.clear();
+    stale.clear();
+    bounds = new Envelope();
+  }
+
+  public synchronized int size() {
+    return envelopes.size();
+  }
+
+  /**
+   * Gets the items that intersect the bounding box, in the order they were added. A box whose
+   * west edge is east of its east edge crosses the antimeridian.
+   */
+  public synchronized List<T> getItemsInBoundingBox(double north, double west, double south,
+      double east) {
+    refresh();
+    List<T> result = new ArrayList<T>();
+    for (T item : getCandidates(north, west, south, east)) {
+      if (west <= east) {
+        if (intersects(item, north, west, south, east)) {
+          result.add(item);
+        }
+      } else if (intersects(item, north, west, south, 180)
+          || intersects(item, north, -180, south, east)) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the items within the given distance of a point, nearest first.
+   */
+  public synchronized List<T> getItemsWithinDistance(double latitude, double longitude,
+      double distance) {
+    refresh();
+    List<Neighbor<T>> neighbors = getNeighbors(latitude, longitude, distance);
+    List<T> result = new ArrayList<T>(neighbors.size());
+    for (Neighbor<T> neighbor : neighbors) {
+      result.add(neighbor.item);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the {@code count} items nearest to a point, nearest first.
+   *
+   * The search starts with a small circle around the point and doubles its radius until it
+   * contains enough items. Every item within a circle is found by one query of the index, so the
+   * items found this way are the nearest ones no matter how each item measures its distance.
+   */
+  public synchronized List<T> getNearestItems(double latitude, double longitude, int count) {
+    refresh();
+    List<T> result = new ArrayList<T>();
+    if (count <= 0 || envelopes.isEmpty()) {
+      return result;
+    }
+    count = Math.min(count, envelopes.size());
+    // Start with a circle that would hold about one item if they were spread out evenly
+    double radius = Math.max(MIN_SEARCH_RADIUS, GeometryUtil.ONE_DEG_IN_METERS
+        * Math.max(bounds.getWidth(), bounds.getHeight()) / Math.sqrt(envelopes.size()));
+    List<Neighbor<T>> neighbors;
+    do {
+      neighbors = getNeighbors(latitude, longitude, radius);
+      radius *= 2;
+    } while (neighbors.size() < count && radius < Math.PI * GeometryUtil.EARTH_RADIUS * 2);
+    if (neighbors.size() < count) {
+      // The circle covers the whole world, but an item may measure its distance in a way that
+      // puts it further away still
+      neighbors = getNeighbors(latitude, longitude, Double.POSITIVE_INFINITY);
+    }
+    for (int i = 0; i < count && i < neighbors.size(); i++) {
+      result.add(neighbors.get(i).item);
+    }
+    return result;
+  }
+
+  /**
+   * Computes a bounding box that contains every point within {@code distance} meters of the
+   * given point. The box is returned as {@code {north, west, south, east}} and crosses the
+   * antimeridian when west is greater than east.
+   */
+  public static double[] getBoundsAround(double latitude, double longitude, double distance) {
+    double dLat = distance / GeometryUtil.ONE_DEG_IN_METERS;
+    double north = latitude + dLat;
+    double south = latitude - dLat;
+    if (north >= 90 || south <= -90) {
+      // The circle contains a pole and so every longitude
+      return new double[] { Math.min(90, north), -180, Math.max(-90, south), 180 };
+    }
+    // By the haversine formula, the longitude of a point within the distance differs from the
+    // center's by at most 2 * asin(sin(d / 2R) / cos(lat)), where lat is the largest latitude
+    // either point can have
+    double maxLatitude = Math.toRadians(Math.max(Math.abs(north), Math.abs(south)));
+    double sinDLon = Math.sin(Math.min(Math.PI / 2, distance / (2 * GeometryUtil.EARTH_RADIUS)))
+        / Math.cos(maxLatitude);
+    if (sinDLon >= 1) {
+      return new double[] { north, -180, south, 180 };
+    }
+    double dLon = Math.toDegrees(2 * Math.asin(sinDLon));
+    double west = longitude - dLon;
+    double east = longitude + dLon;
+    if (west < -180) {
+      west += 360;
+    }
+    if (east > 180) {
+      east -= 360;
+    }
+    return new double[] { north, west, south, east };
+  }
+
+  private static class Neighbor<T> {
+    final T item;
+    final double distance;
+
+    Neighbor(T item, double distance) {
+      this.item = item;
+      this.distance = distance;
+    }
+  }
+
+  private static final Comparator<Neighbor<?>> NEAREST_FIRST = new Comparator<Neighbor<?>>() {
+    @Override
+    public int compare(Neighbor<?> a, Neighbor<?> b) {
+      return Double.compare(a.distance, b.distance);
+    }
+  };
+
+  private List<Neighbor<T>> getNeighbors(double latitude, double longitude, double distance) {
+    Iterable<T> candidates;
+    if (Double.isInfinite(distance)) {
+      candidates = envelopes.keySet();
+    } else {
+      double[] box = getBoundsAround(latitude, longitude, distance);
+      candidates = getCandidates(box[0], box[1], box[2], box[3]);
+    }
+    List<Neighbor<T>> neighbors = new ArrayList<Neighbor<T>>();
+    for (T item : candidates) {
+      double d = getDistance(item, latitude, longitude);
+      if (d <= distance) {
+        neighbors.add(new Neighbor<T>(item, d));
+      }
+    }
+    Collections.sort(neighbors, NEAREST_FIRST);
+    return neighbors;
+  }
+
+  private List<T> getCandidates(double north, double west, double south, double east) {
+    Set<T> candidates = new HashSet<T>();
+    if (west <= east) {
+      addCandidates(new Envelope(west, east, south, north), candidates);
+    } else {
+      addCandidates(new Envelope(west, 180, south, north), candidates);
+      addCandidates(new Envelope(-180, east, south, north), candidates);
+    }
+    List<T> result = new ArrayList<T>(candidates);
+    Collections.sort(result, new Comparator<T>() {
+      @Override
+      public int compare(T a, T b) {
+        return order.get(a).compareTo(order.get(b));
+      }
+    });
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addCandidates(Envelope search, Set<T> candidates) {
+    // The quadtree returns every item in the nodes that the search touches, so the envelopes
+    // are checked again here
+    for (Object o : tree.query(search)) {
+      T item = (T) o;
+      if (search.intersects(envelopes.get(item))) {
+        candidates.add(item);
+      }
+    }
+  }
+
+  private void refresh() {
+    for (T item : stale) {
+      Envelope old = envelopes.get(item);
+      if (old != null) {
+        tree.remove(old, item);
+      }
+      Envelope envelope = getEnvelope(item);
+      envelopes.put(item, envelope);
+      tree.insert(envelope, item);
+      bounds.expandToInclude(envelope);
+    }
+    stale.clear();
+  }
+}
@@ -0,0 +1,200 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the values of a TinyDB namespace in an SQLite database, one row per tag, so that reading
+ * or writing a tag costs time proportional to the size of its value rather than to the size of
+ * the whole namespace. All namespaces share a single database file, keyed by namespace and tag.
+ *
+ * When a namespace is first opened, any values it has in SharedPreferences are moved into the
+ * database in a single transaction and the preferences are cleared. There is no way back: a
+ * namespace with values in the database is always opened from the database (see
+ * {@link #hasValues}).
+ */
+final class TinyDBDatabase implements TinyDBStore.Backend {
+
+  private static final String LOG_TAG = "TinyDBDatabase";
+  private static final String DATABASE_NAME = "TinyDB.db";
+  private static final int DATABASE_VERSION = 1;
+  private static final String TABLE = "entries";
+
+  private static class Helper extends SQLiteOpenHelper {
+    Helper(Context context) {
+      super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+      db.execSQL("CREATE TABLE " + TABLE + " ("
+          + "namespace TEXT NOT NULL, "
+          + "tag TEXT NOT NULL, "
+          + "value TEXT NOT NULL, "
+          + "PRIMARY KEY (namespace, tag))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+      // There is only one version so far
+    }
+  }
+
+  // SQLiteOpenHelper should be shared by everyone using the same file
+  private static Helper helper;
+  private static Context helperContext;
+
+  private final String namespace;
+  private final Context context;
+  private final SQLiteDatabase db;
+
+  TinyDBDatabase(Context context, String namespace, SharedPreferences legacyPreferences) {
+    this.namespace = namespace;
+    this.context = context.getApplicationContext();
+    this.db = getHelper(this.context).getWritableDatabase();
+    migrate(legacyPreferences);
+  }
+
+  private static synchronized Helper getHelper(Context applicationContext) {
+    if (helper == null || helperContext != applicationContext) {
+      helper = new Helper(applicationContext);
+      helperContext = applicationContext;
+    }
+    return helper;
+  }
+
+  /**
+   * Returns true if namespace has any values in the database. The database is not created if it
+   * doesn't exist yet.
+   */
+  static boolean hasValues(Context context, String namespace) {
+    Context applicationContext = context.getApplicationContext();
+    if (!applicationContext.getDatabasePath(DATABASE_NAME).exists()) {
+      return false;
+    }
+    SQLiteDatabase db = getHelper(applicationContext).getWritableDatabase();
+    Cursor cursor = db.rawQuery("SELECT 1 FROM " + TABLE + " WHERE namespace = ? LIMIT 1",
+        new String[] { namespace });
+    try {
+      return cursor.moveToFirst();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  public String getString(String tag) {
+    Cursor cursor = db.rawQuery("SELECT value FROM " + TABLE + " WHERE namespace = ? AND tag = ?",
+        new String[] { namespace, tag });
+    try {
+      return cursor.moveToFirst() ? cursor.getString(0) : null;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  public Collection<String> getTags() {
+    Cursor cursor = db.rawQuery("SELECT tag FROM " + TABLE + " WHERE namespace = ?",
+        new String[] { namespace });
+    try {
+      List<String> tags = new ArrayList<String>(cursor.getCount());
+      while (cursor.moveToNext()) {
+        tags.add(cursor.getString(0));
+      }
+      return tags;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  public void write(boolean clear, Map<String, String> changes) {
+    db.beginTransaction();
+    try {
+      if (clear) {
+        db.delete(TABLE, "namespace = ?", new String[] { namespace });
+      }
+      writeChanges(changes);
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @Override
+  public boolean isValidFor(Context context) {
+    return this.context == context.getApplicationContext() && db.isOpen();
+  }
+
+  private void writeChanges(Map<String, String> changes) {
+    SQLiteStatement insert = null;
+    SQLiteStatement delete = null;
+    try {
+      for (Map.Entry<String, String> entry : changes.entrySet()) {
+        if (entry.getValue() == null) {
+          if (delete == null) {
+            delete = db.compileStatement("DELETE FROM " + TABLE
+                + " WHERE namespace = ? AND tag = ?");
+          }
+          delete.bindString(1, namespace);
+          delete.bindString(2, entry.getKey());
+          delete.execute();
+        } else {
+          if (insert == null) {
+            insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE
+                + " (namespace, tag, value) VALUES (?, ?, ?)");
+          }
+          insert.bindString(1, namespace);
+          insert.bindString(2, entry.getKey());
+          insert.bindString(3, entry.getValue());
+          insert.execute();
+        }
+      }
+    } finally {
+      if (insert != null) {
+        insert.close();
+      }
+      if (delete != null) {
+        delete.close();
+      }
+    }
+  }
+
+  /**
+   * Moves the string values in legacyPreferences into the database and clears the preferences.
+   * Both happen only once the database transaction has succeeded, so an interrupted migration is
+   * simply repeated the next time the namespace is opened.
+   */
+  private void migrate(SharedPreferences legacyPreferences) {
+    Map<String, ?> legacy = legacyPreferences.getAll();
+    if (legacy.isEmpty()) {
+      return;
+    }
+    Map<String, String> values = new HashMap<String, String>();
+    for (Map.Entry<String, ?> entry : legacy.entrySet()) {
+      if (entry.getValue() instanceof String) {
+        values.put(entry.getKey(), (String) entry.getValue());
+      }
+    }
+    write(false, values);
+    legacyPreferences.edit().clear().commit();
+    Log.i(LOG_TAG, "Moved " + values.size() + " values of " + namespace + " into the database");
+  }
+}
@@ -0,0 +1,410 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONException;
+
+/**
+ * The data store behind every {@link com.google.appinventor.components.runtime.TinyDB}
+ * component that uses a given namespace.
+ *
+ * The store keeps the decoded form of recently read values, so that reading the same tag again
+ * does not parse its JSON again, and it collects writes in memory and writes them to the
+ * underlying {@link SharedPreferences} together, shortly after the last change, instead of
+ * blocking on the disk for every StoreValue. Reads always see pending writes. Components must
+ * call {@link #flush()} when the app is paused or stopped so that nothing is lost if the
+ * process is then killed.
+ *
+ * Values are kept either in {@link SharedPreferences}, the original TinyDB storage, or in an
+ * SQLite database (see {@link TinyDBDatabase}). SharedPreferences holds a whole namespace in
+ * memory and rewrites all of it on every change, which becomes slow for namespaces with many tags
+ * or large values. The database reads and writes only the tags involved.
+ *
+ * There is a single store per namespace, shared by all TinyDB components on all screens. Once a
+ * namespace has values in the database it stays there, even for components that don't ask for
+ * the database, so that no component is left reading and writing the SharedPreferences that the
+ * values were moved out of.
+ */
+public final class TinyDBStore {
+
+  // How long to wait after a change before writing to disk, so that bursts of
+  // StoreValue calls are written together
+  private static final long WRITE_BEHIND_DELAY = 250;
+
+  // Upper bound on the number of decoded values kept in memory
+  private static final int MAX_CACHED_VALUES = 128;
+
+  private static final Map<String, TinyDBStore> STORES = new HashMap<String, TinyDBStore>();
+
+  /**
+   * Where a namespace's values are kept.
+   */
+  interface Backend {
+    /**
+     * Returns the JSON stored under tag, or null if there is none.
+     */
+    String getString(String tag);
+
+    /**
+     * Returns every tag in the namespace.
+     */
+    Collection<String> getTags();
+
+    /**
+     * Writes a batch of changes. A null value removes its tag.
+     *
+     * @param clear true if the namespace should be emptied before the changes are made
+     * @param changes the tags to store or remove
+     */
+    void write(boolean clear, Map<String, String> changes);
+
+    /**
+     * Returns true if this backend can still be used with the given context.
+     */
+    boolean isValidFor(Context context);
+  }
+
+  /**
+   * Keeps values in the SharedPreferences named after the namespace.
+   */
+  private static class SharedPreferencesBackend implements Backend {
+    private final String namespace;
+    private final SharedPreferences sharedPreferences;
+
+    SharedPreferencesBackend(Context context, String namespace) {
+      this.namespace = namespace;
+      this.sharedPreferences = getSharedPreferences(context, namespace);
+    }
+
+    @Override
+    public String getString(String tag) {
+      String value = sharedPreferences.getString(tag, "");
+      return value.length() == 0 ? null : value;
+    }
+
+    @Override
+    public Collection<String> getTags() {
+      return sharedPreferences.getAll().keySet();
+    }
+
+    @Override
+    public void write(boolean clear, Map<String, String> changes) {
+      SharedPreferences.Editor editor = sharedPreferences.edit();
+      if (clear) {
+        editor.clear();
+      }
+      for (Map.Entry<String, String> entry : changes.entrySet()) {
+        if (entry.getValue() == null) {
+          editor.remove(entry.getKey());
+        } else {
+          editor.putString(entry.getKey(), entry.getValue());
+        }
+      }
+      if (SdkLevel.getLevel() >= SdkLevel.LEVEL_GINGERBREAD) {
+        // apply() updates the preferences in memory right away and writes them
+        // to disk in the background. Android waits for these writes to finish
+        // before the activity is paused or stopped.
+        GingerbreadUtil.applyChanges(editor);
+      } else {
+        editor.commit();
+      }
+    }
+
+    @Override
+    public boolean isValidFor(Context context) {
+      // Android hands out a single SharedPreferences instance per name, so a
+      // different instance means this one belongs to a defunct context.
+      return sharedPreferences == getSharedPreferences(context, namespace);
+    }
+  }
+
+  private final Backend backend;
+  // Set once the store has been superseded by one with another backend
+  private volatile boolean replaced = false;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  // Decoded values, least recently used first. A tag is only present if its
+  // value was read since the tag was last changed.
+  private final Map<String, Object> decoded =
+      new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+          return size() > MAX_CACHED_VALUES;
+        }
+      };
+
+  // Changes not yet written to the backend. A null value marks a removed tag.
+  private final Map<String, String> pending = new LinkedHashMap<String, String>();
+  private boolean pendingClear = false;
+
+  private final Runnable flushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  // Statistics, for debugging
+  private long cacheHits = 0;
+  private long cacheMisses = 0;
+  private long writes = 0;
+  private long flushes = 0;
+  private int lastFlushSize = 0;
+
+  private TinyDBStore(Backend backend) {
+    this.backend = backend;
+  }
+
+  /**
+   * Returns the store for the given namespace, creating it if needed.
+   *
+   * The first time a namespace is opened with {@code useDatabase} set, any values it has in
+   * SharedPreferences are moved into the database. From then on, as long as it has values there,
+   * the namespace is kept in the database whatever {@code useDatabase} is, so components that
+   * disagree still share one store. A store that has been replaced by one with another backend
+   * reports {@link #isReplaced()}, and its users should get the store again.
+   *
+   * @param context the context used to open the namespace's storage
+   * @param namespace the TinyDB namespace
+   * @param useDatabase true to keep values in an SQLite database, false to use SharedPreferences
+   *     unless the namespace is already in the database
+   * @return the shared store for namespace
+   */
+  public static synchronized TinyDBStore getStore(Context context, String namespace,
+      boolean useDatabase) {
+    TinyDBStore store = STORES.get(namespace);
+    if (store != null && store.backend.isValidFor(context)) {
+      if (store.isDatabase() == useDatabase) {
+        return store;
+      }
+      if (store.isDatabase()) {
+        // A namespace with values in the database stays there
+        store.flush();
+        if (TinyDBDatabase.hasValues(context, namespace)) {
+          return store;
+        }
+      }
+    }
+    if (store != null) {
+      store.flush();
+      store.replaced = true;
+    }
+    Backend backend;
+    if (useDatabase || TinyDBDatabase.hasValues(context, namespace)) {
+      backend = new TinyDBDatabase(context, namespace,
+          getSharedPreferences(context, namespace));
+    } else {
+      backend = new SharedPreferencesBackend(context, namespace);
+    }
+    store = new TinyDBStore(backend);
+    STORES.put(namespace, store);
+    return store;
+  }
+
+  static SharedPreferences getSharedPreferences(Context context, String namespace) {
+    return context.getSharedPreferences(namespace, Context.MODE_PRIVATE);
+  }
+
+  /**
+   * Returns true if this store has been replaced by another for the same namespace, after which
+   * it must no longer be used.
+   */
+  public boolean isReplaced() {
+    return replaced;
+  }
+
+  /**
+   * Returns true if this store keeps its values in an SQLite database.
+   */
+  public boolean isDatabase() {
+    return backend instanceof TinyDBDatabase;
+  }
+
+  /**
+   * Returns the value stored under {@code tag}, or {@code valueIfTagNotThere} if there is none.
+   * Lists and dictionaries are returned as fresh copies that the caller may modify without
+   * affecting the cached value.
+   *
+   * @throws JSONException if the stored value cannot be decoded
+   */
+  public synchronized Object getValue(String tag, Object valueIfTagNotThere)
+      throws JSONException {
+    if (decoded.containsKey(tag)) {
+      cacheHits++;
+      return copyOf(decoded.get(tag));
+    }
+    cacheMisses++;
+    String json;
+    if (pending.containsKey(tag)) {
+      json = pending.get(tag);
+    } else if (pendingClear) {
+      json = null;
+    } else {
+      json = backend.getString(tag);
+    }
+    if (json == null || json.length() == 0) {
+      return valueIfTagNotThere;
+    }
+    Object value = JsonUtil.getObjectFromJson(json, true);
+    decoded.put(tag, value);
+    return copyOf(value);
+  }
+
+  /**
+   * Stores the JSON encoding of a value under {@code tag}.
+   */
+  public synchronized void putValue(String tag, String json) {
+    decoded.remove(tag);
+    pending.put(tag, json);
+    writes++;
+    scheduleFlush();
+  }
+
+  /**
+   * Removes {@code tag} from the store.
+   */
+  public synchronized void removeValue(String tag) {
+    decoded.remove(tag);
+    pending.put(tag, null);
+    writes++;
+    scheduleFlush();
+  }
+
+  /**
+   * Removes every tag from the store.
+   */
+  public synchronized void clear() {
+    decoded.clear();
+    pending.clear();
+    pendingClear = true;
+    writes++;
+    scheduleFlush();
+  }
+
+  /**
+   * Returns the tags in the store, including any that have not yet been written to disk.
+   */
+  public synchronized List<String> getTags() {
+    List<String> tags = new ArrayList<String>();
+    if (!pendingClear) {
+      for (String tag : backend.getTags()) {
+        if (!pending.containsKey(tag)) {
+          tags.add(tag);
+        }
+      }
+    }
+    for (Map.Entry<String, String> entry : pending.entrySet()) {
+      if (entry.getValue() != null) {
+        tags.add(entry.getKey());
+      }
+    }
+    return tags;
+  }
+
+  /**
+   * Writes all pending changes to the backend in a single batch.
+   */
+  public synchronized void flush() {
+    handler.removeCallbacks(flushRunnable);
+    if (!pendingClear && pending.isEmpty()) {
+      return;
+    }
+    backend.write(pendingClear, pending);
+    lastFlushSize = pending.size() + (pendingClear ? 1 : 0);
+    flushes++;
+    pending.clear();
+    pendingClear = false;
+  }
+
+  /**
+   * Returns the number of reads that were answered from the decoded value cache.
+   */
+  public synchronized long getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * Returns the number of reads that had to decode the stored JSON.
+   */
+  public synchronized long getCacheMisses() {
+    return cacheMisses;
+  }
+
+  /**
+   * Returns the number of changes (stores, removals and clears) made to the store.
+   */
+  public synchronized long getWriteCount() {
+    return writes;
+  }
+
+  /**
+   * Returns the number of times pending changes were written to the preferences.
+   */
+  public synchronized long getFlushCount() {
+    return flushes;
+  }
+
+  /**
+   * Returns the number of changes written by the most recent flush.
+   */
+  public synchronized int getLastFlushSize() {
+    return lastFlushSize;
+  }
+
+  /**
+   * Returns the number of changes waiting to be written.
+   */
+  public synchronized int getPendingCount() {
+    return pending.size() + (pendingClear ? 1 : 0);
+  }
+
+  private void scheduleFlush() {
+    handler.removeCallbacks(flushRunnable);
+    handler.postDelayed(flushRunnable, WRITE_BEHIND_DELAY);
+  }
+
+  /**
+   * Copies the lists and dictionaries in a decoded value. Blocks such as "add items to list"
+   * modify lists in place, and before the cache existed every GetValue returned a newly decoded
+   * value, so callers must never be handed the cached instance. Copying is still much cheaper
+   * than parsing the JSON again.
+   */
+  private static Object copyOf(Object value) {
+    if (value instanceof YailList) {
+      Object[] items = ((YailList) value).toArray();
+      for (int i = 0; i < items.length; i++) {
+        items[i] = copyOf(items[i]);
+      }
+      return YailList.makeList(items);
+    } else if (value instanceof YailDictionary) {
+      YailDictionary copy = new YailDictionary();
+      for (Map.Entry<Object, Object> entry : ((YailDictionary) value).entrySet()) {
+        copy.put(entry.getKey(), copyOf(entry.getValue()));
+      }
+      return copy;
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      List<Object> copy = new ArrayList<Object>(list.size());
+      for (Object item : list) {
+        copy.add(copyOf(item));
+      }
+      return copy;
+    }
+    return value;
+  }
+}
@@ -7,12 +7,12 @@ package com.google.appinventor.components.runtime.util;
 
 import android.util.Log;
 import androidx.annotation.NonNull;
-import com.google.appinventor.components.runtime.collect.Lists;
 import com.google.appinventor.components.runtime.errors.DispatchableError;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 import gnu.lists.FString;
 import gnu.lists.LList;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -40,6 +40,16 @@ public class YailDictionary extends LinkedHashMap<Object, Object>
     }
   };
 
+  // The keys in insertion order, so that getObject(int) does not have to walk the entries. It is
+  // rebuilt on demand after keys are added or removed. Keys can also be removed through the
+  // views and iterators of the map, which cannot add keys, so a change in size is enough to
+  // detect those removals.
+  private transient Object[] keyIndex = null;
+
+  // The pairs handed out by getObject(int), by position, made the first time each position is
+  // asked for. They are dropped whenever keyIndex is rebuilt.
+  private transient Object[] pairIndex = null;
+
   /**
    * Create an empty YailDictionary.
    */
@@ -252,38 +262,71 @@ public class YailDictionary extends LinkedHashMap<Object, Object>
   @SuppressWarnings("WeakerAccess")  // Called from runtime.scm
   public Object getObjectAtKeyPath(List<?> keysOrIndices) {
     Object target = this;
+    // Association lists along the path are looked up in place rather than converted into
+    // dictionaries. alistToDict converts the values it copies, and the elements of YailLists
+    // among them, so the value found is converted when it was reached from an association list
+    // through nothing but YailLists. Maps and other lists keep their values as they are.
+    boolean convert = false;
 
     for (Object currentKey : keysOrIndices) {
       if (target instanceof Map) {
         target = ((Map<?, ?>) target).get(currentKey);
+        convert = false;
       } else if (target instanceof YailList && isAlist((YailList) target)) {
-        target = alistToDict((YailList) target).get(currentKey);
+        target = alistGet((YailList) target, currentKey);
+        convert = true;
       } else if (target instanceof List) {
+        convert = convert && target instanceof YailList;
         target = getFromList((List<?>) target, currentKey);
       } else {
         return null;
       }
     }
 
-    return target;
+    return convert ? convertAlistValue(target) : target;
+  }
+
+  /**
+   * Looks up key in alist exactly as {@code alistToDict(alist).get(key)} would, without building
+   * the dictionary: the last pair with the key wins, but its value is not converted.
+   */
+  private static Object alistGet(YailList alist, Object key) {
+    if (key instanceof FString) {
+      key = key.toString();
+    }
+    Object result = null;
+    for (Object o : (LList) alist.getCdr()) {
+      Object pairKey = ((YailList) o).getObject(0);
+      if (key == null ? pairKey == null : key.equals(pairKey)) {
+        result = ((YailList) o).getObject(1);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Converts a value found in an association list the way {@link #alistToDict(YailList)}
+   * converts the values it copies.
+   */
+  private static Object convertAlistValue(Object value) {
+    if (value instanceof YailList) {
+      if (isAlist((YailList) value)) {
+        return alistToDict((YailList) value);
+      }
+      return checkList((YailList) value);
+    }
+    return value;
   }
 
   private static Collection<Object> allOf(Map<Object, Object> map) {
     return map.values();
   }
 
+  // Association lists are walked by walkKeyPath itself, without collecting their values.
   @SuppressWarnings("unchecked")  // Kawa is compiled without generics for Java 5
   private static Collection<Object> allOf(List<Object> list) {
     if (list instanceof YailList) {
-      if (isAlist((YailList) list)) {
-        ArrayList<Object> result = new ArrayList<>();
-        for (Object o : (LList) ((YailList) list).getCdr()) {
-          result.add(((YailList) o).getObject(1));
-        }
-        return result;
-      } else {
-        return (Collection<Object>) ((YailList) list).getCdr();
-      }
+      return (Collection<Object>) ((YailList) list).getCdr();
     }
     return list;
   }
@@ -313,44 +356,55 @@ public class YailDictionary extends LinkedHashMap<Object, Object>
     return null;
   }
 
-  private static <T> List<Object> walkKeyPath(Object root, List<T> keysOrIndices,
-      List<Object> result) {
-    if (keysOrIndices.isEmpty()) {
+  /**
+   * Adds to result every value reached by following path from root, starting at path[depth].
+   */
+  private static void walkKeyPath(Object root, Object[] path, int depth, List<Object> result) {
+    if (depth == path.length) {
       if (root != null) {
         result.add(root);
       }
-      return result;
+      return;
     } else if (root == null) {
-      return result;
+      return;
     }
 
-    Object currentKey = keysOrIndices.get(0);
-    List<T> childKeys = keysOrIndices.subList(1, keysOrIndices.size());
+    Object currentKey = path[depth];
     if (currentKey == ALL) {
-      for (Object child : allOf(root)) {
-        walkKeyPath(child, childKeys, result);
+      if (root instanceof YailList && isAlist((YailList) root)) {
+        // The values of an association list, without copying them into a list first
+        for (Object pair : (LList) ((YailList) root).getCdr()) {
+          walkKeyPath(((YailList) pair).getObject(1), path, depth + 1, result);
+        }
+      } else {
+        for (Object child : allOf(root)) {
+          walkKeyPath(child, path, depth + 1, result);
+        }
       }
     } else if (root instanceof Map) {
-      walkKeyPath(((Map<?, ?>) root).get(currentKey), childKeys, result);
+      walkKeyPath(((Map<?, ?>) root).get(currentKey), path, depth + 1, result);
     } else if (root instanceof YailList && isAlist((YailList) root)) {
       Object value = alistLookup((YailList) root, currentKey);
       if (value != null) {
-        walkKeyPath(value, childKeys, result);
+        walkKeyPath(value, path, depth + 1, result);
       }
     } else if (root instanceof List) {
       int index = keyToIndex((List<?>) root, currentKey);
       try {
-        walkKeyPath(((List<?>) root).get(index), childKeys, result);
+        walkKeyPath(((List<?>) root).get(index), path, depth + 1, result);
       } catch (Exception e) {
         // Suppressed, as we are walking the tree and other paths might match.
       }
     }
-    return result;
   }
 
   @SuppressWarnings("WeakerAccess")  // called from runtime.scm
   public static <T> List<Object> walkKeyPath(YailObject<?> object, List<T> keysOrIndices) {
-    return walkKeyPath(object, keysOrIndices, new ArrayList<>());
+    // The path usually arrives as a Kawa list, where get(i) is linear, so it is copied into an
+    // array once rather than indexed or split into sublists at every level of the walk.
+    List<Object> result = new ArrayList<>();
+    walkKeyPath(object, keysOrIndices.toArray(), 0, result);
+    return result;
   }
 
   private static int keyToIndex(List<?> target, Object key) {
@@ -519,17 +573,33 @@ public class YailDictionary extends LinkedHashMap<Object, Object>
     if (value instanceof FString) {
       value = value.toString();
     }
+    if (keyIndex != null && !super.containsKey(key)) {
+      keyIndex = null;
+    }
     return super.put(key, value);
   }
 
+  @Override
+  public void putAll(Map<?, ?> map) {
+    keyIndex = null;
+    super.putAll(map);
+  }
+
   @Override
   public Object remove(Object key) {
+    keyIndex = null;
     if (key instanceof FString) {
       return super.remove(key.toString());
     }
     return super.remove(key);
   }
 
+  @Override
+  public void clear() {
+    keyIndex = null;
+    super.clear();
+  }
+
   @Override
   public String toString() {
     try {
@@ -539,21 +609,63 @@ public class YailDictionary extends LinkedHashMap<Object, Object>
     }
   }
 
+  /**
+   * Returns the key-value pair at the given position in insertion order, as a read-only list
+   * whose second element is the key's current value. After the first call, this takes constant
+   * time until keys are next added or removed, so looping over a dictionary by index is linear
+   * rather than quadratic, and asking for the same position again returns the same pair.
+   */
   @Override
   public Object getObject(int index) {
     if (index < 0 || index >= size()) {
       throw new IndexOutOfBoundsException();
     }
-    int i = index;
-    for (Map.Entry<Object, Object> e : entrySet()) {
-      if (i == 0) {
-        return Lists.newArrayList(e.getKey(), e.getValue());
+    Object[] keys = getKeyIndex();
+    if (pairIndex == null) {
+      pairIndex = new Object[keys.length];
+    }
+    Object pair = pairIndex[index];
+    if (pair == null) {
+      pair = new PairView(keys[index]);
+      pairIndex[index] = pair;
+    }
+    return pair;
+  }
+
+  private Object[] getKeyIndex() {
+    if (keyIndex == null || keyIndex.length != size()) {
+      keyIndex = keySet().toArray();
+      pairIndex = null;
+    }
+    return keyIndex;
+  }
+
+  /**
+   * A key and its current value in this dictionary.
+   */
+  private class PairView extends AbstractList<Object> {
+    private final Object key;
+
+    PairView(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object get(int index) {
+      switch (index) {
+        case 0:
+          return key;
+        case 1:
+          return YailDictionary.super.get(key);
+        default:
+          throw new IndexOutOfBoundsException();
       }
-      i--;
     }
-    // We shouldn't get here as the check at the beginning of the function
-    // should have already covered this (and we aren't concurrently editable).
-    throw new IndexOutOfBoundsException();
+
+    @Override
+    public int size() {
+      return 2;
+    }
   }
 
   @NonNull
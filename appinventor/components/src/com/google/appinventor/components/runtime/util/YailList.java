@@ -147,19 +147,7 @@ public class YailList extends Pair implements YailObject {
    */
   public String toJSONString() {
     try {
-      StringBuilder json = new StringBuilder();
-      String separator = "";
-      json.append('[');
-      int size = this.size();
-      for (int i = 1; i <= size; i++) {
-        Object value = get(i);
-        json.append(separator).append(JsonUtil.getJsonRepresentation(value));
-        separator = ",";
-      }
-      json.append(']');
-
-      return json.toString();
-
+      return JsonUtil.getJsonRepresentation(this);
     } catch (JSONException e) {
       throw new YailRuntimeError("List failed to convert to JSON.", "JSON Creation Error.");
     }
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -28,6 +29,8 @@ public class BluetoothConnectionBaseTest extends TestCase {
   private ByteArrayOutputStream outputStream;
   private int recordedErrorNumber;
   private PipedOutputStream pipe;
+  private final List<String> receivedFrames = Collections.synchronizedList(new ArrayList<String>());
+  private int dataReceivedEvents;
 
   @Override
   protected void setUp() throws Exception {
@@ -41,6 +44,17 @@ public class BluetoothConnectionBaseTest extends TestCase {
         recordedErrorNumber = errorNumber;
       }
       @Override
+      void runOnUiThread(Runnable runnable) {
+        runnable.run();
+      }
+      @Override
+      public void DataReceived(YailList frames) {
+        dataReceivedEvents++;
+        for (Object frame : frames.toArray()) {
+          receivedFrames.add((String) frame);
+        }
+      }
+      @Override
       protected void write(String functionName, byte b) {
         super.write(functionName, b);
         try {
@@ -454,4 +468,49 @@ public class BluetoothConnectionBaseTest extends TestCase {
     assertEquals((byte) 0xFF, bytes[i++]);  // 0xFF
     assertEquals((byte) 0xAB, bytes[i++]);  // 0xab
   }
+
+  public void testReceiveLongDelimitedText() {
+    // Longer than the read buffer, and with the next frame arriving in the same read
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    String text = sb.toString();
+    connection.DelimiterByte(10);
+    final String data = text + "\nnext\n";
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          pipe.write(data.getBytes("UTF-8"));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }).start();
+    assertEquals(text, connection.ReceiveText(-1));
+    assertEquals("next", connection.ReceiveText(-1));
+    assertEquals(0, recordedErrorNumber);
+  }
+
+  public void testReceiveInBackground() throws InterruptedException {
+    final int count = 500;
+    connection.DelimiterByte(10);
+    connection.ReceiveInBackground(true);
+    assertTrue(connection.ReceiveInBackground());
+    for (int i = 0; i < count; i++) {
+      connection.SendText("reading " + i + "\n");
+    }
+    long deadline = System.currentTimeMillis() + 10000;
+    while (receivedFrames.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    connection.ReceiveInBackground(false);
+    assertEquals(count, receivedFrames.size());
+    for (int i = 0; i < count; i++) {
+      assertEquals("reading " + i, receivedFrames.get(i));
+    }
+    assertTrue(dataReceivedEvents > 0);
+    assertEquals(0, recordedErrorNumber);
+  }
 }
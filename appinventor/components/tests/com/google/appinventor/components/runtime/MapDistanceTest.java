@@ -705,6 +705,52 @@ public class MapDistanceTest extends MapTestBase {
     assertEquals(-1.0, marker.BearingToFeature(null, true), 0.0);
   }
 
+  @Test
+  public void testNearestFeatures() {
+    Marker origin = new Marker(getMap());
+    Marker east = new Marker(getMap());
+    east.SetLocation(0.0, 2.0);
+    Circle circle = MapTestBase.makeCircle(getMap(), 5.0, 0.0, 3.5 * ONE_DEG_IN_METERS);
+    assertEquals(YailList.makeList(new Object[] { origin, circle, east }),
+        getMap().NearestFeatures(0.5, 0.0, 3));
+    assertEquals(YailList.makeList(new Object[] { east }), getMap().NearestFeatures(0.0, 1.9, 1));
+    // Moving a feature updates the index
+    east.SetLocation(0.4, 0.0);
+    assertEquals(YailList.makeList(new Object[] { east, origin }),
+        getMap().NearestFeatures(0.5, 0.0, 2));
+    getMap().removeFeature(east);
+    assertEquals(YailList.makeList(new Object[] { origin, circle }),
+        getMap().NearestFeatures(0.5, 0.0, 5));
+  }
+
+  @Test
+  public void testFeaturesWithinDistance() {
+    Marker origin = new Marker(getMap());
+    Polygon polygon = makePolygon(getMap(), 1.0, 1.0, -1.0, 3.0);
+    assertEquals(YailList.makeList(new Object[] { origin }),
+        getMap().FeaturesWithinDistance(0.0, 0.0, 0.5 * ONE_DEG_IN_METERS));
+    assertEquals(YailList.makeList(new Object[] { origin, polygon }),
+        getMap().FeaturesWithinDistance(0.0, 0.0, 1.5 * ONE_DEG_IN_METERS));
+  }
+
+  @Test
+  public void testFeaturesInBoundingBox() {
+    Marker origin = new Marker(getMap());
+    LineString line = MapTestBase.makeLineString(getMap(), 1.0, 1.0, 3.0, 5.0);
+    Circle circle = MapTestBase.makeCircle(getMap(), 5.0, 0.0, 1.5 * ONE_DEG_IN_METERS);
+    assertEquals(YailList.makeList(new Object[] { origin, line }),
+        getMap().FeaturesInBoundingBox(makeBoundingBox(2.0, -1.0, -1.0, 2.0)));
+    assertEquals(YailList.makeList(new Object[] { line, circle }),
+        getMap().FeaturesInBoundingBox(makeBoundingBox(4.0, 0.5, 2.0, 10.0)));
+  }
+
+  private static YailList makeBoundingBox(double north, double west, double south, double east) {
+    return YailList.makeList(new Object[] {
+        YailList.makeList(new Object[] { north, west }),
+        YailList.makeList(new Object[] { south, east })
+    });
+  }
+
   public void assertDistance(MapFeatureBase a, MapFeatureBase b, double dCentroid, double dEdge) {
     assertEquals(dCentroid, a.DistanceToFeature(b, true), M_TOL);
     assertEquals(dCentroid, b.DistanceToFeature(a, true), M_TOL);
@@ -295,4 +295,31 @@ public class SpriteTest {
     assertEquals(0.0, bigCat.X(), DELTA);
     assertEquals(0.0, bigCat.Y(), DELTA);
   }
+
+  @Test
+  public void testAdvanceFrameUsesFixedTimestep() {
+    TestSprite sprite = TestSprite.createTestSprite(canvasMock, handlerMock, 10, 10);
+    sprite.MoveTo(0, 0);
+    sprite.Heading(0);
+    sprite.Interval(50);
+    sprite.Speed(10);
+    sprite.initialized = true;
+
+    // 120 ms covers two whole intervals, leaving 20 ms for the next frame.
+    assertTrue(sprite.advanceFrame(120));
+    assertEquals(20.0, sprite.X(), DELTA);
+
+    // 20 ms is not enough for another step on its own.
+    assertFalse(sprite.advanceFrame(20));
+    assertEquals(20.0, sprite.X(), DELTA);
+
+    // Together with the 40 ms carried over, 10 ms completes a third interval.
+    assertTrue(sprite.advanceFrame(10));
+    assertEquals(30.0, sprite.X(), DELTA);
+
+    // Disabled sprites do not move.
+    sprite.Enabled(false);
+    assertFalse(sprite.advanceFrame(500));
+    assertEquals(30.0, sprite.X(), DELTA);
+  }
 }
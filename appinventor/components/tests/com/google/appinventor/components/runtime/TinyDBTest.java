@@ -0,0 +1,177 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.appinventor.components.runtime.util.TinyDBStore;
+import com.google.appinventor.components.runtime.util.YailList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TinyDB} component.
+ */
+public class TinyDBTest extends RobolectricTestBase {
+
+  private static final String NAMESPACE = "TinyDBTest";
+
+  private TinyDB db;
+  private SharedPreferences prefs;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    db = new TinyDB(getForm());
+    db.Namespace(NAMESPACE);
+    db.ClearAll();
+    db.onPause();
+    prefs = getForm().getSharedPreferences(NAMESPACE, Context.MODE_PRIVATE);
+  }
+
+  @Test
+  public void testStoreAndGet() {
+    db.StoreValue("a", 42);
+    db.StoreValue("b", YailList.makeList(Arrays.asList("x", "y")));
+    assertEquals(42, db.GetValue("a", ""));
+    assertEquals(YailList.makeList(Arrays.asList("x", "y")), db.GetValue("b", ""));
+    assertEquals("missing", db.GetValue("c", "missing"));
+    assertEquals(Arrays.asList("a", "b"), db.GetTags());
+  }
+
+  @Test
+  public void testWritesAreDeferredUntilPause() {
+    db.StoreValue("a", "hello");
+    db.StoreValue("a", "world");
+    db.StoreValue("b", true);
+    assertFalse(prefs.contains("a"));
+    assertEquals(2, db.getStore().getPendingCount());
+    db.onPause();
+    assertEquals(0, db.getStore().getPendingCount());
+    assertEquals("\"world\"", prefs.getString("a", ""));
+    assertEquals("true", prefs.getString("b", ""));
+  }
+
+  @Test
+  public void testWritesAreFlushedAfterDelay() {
+    db.StoreValue("a", 1);
+    runAllEvents();
+    assertEquals("1", prefs.getString("a", ""));
+  }
+
+  @Test
+  public void testRepeatedReadsUseCache() {
+    TinyDBStore store = db.getStore();
+    db.StoreValue("list", YailList.makeList(Arrays.asList(1, 2, 3)));
+    long misses = store.getCacheMisses();
+    long hits = store.getCacheHits();
+    for (int i = 0; i < 10; i++) {
+      db.GetValue("list", "");
+    }
+    assertEquals(misses + 1, store.getCacheMisses());
+    assertEquals(hits + 9, store.getCacheHits());
+  }
+
+  @Test
+  public void testCachedValuesAreCopied() {
+    db.StoreValue("list", YailList.makeList(Arrays.asList(1, 2, 3)));
+    Object first = db.GetValue("list", "");
+    Object second = db.GetValue("list", "");
+    assertEquals(first, second);
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void testStoreAndClearInvalidateCache() {
+    db.StoreValue("a", 1);
+    assertEquals(1, db.GetValue("a", ""));
+    db.StoreValue("a", 2);
+    assertEquals(2, db.GetValue("a", ""));
+    db.ClearTag("a");
+    assertEquals("gone", db.GetValue("a", "gone"));
+    db.StoreValue("b", 3);
+    db.onStop();
+    db.ClearAll();
+    assertEquals("gone", db.GetValue("b", "gone"));
+    assertTrue(((List<?>) db.GetTags()).isEmpty());
+    db.onPause();
+    assertFalse(prefs.contains("b"));
+  }
+
+  @Test
+  public void testComponentsShareNamespace() {
+    TinyDB other = new TinyDB(getForm());
+    other.Namespace(NAMESPACE);
+    db.StoreValue("shared", "value");
+    assertEquals("value", other.GetValue("shared", ""));
+  }
+
+  @Test
+  public void testUseDatabaseMigratesExistingValues() {
+    db.StoreValue("a", 1);
+    db.StoreValue("b", "two");
+    db.onPause();
+    db.UseDatabase(true);
+    assertTrue(db.getStore().isDatabase());
+    assertTrue(prefs.getAll().isEmpty());
+    assertEquals(1, db.GetValue("a", ""));
+    assertEquals("two", db.GetValue("b", ""));
+  }
+
+  @Test
+  public void testDatabaseStoreAndClear() {
+    db.UseDatabase(true);
+    db.StoreValue("a", YailList.makeList(Arrays.asList(1, 2)));
+    db.StoreValue("b", true);
+    db.onPause();
+    assertEquals(0, db.getStore().getPendingCount());
+    assertFalse(prefs.contains("a"));
+    db.ClearTag("b");
+    db.onPause();
+    TinyDB other = new TinyDB(getForm());
+    other.Namespace(NAMESPACE);
+    other.UseDatabase(true);
+    assertEquals(YailList.makeList(Arrays.asList(1, 2)), other.GetValue("a", ""));
+    assertEquals(Arrays.asList("a"), other.GetTags());
+    db.ClearAll();
+    db.onPause();
+    assertTrue(((List<?>) other.GetTags()).isEmpty());
+    db.UseDatabase(false);
+  }
+
+  @Test
+  public void testDatabaseIsSharedByComponentsNotUsingIt() {
+    TinyDB other = new TinyDB(getForm());
+    other.Namespace(NAMESPACE);
+    db.StoreValue("a", 1);
+    db.UseDatabase(true);
+    // other still holds the SharedPreferences store, which has been replaced
+    other.StoreValue("b", 2);
+    assertSame(db.getStore(), other.getStore());
+    assertEquals(1, other.GetValue("a", ""));
+    assertEquals(2, db.GetValue("b", ""));
+
+    // Turning the database off doesn't strand the values moved into it
+    db.onPause();
+    db.UseDatabase(false);
+    assertTrue(db.getStore().isDatabase());
+    assertEquals(1, db.GetValue("a", ""));
+    assertTrue(prefs.getAll().isEmpty());
+    db.ClearAll();
+    db.onPause();
+  }
+}
@@ -16,12 +16,18 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -244,4 +250,55 @@ public class WebTest {
       assertEquals(4, e.index);
     }
   }
+
+  /**
+   * Returns a connection whose response has the given body, marked as gzip encoded.
+   */
+  private static HttpURLConnection gzipConnection(final byte[] body) throws Exception {
+    return new HttpURLConnection(new URL("http://example.com/")) {
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(body);
+      }
+
+      @Override
+      public String getContentEncoding() {
+        return "gzip";
+      }
+
+      @Override
+      public void connect() {
+      }
+
+      @Override
+      public void disconnect() {
+      }
+
+      @Override
+      public boolean usingProxy() {
+        return false;
+      }
+    };
+  }
+
+  @Test
+  public void testGetConnectionStreamEmptyGzipBody() throws Exception {
+    InputStream in = Web.getConnectionStream(gzipConnection(new byte[0]));
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testGetConnectionStreamGzipBody() throws Exception {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(compressed);
+    out.write("hello".getBytes("UTF-8"));
+    out.close();
+    InputStream in = Web.getConnectionStream(gzipConnection(compressed.toByteArray()));
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != -1) {
+      body.write(b);
+    }
+    assertEquals("hello", body.toString("UTF-8"));
+  }
 }
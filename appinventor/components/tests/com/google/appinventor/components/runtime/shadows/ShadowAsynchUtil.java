@@ -49,6 +49,11 @@ public class ShadowAsynchUtil {
     runnables.add(call);
   }
 
+  @Implementation
+  public static void runBlockingAsynchronously(final Runnable call) {
+    runnables.add(call);
+  }
+
   @Implementation
   public static void runAsynchronously(final Handler androidUIHandler,
                                        final Runnable call,
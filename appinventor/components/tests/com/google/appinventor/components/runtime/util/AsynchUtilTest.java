@@ -0,0 +1,126 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the thread pools behind {@link AsynchUtil}.
+ */
+public class AsynchUtilTest {
+
+  private ThreadPoolExecutor executor;
+
+  @Before
+  public void setUp() {
+    executor = AsynchUtil.newIoExecutor(2, "AsynchUtilTest");
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Returns a call that counts down started, then waits for release.
+   */
+  private static Runnable waitingCall(final CountDownLatch started, final CountDownLatch release,
+      final AtomicBoolean interrupted) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+        }
+      }
+    };
+  }
+
+  @Test(timeout = 10000)
+  public void testCallsBeyondMaximumAreQueued() throws Exception {
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean(false);
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int i = 0; i < 3; i++) {
+      futures.add(AsynchUtil.submit(executor, null, waitingCall(started, release, interrupted)));
+    }
+    started.await();
+    assertEquals(2, executor.getPoolSize());
+    assertEquals(1, executor.getQueue().size());
+    release.countDown();
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    assertFalse(interrupted.get());
+  }
+
+  @Test(timeout = 10000)
+  public void testIdleThreadsAreReused() throws Exception {
+    final AtomicInteger count = new AtomicInteger(0);
+    Runnable call = new Runnable() {
+      @Override
+      public void run() {
+        count.incrementAndGet();
+      }
+    };
+    AsynchUtil.submit(executor, null, call).get();
+    // The thread counts as busy until it has finished with the call
+    while (executor.getCompletedTaskCount() < 1) {
+      Thread.sleep(10);
+    }
+    AsynchUtil.submit(executor, null, call).get();
+    assertEquals(2, count.get());
+    assertEquals(1, executor.getPoolSize());
+  }
+
+  @Test(timeout = 10000)
+  public void testCancelDropsQueuedCallsOnly() throws Exception {
+    Object form = new Object();
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean(false);
+    final AtomicBoolean queuedCallRan = new AtomicBoolean(false);
+    AsynchUtil.submit(executor, form, waitingCall(started, release, interrupted));
+    AsynchUtil.submit(executor, form, waitingCall(started, release, interrupted));
+    Future<Void> queued = AsynchUtil.submit(executor, form, new Runnable() {
+      @Override
+      public void run() {
+        queuedCallRan.set(true);
+      }
+    });
+    started.await();
+    AsynchUtil.cancelPendingCalls(form);
+    assertTrue(queued.isCancelled());
+    assertEquals(0, executor.getQueue().size());
+
+    // The running calls are not interrupted and finish normally
+    release.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertFalse(interrupted.get());
+    assertFalse(queuedCallRan.get());
+    assertEquals(2, executor.getCompletedTaskCount());
+  }
+}
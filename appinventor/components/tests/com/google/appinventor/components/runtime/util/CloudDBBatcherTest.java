@@ -0,0 +1,250 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.appinventor.components.runtime.util.CloudDBBatcher.OpType;
+import com.google.appinventor.components.runtime.util.CloudDBBatcher.Operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the CloudDBBatcher class against an in-memory stand-in for the Redis server.
+ */
+public class CloudDBBatcherTest {
+
+  /**
+   * A Redis stand-in that understands just enough to execute CloudDB operations, and records
+   * how many round trips it was asked to make.
+   */
+  private static class FakeRedis implements CloudDBBatcher.Backend {
+    final Map<String, Object> data = new HashMap<String, Object>();
+    final List<List<String>> published = new ArrayList<List<String>>();
+    int roundTrips = 0;
+    boolean connected = true;
+    // When set, the next batch answers every script operation (store, append, pop) with
+    // NOSCRIPT, as Redis does after it restarts or its scripts are flushed
+    boolean noScriptOnce = false;
+
+    @SuppressWarnings("unchecked")
+    public List<Object> execute(List<Operation> batch) {
+      if (!connected) {
+        throw new IllegalStateException("connection lost");
+      }
+      roundTrips++;
+      boolean noScript = noScriptOnce;
+      noScriptOnce = false;
+      List<Object> results = new ArrayList<Object>();
+      for (Operation op : batch) {
+        if (noScript && op.getType() != OpType.GET && op.getType() != OpType.CLEAR) {
+          results.add(new CloudDBBatcher.RetryableException(
+              new IllegalStateException("NOSCRIPT No matching script")));
+          continue;
+        }
+        Object current = data.get(op.getTag());
+        switch (op.getType()) {
+          case GET:
+            results.add(current);
+            break;
+          case STORE:
+            data.put(op.getTag(), op.getValue());
+            published.add(op.getPublishedValues());
+            results.add("OK");
+            break;
+          case APPEND:
+            if (current == null) {
+              current = new LinkedList<String>();
+              data.put(op.getTag(), current);
+            } else if (!(current instanceof List)) {
+              results.add(new IllegalArgumentException("You can only append to a list"));
+              break;
+            }
+            ((List<String>) current).add(op.getValue());
+            results.add(current.toString());
+            break;
+          case POP_FIRST:
+            results.add(((LinkedList<String>) current).removeFirst());
+            break;
+          case CLEAR:
+            results.add(data.remove(op.getTag()) == null ? 0L : 1L);
+            break;
+        }
+      }
+      return results;
+    }
+  }
+
+  /**
+   * Records the results delivered to callbacks, in delivery order.
+   */
+  private static class Recorder {
+    final List<String> events = new ArrayList<String>();
+
+    CloudDBBatcher.Callback callback(final String name) {
+      return new CloudDBBatcher.Callback() {
+        public void onResult(Object result) {
+          events.add(name + "=" + result);
+        }
+
+        public void onError(Exception e) {
+          events.add(name + "!" + e.getMessage());
+        }
+      };
+    }
+  }
+
+  private FakeRedis redis;
+  private CloudDBBatcher batcher;
+  private Recorder recorder;
+
+  @Before
+  public void setUp() {
+    redis = new FakeRedis();
+    batcher = new CloudDBBatcher(redis);
+    recorder = new Recorder();
+  }
+
+  @Test
+  public void testOnlyFirstAddRequestsFlush() {
+    assertTrue(batcher.add(new Operation(OpType.GET, "a", null, null)));
+    assertFalse(batcher.add(new Operation(OpType.GET, "b", null, null)));
+    batcher.flush();
+    assertTrue(batcher.add(new Operation(OpType.GET, "c", null, null)));
+  }
+
+  @Test
+  public void testManyOperationsShareOneRoundTrip() {
+    for (int i = 0; i < 50; i++) {
+      batcher.add(new Operation(OpType.GET, "tag" + i, null, recorder.callback("get" + i)));
+    }
+    assertEquals(50, batcher.flush());
+    assertEquals(1, redis.roundTrips);
+    assertEquals(50, recorder.events.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals("get" + i + "=null", recorder.events.get(i));
+    }
+    assertEquals(0, batcher.flush());
+    assertEquals(1, redis.roundTrips);
+  }
+
+  @Test
+  public void testOperationsRunInOrder() {
+    batcher.add(new Operation(OpType.GET, "x", null, recorder.callback("get1")));
+    batcher.add(new Operation(OpType.STORE, "x", "1", recorder.callback("store")));
+    batcher.add(new Operation(OpType.GET, "x", null, recorder.callback("get2")));
+    batcher.add(new Operation(OpType.APPEND, "list", "a", recorder.callback("append1")));
+    batcher.add(new Operation(OpType.APPEND, "list", "b", recorder.callback("append2")));
+    batcher.add(new Operation(OpType.POP_FIRST, "list", null, recorder.callback("pop")));
+    batcher.add(new Operation(OpType.CLEAR, "x", null, recorder.callback("clear")));
+    batcher.add(new Operation(OpType.GET, "x", null, recorder.callback("get3")));
+    batcher.flush();
+    assertEquals(Arrays.asList("get1=null", "store=OK", "get2=1", "append1=[a]",
+        "append2=[a, b]", "pop=a", "clear=1", "get3=null"), recorder.events);
+  }
+
+  @Test
+  public void testConsecutiveStoresToSameTagAreCoalesced() {
+    batcher.add(new Operation(OpType.STORE, "x", "1", recorder.callback("x1")));
+    batcher.add(new Operation(OpType.STORE, "x", "2", recorder.callback("x2")));
+    batcher.add(new Operation(OpType.STORE, "x", "3", recorder.callback("x3")));
+    batcher.add(new Operation(OpType.STORE, "y", "4", recorder.callback("y")));
+    batcher.add(new Operation(OpType.STORE, "x", "5", recorder.callback("x5")));
+    assertEquals(3, batcher.flush());
+    assertEquals("5", redis.data.get("x"));
+    assertEquals(Arrays.asList(Arrays.asList("1", "2", "3"), Arrays.asList("4"),
+        Arrays.asList("5")), redis.published);
+    assertEquals(Arrays.asList("x3=OK", "y=OK", "x5=OK"), recorder.events);
+  }
+
+  @Test
+  public void testPerOperationErrorsDoNotAffectOthers() {
+    redis.data.put("scalar", "42");
+    batcher.add(new Operation(OpType.APPEND, "scalar", "1", recorder.callback("bad")));
+    batcher.add(new Operation(OpType.GET, "scalar", null, recorder.callback("get")));
+    batcher.flush();
+    assertEquals(Arrays.asList("bad!You can only append to a list", "get=42"), recorder.events);
+  }
+
+  @Test
+  public void testFailedBatchIsDropped() {
+    redis.connected = false;
+    batcher.add(new Operation(OpType.STORE, "x", "1", recorder.callback("store")));
+    try {
+      batcher.flush();
+      fail("Expected the batch to fail");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertTrue(recorder.events.isEmpty());
+    assertEquals(0, batcher.getPendingCount());
+    assertEquals(0, batcher.getBatchCount());
+    redis.connected = true;
+    assertEquals(0, batcher.flush());
+    assertNull(redis.data.get("x"));
+  }
+
+  @Test
+  public void testMetrics() {
+    for (int i = 0; i < 3; i++) {
+      batcher.add(new Operation(OpType.GET, "a" + i, null, null));
+    }
+    batcher.flush();
+    batcher.add(new Operation(OpType.GET, "b", null, null));
+    batcher.flush();
+    assertEquals(2, batcher.getBatchCount());
+    assertEquals(4, batcher.getOperationCount());
+    assertEquals(1, batcher.getLastBatchSize());
+    assertEquals(3, batcher.getMaxBatchSize());
+    assertTrue(batcher.getAverageBatchLatency() >= 0);
+  }
+
+  @Test
+  public void testOperationsAreRetriedAfterNoScript() {
+    redis.noScriptOnce = true;
+    batcher.add(new Operation(OpType.GET, "x", null, recorder.callback("get1")));
+    batcher.add(new Operation(OpType.STORE, "x", "1", recorder.callback("store")));
+    batcher.add(new Operation(OpType.GET, "x", null, recorder.callback("get2")));
+    batcher.add(new Operation(OpType.APPEND, "list", "a", recorder.callback("append")));
+    batcher.add(new Operation(OpType.CLEAR, "y", null, recorder.callback("clear")));
+    batcher.flush();
+    // The batch is sent again from the store, so the get after it sees the stored value
+    assertEquals(2, redis.roundTrips);
+    assertEquals(Arrays.asList("get1=null", "store=OK", "get2=1", "append=[a]", "clear=0"),
+        recorder.events);
+    assertEquals("1", redis.data.get("x"));
+    assertEquals(Arrays.asList(Arrays.asList("1")), redis.published);
+  }
+
+  @Test
+  public void testOperationsAreRetriedOnlyOnce() {
+    redis.noScriptOnce = true;
+    CloudDBBatcher.Backend stillNoScript = new CloudDBBatcher.Backend() {
+      public List<Object> execute(List<Operation> batch) {
+        redis.noScriptOnce = true;
+        return redis.execute(batch);
+      }
+    };
+    batcher = new CloudDBBatcher(stillNoScript);
+    batcher.add(new Operation(OpType.STORE, "x", "1", recorder.callback("store")));
+    batcher.flush();
+    assertEquals(2, redis.roundTrips);
+    assertEquals(Arrays.asList("store!NOSCRIPT No matching script"), recorder.events);
+    assertNull(redis.data.get("x"));
+  }
+}
@@ -8,8 +8,12 @@ package com.google.appinventor.components.runtime.util;
 
 import junit.framework.TestCase;
 
+import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Tests for {@link Dates}.
@@ -174,6 +178,102 @@ public class DatesTest extends TestCase {
     assertEquals("Apr 21, 2008", Dates.FormatDate(date,""));
   }
 
+  /**
+   * Tests that cached formatters follow changes to the default time zone.
+   */
+  public void testFormatDateTimeAfterTimeZoneChange() {
+    TimeZone saved = TimeZone.getDefault();
+    try {
+      TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+      Calendar date = Dates.DateValue("04/21/2008 09:29:48");
+      assertEquals("2008-04-21 09:29", Dates.FormatDateTime(date, "yyyy-MM-dd HH:mm"));
+      TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+      assertEquals("2008-04-21 11:29", Dates.FormatDateTime(date, "yyyy-MM-dd HH:mm"));
+    } finally {
+      TimeZone.setDefault(saved);
+    }
+  }
+
+  private static final String[] FORMAT_PATTERNS = {
+    "MM/dd/yyyy hh:mm:ss a",
+    "MM/dd/yyyy HH:mm:ss",
+    "yyyy-MM-dd",
+    "yyyy-MM-dd'T'HH:mm:ss",
+    "EEE, d MMM yyyy HH:mm",
+    "EEEE MMMM d",
+    "MMM d, yyyy",
+    "h:mm a",
+    "HH:mm:ss.SSS",
+    "D",
+    "w",
+    "yy",
+    "MM",
+    "dd",
+    "HH",
+    "mm",
+    "ss",
+    "a",
+    "z"
+  };
+
+  /**
+   * Tests that {@link Dates#FormatDateTime(Calendar, String)} gives the same strings as a new
+   * SimpleDateFormat, in several locales and with more patterns than each thread keeps, so that
+   * formatters are reused, evicted and created again.
+   */
+  public void testFormatDateTimeMatchesNewFormatter() {
+    Locale saved = Locale.getDefault();
+    try {
+      for (Locale locale : new Locale[] { Locale.US, Locale.FRANCE, Locale.JAPAN }) {
+        Locale.setDefault(locale);
+        Calendar date = new GregorianCalendar(2020, Calendar.JANUARY, 1, 9, 5, 7);
+        for (int round = 0; round < 3; round++) {
+          for (String pattern : FORMAT_PATTERNS) {
+            date.add(Calendar.HOUR, 13);
+            assertEquals(locale + " " + pattern,
+                new SimpleDateFormat(pattern).format(date.getTime()),
+                Dates.FormatDateTime(date, pattern));
+          }
+        }
+      }
+    } finally {
+      Locale.setDefault(saved);
+    }
+  }
+
+  /**
+   * Tests that threads formatting with the same patterns at the same time don't share
+   * formatters.
+   */
+  public void testFormatDateTimeOnSeveralThreads() throws Exception {
+    final AtomicReference<String> failure = new AtomicReference<String>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final long offset = t * 86400000L;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          Calendar date = new GregorianCalendar(2020, Calendar.JANUARY, 1);
+          long base = date.getTimeInMillis() + offset;
+          for (int i = 0; i < 2000 && failure.get() == null; i++) {
+            String pattern = FORMAT_PATTERNS[i % 4];
+            date.setTimeInMillis(base + i * 60000L);
+            String expected = new SimpleDateFormat(pattern).format(date.getTime());
+            String actual = Dates.FormatDateTime(date, pattern);
+            if (!expected.equals(actual)) {
+              failure.compareAndSet(null, "expected " + expected + " but was " + actual);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get(), failure.get());
+  }
+
   /**
    * Tests {@link Dates#Hour(Calendar)}.
    */
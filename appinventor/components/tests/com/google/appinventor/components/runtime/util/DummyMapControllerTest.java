@@ -277,4 +277,24 @@ public class DummyMapControllerTest {
   public void testGetOverlayCount() {
     mapController.getOverlayCount();
   }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSetClusteringEnabled() {
+    mapController.setClusteringEnabled(true);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testIsClusteringEnabled() {
+    mapController.isClusteringEnabled();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testBeginFeatureBatch() {
+    mapController.beginFeatureBatch();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testEndFeatureBatch() {
+    mapController.endFeatureBatch();
+  }
 }
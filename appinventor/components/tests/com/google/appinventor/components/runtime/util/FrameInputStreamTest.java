@@ -0,0 +1,158 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests the FrameInputStream class.
+ */
+public class FrameInputStreamTest {
+
+  /**
+   * A source that returns at most a few bytes per read, like a slow serial link.
+   */
+  private static class TrickleInputStream extends InputStream {
+    private final byte[] data;
+    private final int chunk;
+    private int position = 0;
+    int reads = 0;
+
+    TrickleInputStream(byte[] data, int chunk) {
+      this.data = data;
+      this.chunk = chunk;
+    }
+
+    @Override
+    public int read() {
+      reads++;
+      return position < data.length ? data[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      reads++;
+      if (position >= data.length) {
+        return -1;
+      }
+      int n = Math.min(Math.min(len, chunk), data.length - position);
+      System.arraycopy(data, position, b, off, n);
+      position += n;
+      return n;
+    }
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes();
+  }
+
+  @Test
+  public void testReadUntil() throws IOException {
+    FrameInputStream in = new FrameInputStream(new ByteArrayInputStream(bytes("ab\ncd\n\nef")));
+    assertArrayEquals(bytes("ab\n"), in.readUntil((byte) '\n'));
+    assertTrue(in.hasFrame((byte) '\n'));
+    assertArrayEquals(bytes("cd\n"), in.readUntil((byte) '\n'));
+    assertArrayEquals(bytes("\n"), in.readUntil((byte) '\n'));
+    assertFalse(in.hasFrame((byte) '\n'));
+    // The source ends before the delimiter
+    assertArrayEquals(bytes("ef"), in.readUntil((byte) '\n'));
+    assertArrayEquals(new byte[0], in.readUntil((byte) '\n'));
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testFramesAcrossWrapAndGrowth() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      for (int j = 0; j < i % 23; j++) {
+        sb.append((char) ('a' + j));
+      }
+      sb.append(';');
+    }
+    TrickleInputStream source = new TrickleInputStream(bytes(sb.toString()), 5);
+    // A buffer smaller than many frames, so the buffer wraps and grows
+    FrameInputStream in = new FrameInputStream(source, 8);
+    for (int i = 0; i < 200; i++) {
+      byte[] frame = in.readUntil((byte) ';');
+      assertEquals(i % 23 + 1, frame.length);
+      for (int j = 0; j < i % 23; j++) {
+        assertEquals('a' + j, frame[j]);
+      }
+      assertEquals(';', frame[frame.length - 1]);
+    }
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testBulkReads() throws IOException {
+    String lines = "line one\nline two\nline three\n";
+    TrickleInputStream source = new TrickleInputStream(bytes(lines), 1024);
+    FrameInputStream in = new FrameInputStream(source);
+    in.readUntil((byte) '\n');
+    in.readUntil((byte) '\n');
+    in.readUntil((byte) '\n');
+    // One read for the data, rather than one per byte
+    assertEquals(1, source.reads);
+  }
+
+  @Test
+  public void testMixedReads() throws IOException {
+    FrameInputStream in = new FrameInputStream(
+        new TrickleInputStream(new byte[] { 1, 2, 3, 0, 4, 5, 6, 7, 8 }, 3), 4);
+    assertEquals(1, in.read());
+    assertArrayEquals(new byte[] { 2, 3, 0 }, in.readUntil((byte) 0));
+    byte[] b = new byte[4];
+    assertEquals(4, in.readFully(b, 0, 4));
+    assertArrayEquals(new byte[] { 4, 5, 6, 7 }, b);
+    assertEquals(1, in.available());
+    assertEquals(1, in.readFully(b, 0, 4));
+    assertEquals(8, b[0]);
+  }
+
+  @Test(timeout = 10000)
+  public void testReadsDoNotWaitForBlockedReader() throws Exception {
+    PipedOutputStream device = new PipedOutputStream();
+    final FrameInputStream in = new FrameInputStream(new PipedInputStream(device));
+    final IOException[] failure = new IOException[1];
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          in.readUntil((byte) '\n');
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      }
+    });
+    reader.start();
+    // The reader buffers the bytes and then waits for the delimiter, which never comes
+    device.write(bytes("cd"));
+    device.flush();
+    while (in.available() < 2) {
+      Thread.sleep(10);
+    }
+    // Buffered bytes can be read while the reader is waiting on the source
+    assertEquals('c', in.read());
+    assertEquals(1, in.available());
+    // Interrupting the reader stops it and leaves the rest of the bytes buffered
+    reader.interrupt();
+    reader.join();
+    assertTrue(failure[0] instanceof InterruptedIOException);
+    assertEquals('d', in.read());
+  }
+}
@@ -0,0 +1,199 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+/**
+ * Tests the GeoJSONReader class.
+ */
+public class GeoJSONReaderTest {
+
+  private static class RecordingHandler implements GeoJSONReader.Handler {
+    final List<String> events = new ArrayList<String>();
+    final List<GeoJSONReader.Feature> features = new ArrayList<GeoJSONReader.Feature>();
+    boolean accept = true;
+
+    @Override
+    public boolean onType(String type) {
+      events.add("type " + type);
+      return accept;
+    }
+
+    @Override
+    public void onFeature(GeoJSONReader.Feature feature) {
+      events.add("feature " + feature.getGeometryType());
+      features.add(feature);
+    }
+  }
+
+  private static RecordingHandler read(String json) throws JSONException, IOException {
+    RecordingHandler handler = new RecordingHandler();
+    new GeoJSONReader(new StringReader(json)).read(handler);
+    return handler;
+  }
+
+  private static String collection(String... features) {
+    StringBuilder sb = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\": [");
+    for (int i = 0; i < features.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(features[i]);
+    }
+    return sb.append("]}").toString();
+  }
+
+  private static String feature(String geometryType, String coordinates, String properties) {
+    return "{\"type\": \"Feature\", \"geometry\": {\"type\": \"" + geometryType
+        + "\", \"coordinates\": " + coordinates + "}"
+        + (properties == null ? "" : ", \"properties\": " + properties) + "}";
+  }
+
+  @Test
+  public void testPoint() throws Exception {
+    RecordingHandler handler = read(collection(feature("Point", "[-71.09, 42.36, 10]",
+        "{\"title\": \"MIT\", \"visible\": true, \"width\": 20, \"note\": null}")));
+    assertEquals(1, handler.features.size());
+    GeoJSONReader.Feature feature = handler.features.get(0);
+    assertEquals("Feature", feature.getType());
+    assertEquals("Point", feature.getGeometryType());
+    assertEquals(1, feature.coordinateDepth);
+    assertArrayEquals(new double[] { -71.09, 42.36 }, feature.coordinates[0][0], 0);
+    assertEquals("((title MIT) (visible true) (width 20))",
+        feature.getProperties().toString());
+  }
+
+  @Test
+  public void testLineStringAndPolygons() throws Exception {
+    RecordingHandler handler = read(collection(
+        feature("LineString", "[[1, 2], [3, 4], [5, 6]]", null),
+        feature("Polygon", "[[[0, 0], [0, 1], [1, 1], [0, 0]], [[0.1, 0.1], [0.2, 0.2], "
+            + "[0.1, 0.2], [0.1, 0.1]]]", null),
+        feature("MultiPolygon", "[[[[0, 0], [0, 1], [1, 1], [0, 0]]], "
+            + "[[[5, 5], [5, 6], [6, 6], [5, 5]]]]", null)));
+    assertEquals(3, handler.features.size());
+    GeoJSONReader.Feature line = handler.features.get(0);
+    assertEquals(2, line.coordinateDepth);
+    assertArrayEquals(new double[] { 1, 2, 3, 4, 5, 6 }, line.coordinates[0][0], 0);
+    GeoJSONReader.Feature polygon = handler.features.get(1);
+    assertEquals(3, polygon.coordinateDepth);
+    assertEquals(2, polygon.coordinates[0].length);
+    assertArrayEquals(new double[] { 0.1, 0.1, 0.2, 0.2, 0.1, 0.2, 0.1, 0.1 },
+        polygon.coordinates[0][1], 0);
+    GeoJSONReader.Feature multipolygon = handler.features.get(2);
+    assertEquals(4, multipolygon.coordinateDepth);
+    assertEquals(2, multipolygon.coordinates.length);
+    assertArrayEquals(new double[] { 5, 5, 5, 6, 6, 6, 5, 5 }, multipolygon.coordinates[1][0],
+        0);
+  }
+
+  @Test
+  public void testToYailList() throws Exception {
+    RecordingHandler handler = read(collection(
+        "{\"type\": \"Feature\", \"id\": 7, \"geometry\": {\"type\": \"LineString\", "
+            + "\"coordinates\": [[1.5, 2], [3, 4]]}, \"properties\": {\"tags\": [\"a\", null, "
+            + "{\"b\": false}]}}"));
+    assertEquals("((type Feature) (id 7) (geometry ((type LineString) (coordinates ((1.5 2.0) "
+        + "(3.0 4.0))))) (properties ((tags (a ((b false)))))))",
+        handler.features.get(0).toYailList().toString());
+  }
+
+  @Test
+  public void testTypeAfterFeatures() throws Exception {
+    RecordingHandler handler = read("\uFEFF{\"features\": [" + feature("Point", "[1, 2]", null)
+        + "], \"bbox\": [0, 0, 1, 1], \"type\": \"FeatureCollection\"}");
+    assertEquals("[type FeatureCollection, feature Point]", handler.events.toString());
+  }
+
+  @Test
+  public void testRejectedType() throws Exception {
+    RecordingHandler handler = new RecordingHandler();
+    handler.accept = false;
+    new GeoJSONReader(new StringReader("{\"type\": \"Feature\", \"features\": ["
+        + feature("Point", "[1, 2]", null) + "]}")).read(handler);
+    assertEquals("[type Feature]", handler.events.toString());
+  }
+
+  @Test
+  public void testMissingType() throws Exception {
+    RecordingHandler handler = new RecordingHandler();
+    handler.accept = false;
+    new GeoJSONReader(new StringReader("{\"features\": []}")).read(handler);
+    assertEquals("[type null]", handler.events.toString());
+  }
+
+  @Test
+  public void testNullGeometry() throws Exception {
+    RecordingHandler handler = read(collection("{\"type\": \"Feature\", \"geometry\": null}"));
+    assertNull(handler.features.get(0).coordinates);
+    assertEquals("((type Feature))", handler.features.get(0).toYailList().toString());
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    String[] documents = {
+        "[]",
+        "{\"type\": \"FeatureCollection\"}",
+        "{\"type\": \"FeatureCollection\", \"features\": [",
+        collection(feature("LineString", "[[1, 2], 3]", null)),
+        collection(feature("Point", "[1, \"a\"]", null)),
+        collection("{\"type\": \"Feature\" \"geometry\": null}")
+    };
+    for (String document : documents) {
+      try {
+        read(document);
+        fail("Expected an exception for " + document);
+      } catch (JSONException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testLargeDocumentIsStreamed() throws Exception {
+    // Larger than the reader's buffer, so features are read across many refills
+    final int count = 20000;
+    StringBuilder sb = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\": [");
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(",\n");
+      }
+      sb.append(feature("LineString", "[[" + (i % 180) + ", 1.25], [-" + (i % 180)
+          + ".5, -1e-3]]", "{\"title\": \"feature \\\"" + i + "\\\"\"}"));
+    }
+    sb.append("]}");
+    final int[] seen = { 0 };
+    new GeoJSONReader(new StringReader(sb.toString())).read(new GeoJSONReader.Handler() {
+      @Override
+      public boolean onType(String type) {
+        return true;
+      }
+
+      @Override
+      public void onFeature(GeoJSONReader.Feature feature) {
+        int i = seen[0]++;
+        assertArrayEquals(new double[] { i % 180, 1.25, -(i % 180) - 0.5, -0.001 },
+            feature.coordinates[0][0], 1e-12);
+        assertTrue(feature.getProperties().toString().equals(
+            "((title feature \"" + i + "\"))"));
+      }
+    });
+    assertEquals(count, seen[0]);
+  }
+}
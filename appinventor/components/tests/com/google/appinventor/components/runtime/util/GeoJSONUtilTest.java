@@ -32,6 +32,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Constructor;
 import java.util.LinkedList;
 import java.util.List;
@@ -265,6 +266,35 @@ public class GeoJSONUtilTest extends MapTestBase {
     assertLogTriggered();
   }
 
+  @Test
+  public void testProcessStreamedFeaturePolygonWithHoles() throws Exception {
+    final List<GeoJSONReader.Feature> features = new LinkedList<GeoJSONReader.Feature>();
+    new GeoJSONReader(new StringReader("{\"type\": \"FeatureCollection\", \"features\": [{"
+        + "\"type\": \"Feature\", \"geometry\": {\"type\": \"Polygon\", \"coordinates\": ["
+        + "[[-71, 42], [-70, 42], [-70, 41], [-71, 42]],"
+        + "[[-70.75, 41.75], [-70.25, 41.75], [-70.25, 41.25], [-70.75, 41.75]]]},"
+        + "\"properties\": {\"title\": \"" + TEST_TITLE + "\"}}]}"))
+        .read(new GeoJSONReader.Handler() {
+          @Override
+          public boolean onType(String type) {
+            return true;
+          }
+
+          @Override
+          public void onFeature(GeoJSONReader.Feature feature) {
+            features.add(feature);
+          }
+        });
+    Polygon polygon = (Polygon) GeoJSONUtil.processGeoJSONFeature(LOG_TAG, getMap(),
+        features.get(0));
+    Polygon expected = (Polygon) GeoJSONUtil.processGeoJSONFeature(LOG_TAG, getMap(),
+        features.get(0).toYailList());
+    assertEquals(expected.getPoints(), polygon.getPoints());
+    assertEquals(expected.getHolePoints(), polygon.getHolePoints());
+    assertEquals(expected.Points().toString(), polygon.Points().toString());
+    assertEquals(TEST_TITLE, polygon.Title());
+  }
+
   @Test
   public void testParseBooleanOrString() {
     assertTrue(GeoJSONUtil.parseBooleanOrString(true));
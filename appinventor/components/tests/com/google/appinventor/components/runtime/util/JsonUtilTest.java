@@ -9,12 +9,14 @@ package com.google.appinventor.components.runtime.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
@@ -133,4 +135,54 @@ public class JsonUtilTest {
     Object shouldBeEmpty = JsonUtil.getObjectFromJson("");
     assertEquals("", JsonUtil.getObjectFromJson(""));
   }
+
+  @Test
+  public void testStreamingDecodeMatchesTokener() throws JSONException {
+    String[] inputs = {
+        "[1, -9.5, 123456789101112, 0xF, \"faLse\", null, [\"a\", [true]], {}]",
+        "{\"b\": [1, {\"d\": null}], \"a\": \"s\\u0041\\n\", \"c\": {\"z\": 1, \"y\": 2}}",
+        "{a: 1, b = 2; c => 'three'} ",
+        "/* comment */ [1, // line comment\n 2 # another\n]",
+        "\"true\"",
+        "42",
+        "null"
+    };
+    for (String input : inputs) {
+      for (boolean useDicts : new boolean[] { true, false }) {
+        assertEquals(input, String.valueOf(decodeWithTokener(input, useDicts)),
+            String.valueOf(JsonUtil.getObjectFromJson(input, useDicts)));
+      }
+    }
+  }
+
+  @Test(expected = JSONException.class)
+  public void testStreamingDecodeMalformed() throws JSONException {
+    JsonUtil.getObjectFromJson("{\"a\": [1, 2}", true);
+  }
+
+  @Test
+  public void testWriteJsonRepresentation() throws JSONException, IOException {
+    YailDictionary dict = new YailDictionary();
+    dict.put("k/1", YailList.makeList(Arrays.asList(1, 2.5, "a\"b\u0001", true)));
+    Object[] value = { dict, Arrays.asList("x", null), 3L };
+    StringBuilder out = new StringBuilder();
+    JsonUtil.writeJsonRepresentation(value, out);
+    String expected = "[{\"k\\/1\":[1,2.5,\"a\\\"b\\u0001\",true]},[\"x\",null],3]";
+    assertEquals(expected, out.toString());
+    assertEquals(expected, JsonUtil.getJsonRepresentation(value));
+    assertEquals(JSONObject.quote("a\"b\u0001/\t"), JsonUtil.getJsonRepresentation("a\"b\u0001/\t"));
+  }
+
+  private static Object decodeWithTokener(String json, boolean useDicts) throws JSONException {
+    Object value = new JSONTokener(json).nextValue();
+    if (value == null || value.equals(JSONObject.NULL)) {
+      return null;
+    } else if (value instanceof JSONArray) {
+      return JsonUtil.getListFromJsonArray((JSONArray) value, useDicts);
+    } else if (value instanceof JSONObject) {
+      return useDicts ? JsonUtil.getDictionaryFromJsonObject((JSONObject) value)
+          : JsonUtil.getListFromJsonObject((JSONObject) value);
+    }
+    return value;
+  }
 }
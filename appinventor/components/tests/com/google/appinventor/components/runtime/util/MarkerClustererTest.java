@@ -0,0 +1,112 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the MarkerClusterer class.
+ */
+public class MarkerClustererTest {
+
+  // The width of the world at zoom level 13 with 256 pixel tiles
+  private static final double WORLD_SIZE = 256 << 13;
+  private static final double CELL_SIZE = 64;
+
+  private MarkerClusterer<String> clusterer;
+
+  @Before
+  public void setUp() {
+    clusterer = new MarkerClusterer<String>();
+  }
+
+  private List<MarkerClusterer.Cluster<String>> clustersAroundCambridge() {
+    return clusterer.getClusters(WORLD_SIZE, CELL_SIZE, 42.38, 42.34, -71.06, -71.12);
+  }
+
+  @Test
+  public void testNearbyPointsAreClustered() {
+    clusterer.put("a", 42.3601, -71.0942);
+    clusterer.put("b", 42.3602, -71.0941);
+    List<MarkerClusterer.Cluster<String>> clusters = clustersAroundCambridge();
+    assertEquals(1, clusters.size());
+    MarkerClusterer.Cluster<String> cluster = clusters.get(0);
+    assertEquals(2, cluster.size());
+    assertEquals(42.36015, cluster.getLatitude(), 1e-6);
+    assertEquals(-71.09415, cluster.getLongitude(), 1e-6);
+    assertEquals(42.3602, cluster.getNorth(), 1e-6);
+    assertEquals(42.3601, cluster.getSouth(), 1e-6);
+    assertEquals(-71.0941, cluster.getEast(), 1e-6);
+    assertEquals(-71.0942, cluster.getWest(), 1e-6);
+  }
+
+  @Test
+  public void testDistantPointsAreNotClustered() {
+    clusterer.put("mit", 42.3601, -71.0942);
+    clusterer.put("harvard", 42.3744, -71.1169);
+    List<MarkerClusterer.Cluster<String>> clusters = clustersAroundCambridge();
+    assertEquals(2, clusters.size());
+    assertEquals("mit", clusters.get(0).get(0));
+    assertEquals("harvard", clusters.get(1).get(0));
+  }
+
+  @Test
+  public void testPointsFarOutsideViewportAreLeftOut() {
+    clusterer.put("cambridge", 42.3601, -71.0942);
+    clusterer.put("london", 51.5074, -0.1278);
+    List<MarkerClusterer.Cluster<String>> clusters = clustersAroundCambridge();
+    assertEquals(1, clusters.size());
+    assertEquals("cambridge", clusters.get(0).get(0));
+  }
+
+  @Test
+  public void testViewportAcrossAntimeridian() {
+    clusterer.put("fiji", -17.7134, 178.0650);
+    clusterer.put("samoa", -13.7590, -172.1046);
+    List<MarkerClusterer.Cluster<String>> clusters =
+        clusterer.getClusters(256 << 4, CELL_SIZE, 0, -30, -170, 170);
+    assertEquals(2, clusters.size());
+  }
+
+  @Test
+  public void testClustersAreReused() {
+    clusterer.put("a", 42.3601, -71.0942);
+    List<MarkerClusterer.Cluster<String>> clusters = clustersAroundCambridge();
+    assertEquals(1, clusterer.getComputeCount());
+    // Panning a little stays within the margin around the first viewport
+    assertSame(clusters, clusterer.getClusters(WORLD_SIZE, CELL_SIZE, 42.385, 42.345, -71.055,
+        -71.115));
+    assertEquals(1, clusterer.getComputeCount());
+    // Zooming changes the grid
+    clusterer.getClusters(WORLD_SIZE * 2, CELL_SIZE, 42.37, 42.35, -71.08, -71.11);
+    assertEquals(2, clusterer.getComputeCount());
+  }
+
+  @Test
+  public void testChangesInvalidateClusters() {
+    clusterer.put("a", 42.3601, -71.0942);
+    assertEquals(1, clustersAroundCambridge().size());
+    clusterer.put("b", 42.3744, -71.1169);
+    assertEquals(2, clustersAroundCambridge().size());
+    // Moving b next to a merges them
+    clusterer.put("b", 42.3602, -71.0941);
+    assertEquals(1, clustersAroundCambridge().size());
+    assertTrue(clusterer.remove("b"));
+    assertFalse(clusterer.remove("b"));
+    assertEquals(1, clustersAroundCambridge().get(0).size());
+    clusterer.clear();
+    assertEquals(0, clustersAroundCambridge().size());
+    assertEquals(5, clusterer.getComputeCount());
+  }
+}
@@ -0,0 +1,71 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Tests the RetValManager class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23, manifest="tests/AndroidManifest.xml")
+public class RetValManagerTest {
+
+  @Before
+  public void setUp() {
+    // Drop anything left by another test
+    RetValManager.fetch(false);
+  }
+
+  @Test
+  public void testFetchReturnsValuesInOrder() throws JSONException {
+    RetValManager.appendReturnValue("b1", "OK", "1");
+    RetValManager.sendError("oops");
+    RetValManager.appendReturnValue("b2", "BAD", "quote \" and comma ,");
+    JSONObject output = new JSONObject(RetValManager.fetch(false));
+    assertEquals("OK", output.getString("status"));
+    assertTrue(output.getBoolean("batch"));
+    JSONArray values = output.getJSONArray("values");
+    assertEquals(3, values.length());
+    assertEquals("b1", values.getJSONObject(0).getString("blockid"));
+    assertEquals("error", values.getJSONObject(1).getString("type"));
+    assertEquals("oops", values.getJSONObject(1).getString("value"));
+    assertEquals("BAD", values.getJSONObject(2).getString("status"));
+    assertEquals("quote \" and comma ,", values.getJSONObject(2).getString("value"));
+
+    // The values are only returned once
+    output = new JSONObject(RetValManager.fetch(false));
+    assertEquals(0, output.getJSONArray("values").length());
+  }
+
+  @Test
+  public void testBlockingFetchWaitsForValue() throws JSONException {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          // Send it now
+        }
+        RetValManager.appendReturnValue("b1", "OK", "late");
+      }
+    }).start();
+    JSONArray values = new JSONObject(RetValManager.fetch(true)).getJSONArray("values");
+    assertEquals(1, values.length());
+    assertEquals("late", values.getJSONObject(0).getString("value"));
+  }
+}
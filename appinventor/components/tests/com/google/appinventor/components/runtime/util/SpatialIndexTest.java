@@ -0,0 +1,183 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2026 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.osmdroid.util.GeoPoint;
+
+/**
+ * Tests the SpatialIndex class.
+ */
+public class SpatialIndexTest {
+
+  private static class Point {
+    final String name;
+    double latitude;
+    double longitude;
+
+    Point(String name, double latitude, double longitude) {
+      this.name = name;
+      this.latitude = latitude;
+      this.longitude = longitude;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static class PointIndex extends SpatialIndex<Point> {
+    int envelopeCount = 0;
+
+    @Override
+    protected Envelope getEnvelope(Point item) {
+      envelopeCount++;
+      return new Envelope(item.longitude, item.longitude, item.latitude, item.latitude);
+    }
+
+    @Override
+    protected double getDistance(Point item, double latitude, double longitude) {
+      return distance(item, latitude, longitude);
+    }
+
+    @Override
+    protected boolean intersects(Point item, double north, double west, double south,
+        double east) {
+      return item.latitude <= north && item.latitude >= south && item.longitude >= west
+          && item.longitude <= east;
+    }
+  }
+
+  private static double distance(Point item, double latitude, double longitude) {
+    return GeometryUtil.distanceBetween(new GeoPoint(item.latitude, item.longitude),
+        new GeoPoint(latitude, longitude));
+  }
+
+  private PointIndex index;
+  private final Point mit = new Point("mit", 42.3601, -71.0942);
+  private final Point harvard = new Point("harvard", 42.3744, -71.1169);
+  private final Point london = new Point("london", 51.5074, -0.1278);
+  private final Point fiji = new Point("fiji", -17.7134, 178.0650);
+  private final Point samoa = new Point("samoa", -13.7590, -172.1046);
+
+  @Before
+  public void setUp() {
+    index = new PointIndex();
+    for (Point point : Arrays.asList(mit, harvard, london, fiji, samoa)) {
+      index.add(point);
+    }
+  }
+
+  @Test
+  public void testBoundingBox() {
+    assertEquals("[mit, harvard]",
+        index.getItemsInBoundingBox(42.38, -71.12, 42.35, -71.09).toString());
+    assertEquals("[mit]", index.getItemsInBoundingBox(42.365, -71.1, 42.35, -71.09).toString());
+    assertEquals("[]", index.getItemsInBoundingBox(10, 10, 0, 20).toString());
+  }
+
+  @Test
+  public void testBoundingBoxAcrossAntimeridian() {
+    List<Point> items = index.getItemsInBoundingBox(0, 170, -30, -170);
+    assertEquals(2, items.size());
+    assertTrue(items.contains(fiji));
+    assertTrue(items.contains(samoa));
+  }
+
+  @Test
+  public void testWithinDistance() {
+    assertEquals("[mit, harvard]",
+        index.getItemsWithinDistance(42.36, -71.09, 5000).toString());
+    assertEquals("[mit]", index.getItemsWithinDistance(42.36, -71.09, 1000).toString());
+    // Fiji and Samoa are about 1,150 km apart across the antimeridian
+    assertEquals("[samoa, fiji]",
+        index.getItemsWithinDistance(-13.76, -172.1, 1500000).toString());
+  }
+
+  @Test
+  public void testNearest() {
+    assertEquals("[harvard, mit]", index.getNearestItems(42.38, -71.12, 2).toString());
+    assertEquals("[london]", index.getNearestItems(48.8566, 2.3522, 1).toString());
+    assertEquals(5, index.getNearestItems(0, 0, 10).size());
+    assertEquals("[]", index.getNearestItems(0, 0, 0).toString());
+  }
+
+  @Test
+  public void testChangesAreIndexedLazily() {
+    index.getNearestItems(0, 0, 1);
+    assertEquals(5, index.envelopeCount);
+    for (int i = 0; i < 100; i++) {
+      harvard.latitude = 51.5 + i / 10000.0;
+      harvard.longitude = -0.12;
+      index.invalidate(harvard);
+    }
+    assertEquals("[harvard, london]", index.getNearestItems(51.51, -0.12, 2).toString());
+    assertEquals(6, index.envelopeCount);
+    index.remove(london);
+    assertEquals("[harvard, mit]", index.getNearestItems(51.51, -0.12, 2).toString());
+    index.invalidate(london);
+    assertEquals(4, index.size());
+    index.clear();
+    assertEquals("[]", index.getNearestItems(51.5, -0.12, 2).toString());
+  }
+
+  @Test
+  public void testBoundsAround() {
+    double[] box = SpatialIndex.getBoundsAround(60, 0, 1000);
+    // At 60 degrees a degree of longitude is about half as long as one of latitude
+    assertEquals(box[0] - 60, 60 - box[2], 1e-9);
+    assertTrue(box[3] > 1.9 * (box[0] - 60));
+    box = SpatialIndex.getBoundsAround(89.99, 0, 10000);
+    assertEquals(-180, box[1], 0);
+    assertEquals(180, box[3], 0);
+  }
+
+  @Test
+  public void testMatchesLinearScan() {
+    Random random = new Random(42);
+    List<Point> points = new ArrayList<Point>();
+    index.clear();
+    for (int i = 0; i < 2000; i++) {
+      Point point = new Point("p" + i, random.nextDouble() * 10 + 40,
+          random.nextDouble() * 10 - 75);
+      points.add(point);
+      index.add(point);
+    }
+    for (int i = 0; i < 20; i++) {
+      final double latitude = random.nextDouble() * 12 + 39;
+      final double longitude = random.nextDouble() * 12 - 76;
+      List<Point> expected = new ArrayList<Point>(points);
+      Collections.sort(expected, new Comparator<Point>() {
+        @Override
+        public int compare(Point a, Point b) {
+          return Double.compare(distance(a, latitude, longitude),
+              distance(b, latitude, longitude));
+        }
+      });
+      assertEquals(expected.subList(0, 5), index.getNearestItems(latitude, longitude, 5));
+      List<Point> within = new ArrayList<Point>();
+      for (Point point : expected) {
+        if (distance(point, latitude, longitude) <= 50000) {
+          within.add(point);
+        }
+      }
+      assertEquals(within, index.getItemsWithinDistance(latitude, longitude, 50000));
+    }
+  }
+}
@@ -14,6 +14,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.appinventor.components.runtime.collect.Lists;
@@ -24,6 +25,7 @@ import gnu.lists.LList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import org.json.JSONException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -232,6 +234,101 @@ public class YailDictionaryTest {
     assertEquals(1, dict.size());
   }
 
+  @Test
+  public void testGetObjectAfterChanges() {
+    YailDictionary dict = YailDictionary.makeDictionary("a", 1, "b", 2, "c", 3);
+    assertEquals(asList("b", 2), dict.getObject(1));
+    dict.remove("b");
+    assertEquals(asList("c", 3), dict.getObject(1));
+    dict.put("d", 4);
+    assertEquals(asList("d", 4), dict.getObject(2));
+    dict.put("a", 5);
+    assertEquals(asList("a", 5), dict.getObject(0));
+    dict.keySet().remove("a");
+    assertEquals(asList("c", 3), dict.getObject(0));
+    Iterator<YailList> it = dict.iterator();
+    it.next();
+    it.remove();
+    dict.put("e", 6);
+    assertEquals(asList("e", 6), dict.getObject(1));
+    dict.clear();
+    dict.put("f", 7);
+    assertEquals(asList("f", 7), dict.getObject(0));
+  }
+
+  @Test
+  public void testAlistInRecursiveGetIsConverted() {
+    YailList inner = YailList.makeList(new Object[] {
+        YailList.makeList(asList("x", 1)),
+        YailList.makeList(asList("x", 2))
+    });
+    YailDictionary dict = new YailDictionary();
+    dict.put("outer", YailList.makeList(new Object[] {
+        YailList.makeList(new Object[] { "inner", inner })
+    }));
+    assertEquals(YailDictionary.makeDictionary("x", 2),
+        dict.getObjectAtKeyPath(asList("outer", "inner")));
+    assertEquals(2, dict.getObjectAtKeyPath(asList("outer", new FString("inner"), "x")));
+  }
+
+  @Test
+  public void testDictInAlistInRecursiveGetIsNotConverted() {
+    YailList alistValue = YailList.makeList(new Object[] {
+        YailList.makeList(asList("y", 3))
+    });
+    YailDictionary nested = YailDictionary.makeDictionary("v", alistValue);
+    YailDictionary dict = new YailDictionary();
+    dict.put("outer", YailList.makeList(new Object[] {
+        YailList.makeList(new Object[] { "d", nested })
+    }));
+    assertSame(nested, dict.getObjectAtKeyPath(asList("outer", "d")));
+    // The value comes from a real dictionary, so it is returned as stored
+    assertSame(alistValue, dict.getObjectAtKeyPath(asList("outer", "d", "v")));
+    assertEquals(3, dict.getObjectAtKeyPath(asList("outer", "d", "v", "y")));
+  }
+
+  @Test
+  public void testLargeDictionaryPositionalAccessAndIteration() {
+    final int size = 10000;
+    YailDictionary dict = new YailDictionary();
+    for (int i = 0; i < size; i++) {
+      dict.put("key" + i, i);
+    }
+    for (int i = 0; i < size; i++) {
+      List<?> pair = (List<?>) dict.getObject(i);
+      assertEquals(Arrays.asList("key" + i, i), pair);
+      // Asking again for a position returns the same pair
+      assertSame(pair, dict.getObject(i));
+    }
+    int count = 0;
+    for (YailList pair : dict) {
+      assertEquals("key" + count, pair.getObject(0));
+      assertEquals(count, pair.getObject(1));
+      count++;
+    }
+    assertEquals(size, count);
+
+    // Pairs show the current value, and positions follow removals
+    List<?> last = (List<?>) dict.getObject(size - 1);
+    dict.put("key" + (size - 1), "changed");
+    assertEquals("changed", last.get(1));
+    dict.remove("key0");
+    assertEquals(Arrays.asList("key1", 1), dict.getObject(0));
+    assertEquals(size - 1, dict.size());
+  }
+
+  @Test
+  public void testIteratorPairsAreIndependent() {
+    YailDictionary dict = YailDictionary.makeDictionary("a", 1, "b", 2);
+    Iterator<YailList> it = dict.iterator();
+    YailList first = it.next();
+    YailList second = it.next();
+    assertEquals("a", first.getObject(0));
+    assertEquals(1, first.getObject(1));
+    assertEquals("b", second.getObject(0));
+    assertEquals(2, second.getObject(1));
+  }
+
   @Test
   public void testAlistToDictEmpty() {
     YailList list = YailList.makeEmptyList();